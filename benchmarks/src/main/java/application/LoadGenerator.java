@@ -0,0 +1,227 @@
+package application;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a lobby of headless Peers with Snake Bots on the loopback interface and collects the reports of all of them,
+ * see {@link HeadlessRunner}.
+ * <p>
+ * The Peers either all run in this JVM, or each in its own process. Every Peer gets its own address out of
+ * 127.0.0.0/8, which only works on Linux. The first Peer starts a match as soon as all others have joined it, and a new
+ * one whenever a match is over, until the time is up. All Settings starting with "snake." get passed on to every Peer,
+ * so {@code -Dsnake.topology=partial} runs the lobby as a partial mesh, and {@code -Dsnake.headless.matches=10} keeps
+ * 10 matches running at once. The Peers use the greedy Bot by default.
+ * <p>
+ * Run it with {@code gradle :benchmarks:loadGenerator --args="<peers> <seconds> <inprocess|process>"}, by default 8 Peers
+ * for 30 seconds in this JVM. It exits with status 1 if a Peer did not report or has desynced.
+ */
+public class LoadGenerator {
+	private static final int DEFAULT_PEERS = 8;
+	private static final int DEFAULT_SECONDS = 30;
+	private static final int FIRST_SUBNET = 20;
+	private static final int PEERS_PER_SUBNET = 250;
+	/**
+	 * How much longer than the run itself a Peer may take to quit and report.
+	 */
+	private static final long REPORT_TIMEOUT_SECONDS = 30;
+	private static final String[] COLUMNS = { "ticks", "stalls", "desyncs", "removed", "tickP50Us", "tickP99Us", "waitP50Us",
+			"waitP99Us", "waitMaxUs", "sentBps", "receivedBps", "throttled" };
+
+	private static final PrintStream RESULTS = System.out;
+
+	public static void main(String[] args) throws Exception {
+		int peers = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PEERS;
+		int seconds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SECONDS;
+		boolean isInProcess = args.length <= 2 || args[2].equals("inprocess");
+
+		RESULTS.printf("%d peers for %d seconds, %s%n%n", peers, seconds, isInProcess ? "in this JVM" : "one process each");
+		List<String> ips = new ArrayList<>();
+		List<Map<String, Long>> reports = parseReports(isInProcess ? runInProcess(peers, seconds) : runProcesses(peers, seconds), ips);
+		printReports(ips, reports);
+
+		boolean failed = reports.size() < peers;
+		if (failed) {
+			RESULTS.printf("FAILED: only %d of %d peers reported%n", reports.size(), peers);
+		}
+		for (int i = 0; i < reports.size(); i++) {
+			if (reports.get(i).get("desyncs") > 0) {
+				RESULTS.printf("FAILED: %s has desynced%n", ips.get(i));
+				failed = true;
+			}
+		}
+		System.exit(failed ? 1 : 0);
+	}
+
+	/**
+	 * Parses report lines, sorted by the ips of their Peers.
+	 * @param reportLines the lines, starting with {@link HeadlessRunner#REPORT_PREFIX}
+	 * @param ips the list the ip of every report gets added to, in the same order as the reports
+	 * @return the values of every report by their keys
+	 */
+	static List<Map<String, Long>> parseReports(List<String> reportLines, List<String> ips) {
+		List<Map<String, Long>> reports = new ArrayList<>();
+		List<String> sortedLines = new ArrayList<>(reportLines);
+		Collections.sort(sortedLines);
+		for (String line : sortedLines) {
+			Map<String, Long> report = new HashMap<>();
+			for (String pair : line.substring(HeadlessRunner.REPORT_PREFIX.length()).split(" ")) {
+				String[] keyAndValue = pair.split("=", 2);
+				if (keyAndValue[0].equals("ip")) {
+					ips.add(keyAndValue[1]);
+				} else {
+					report.put(keyAndValue[0], Long.parseLong(keyAndValue[1]));
+				}
+			}
+			reports.add(report);
+		}
+		return reports;
+	}
+
+	private static List<String> runInProcess(int peers, int seconds) throws InterruptedException {
+		// The applications print every connection and every Control Message.
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+		PrintStream ignoredReports = new PrintStream(OutputStream.nullOutputStream());
+		List<String> reports = new ArrayList<>();
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < peers; i++) {
+			// The Settings are read when the application and the runner get created.
+			System.clearProperty(ApplicationSetting.HEADLESS_PLAYERS.getKey());
+			System.clearProperty(ApplicationSetting.HEADLESS_CONNECT.getKey());
+			getPeerSettings(i, peers, seconds).forEach(System::setProperty);
+			HeadlessRunner runner = new HeadlessRunner(new NetworkApplication(), ignoredReports);
+			Thread thread = new Thread(() -> {
+				String report = runner.run();
+				synchronized (reports) {
+					reports.add(report);
+				}
+			});
+			thread.start();
+			threads.add(thread);
+			if (i == 0) {
+				// Gives the first Peer the time to bind, before everyone else connects to it.
+				Thread.sleep(100);
+			}
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		return reports;
+	}
+
+	private static List<String> runProcesses(int peers, int seconds) throws IOException, InterruptedException {
+		String java = ProcessHandle.current().info().command().orElse("java");
+		List<String> reports = new ArrayList<>();
+		List<Process> processes = new ArrayList<>();
+		List<Thread> readers = new ArrayList<>();
+		for (int i = 0; i < peers; i++) {
+			List<String> command = new ArrayList<>(List.of(java, "-cp", System.getProperty("java.class.path")));
+			getPeerSettings(i, peers, seconds).forEach((key, value) -> command.add("-D%s=%s".formatted(key, value)));
+			command.add("Main");
+			Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+			processes.add(process);
+			// The output has to be read all the time, otherwise the Peer blocks once the pipe is full.
+			Thread reader = new Thread(() -> collectReports(process, reports));
+			reader.start();
+			readers.add(reader);
+			if (i == 0) {
+				// Gives the first Peer the time to start and bind, before everyone else connects to it.
+				Thread.sleep(1_000);
+			}
+		}
+		for (Process process : processes) {
+			if (!process.waitFor(seconds + REPORT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+				process.destroyForcibly();
+			}
+		}
+		for (Thread reader : readers) {
+			reader.join();
+		}
+		return reports;
+	}
+
+	static void collectReports(Process process, List<String> reports) {
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				// The console prompt might precede the report on the same line.
+				int start = line.indexOf(HeadlessRunner.REPORT_PREFIX);
+				if (start >= 0) {
+					synchronized (reports) {
+						reports.add(line.substring(start));
+					}
+				}
+			}
+		} catch (IOException e) {
+			// The process has been destroyed, so there is no report.
+		}
+	}
+
+	/**
+	 * Returns the Settings of a single Peer. Every Peer but the first connects to the first, which starts the matches.
+	 */
+	static Map<String, String> getPeerSettings(int peer, int peers, int seconds) {
+		Map<String, String> settings = new HashMap<>();
+		System.getProperties().stringPropertyNames().stream()
+				.filter(key -> key.startsWith("snake."))
+				.forEach(key -> settings.put(key, System.getProperty(key)));
+		settings.put(ApplicationSetting.HEADLESS.getKey(), "true");
+		settings.put(ApplicationSetting.HEADLESS_SECONDS.getKey(), Integer.toString(seconds));
+		settings.put(ApplicationSetting.NETWORK_ADDRESS.getKey(), getAddress(peer));
+		// All Peers share the working directory, so none of them may remember its Peers or record its matches.
+		settings.put(ApplicationSetting.PEER_LIST_FILE.getKey(), "");
+		settings.put(ApplicationSetting.REPLAY_DIRECTORY.getKey(), "");
+		settings.putIfAbsent(ApplicationSetting.BOT.getKey(), "greedy");
+		if (peer == 0) {
+			settings.put(ApplicationSetting.HEADLESS_PLAYERS.getKey(), Integer.toString(peers));
+			settings.remove(ApplicationSetting.HEADLESS_CONNECT.getKey());
+		} else {
+			settings.put(ApplicationSetting.HEADLESS_CONNECT.getKey(), getAddress(0));
+			settings.remove(ApplicationSetting.HEADLESS_PLAYERS.getKey());
+		}
+		return settings;
+	}
+
+	static String getAddress(int peer) {
+		return "127.0.%d.%d".formatted(FIRST_SUBNET + peer / PEERS_PER_SUBNET, peer % PEERS_PER_SUBNET + 1);
+	}
+
+	static void printReports(List<String> ips, List<Map<String, Long>> reports) {
+		RESULTS.printf("%-15s", "peer");
+		for (String column : COLUMNS) {
+			RESULTS.printf(" %11s", column);
+		}
+		RESULTS.println();
+		for (int i = 0; i < reports.size(); i++) {
+			RESULTS.printf("%-15s", ips.get(i));
+			for (String column : COLUMNS) {
+				RESULTS.printf(" %11d", reports.get(i).get(column));
+			}
+			RESULTS.println();
+		}
+		if (reports.isEmpty()) {
+			return;
+		}
+		// Counts are summed up, everything else is the maximum over all Peers.
+		RESULTS.printf("%-15s", "all");
+		for (String column : COLUMNS) {
+			boolean isCount = column.equals("stalls") || column.equals("desyncs") || column.equals("removed")
+					|| column.equals("throttled");
+			long value = isCount ? 0 : Long.MIN_VALUE;
+			for (Map<String, Long> report : reports) {
+				value = isCount ? value + report.get(column) : Math.max(value, report.get(column));
+			}
+			RESULTS.printf(" %11d", value);
+		}
+		RESULTS.println();
+	}
+}
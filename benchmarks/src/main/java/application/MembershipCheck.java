@@ -0,0 +1,173 @@
+package application;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks that a running match goes on when participants leave, crash or stop responding, see
+ * {@link application.snake.SnakeMatch}.
+ * <p>
+ * Runs a lobby of headless Peers, each in its own process, like the {@link LoadGenerator}. Once every Peer has reported
+ * that the first match is running, one Peer gets terminated, so it leaves the match in an orderly way, one gets killed, so its connections
+ * break, and one gets suspended, so it is only noticed by the {@link ApplicationSetting#FAILURE_TIMEOUT}.
+ * All other Peers have to remove all three of them without desyncing, and must never wait much longer than the failure
+ * timeout for an input.
+ * <p>
+ * Run it with {@code gradle :benchmarks:membershipCheck --args="<peers> <seconds>"}, by default 6 Peers for 20 seconds.
+ * The processes are controlled with signals, so it only works on Linux. It exits with status 1 if a check failed.
+ */
+public class MembershipCheck {
+	private static final int DEFAULT_PEERS = 6;
+	private static final int DEFAULT_SECONDS = 20;
+	/**
+	 * When the Peers get stopped, counted from the moment the last Peer has reported that the match is running. The
+	 * suspended Peer has to be removed by the failure timeout before the Bots have ended the match on their own.
+	 */
+	private static final long LEAVE_MILLIS = 1_000;
+	private static final long CRASH_MILLIS = 2_000;
+	private static final long SUSPEND_MILLIS = 3_000;
+	private static final long REPORT_TIMEOUT_SECONDS = 30;
+	/**
+	 * How much longer than the failure timeout a survivor may wait for an input, which covers the round trip of the
+	 * reports and a late tick.
+	 */
+	private static final long WAIT_MARGIN_MICROS = 1_000_000;
+
+	private static final PrintStream RESULTS = System.out;
+
+	public static void main(String[] args) throws Exception {
+		int peers = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PEERS;
+		int seconds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SECONDS;
+		if (peers < 5) {
+			throw new IllegalArgumentException("At least 5 Peers are needed, the first one and one survivor are never stopped!");
+		}
+
+		RESULTS.printf("%d peers for %d seconds, peer 1 leaves, peer 2 crashes and peer 3 stops responding%n%n", peers, seconds);
+		List<String> ips = new ArrayList<>();
+		List<Map<String, Long>> reports = LoadGenerator.parseReports(runProcesses(peers, seconds), ips);
+		LoadGenerator.printReports(ips, reports);
+
+		long maxWaitMicros = ApplicationSetting.FAILURE_TIMEOUT.getInt() * 1_000L + WAIT_MARGIN_MICROS;
+		List<String> stoppedIps = List.of(LoadGenerator.getAddress(1), LoadGenerator.getAddress(2), LoadGenerator.getAddress(3));
+		int survivors = 0;
+		boolean failed = false;
+		for (int i = 0; i < reports.size(); i++) {
+			Map<String, Long> report = reports.get(i);
+			if (stoppedIps.contains(ips.get(i))) {
+				continue;
+			}
+			survivors++;
+			if (report.get("desyncs") > 0) {
+				RESULTS.printf("FAILED: %s has desynced%n", ips.get(i));
+				failed = true;
+			}
+			if (report.get("removed") < stoppedIps.size()) {
+				RESULTS.printf("FAILED: %s has only removed %d players%n", ips.get(i), report.get("removed"));
+				failed = true;
+			}
+			if (report.get("waitMaxUs") > maxWaitMicros) {
+				RESULTS.printf("FAILED: %s has waited %d us for an input%n", ips.get(i), report.get("waitMaxUs"));
+				failed = true;
+			}
+		}
+		if (survivors < peers - stoppedIps.size()) {
+			RESULTS.printf("FAILED: only %d of %d survivors reported%n", survivors, peers - stoppedIps.size());
+			failed = true;
+		}
+		if (!failed) {
+			RESULTS.println("PASSED");
+		}
+		System.exit(failed ? 1 : 0);
+	}
+
+	private static List<String> runProcesses(int peers, int seconds) throws IOException, InterruptedException {
+		String java = ProcessHandle.current().info().command().orElse("java");
+		List<String> reports = new ArrayList<>();
+		List<Process> processes = new ArrayList<>();
+		List<Thread> readers = new ArrayList<>();
+		CountDownLatch matchStarted = new CountDownLatch(peers);
+		long launch = System.currentTimeMillis();
+		for (int i = 0; i < peers; i++) {
+			List<String> command = new ArrayList<>(List.of(java, "-cp", System.getProperty("java.class.path")));
+			LoadGenerator.getPeerSettings(i, peers, seconds).forEach((key, value) -> command.add("-D%s=%s".formatted(key, value)));
+			command.add("Main");
+			Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+			processes.add(process);
+			Thread reader = new Thread(() -> collectOutput(process, reports, matchStarted));
+			reader.start();
+			readers.add(reader);
+			if (i == 0) {
+				Thread.sleep(1_000);
+			}
+		}
+		// The suspended Peer has to be noticed by the failure timeout, before the survivors quit and report.
+		long latestStart = launch + seconds * 1_000L - SUSPEND_MILLIS - ApplicationSetting.FAILURE_TIMEOUT.getInt()
+				- WAIT_MARGIN_MICROS / 1_000;
+		if (!matchStarted.await(Math.max(0, latestStart - System.currentTimeMillis()), TimeUnit.MILLISECONDS)) {
+			processes.forEach(Process::destroyForcibly);
+			throw new IllegalStateException("Only %d of %d Peers have started the match in time!"
+					.formatted(peers - matchStarted.getCount(), peers));
+		}
+		long start = System.currentTimeMillis();
+		sleepUntil(start + LEAVE_MILLIS);
+		processes.get(1).destroy();
+		sleepUntil(start + CRASH_MILLIS);
+		processes.get(2).destroyForcibly();
+		sleepUntil(start + SUSPEND_MILLIS);
+		sendSignal(processes.get(3), "STOP");
+
+		for (int i = 0; i < processes.size(); i++) {
+			if (i != 3 && !processes.get(i).waitFor(seconds + REPORT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+				processes.get(i).destroyForcibly();
+			}
+		}
+		// The suspended Peer would only find out that it has been removed, its report does not matter.
+		processes.get(3).destroyForcibly();
+		for (Thread reader : readers) {
+			reader.join();
+		}
+		return reports;
+	}
+
+	/**
+	 * Collects the report of a process like {@link LoadGenerator#collectReports(Process, List)}, and counts down the
+	 * latch when the process reports its first running match.
+	 */
+	private static void collectOutput(Process process, List<String> reports, CountDownLatch matchStarted) {
+		boolean hasStarted = false;
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				int start = line.indexOf(HeadlessRunner.REPORT_PREFIX);
+				if (start >= 0) {
+					synchronized (reports) {
+						reports.add(line.substring(start));
+					}
+				} else if (!hasStarted && line.contains(HeadlessRunner.MATCH_STARTED_PREFIX)) {
+					hasStarted = true;
+					matchStarted.countDown();
+				}
+			}
+		} catch (IOException e) {
+			// The process has been destroyed, so there is no report.
+		}
+	}
+
+	private static void sleepUntil(long timeMillis) throws InterruptedException {
+		Thread.sleep(Math.max(0, timeMillis - System.currentTimeMillis()));
+	}
+
+	private static void sendSignal(Process process, String signal) throws IOException, InterruptedException {
+		Process kill = new ProcessBuilder("kill", "-" + signal, Long.toString(process.pid())).inheritIO().start();
+		if (kill.waitFor() != 0) {
+			throw new IllegalStateException("Could not send SIG%s to Peer %d!".formatted(signal, process.pid()));
+		}
+	}
+}
@@ -0,0 +1,164 @@
+package application;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Measures the time to first connection of a freshly started application, that is the time from launching its
+ * process until an already running Peer has accepted its connection.
+ * <p>
+ * A headless Peer listens on the loopback interface for the whole run. Then, one joining Peer after another gets
+ * launched with {@link ApplicationSetting#HEADLESS_CONNECT}, each in a process of its own and with an address of its
+ * own, and the time until the listening Peer prints that it has joined gets measured. Every mode launches the same
+ * number of joining Peers: without Class Data Sharing, with the default archive of the JDK, and with the AppCDS
+ * archive of the application, if it has been created with {@code gradle cdsArchive}.
+ * <p>
+ * The joining Peers run from the jar of the application, since the AppCDS archive only fits that jar. Run it with
+ * {@code gradle :benchmarks:startupBenchmark --args="<runs>"}, by default 5 runs per mode.
+ */
+public class StartupBenchmark {
+	private static final int DEFAULT_RUNS = 5;
+	private static final String LISTENER_ADDRESS = "127.0.40.1";
+	private static final Pattern JOINED_MESSAGE = Pattern.compile("New Peer at (\\S+) has joined the lobby\\.");
+	private static final long LISTENER_START_MILLIS = 2_000;
+	private static final long CONNECT_TIMEOUT_MILLIS = 10_000;
+	/**
+	 * How long a joining Peer stays in the lobby, before it quits on its own.
+	 */
+	private static final int JOIN_SECONDS = 1;
+	private static final long QUIT_TIMEOUT_SECONDS = 10;
+
+	private static final PrintStream RESULTS = System.out;
+
+	private final String java;
+	private final String jar;
+	/**
+	 * The time the listening Peer has printed that the Peer of an ip has joined, by the ip.
+	 */
+	private final Map<String, Long> joinedNanos;
+	private int joinedPeers = 0;
+
+	private StartupBenchmark(String java, String jar) {
+		this.java = java;
+		this.jar = jar;
+		joinedNanos = new ConcurrentHashMap<>();
+	}
+
+	public static void main(String[] args) throws Exception {
+		int runs = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_RUNS;
+		String jar = System.getProperty("startup.jar");
+		String archive = System.getProperty("startup.archive");
+		if (jar == null || !Files.exists(Path.of(jar))) {
+			throw new IllegalArgumentException("The jar of the application has to be passed with -Dstartup.jar=<path>!");
+		}
+
+		Map<String, List<String>> modes = new LinkedHashMap<>();
+		modes.put("no CDS", List.of("-Xshare:off"));
+		modes.put("JDK CDS", List.of());
+		if (archive != null && Files.exists(Path.of(archive))) {
+			modes.put("AppCDS", List.of("-XX:SharedArchiveFile=" + archive, "-Xshare:auto"));
+		} else {
+			RESULTS.println("No AppCDS archive found, run \"gradle cdsArchive\" to create it.");
+		}
+
+		StartupBenchmark benchmark = new StartupBenchmark(ProcessHandle.current().info().command().orElse("java"), jar);
+		RESULTS.printf("%d runs per mode, time to first connection in milliseconds%n%n", runs);
+		RESULTS.printf("%-10s%8s%8s%8s%n", "mode", "min", "median", "max");
+		Process listener = benchmark.startListener();
+		try {
+			Thread.sleep(LISTENER_START_MILLIS);
+			for (Map.Entry<String, List<String>> mode : modes.entrySet()) {
+				List<Long> millis = new ArrayList<>();
+				for (int i = 0; i < runs; i++) {
+					millis.add(benchmark.measureJoin(mode.getValue()));
+				}
+				Collections.sort(millis);
+				RESULTS.printf("%-10s%8d%8d%8d%n", mode.getKey(), millis.getFirst(), millis.get(millis.size() / 2), millis.getLast());
+			}
+		} finally {
+			listener.destroy();
+			listener.waitFor(QUIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		}
+		System.exit(0);
+	}
+
+	private Process startListener() throws IOException {
+		List<String> command = getCommand(List.of(), LISTENER_ADDRESS);
+		Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+		Thread reader = new Thread(() -> readListenerOutput(process));
+		reader.setDaemon(true);
+		reader.start();
+		return process;
+	}
+
+	/**
+	 * Launches a joining Peer and waits until it has joined and quit again.
+	 * @param jvmArgs the options of the JVM of the joining Peer
+	 * @return the milliseconds from launching the Peer until it has joined
+	 */
+	private long measureJoin(List<String> jvmArgs) throws IOException, InterruptedException {
+		joinedPeers++;
+		String ip = "127.0.40.%d".formatted(joinedPeers + 1);
+		List<String> command = getCommand(jvmArgs, ip);
+		command.add(command.size() - 1, "-D%s=%s".formatted(ApplicationSetting.HEADLESS_CONNECT.getKey(), LISTENER_ADDRESS));
+
+		long start = System.nanoTime();
+		Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+		long deadline = start + TimeUnit.MILLISECONDS.toNanos(CONNECT_TIMEOUT_MILLIS);
+		while (!joinedNanos.containsKey(ip) && System.nanoTime() < deadline) {
+			Thread.sleep(1);
+		}
+		if (!process.waitFor(JOIN_SECONDS + QUIT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+			process.destroyForcibly();
+		}
+		Long joined = joinedNanos.get(ip);
+		if (joined == null) {
+			throw new IllegalStateException("The Peer at %s has not joined within %d ms!".formatted(ip, CONNECT_TIMEOUT_MILLIS));
+		}
+		return TimeUnit.NANOSECONDS.toMillis(joined - start);
+	}
+
+	private List<String> getCommand(List<String> jvmArgs, String ip) {
+		List<String> command = new ArrayList<>();
+		command.add(java);
+		command.addAll(jvmArgs);
+		command.addAll(List.of("-cp", jar));
+		command.add("-D%s=%s".formatted(ApplicationSetting.HEADLESS.getKey(), "true"));
+		command.add("-D%s=%s".formatted(ApplicationSetting.NETWORK_ADDRESS.getKey(), ip));
+		// The Peers share the working directory, so none of them may remember its Peers.
+		command.add("-D%s=%s".formatted(ApplicationSetting.PEER_LIST_FILE.getKey(), ""));
+		command.add("-D%s=%s".formatted(ApplicationSetting.REPLAY_DIRECTORY.getKey(), ""));
+		if (!ip.equals(LISTENER_ADDRESS)) {
+			command.add("-D%s=%d".formatted(ApplicationSetting.HEADLESS_SECONDS.getKey(), JOIN_SECONDS));
+		}
+		command.add("Main");
+		return command;
+	}
+
+	private void readListenerOutput(Process process) {
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				Matcher matcher = JOINED_MESSAGE.matcher(line);
+				if (matcher.find()) {
+					joinedNanos.putIfAbsent(matcher.group(1), System.nanoTime());
+				}
+			}
+		} catch (IOException e) {
+			// The listening Peer has been destroyed.
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package application.command;
+
+import application.NetworkApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long the {@link CommandHandler} needs to find and execute a Command, depending on how many
+ * Commands it manages. The Commands themselves do nothing, so only the dispatch gets measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandDispatchBenchmark {
+	@Param({ "4", "32" })
+	public int numberOfCommands;
+
+	private CommandHandler handler;
+	private String firstCommand;
+	private String lastCommandByName;
+	private String unknownCommand;
+
+	@Setup
+	public void setup() {
+		handler = new CommandHandler(null) {
+			@Override
+			protected List<Command> getCommands() {
+				List<Command> commands = new ArrayList<>();
+				for (int i = 0; i < numberOfCommands; i++) {
+					commands.add(new NoOpCommand(i));
+				}
+				return commands;
+			}
+		};
+		firstCommand = "/c0 a b";
+		lastCommandByName = "/command-%d a b".formatted(numberOfCommands - 1);
+		unknownCommand = "/unknown a b";
+	}
+
+	@Benchmark
+	public String dispatchFirstCommand() {
+		return handler.parseAndExecuteCommand(firstCommand);
+	}
+
+	@Benchmark
+	public String dispatchLastCommandByName() {
+		return handler.parseAndExecuteCommand(lastCommandByName);
+	}
+
+	@Benchmark
+	public String dispatchUnknownCommand() {
+		return handler.parseAndExecuteCommand(unknownCommand);
+	}
+
+	private record NoOpCommand(int index) implements Command {
+		@Override
+		public String getIdentifier() {
+			return "c" + index;
+		}
+
+		@Override
+		public String getName() {
+			return "command-" + index;
+		}
+
+		@Override
+		public String[] getArgumentNames() {
+			return new String[] { "a", "b" };
+		}
+
+		@Override
+		public String getDescription() {
+			return null;
+		}
+
+		@Override
+		public int getNumberOfArguments() {
+			return 2;
+		}
+
+		@Override
+		public void execute(NetworkApplication app, String[] args) {
+		}
+	}
+}
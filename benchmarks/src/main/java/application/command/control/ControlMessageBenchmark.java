@@ -0,0 +1,78 @@
+package application.command.control;
+
+import application.NetworkApplication;
+import application.snake.Direction;
+import application.snake.InputPacketCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building a Control Message with {@link ControlMessage#getAsString} and parsing it again with the
+ * {@link ControlMessageHandler}, from a String and straight from the received bytes.
+ * Uses the input Control Message, since that is the one sent every tick.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ControlMessageBenchmark {
+	private ControlMessageHandler handler;
+	private InputControlMessage inputMessage;
+	private String packet;
+	private String encodedInputMessage;
+	private ByteBuffer receivedInputMessage;
+	private ControlMessageArguments args;
+
+	@Setup
+	public void setup() {
+		// No match has been started, so executing the input only parses it.
+		NetworkApplication app = new NetworkApplication();
+		handler = new ControlMessageHandler(app);
+		inputMessage = new InputControlMessage();
+		Direction[] inputs = new Direction[8];
+		Arrays.fill(inputs, Direction.UP);
+		ByteBuffer buffer = ByteBuffer.allocate(InputPacketCodec.MAX_PACKET_SIZE);
+		InputPacketCodec.encode(buffer, 3, 123456, inputs, inputs.length);
+		packet = InputControlMessage.encodePacket(buffer.flip());
+		encodedInputMessage = inputMessage.getAsString("0", packet);
+		byte[] bytes = encodedInputMessage.getBytes(StandardCharsets.UTF_8);
+		receivedInputMessage = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+		args = new ControlMessageArguments();
+	}
+
+	@Benchmark
+	public String getAsString() {
+		return inputMessage.getAsString("0", packet);
+	}
+
+	@Benchmark
+	public String parseAndExecute() {
+		return handler.parseAndExecuteCommand(encodedInputMessage);
+	}
+
+	@Benchmark
+	public String parseAndExecuteFromBytes() {
+		ControlMessage messageType = handler.parseControlMessage(receivedInputMessage, args);
+		return handler.executeControlMessage(messageType, args);
+	}
+
+	@Benchmark
+	public String roundTrip() {
+		return handler.parseAndExecuteCommand(inputMessage.getAsString("0", packet));
+	}
+}
@@ -0,0 +1,63 @@
+package application.metrics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what the inline metrics updates cost on the hot paths. Compare the results with
+ * {@code SnakeTickBenchmark} and {@code BroadcastBenchmark}, the updates should stay below 1% of a tick.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsOverheadBenchmark {
+	private MetricsRegistry metrics;
+	private PeerMetrics peerMetrics;
+
+	@Setup
+	public void setup() {
+		metrics = new MetricsRegistry();
+		peerMetrics = metrics.getPeerMetrics("127.0.0.1");
+	}
+
+	@Benchmark
+	public void recordSentMessage() {
+		peerMetrics.recordSentMessage(32, 2_500);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void recordSentMessageContended() {
+		peerMetrics.recordSentMessage(32, 2_500);
+	}
+
+	@Benchmark
+	public void recordDispatch() {
+		metrics.recordDispatch("in", 1_800);
+	}
+
+	@Benchmark
+	public void recordTick() {
+		metrics.recordTick(12_000, 0);
+	}
+
+	@Benchmark
+	public long nanoTimePair() {
+		// Every timed update needs two of these, so they are part of the overhead as well.
+		return System.nanoTime() - System.nanoTime();
+	}
+}
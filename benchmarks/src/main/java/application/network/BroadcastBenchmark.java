@@ -0,0 +1,109 @@
+package application.network;
+
+import application.NetworkApplication;
+import application.command.control.InputControlMessage;
+import application.metrics.PeerMetrics;
+import application.snake.Direction;
+import application.snake.InputPacketCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the fan-out of a per-tick input broadcast through the {@link NetworkHandler}
+ * to a number of Peers connected over loopback, until every Peer has written the input to its socket.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastBenchmark {
+	@Param({ "1", "8", "32" })
+	public int numberOfPeers;
+
+	private NetworkApplication app;
+	private ServerSocket serverSocket;
+	private List<Socket> remoteSockets;
+	private InputControlMessage inputMessage;
+	private String packet;
+	private PeerMetrics peerMetrics;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		app = new NetworkApplication();
+		inputMessage = new InputControlMessage();
+		Direction[] inputs = new Direction[8];
+		Arrays.fill(inputs, Direction.UP);
+		ByteBuffer buffer = ByteBuffer.allocate(InputPacketCodec.MAX_PACKET_SIZE);
+		InputPacketCodec.encode(buffer, 3, 123456, inputs, inputs.length);
+		packet = InputControlMessage.encodePacket(buffer.flip());
+		// All Peers share the metrics of the loopback address.
+		peerMetrics = app.getMetrics().getPeerMetrics(InetAddress.getLoopbackAddress().getHostAddress());
+		serverSocket = new ServerSocket(0, numberOfPeers, InetAddress.getLoopbackAddress());
+		remoteSockets = new ArrayList<>();
+		for (int i = 0; i < numberOfPeers; i++) {
+			NetworkPeer peer = new NetworkPeer(app, InetAddress.getLoopbackAddress(), serverSocket.getLocalPort());
+			Socket remote = serverSocket.accept();
+			remoteSockets.add(remote);
+			Thread drainer = new Thread(() -> drain(remote));
+			drainer.setDaemon(true);
+			drainer.start();
+			// Every Peer has the same ip on loopback, so they get added directly instead of through addNewNetworkPeer.
+			app.getNetworkHandler().getPeers().add(peer);
+			peer.startSending();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		for (NetworkPeer peer : app.getNetworkHandler().getPeers()) {
+			peer.disconnectPeer();
+		}
+		for (Socket socket : remoteSockets) {
+			socket.close();
+		}
+		serverSocket.close();
+	}
+
+	@Benchmark
+	public void broadcastInput() {
+		app.getNetworkHandler().sendControlMessage(null, inputMessage, "0", packet);
+		while (peerMetrics.getPendingSends() > 0) {
+			Thread.onSpinWait();
+		}
+	}
+
+	private static void drain(Socket socket) {
+		byte[] buffer = new byte[8192];
+		try (InputStream in = socket.getInputStream()) {
+			while (in.read(buffer) != -1) {
+				// Discard everything, we only care about the sending side.
+			}
+		} catch (IOException e) {
+			// The benchmark is over.
+		}
+	}
+}
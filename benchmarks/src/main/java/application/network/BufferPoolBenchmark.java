@@ -0,0 +1,114 @@
+package application.network;
+
+import application.NetworkApplication;
+import application.command.control.InputControlMessage;
+import application.network.buffer.BufferPool;
+import application.network.buffer.PooledBuffer;
+import application.snake.Direction;
+import application.snake.InputPacketCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the pooled network path: a {@link NetworkPeer} queues and writes an input message over loopback,
+ * and the other end reads and frames it with a {@link MessageFramer}, just like a receiving Peer does.
+ * <p>
+ * Run it with {@code -prof gc}: gc.alloc.rate.norm should stay at about 0 bytes per operation for every benchmark,
+ * since all buffers and queued messages get reused.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BufferPoolBenchmark {
+	private NetworkApplication app;
+	private BufferPool bufferPool;
+	private ServerSocketChannel serverChannel;
+	private SocketChannel remoteChannel;
+	private NetworkPeer peer;
+	private MessageFramer remoteFramer;
+	private InputControlMessage inputMessage;
+	private String message;
+	private PooledBuffer encodedMessage;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		app = new NetworkApplication();
+		bufferPool = app.getBufferPool();
+		inputMessage = new InputControlMessage();
+		Direction[] inputs = new Direction[8];
+		Arrays.fill(inputs, Direction.UP);
+		ByteBuffer packet = ByteBuffer.allocate(InputPacketCodec.MAX_PACKET_SIZE);
+		InputPacketCodec.encode(packet, 3, 123456, inputs, inputs.length);
+		message = inputMessage.getAsString("0", InputControlMessage.encodePacket(packet.flip()));
+		encodedMessage = NetworkPeer.encodeMessage(bufferPool, 0, message);
+
+		serverChannel = ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		peer = new NetworkPeer(app, InetAddress.getLoopbackAddress(), serverChannel.socket().getLocalPort());
+		remoteChannel = serverChannel.accept();
+		remoteFramer = new MessageFramer(bufferPool, (byte) '\n', Integer.MAX_VALUE);
+		peer.startSending();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		peer.disconnectPeer();
+		remoteFramer.closeFramer();
+		encodedMessage.release();
+		remoteChannel.close();
+		serverChannel.close();
+	}
+
+	@Benchmark
+	public int acquireAndRelease() {
+		PooledBuffer buffer = bufferPool.acquire(message.length());
+		int capacity = buffer.getBuffer().capacity();
+		buffer.release();
+		return capacity;
+	}
+
+	/**
+	 * Sends a message that has been encoded once, like every Peer of a broadcast does.
+	 */
+	@Benchmark
+	public int sendEncodedAndReceive() throws IOException {
+		peer.sendMessage(encodedMessage.retain(), inputMessage);
+		return receiveMessage();
+	}
+
+	@Benchmark
+	public int encodeSendAndReceive() throws IOException {
+		peer.sendMessage(message, inputMessage);
+		return receiveMessage();
+	}
+
+	private int receiveMessage() throws IOException {
+		ByteBuffer received = remoteFramer.nextMessage();
+		while (received == null) {
+			remoteChannel.read(remoteFramer.getWritableBuffer());
+			received = remoteFramer.nextMessage();
+		}
+		return received.remaining();
+	}
+}
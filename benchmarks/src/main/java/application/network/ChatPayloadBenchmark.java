@@ -0,0 +1,114 @@
+package application.network;
+
+import application.network.buffer.BufferPool;
+import application.network.buffer.PooledBuffer;
+import application.network.buffer.Utf8;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures sending and receiving large chat messages. The received message arrives in reads of {@link #READ_SIZE}
+ * bytes, which split multi-byte characters of the multilingual text.
+ * <p>
+ * {@link #receiveLegacy()} is the framing before it worked on bytes, which turned every read into a String and
+ * re-encoded the remainder, as a baseline. It also corrupts every character split between two reads.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatPayloadBenchmark {
+	private static final int READ_SIZE = 64 * 1024;
+
+	@Param({ "1024", "65536", "1048576" })
+	public int payloadLength;
+
+	@Param({ "ascii", "multilingual" })
+	public String text;
+
+	private BufferPool bufferPool;
+	private MessageFramer framer;
+	private String message;
+	private byte[] stream;
+
+	@Setup
+	public void setup() {
+		bufferPool = new BufferPool(false, System.err::println);
+		framer = new MessageFramer(bufferPool, (byte) '\n', Integer.MAX_VALUE);
+		String pattern = text.equals("ascii") ? "The quick brown fox jumps over the lazy snake. " : "Grüße, 蛇のゲーム 🐍, привет! ";
+		StringBuilder sb = new StringBuilder();
+		while (sb.length() < payloadLength) {
+			sb.append(pattern);
+		}
+		message = sb.substring(0, payloadLength);
+		if (Character.isHighSurrogate(message.charAt(payloadLength - 1))) {
+			message = message.substring(0, payloadLength - 1);
+		}
+		stream = (message + "\n").getBytes(StandardCharsets.UTF_8);
+	}
+
+	@TearDown
+	public void tearDown() {
+		framer.closeFramer();
+	}
+
+	@Benchmark
+	public int encode() {
+		PooledBuffer encoded = NetworkPeer.encodeMessage(bufferPool, 0, message);
+		int length = encoded.getBuffer().remaining();
+		encoded.release();
+		return length;
+	}
+
+	@Benchmark
+	public String receive() throws IOException {
+		ByteBuffer received = null;
+		for (int offset = 0; received == null; ) {
+			ByteBuffer buffer = framer.getWritableBuffer();
+			int length = Math.min(Math.min(buffer.remaining(), READ_SIZE), stream.length - offset);
+			buffer.put(stream, offset, length);
+			offset += length;
+			received = framer.nextMessage();
+		}
+		return Utf8.decode(received);
+	}
+
+	@Benchmark
+	public String receiveLegacy() {
+		List<byte[]> parts = new ArrayList<>();
+		for (int offset = 0; offset < stream.length; offset += READ_SIZE) {
+			byte[] read = new byte[Math.min(READ_SIZE, stream.length - offset)];
+			System.arraycopy(stream, offset, read, 0, read.length);
+			parts.add(read);
+			String last = new String(read);
+			if (last.contains("\n")) {
+				parts.set(parts.size() - 1, last.split("\n", 2)[0].getBytes());
+				StringBuilder sb = new StringBuilder();
+				for (byte[] part : parts) {
+					sb.append(new String(part));
+				}
+				return sb.toString();
+			}
+		}
+		throw new IllegalStateException("The stream did not contain a full message!");
+	}
+}
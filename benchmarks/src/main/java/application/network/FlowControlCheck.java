@@ -0,0 +1,166 @@
+package application.network;
+
+import application.NetworkApplication;
+import application.command.control.InputControlMessage;
+import application.command.control.PingControlMessage;
+import application.command.control.StateHashControlMessage;
+import application.metrics.PeerMetrics;
+import application.snake.Direction;
+import application.snake.InputPacketCodec;
+import application.snake.SnakeMatch;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Checks the flow control of the {@link NetworkPeer} by sending the traffic of a match plus a chat flood
+ * through an {@link ImpairedProxy} with different impairments.
+ * <p>
+ * In every scenario, every input has to arrive, no send may ever block the sending thread,
+ * and the Peer has to be marked as lagging exactly when the link can not keep up.
+ * Run it with {@code gradle :benchmarks:flowControlCheck}, it exits with status 1 if any check fails.
+ */
+public class FlowControlCheck {
+	private static final int TICKS = 40;
+	private static final int CHAT_MESSAGES_PER_TICK = 8;
+	private static final int CHAT_MESSAGE_LENGTH = 1000;
+	private static final String MATCH_ID = "0";
+	private static final long MAX_SEND_NANOS = 20_000_000L;
+	private static final long DRAIN_TIMEOUT_MILLIS = 30_000;
+
+	/**
+	 * @param expectLagging whether the Peer has to be marked as lagging, or null if both are fine
+	 */
+	private record Scenario(String name, int latencyMillis, double lossRate, int bytesPerSecond, Boolean expectLagging) {
+	}
+
+	private static final List<Scenario> SCENARIOS = List.of(
+			// The first messages wait for the JIT and for the Flight Recorder events to load.
+			new Scenario("warm-up", 0, 0, 0, null),
+			new Scenario("clean", 0, 0, 0, false),
+			new Scenario("50ms latency", 50, 0, 0, false),
+			new Scenario("50ms latency, 5% loss", 50, 0.05, 0, null),
+			new Scenario("32 KiB/s bandwidth", 10, 0, 32 * 1024, true));
+
+	public static void main(String[] args) throws Exception {
+		boolean failed = false;
+		for (Scenario scenario : SCENARIOS) {
+			failed |= !runScenario(scenario);
+		}
+		System.exit(failed ? 1 : 0);
+	}
+
+	private static boolean runScenario(Scenario scenario) throws Exception {
+		NetworkApplication app = new NetworkApplication();
+		InetAddress loopback = InetAddress.getLoopbackAddress();
+		AtomicLongArray sendTimes = new AtomicLongArray(TICKS);
+		AtomicLongArray arrivalTimes = new AtomicLongArray(TICKS);
+		AtomicInteger receivedInputs = new AtomicInteger();
+
+		try (ServerSocket remoteServer = new ServerSocket(0, 1, loopback);
+				Socket target = new Socket(loopback, remoteServer.getLocalPort());
+				Socket remote = remoteServer.accept()) {
+			startDaemon(() -> receiveInputs(remote, arrivalTimes, receivedInputs));
+			ImpairedProxy proxy = new ImpairedProxy(target, scenario.latencyMillis, scenario.lossRate, scenario.bytesPerSecond);
+			NetworkPeer peer = new NetworkPeer(app, loopback, proxy.getPort());
+			proxy.startProxy();
+			peer.startSending();
+			PeerMetrics metrics = app.getMetrics().getPeerMetrics(peer.getIp());
+
+			long maxSendNanos = 0;
+			boolean wasLagging = false;
+			ByteBuffer packet = ByteBuffer.allocate(InputPacketCodec.MAX_PACKET_SIZE);
+			Direction[] inputs = { Direction.UP };
+			String chat = "x".repeat(CHAT_MESSAGE_LENGTH);
+			InputControlMessage input = new InputControlMessage();
+			StateHashControlMessage stateHash = new StateHashControlMessage();
+			PingControlMessage ping = new PingControlMessage();
+			long nextTick = System.nanoTime();
+			for (int tick = 0; tick < TICKS; tick++) {
+				packet.clear();
+				InputPacketCodec.encode(packet, 0, tick, inputs, 1);
+				String encodedInput = input.getAsString(MATCH_ID, InputControlMessage.encodePacket(packet.flip()));
+
+				long start = System.nanoTime();
+				sendTimes.set(tick, start);
+				peer.sendMessage(encodedInput, input);
+				peer.sendMessage(stateHash.getAsString(MATCH_ID, "0", Integer.toString(tick), "0"), stateHash);
+				peer.sendMessage(ping.getAsString("127.0.0.1", Long.toString(start)), ping);
+				for (int i = 0; i < CHAT_MESSAGES_PER_TICK; i++) {
+					peer.sendMessage(chat, MessageType.CHAT);
+				}
+				maxSendNanos = Math.max(maxSendNanos, System.nanoTime() - start);
+				wasLagging |= peer.isLagging();
+
+				nextTick += SnakeMatch.TICK_DURATION_MILLIS * 1_000_000L;
+				Thread.sleep(Math.max(0, (nextTick - System.nanoTime()) / 1_000_000));
+			}
+
+			long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MILLIS;
+			while ((metrics.getPendingSends() > 0 || receivedInputs.get() < TICKS) && System.currentTimeMillis() < deadline) {
+				wasLagging |= peer.isLagging();
+				Thread.sleep(10);
+			}
+			peer.disconnectPeer();
+			proxy.closeProxy();
+
+			long[] latencies = new long[TICKS];
+			for (int tick = 0; tick < TICKS; tick++) {
+				latencies[tick] = arrivalTimes.get(tick) == 0 ? Long.MAX_VALUE : arrivalTimes.get(tick) - sendTimes.get(tick);
+			}
+			Arrays.sort(latencies);
+
+			boolean passed = receivedInputs.get() == TICKS && maxSendNanos < MAX_SEND_NANOS
+					&& (scenario.expectLagging == null || scenario.expectLagging == wasLagging);
+			System.out.printf("%-24s %s: inputs %d/%d, input latency p50 %s p99 %s, longest send %.2fms, %s, "
+							+ "%d coalesced, %d dropped%n", scenario.name, passed ? "passed" : "FAILED", receivedInputs.get(), TICKS,
+					formatMillis(latencies[TICKS / 2]), formatMillis(latencies[TICKS * 99 / 100]), maxSendNanos / 1e6,
+					wasLagging ? "lagged" : "kept up", metrics.getCoalescedSends(), metrics.getDroppedSends());
+			return passed;
+		}
+	}
+
+	/**
+	 * Reads everything that arrives at the end of the proxy and notes when each input first arrived.
+	 */
+	private static void receiveInputs(Socket remote, AtomicLongArray arrivalTimes, AtomicInteger receivedInputs) {
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(remote.getInputStream()))) {
+			InputControlMessage input = new InputControlMessage();
+			String prefix = input.getAsString(MATCH_ID, "");
+			String line;
+			while ((line = reader.readLine()) != null) {
+				// Every message starts with the stamp of the clock of the sender, which is ASCII.
+				if (!line.startsWith(prefix, HybridLogicalClock.STAMP_LENGTH)) continue;
+
+				long now = System.nanoTime();
+				ByteBuffer packet = InputControlMessage.decodePacket(line.substring(HybridLogicalClock.STAMP_LENGTH + prefix.length()));
+				InputPacketCodec.decode(packet, (player, tick, direction) -> {
+					if (arrivalTimes.compareAndSet(tick, 0, now)) {
+						receivedInputs.incrementAndGet();
+					}
+				});
+			}
+		} catch (IOException e) {
+			// The scenario is over.
+		}
+	}
+
+	private static String formatMillis(long nanos) {
+		return nanos == Long.MAX_VALUE ? "lost" : "%.1fms".formatted(nanos / 1e6);
+	}
+
+	private static void startDaemon(Runnable runnable) {
+		Thread thread = new Thread(runnable);
+		thread.setDaemon(true);
+		thread.start();
+	}
+}
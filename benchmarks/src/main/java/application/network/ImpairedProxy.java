@@ -0,0 +1,119 @@
+package application.network;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A TCP proxy on loopback that makes the connection from the client to the target behave like a bad network.
+ * <p>
+ * Every chunk of data gets delayed by the latency, and the bandwidth limits how fast chunks are released.
+ * Since TCP never loses data, a lost packet shows up as a stall of a retransmission timeout instead,
+ * which happens to every chunk with the loss rate as probability. Only a few chunks can be in flight,
+ * so once the proxy is full, the client has to block on its writes, just like on a congested link.
+ */
+public class ImpairedProxy {
+	private static final int SEGMENT_SIZE = 1460;
+	private static final int CHUNKS_IN_FLIGHT = 8;
+	private static final int SOCKET_BUFFER_SIZE = 8 * 1024;
+	private static final long RETRANSMIT_TIMEOUT_NANOS = 200_000_000L;
+
+	private final Socket target;
+	private final ServerSocket serverSocket;
+	private final long latencyNanos;
+	private final double lossRate;
+	private final long nanosPerByte;
+	private final BlockingQueue<Chunk> chunksInFlight;
+
+	private Socket client;
+
+	/**
+	 * @param target the socket the proxy forwards to
+	 * @param latencyMillis the one-way latency added to every chunk
+	 * @param lossRate the probability that a chunk stalls for a retransmission timeout
+	 * @param bytesPerSecond the bandwidth, or 0 for no limit
+	 */
+	public ImpairedProxy(Socket target, int latencyMillis, double lossRate, int bytesPerSecond) throws IOException {
+		this.target = target;
+		this.latencyNanos = latencyMillis * 1_000_000L;
+		this.lossRate = lossRate;
+		nanosPerByte = bytesPerSecond > 0 ? 1_000_000_000L / bytesPerSecond : 0;
+		chunksInFlight = new ArrayBlockingQueue<>(CHUNKS_IN_FLIGHT);
+		serverSocket = new ServerSocket();
+		serverSocket.setReceiveBufferSize(SOCKET_BUFFER_SIZE);
+		serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+	}
+
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * Waits for the client to connect and starts forwarding.
+	 */
+	public void startProxy() throws IOException {
+		client = serverSocket.accept();
+		startDaemon(this::receiveChunks);
+		startDaemon(this::releaseChunks);
+	}
+
+	public void closeProxy() throws IOException {
+		serverSocket.close();
+		if (client != null) {
+			client.close();
+		}
+	}
+
+	private void receiveChunks() {
+		byte[] buffer = new byte[SEGMENT_SIZE];
+		long lastRelease = System.nanoTime();
+		try (InputStream in = client.getInputStream()) {
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				long now = System.nanoTime();
+				long release = Math.max(now + latencyNanos, lastRelease + read * nanosPerByte);
+				if (ThreadLocalRandom.current().nextDouble() < lossRate) {
+					release += RETRANSMIT_TIMEOUT_NANOS;
+				}
+				lastRelease = release;
+				chunksInFlight.put(new Chunk(Arrays.copyOf(buffer, read), release));
+			}
+		} catch (IOException | InterruptedException e) {
+			// The proxy has been closed.
+		}
+	}
+
+	private void releaseChunks() {
+		try {
+			OutputStream out = target.getOutputStream();
+			while (true) {
+				Chunk chunk = chunksInFlight.take();
+				long wait = chunk.releaseNanos - System.nanoTime();
+				if (wait > 0) {
+					Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+				}
+				out.write(chunk.data);
+				out.flush();
+			}
+		} catch (IOException | InterruptedException e) {
+			// The proxy has been closed.
+		}
+	}
+
+	private static void startDaemon(Runnable runnable) {
+		Thread thread = new Thread(runnable);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private record Chunk(byte[] data, long releaseNanos) {
+	}
+}
@@ -0,0 +1,153 @@
+package application.network;
+
+import application.ApplicationSetting;
+import application.NetworkApplication;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Measures how long it takes until a mesh of real Network Applications on the loopback interface is complete,
+ * which is when every one of them is connected to every other one.
+ * <p>
+ * Every application gets its own address out of 127.0.0.0/8, which Linux routes to the loopback interface without
+ * any setup. Two scenarios get measured for every mesh size:
+ * <ul>
+ *     <li>join: one application joins a complete mesh, by connecting to a single member of it</li>
+ *     <li>bootstrap: all applications connect to the first one at the same time</li>
+ * </ul>
+ * Both run once with connections established one after another, and once with the default parallelism.
+ * Run it with {@code gradle :benchmarks:meshJoinBenchmark}, it exits with status 1 if a mesh does not complete.
+ */
+public class MeshJoinBenchmark {
+	private static final int[] MESH_SIZES = { 10, 25, 50 };
+	private static final int REPETITIONS = 3;
+	private static final long MESH_TIMEOUT_MILLIS = 30_000;
+
+	private static final PrintStream RESULTS = System.out;
+	private static int nextSubnet = 1;
+
+	public static void main(String[] args) throws Exception {
+		// The applications print every connection and every Control Message.
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+		// All applications share the working directory, so none of them may remember its Peers.
+		System.setProperty("snake.peers.file", "");
+		String defaultParallelism = ApplicationSetting.MESH_JOIN_PARALLELISM.get();
+		boolean failed = false;
+		RESULTS.printf("%-10s %5s %12s %12s %12s%n", "scenario", "peers", "parallelism", "median ms", "max ms");
+		for (int meshSize : MESH_SIZES) {
+			for (String parallelism : List.of("1", defaultParallelism)) {
+				System.setProperty("snake.mesh.parallelism", parallelism);
+				failed |= !measure("join", meshSize, parallelism, true);
+				failed |= !measure("bootstrap", meshSize, parallelism, false);
+			}
+		}
+		System.exit(failed ? 1 : 0);
+	}
+
+	private static boolean measure(String scenario, int meshSize, String parallelism, boolean isJoin) throws Exception {
+		long[] millis = new long[REPETITIONS];
+		for (int i = 0; i < REPETITIONS; i++) {
+			millis[i] = isJoin ? measureJoin(meshSize) : measureBootstrap(meshSize);
+			if (millis[i] < 0) {
+				RESULTS.printf("FAILED: %s of %d peers did not complete within %d ms%n", scenario, meshSize, MESH_TIMEOUT_MILLIS);
+				return false;
+			}
+		}
+		Arrays.sort(millis);
+		RESULTS.printf("%-10s %5d %12s %12d %12d%n", scenario, meshSize, parallelism, millis[REPETITIONS / 2], millis[REPETITIONS - 1]);
+		return true;
+	}
+
+	/**
+	 * @return the time to full mesh in milliseconds, or -1 if it did not complete
+	 */
+	private static long measureJoin(int meshSize) throws Exception {
+		List<NetworkApplication> apps = startApplications(meshSize);
+		try {
+			List<NetworkApplication> members = apps.subList(0, meshSize - 1);
+			for (NetworkApplication member : members.subList(1, members.size())) {
+				member.getNetworkHandler().connectTo(getAddress(members.get(0)));
+			}
+			if (awaitFullMesh(members) < 0) {
+				return -1;
+			}
+			long start = System.nanoTime();
+			apps.get(meshSize - 1).getNetworkHandler().connectTo(getAddress(members.get(0)));
+			return awaitFullMesh(apps) < 0 ? -1 : (System.nanoTime() - start) / 1_000_000;
+		} finally {
+			quitApplications(apps);
+		}
+	}
+
+	/**
+	 * @return the time to full mesh in milliseconds, or -1 if it did not complete
+	 */
+	private static long measureBootstrap(int meshSize) throws Exception {
+		List<NetworkApplication> apps = startApplications(meshSize);
+		try {
+			long start = System.nanoTime();
+			for (NetworkApplication app : apps.subList(1, meshSize)) {
+				app.getNetworkHandler().connectTo(getAddress(apps.get(0)));
+			}
+			return awaitFullMesh(apps) < 0 ? -1 : (System.nanoTime() - start) / 1_000_000;
+		} finally {
+			quitApplications(apps);
+		}
+	}
+
+	/**
+	 * Every repetition uses a fresh range of addresses, so no application has to wait for the ports of the last one.
+	 */
+	private static List<NetworkApplication> startApplications(int count) throws InterruptedException {
+		int subnet = nextSubnet++;
+		List<NetworkApplication> apps = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			System.setProperty("snake.network.address", "127.0.%d.%d".formatted(subnet, i + 1));
+			NetworkApplication app = new NetworkApplication();
+			app.startHeadless();
+			apps.add(app);
+		}
+		System.clearProperty("snake.network.address");
+		// Gives the listening Threads the time to bind.
+		Thread.sleep(100);
+		return apps;
+	}
+
+	private static void quitApplications(List<NetworkApplication> apps) {
+		for (NetworkApplication app : apps) {
+			app.quitApplication();
+		}
+	}
+
+	/**
+	 * @return the time waited in milliseconds, or -1 if the mesh did not complete in time
+	 */
+	private static long awaitFullMesh(List<NetworkApplication> apps) throws InterruptedException {
+		long start = System.nanoTime();
+		while (!isFullMesh(apps)) {
+			if (System.nanoTime() - start > MESH_TIMEOUT_MILLIS * 1_000_000) {
+				return -1;
+			}
+			Thread.sleep(1);
+		}
+		return (System.nanoTime() - start) / 1_000_000;
+	}
+
+	private static boolean isFullMesh(List<NetworkApplication> apps) {
+		for (NetworkApplication app : apps) {
+			if (app.getNetworkHandler().getNumberOfPeers() != apps.size() - 1) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static InetAddress getAddress(NetworkApplication app) throws Exception {
+		return InetAddress.getByName(app.getNetworkHandler().getLocalIP());
+	}
+}
@@ -0,0 +1,89 @@
+package application.network;
+
+import application.network.buffer.BufferPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how fast the {@link MessageFramer} turns received chunks into messages.
+ * Every chunk gets copied into the framer, just like a read from the socket would.
+ * Run it with {@code -prof gc} to see that no bytes get allocated per message.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageFramingBenchmark {
+	@Param({ "16", "1024" })
+	public int messageLength;
+
+	private MessageFramer framer;
+	private byte[] singleMessageChunk;
+	private byte[] firstHalfChunk;
+	private byte[] secondHalfChunk;
+	private byte[] fourMessagesChunk;
+
+	@Setup
+	public void setup() {
+		framer = new MessageFramer(new BufferPool(false, System.err::println), (byte) '\n', Integer.MAX_VALUE);
+		String message = "x".repeat(messageLength) + "\n";
+		singleMessageChunk = message.getBytes();
+		firstHalfChunk = message.substring(0, messageLength / 2).getBytes();
+		secondHalfChunk = message.substring(messageLength / 2).getBytes();
+		fourMessagesChunk = message.repeat(4).getBytes();
+	}
+
+	@TearDown
+	public void tearDown() {
+		framer.closeFramer();
+	}
+
+	@Benchmark
+	public void oneMessagePerChunk(Blackhole blackhole) throws IOException {
+		receive(singleMessageChunk);
+		blackhole.consume(framer.nextMessage().remaining());
+	}
+
+	@Benchmark
+	public void messageSplitOverTwoChunks(Blackhole blackhole) throws IOException {
+		receive(firstHalfChunk);
+		blackhole.consume(framer.nextMessage());
+		receive(secondHalfChunk);
+		blackhole.consume(framer.nextMessage().remaining());
+	}
+
+	@Benchmark
+	public void fourMessagesPerChunk(Blackhole blackhole) throws IOException {
+		receive(fourMessagesChunk);
+		ByteBuffer message;
+		while ((message = framer.nextMessage()) != null) {
+			blackhole.consume(message.remaining());
+		}
+	}
+
+	private void receive(byte[] chunk) {
+		for (int offset = 0; offset < chunk.length; ) {
+			ByteBuffer buffer = framer.getWritableBuffer();
+			int length = Math.min(buffer.remaining(), chunk.length - offset);
+			buffer.put(chunk, offset, length);
+			offset += length;
+		}
+	}
+}
@@ -0,0 +1,360 @@
+package application.network;
+
+import application.NetworkApplication;
+import application.command.control.ChunkHashControlMessage;
+import application.command.control.ConnectToControlMessage;
+import application.command.control.ControlMessage;
+import application.command.control.ControlMessageArguments;
+import application.command.control.ControlMessageHandler;
+import application.command.control.InputControlMessage;
+import application.command.control.PingControlMessage;
+import application.command.control.StateHashControlMessage;
+import application.command.control.SubscribeControlMessage;
+import application.network.buffer.BufferPool;
+import application.network.buffer.PooledBuffer;
+import application.network.buffer.Utf8;
+import application.snake.Direction;
+import application.snake.InputPacketCodec;
+
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks the byte level handling of received messages: UTF-8 encoding, framing of messages whose multi-byte
+ * characters get split between two reads, the stamps in front of the messages, the limit of the frame size, and
+ * parsing Control Messages straight from their bytes.
+ * <p>
+ * Run it with {@code gradle :benchmarks:framingCheck}, it exits with status 1 if any check fails.
+ */
+public class MessageFramingCheck {
+	private static final int RANDOM_STREAMS = 200;
+	private static final int MAX_FRAME_SIZE = 10_000;
+	/**
+	 * The stamp every message gets sent with, which uses all bits a stamp may use.
+	 */
+	private static final long STAMP = 0x7edc_ba98_7654_3210L;
+	private static final List<String> SAMPLES = List.of(
+			"",
+			"plain ascii",
+			"grüße aus Köln",
+			"日本語のチャット",
+			"emoji 🐍🍎 at the end 🏁",
+			"lone surrogates \ud83d and \udc0d",
+			"é€𝄞" + "x".repeat(5000));
+
+	private static int failures = 0;
+
+	public static void main(String[] args) {
+		BufferPool bufferPool = new BufferPool(true, message -> fail(message));
+		checkEncoding();
+		checkEverySplitPoint(bufferPool);
+		checkRandomChunks(bufferPool);
+		checkStamps();
+		checkFrameSizeLimit(bufferPool);
+		checkControlMessages(bufferPool);
+		if (bufferPool.getBuffersInUse() != 0) {
+			fail("%d buffers have not been released".formatted(bufferPool.getBuffersInUse()));
+		}
+		System.out.println(failures == 0 ? "All framing checks passed." : "%d framing checks FAILED.".formatted(failures));
+		System.exit(failures == 0 ? 0 : 1);
+	}
+
+	/**
+	 * The encoder has to produce exactly what the JDK produces, including the replacement of lone surrogates.
+	 */
+	private static void checkEncoding() {
+		List<String> texts = new ArrayList<>(SAMPLES);
+		Random random = new Random(1);
+		for (int i = 0; i < 1000; i++) {
+			texts.add(randomText(random, 1 + random.nextInt(40)));
+		}
+		for (String text : texts) {
+			byte[] expected = text.getBytes(StandardCharsets.UTF_8);
+			ByteBuffer buffer = ByteBuffer.allocate(Utf8.getEncodedLength(text));
+			Utf8.encode(text, buffer);
+			if (buffer.hasRemaining() || !Arrays.equals(expected, buffer.array())) {
+				fail("Encoding differs from the JDK for \"%s\"".formatted(text));
+			}
+			if (!Utf8.decode(buffer.flip()).equals(new String(expected, StandardCharsets.UTF_8))) {
+				fail("Decoding differs from the JDK for \"%s\"".formatted(text));
+			}
+		}
+	}
+
+	/**
+	 * Receives every sample as two reads, split at every possible byte, including the middle of multi-byte characters.
+	 */
+	private static void checkEverySplitPoint(BufferPool bufferPool) {
+		for (String sample : SAMPLES) {
+			byte[] stream = encode(bufferPool, List.of(sample, sample));
+			String expected = roundTrip(sample);
+			for (int split = 0; split <= stream.length; split++) {
+				List<String> received = receive(bufferPool, stream, new int[] { split, stream.length - split });
+				if (!received.equals(List.of(expected, expected))) {
+					fail("Split at byte %d of \"%.20s\" received %s".formatted(split, sample, received));
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Receives streams of random messages in random chunks, down to single bytes.
+	 */
+	private static void checkRandomChunks(BufferPool bufferPool) {
+		Random random = new Random(2);
+		for (int i = 0; i < RANDOM_STREAMS; i++) {
+			List<String> messages = new ArrayList<>();
+			for (int m = random.nextInt(20); m >= 0; m--) {
+				messages.add(random.nextInt(10) == 0 ? randomText(random, 20_000) : randomText(random, random.nextInt(100)));
+			}
+			byte[] stream = encode(bufferPool, messages);
+			int[] chunks = new int[stream.length + 1];
+			int numberOfChunks = 0;
+			int maxChunk = 1 + random.nextInt(8192);
+			for (int offset = 0; offset < stream.length; ) {
+				chunks[numberOfChunks] = Math.min(stream.length - offset, 1 + random.nextInt(maxChunk));
+				offset += chunks[numberOfChunks++];
+			}
+			List<String> expected = new ArrayList<>();
+			for (String message : messages) {
+				expected.add(roundTrip(message));
+			}
+			List<String> received = receive(bufferPool, stream, Arrays.copyOf(chunks, numberOfChunks));
+			if (!received.equals(expected)) {
+				fail("Random stream %d with chunks of up to %d bytes got corrupted".formatted(i, maxChunk));
+			}
+		}
+	}
+
+	/**
+	 * Every stamp of a clock has to be larger than all stamps it has sent or received before, unless a received one was
+	 * too far ahead, and only valid stamps may be read.
+	 */
+	private static void checkStamps() {
+		HybridLogicalClock clock = new HybridLogicalClock(120_000);
+		long last = clock.tick();
+		for (int i = 0; i < 10_000; i++) {
+			long stamp = clock.tick();
+			if (stamp <= last) {
+				fail("Stamp %s did not increase after %s".formatted(HybridLogicalClock.format(stamp), HybridLogicalClock.format(last)));
+				break;
+			}
+			last = stamp;
+		}
+		long future = last + (60_000L << 16);
+		clock.receive(future);
+		if (clock.tick() <= future) {
+			fail("The clock did not move past a received stamp");
+		}
+		long farFuture = future + (3_600_000L << 16);
+		if (clock.receive(farFuture) || clock.tick() >= farFuture) {
+			fail("The clock did not clamp a stamp beyond its maximum drift");
+		}
+		for (String invalid : List.of("", "0123456789abcde", "0123456789abcdeg", "8000000000000000", "-123456789abcdef")) {
+			ByteBuffer buffer = ByteBuffer.wrap(invalid.getBytes(StandardCharsets.US_ASCII));
+			if (HybridLogicalClock.read(buffer) >= 0 || buffer.position() != 0) {
+				fail("Invalid stamp \"%s\" has been read".formatted(invalid));
+			}
+		}
+	}
+
+	/**
+	 * A message of exactly the maximum size has to arrive, a longer one has to be rejected, even before its end arrived.
+	 */
+	private static void checkFrameSizeLimit(BufferPool bufferPool) {
+		String largest = "x".repeat(MAX_FRAME_SIZE - HybridLogicalClock.STAMP_LENGTH);
+		byte[] stream = encode(bufferPool, List.of(largest, "after"));
+		if (!receiveLimited(bufferPool, stream).equals(List.of(largest, "after"))) {
+			fail("A message of exactly %d bytes did not arrive".formatted(MAX_FRAME_SIZE));
+		}
+		byte[] tooLarge = encode(bufferPool, List.of(largest + "x"));
+		if (receiveLimited(bufferPool, tooLarge) != null) {
+			fail("A message of %d bytes has not been rejected".formatted(MAX_FRAME_SIZE + 1));
+		}
+		// Without its end, the message can only be rejected while it is still incomplete.
+		if (receiveLimited(bufferPool, Arrays.copyOf(tooLarge, tooLarge.length - 1)) != null) {
+			fail("An unterminated message of %d bytes has not been rejected".formatted(MAX_FRAME_SIZE + 1));
+		}
+	}
+
+	/**
+	 * Receives the stream in chunks of 1000 bytes with a framer limited to {@link MessageFramingCheck#MAX_FRAME_SIZE}.
+	 * @return the received messages, or null if the framer rejected a message
+	 */
+	private static List<String> receiveLimited(BufferPool bufferPool, byte[] stream) {
+		MessageFramer framer = new MessageFramer(bufferPool, (byte) '\n', MAX_FRAME_SIZE);
+		List<String> received = new ArrayList<>();
+		try {
+			for (int offset = 0; offset < stream.length; ) {
+				ByteBuffer buffer = framer.getWritableBuffer();
+				int length = Math.min(Math.min(buffer.remaining(), 1000), stream.length - offset);
+				buffer.put(stream, offset, length);
+				offset += length;
+				ByteBuffer message;
+				while ((message = framer.nextMessage()) != null) {
+					received.add(Utf8.decode(unstamp(message)));
+				}
+			}
+			return received;
+		} catch (ProtocolException e) {
+			return null;
+		} finally {
+			framer.closeFramer();
+		}
+	}
+
+	/**
+	 * Parses every kind of Control Message from its bytes and compares it with what has been sent.
+	 */
+	private static void checkControlMessages(BufferPool bufferPool) {
+		ControlMessageHandler handler = new ControlMessageHandler(new NetworkApplication());
+		ControlMessageArguments args = new ControlMessageArguments();
+		List<ControlMessage> types = List.of(new ConnectToControlMessage(), new InputControlMessage(),
+				new StateHashControlMessage(), new SubscribeControlMessage(), new ChunkHashControlMessage(), new PingControlMessage());
+		for (ControlMessage type : types) {
+			String[] sent = new String[type.getNumberOfArguments()];
+			for (int i = 0; i < sent.length; i++) {
+				sent[i] = i == 0 ? "ümläut" : "arg" + i;
+			}
+			ByteBuffer message = frame(bufferPool, type.getAsString(sent));
+			ControlMessage parsed = handler.parseControlMessage(message, args);
+			if (parsed == null || parsed.getClass() != type.getClass() || !Arrays.equals(sent, args.toStrings())) {
+				fail("Control Message \"%s\" parsed as %s with %s".formatted(type.getAsString(sent), parsed, Arrays.toString(args.toStrings())));
+			}
+		}
+		for (String invalid : List.of("$c", "$c ", "$c /", "$c /unknown 1", "$x /in a", "$c/in a", "$c /inx a")) {
+			if (handler.parseControlMessage(frame(bufferPool, invalid), args) != null) {
+				fail("Invalid Control Message \"%s\" has been parsed".formatted(invalid));
+			}
+		}
+
+		Random random = new Random(3);
+		InputControlMessage input = new InputControlMessage();
+		int[] acks = new int[200];
+		ByteBuffer packet = ByteBuffer.allocate(InputPacketCodec.getMaxPacketSize(acks.length));
+		Direction[] directions = new Direction[InputPacketCodec.MAX_TICKS_PER_PACKET];
+		for (int i = 0; i < 1000; i++) {
+			int count = 1 + random.nextInt(directions.length);
+			for (int d = 0; d < count; d++) {
+				directions[d] = Direction.values()[random.nextInt(Direction.values().length)];
+			}
+			int firstTick = random.nextInt(1 << 20);
+			int numberOfAcks = random.nextInt(acks.length + 1);
+			for (int a = 0; a < numberOfAcks; a++) {
+				acks[a] = firstTick + random.nextInt(2 * InputPacketCodec.MAX_TICKS_PER_PACKET) - InputPacketCodec.MAX_TICKS_PER_PACKET;
+			}
+			packet.clear();
+			InputPacketCodec.encode(packet, random.nextInt(1000), firstTick, directions, count, acks, numberOfAcks);
+			String encodedPacket = InputControlMessage.encodePacket(packet.flip());
+			ByteBuffer expected = ByteBuffer.allocate(packet.limit()).put(InputControlMessage.decodePacket(encodedPacket)).flip();
+			handler.parseControlMessage(frame(bufferPool, input.getAsString("0", encodedPacket)), args);
+			ByteBuffer decoded = InputControlMessage.decodePacket(args, 1);
+			if (!expected.equals(decoded)) {
+				fail("Input packet %s got decoded differently from its bytes".formatted(encodedPacket));
+			}
+			int[] decodedAcks = new int[numberOfAcks];
+			int[] decodedCount = new int[2];
+			InputPacketCodec.decode(decoded, (player, tick, direction) -> decodedCount[0]++, (player, ackedPlayer, tick) -> {
+				decodedAcks[ackedPlayer] = tick;
+				decodedCount[1]++;
+			});
+			if (decodedCount[0] != count || decodedCount[1] != numberOfAcks
+					|| !Arrays.equals(decodedAcks, Arrays.copyOf(acks, numberOfAcks))) {
+				fail("Input packet %s got decoded with the wrong inputs or acknowledgements".formatted(encodedPacket));
+			}
+		}
+	}
+
+	/**
+	 * Encodes the message like a Peer does and returns it without the END_OF_MESSAGE_INDICATOR, like the framer does,
+	 * and without its stamp, like the receiving Peer does.
+	 */
+	private static ByteBuffer frame(BufferPool bufferPool, String message) {
+		PooledBuffer encoded = NetworkPeer.encodeMessage(bufferPool, STAMP, message);
+		ByteBuffer bytes = ByteBuffer.allocate(encoded.getBuffer().remaining()).put(encoded.getBuffer()).flip();
+		encoded.release();
+		return unstamp(bytes.limit(bytes.limit() - 1));
+	}
+
+	/**
+	 * Reads the stamp in front of a received message, which has to be the one every message is sent with.
+	 * @return the message after the stamp
+	 */
+	private static ByteBuffer unstamp(ByteBuffer message) {
+		if (HybridLogicalClock.read(message) != STAMP) {
+			fail("The stamp of a message did not arrive unchanged");
+		}
+		return message;
+	}
+
+	private static byte[] encode(BufferPool bufferPool, List<String> messages) {
+		ByteBuffer stream = ByteBuffer.allocate(messages.stream()
+				.mapToInt(m -> HybridLogicalClock.STAMP_LENGTH + Utf8.getEncodedLength(m) + 1).sum());
+		for (String message : messages) {
+			PooledBuffer encoded = NetworkPeer.encodeMessage(bufferPool, STAMP, message);
+			stream.put(encoded.getBuffer());
+			encoded.release();
+		}
+		return stream.array();
+	}
+
+	private static List<String> receive(BufferPool bufferPool, byte[] stream, int[] chunks) {
+		MessageFramer framer = new MessageFramer(bufferPool, (byte) '\n', Integer.MAX_VALUE);
+		List<String> received = new ArrayList<>();
+		int offset = 0;
+		for (int chunk : chunks) {
+			for (int end = offset + chunk; offset < end; ) {
+				ByteBuffer buffer = framer.getWritableBuffer();
+				int length = Math.min(buffer.remaining(), end - offset);
+				buffer.put(stream, offset, length);
+				offset += length;
+			}
+			ByteBuffer message;
+			try {
+				while ((message = framer.nextMessage()) != null) {
+					received.add(Utf8.decode(unstamp(message)));
+				}
+			} catch (ProtocolException e) {
+				throw new IllegalStateException("The framer has no limit, but rejected a message!", e);
+			}
+		}
+		framer.closeFramer();
+		return received;
+	}
+
+	/**
+	 * Returns what the JDK decodes from the JDK encoding of the text, which is what has to arrive,
+	 * since lone surrogates get replaced while encoding.
+	 */
+	private static String roundTrip(String text) {
+		return new String(text.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Mixes characters of every UTF-8 length, plus the occasional lone surrogate.
+	 */
+	private static String randomText(Random random, int length) {
+		StringBuilder sb = new StringBuilder();
+		while (sb.length() < length) {
+			switch (random.nextInt(6)) {
+				case 0, 1 -> sb.append((char) (' ' + random.nextInt(95)));
+				case 2 -> sb.append((char) (0x80 + random.nextInt(0x780)));
+				case 3 -> sb.append((char) (0x800 + random.nextInt(0xD000)));
+				case 4 -> sb.appendCodePoint(0x10000 + random.nextInt(0x100000));
+				default -> sb.append(random.nextBoolean() ? '\ud83d' : (char) (0xE000 + random.nextInt(0x2000)));
+			}
+		}
+		return sb.toString();
+	}
+
+	private static void fail(String message) {
+		failures++;
+		System.out.println("FAILED: " + message);
+	}
+}
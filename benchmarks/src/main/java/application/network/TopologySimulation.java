@@ -0,0 +1,252 @@
+package application.network;
+
+import application.ApplicationSetting;
+import application.command.control.InputControlMessage;
+import application.command.control.RelayControlMessage;
+import application.snake.Direction;
+import application.snake.InputPacketCodec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the latency and the upload per node of a {@link Topology#FULL_MESH} and a {@link Topology#PARTIAL_MESH}
+ * in two simulated scenarios:
+ * <ul>
+ *     <li>tick: every node broadcasts its input at the same time, as in every tick of a match</li>
+ *     <li>chat: a single node broadcasts a long chat message</li>
+ * </ul>
+ * <p>
+ * The partial mesh gets built the way the Network Handler builds it: every node joins through a random member of the
+ * lobby and connects to {@link ApplicationSetting#TOPOLOGY_NEIGHBORS} random members. Broadcasts get relayed with the
+ * {@link BroadcastRelay#TIME_TO_LIVE} and only the first copy of every input gets passed on. The messages have the
+ * size of real input messages, with or without the relay header.
+ * <p>
+ * Every link has a random one way latency, and every node has the same upload bandwidth, which all its connections
+ * share. A node can only advance the tick once it has the inputs of all others, so the latency of a node is the time
+ * until its last message arrived. Run it with {@code gradle :benchmarks:topologySimulation}.
+ */
+public class TopologySimulation {
+	private static final int[] LOBBY_SIZES = { 8, 32, 128 };
+	private static final int MIN_LATENCY_MICROS = 5_000;
+	private static final int MAX_LATENCY_MICROS = 30_000;
+	private static final long UPLOAD_BITS_PER_SECOND = 2_000_000;
+	/**
+	 * The TCP and IP headers of every message, assuming none of them get combined into a single segment.
+	 */
+	private static final int PACKET_OVERHEAD_BYTES = 40;
+	private static final int CHAT_MESSAGE_BYTES = 1000;
+	private static final long SEED = 42;
+
+	public static void main(String[] args) {
+		int neighbors = ApplicationSetting.TOPOLOGY_NEIGHBORS.getInt();
+		int inputBytes = getInputMessageSize();
+		int relayHeaderBytes = getRelayHeaderSize();
+		System.out.printf("input message: %d bytes, chat message: %d bytes, relay header: %d bytes, upload: %d kbit/s, "
+						+ "neighbors: %d, link latency: %d-%d ms%n%n", inputBytes, CHAT_MESSAGE_BYTES, relayHeaderBytes,
+				UPLOAD_BITS_PER_SECOND / 1000, neighbors, MIN_LATENCY_MICROS / 1000, MAX_LATENCY_MICROS / 1000);
+		System.out.printf("%-8s %-8s %5s %10s %10s %12s %12s %10s %10s %9s%n", "scenario", "topology", "nodes", "conns avg",
+				"conns max", "kB up avg", "kB up max", "median ms", "max ms", "received");
+		for (String scenario : new String[] { "tick", "chat" }) {
+			boolean isTick = scenario.equals("tick");
+			int messageBytes = isTick ? inputBytes : CHAT_MESSAGE_BYTES;
+			for (int nodes : LOBBY_SIZES) {
+				Random random = new Random(SEED + nodes);
+				int[][] latencies = createLatencies(nodes, random);
+				int origins = isTick ? nodes : 1;
+				// Nothing gets relayed in a full mesh.
+				print(scenario, "full", simulate(createFullMesh(nodes), latencies, origins, messageBytes, 1));
+				print(scenario, "partial", simulate(createPartialMesh(nodes, neighbors, random), latencies, origins,
+						messageBytes + relayHeaderBytes, BroadcastRelay.TIME_TO_LIVE));
+			}
+		}
+	}
+
+	private static int getInputMessageSize() {
+		Direction[] inputs = new Direction[8];
+		Arrays.fill(inputs, Direction.UP);
+		ByteBuffer packet = ByteBuffer.allocate(InputPacketCodec.MAX_PACKET_SIZE);
+		InputPacketCodec.encode(packet, 127, 1_000, inputs, inputs.length);
+		String message = new InputControlMessage().getAsString("0", InputControlMessage.encodePacket(packet.flip()));
+		// Followed by the end of the message.
+		return message.getBytes(StandardCharsets.UTF_8).length + 1;
+	}
+
+	private static int getRelayHeaderSize() {
+		String id = Long.toString(TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis()));
+		return new RelayControlMessage().getAsString("192.168.100.100", id, Integer.toString(BroadcastRelay.TIME_TO_LIVE), "").length();
+	}
+
+	private static int[][] createLatencies(int nodes, Random random) {
+		int[][] latencies = new int[nodes][nodes];
+		for (int i = 0; i < nodes; i++) {
+			for (int j = i + 1; j < nodes; j++) {
+				latencies[i][j] = MIN_LATENCY_MICROS + random.nextInt(MAX_LATENCY_MICROS - MIN_LATENCY_MICROS);
+				latencies[j][i] = latencies[i][j];
+			}
+		}
+		return latencies;
+	}
+
+	private static List<List<Integer>> createFullMesh(int nodes) {
+		List<List<Integer>> neighbors = createNodes(nodes);
+		for (int i = 0; i < nodes; i++) {
+			for (int j = i + 1; j < nodes; j++) {
+				connect(neighbors, i, j);
+			}
+		}
+		return neighbors;
+	}
+
+	/**
+	 * Lets the nodes join one after another, each connecting to the member it joins through and
+	 * to random other members, until it has the wanted number of neighbors.
+	 */
+	private static List<List<Integer>> createPartialMesh(int nodes, int wantedNeighbors, Random random) {
+		List<List<Integer>> neighbors = createNodes(nodes);
+		for (int i = 1; i < nodes; i++) {
+			connect(neighbors, i, random.nextInt(i));
+			List<Integer> members = new ArrayList<>();
+			for (int j = 0; j < i; j++) {
+				if (!neighbors.get(i).contains(j)) {
+					members.add(j);
+				}
+			}
+			Collections.shuffle(members, random);
+			for (int j = 0; j < members.size() && neighbors.get(i).size() < wantedNeighbors; j++) {
+				connect(neighbors, i, members.get(j));
+			}
+		}
+		return neighbors;
+	}
+
+	private static List<List<Integer>> createNodes(int nodes) {
+		List<List<Integer>> neighbors = new ArrayList<>();
+		for (int i = 0; i < nodes; i++) {
+			neighbors.add(new ArrayList<>());
+		}
+		return neighbors;
+	}
+
+	private static void connect(List<List<Integer>> neighbors, int a, int b) {
+		neighbors.get(a).add(b);
+		neighbors.get(b).add(a);
+	}
+
+	/**
+	 * Simulates the first nodes broadcasting a message at the same time.
+	 * @param origins the number of nodes that broadcast a message
+	 * @param timeToLive the number of hops a message may travel, every node only passes on the first copy it receives
+	 */
+	private static Result simulate(List<List<Integer>> neighbors, int[][] latencies, int origins, int messageBytes, int timeToLive) {
+		int nodes = neighbors.size();
+		long transmitMicros = (messageBytes + PACKET_OVERHEAD_BYTES) * 8L * 1_000_000 / UPLOAD_BITS_PER_SECOND;
+		long[] uploadFreeMicros = new long[nodes];
+		long[] uploadedBytes = new long[nodes];
+		// The time every node received the message of every origin, or -1.
+		long[][] receivedMicros = new long[nodes][origins];
+		for (long[] received : receivedMicros) {
+			Arrays.fill(received, -1);
+		}
+		PriorityQueue<Arrival> arrivals = new PriorityQueue<>();
+		for (int origin = 0; origin < origins; origin++) {
+			receivedMicros[origin][origin] = 0;
+			send(arrivals, neighbors, latencies, uploadFreeMicros, uploadedBytes, origin, -1, origin, timeToLive, 0,
+					transmitMicros, messageBytes);
+		}
+		while (!arrivals.isEmpty()) {
+			Arrival arrival = arrivals.poll();
+			if (receivedMicros[arrival.node][arrival.origin] >= 0) {
+				continue;
+			}
+			receivedMicros[arrival.node][arrival.origin] = arrival.micros;
+			if (arrival.timeToLive > 1) {
+				send(arrivals, neighbors, latencies, uploadFreeMicros, uploadedBytes, arrival.node, arrival.from,
+						arrival.origin, arrival.timeToLive - 1, arrival.micros, transmitMicros, messageBytes);
+			}
+		}
+
+		Result result = new Result();
+		result.nodes = nodes;
+		long[] nodeLatencies = new long[nodes];
+		long received = 0;
+		for (int node = 0; node < nodes; node++) {
+			result.connectionsAvg += neighbors.get(node).size() / (double) nodes;
+			result.connectionsMax = Math.max(result.connectionsMax, neighbors.get(node).size());
+			result.uploadAvg += uploadedBytes[node] / (double) nodes;
+			result.uploadMax = Math.max(result.uploadMax, uploadedBytes[node]);
+			for (int origin = 0; origin < origins; origin++) {
+				if (receivedMicros[node][origin] >= 0) {
+					received++;
+					nodeLatencies[node] = Math.max(nodeLatencies[node], receivedMicros[node][origin]);
+				}
+			}
+		}
+		Arrays.sort(nodeLatencies);
+		result.latencyMedianMicros = nodeLatencies[nodes / 2];
+		result.latencyMaxMicros = nodeLatencies[nodes - 1];
+		result.receivedRatio = received / (double) ((long) nodes * origins);
+		return result;
+	}
+
+	/**
+	 * Queues a message on the upload of a node, for all its neighbors except the one it came from.
+	 */
+	private static void send(PriorityQueue<Arrival> arrivals, List<List<Integer>> neighbors, int[][] latencies,
+			long[] uploadFreeMicros, long[] uploadedBytes, int node, int from, int origin, int timeToLive, long micros,
+			long transmitMicros, int messageBytes) {
+		for (int neighbor : neighbors.get(node)) {
+			if (neighbor == from || neighbor == origin) {
+				continue;
+			}
+			uploadFreeMicros[node] = Math.max(uploadFreeMicros[node], micros) + transmitMicros;
+			uploadedBytes[node] += messageBytes + PACKET_OVERHEAD_BYTES;
+			arrivals.add(new Arrival(uploadFreeMicros[node] + latencies[node][neighbor], neighbor, node, origin, timeToLive));
+		}
+	}
+
+	private static void print(String scenario, String topology, Result result) {
+		System.out.printf("%-8s %-8s %5d %10.1f %10d %12.1f %12.1f %10.1f %10.1f %8.1f%%%n", scenario, topology, result.nodes,
+				result.connectionsAvg, result.connectionsMax, result.uploadAvg / 1000, result.uploadMax / 1000.0,
+				result.latencyMedianMicros / 1000.0, result.latencyMaxMicros / 1000.0, result.receivedRatio * 100);
+	}
+
+	private static class Result {
+		private int nodes;
+		private double connectionsAvg;
+		private int connectionsMax;
+		private double uploadAvg;
+		private long uploadMax;
+		private long latencyMedianMicros;
+		private long latencyMaxMicros;
+		private double receivedRatio;
+	}
+
+	private static class Arrival implements Comparable<Arrival> {
+		private final long micros;
+		private final int node;
+		private final int from;
+		private final int origin;
+		private final int timeToLive;
+
+		Arrival(long micros, int node, int from, int origin, int timeToLive) {
+			this.micros = micros;
+			this.node = node;
+			this.from = from;
+			this.origin = origin;
+			this.timeToLive = timeToLive;
+		}
+
+		@Override
+		public int compareTo(Arrival other) {
+			return Long.compare(micros, other.micros);
+		}
+	}
+}
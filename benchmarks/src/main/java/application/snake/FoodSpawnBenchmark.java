@@ -0,0 +1,114 @@
+package application.snake;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures picking a random empty cell for the food on boards that are filled to different degrees,
+ * once with the {@link FreeCellIndex} the {@link SnakeGame} uses, and once by rejection sampling with a scan of the
+ * board as the fallback, which is how the food used to be spawned.
+ * <p>
+ * Every operation occupies the picked cell and empties a random occupied one, like a Snake moving its head and tail,
+ * so the occupancy of the board stays the same.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FoodSpawnBenchmark {
+	private static final int RANDOM_CELL_ATTEMPTS = 64;
+
+	@Param({ "10", "50", "90", "99" })
+	public int occupancyPercent;
+
+	@Param({ "200" })
+	public int boardSize;
+
+	private boolean[] isOccupied;
+	private FreeCellIndex freeCells;
+	private FreeCellIndex occupiedCells;
+	private long randomState;
+
+	@Setup
+	public void setup() {
+		int numberOfCells = boardSize * boardSize;
+		isOccupied = new boolean[numberOfCells];
+		freeCells = new FreeCellIndex(numberOfCells);
+		occupiedCells = new FreeCellIndex(numberOfCells);
+		randomState = 0;
+		for (int cell = 0; cell < numberOfCells; cell++) {
+			freeCells.add(cell);
+		}
+		int occupied = (int) ((long) numberOfCells * occupancyPercent / 100);
+		for (int i = 0; i < occupied; i++) {
+			occupy(freeCells.get(nextRandomInt(freeCells.size())));
+		}
+	}
+
+	@Benchmark
+	public int freeCellIndex() {
+		int cell = freeCells.get(nextRandomInt(freeCells.size()));
+		moveSnake(cell);
+		return cell;
+	}
+
+	@Benchmark
+	public int rejectionSampling() {
+		int cell = findByRejectionSampling();
+		moveSnake(cell);
+		return cell;
+	}
+
+	private int findByRejectionSampling() {
+		for (int i = 0; i < RANDOM_CELL_ATTEMPTS; i++) {
+			int cell = nextRandomInt(isOccupied.length);
+			if (!isOccupied[cell]) {
+				return cell;
+			}
+		}
+		int start = nextRandomInt(isOccupied.length);
+		for (int i = 0; i < isOccupied.length; i++) {
+			int cell = (start + i) % isOccupied.length;
+			if (!isOccupied[cell]) {
+				return cell;
+			}
+		}
+		throw new IllegalStateException("The board is full!");
+	}
+
+	private void moveSnake(int head) {
+		int tail = occupiedCells.get(nextRandomInt(occupiedCells.size()));
+		occupy(head);
+		isOccupied[tail] = false;
+		occupiedCells.remove(tail);
+		freeCells.add(tail);
+	}
+
+	private void occupy(int cell) {
+		isOccupied[cell] = true;
+		freeCells.remove(cell);
+		occupiedCells.add(cell);
+	}
+
+	private int nextRandomInt(int bound) {
+		randomState += 0x9E3779B97F4A7C15L;
+		long z = randomState;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		z = z ^ (z >>> 31);
+		return (int) Long.remainderUnsigned(z, bound);
+	}
+}
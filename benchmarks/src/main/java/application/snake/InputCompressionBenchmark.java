@@ -0,0 +1,150 @@
+package application.snake;
+
+import application.command.control.InputControlMessage;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures encoding and decoding the input message a player sends every tick, and reports how many bytes
+ * per second a single player sends to each Peer this way, next to the one-tick-per-message text format it replaced.
+ * <p>
+ * The player turns every {@code turnInterval} ticks, 1 being the worst case for the run length encoding.
+ * Every message repeats the last {@link InputCompressionBenchmark#REDUNDANCY_TICKS} ticks, just like {@link SnakeMatch}.
+ * <p>
+ * The bytes get reported by the {@link Traffic} counters of the {@code traffic} benchmark, which encodes
+ * {@link InputCompressionBenchmark#TRAFFIC_SECONDS} seconds of inputs in a single measured iteration.
+ * Its time is not meant to be compared, only its counters.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InputCompressionBenchmark {
+	private static final int REDUNDANCY_TICKS = 8;
+	private static final int TICKS_PER_SECOND = 1000 / SnakeMatch.TICK_DURATION_MILLIS;
+	private static final int PLAYER = 3;
+	/**
+	 * The ticks wrap around after an hour, so the varint of the tick has a realistic size.
+	 */
+	private static final int FIRST_TICK = 1000;
+	private static final int LAST_TICK = 3600 * TICKS_PER_SECOND;
+	private static final int TRAFFIC_SECONDS = 60;
+	private static final int TRAFFIC_TICKS = TRAFFIC_SECONDS * TICKS_PER_SECOND;
+
+	@Param({ "1", "10", "50" })
+	public int turnInterval;
+
+	private InputControlMessage inputMessage;
+	private Direction[] recentInputs;
+	private Direction[] packetInputs;
+	private ByteBuffer packet;
+	private String encodedPacket;
+	private int tick;
+	private int decodedTicks;
+
+	/**
+	 * Counts the bytes a single player sent per Peer, where a message costs its length plus the newline.
+	 * The counters of a single iteration are reported, so it must be the only one.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Traffic {
+		private long packedBytes;
+		private long textBytes;
+		private long ticks;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			packedBytes = 0;
+			textBytes = 0;
+			ticks = 0;
+		}
+
+		public long packedBytesPerSecond() {
+			return ticks == 0 ? 0 : Math.round((double) packedBytes / ticks * TICKS_PER_SECOND);
+		}
+
+		public long textBytesPerSecond() {
+			return ticks == 0 ? 0 : Math.round((double) textBytes / ticks * TICKS_PER_SECOND);
+		}
+
+		private void record(int packedMessageLength, int textMessageLength) {
+			packedBytes += packedMessageLength + 1;
+			textBytes += textMessageLength + 1;
+			ticks++;
+		}
+	}
+
+	@Setup
+	public void setup() {
+		inputMessage = new InputControlMessage();
+		recentInputs = new Direction[REDUNDANCY_TICKS];
+		packetInputs = new Direction[REDUNDANCY_TICKS];
+		packet = ByteBuffer.allocate(InputPacketCodec.MAX_PACKET_SIZE);
+		tick = FIRST_TICK;
+		for (int i = 0; i < REDUNDANCY_TICKS; i++) {
+			encodedPacket = encodeNextTick();
+		}
+	}
+
+	@Benchmark
+	public String encode() {
+		return inputMessage.getAsString("0", encodeNextTick());
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(iterations = 0)
+	@Measurement(iterations = 1, batchSize = TRAFFIC_TICKS)
+	public String traffic(Traffic traffic) {
+		String message = inputMessage.getAsString("0", encodeNextTick());
+		// The text format sent the player, the tick and the identifier of the Direction as decimal text.
+		int textLength = message.length() - encodedPacket.length() + 2 + Integer.toString(tick).length() + 1;
+		traffic.record(message.length(), textLength);
+		return message;
+	}
+
+	@Benchmark
+	public int decode() {
+		decodedTicks = 0;
+		InputPacketCodec.decode(InputControlMessage.decodePacket(encodedPacket), this::countInput);
+		return decodedTicks;
+	}
+
+	private void countInput(int player, int tick, Direction direction) {
+		decodedTicks++;
+	}
+
+	private String encodeNextTick() {
+		tick = tick == LAST_TICK ? FIRST_TICK : tick + 1;
+		recentInputs[tick % REDUNDANCY_TICKS] = Direction.fromCode(tick / turnInterval % 4);
+		if (recentInputs[(tick + 1) % REDUNDANCY_TICKS] == null) {
+			// Still filling up the history during the setup.
+			return null;
+		}
+		int firstTick = tick - REDUNDANCY_TICKS + 1;
+		for (int i = 0; i < REDUNDANCY_TICKS; i++) {
+			packetInputs[i] = recentInputs[(firstTick + i) % REDUNDANCY_TICKS];
+		}
+		packet.clear();
+		InputPacketCodec.encode(packet, PLAYER, firstTick, packetInputs, REDUNDANCY_TICKS);
+		encodedPacket = InputControlMessage.encodePacket(packet.flip());
+		return encodedPacket;
+	}
+}
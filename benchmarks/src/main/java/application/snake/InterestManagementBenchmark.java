@@ -0,0 +1,120 @@
+package application.snake;
+
+import application.network.InterestRouter;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulates the chunk based verification traffic of a large match in memory, without any sockets.
+ * <p>
+ * Every tick, each player sends the hash of its head chunk to the subscribers of that chunk, exactly like
+ * {@link AreaOfInterest} does. The {@link Traffic} counters report how many chunk messages were sent in total,
+ * next to how many a plain broadcast would have needed. Divide them by {@code ticks} and the number of players
+ * to get the messages per player and tick.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InterestManagementBenchmark {
+	private static final int RADIUS_IN_CHUNKS = 1;
+	private static final int SUBSCRIPTION_UPDATE_INTERVAL = 5;
+	private static final int MATCH_ID = 0;
+
+	@Param({ "200" })
+	public int numberOfPlayers;
+
+	@Param({ "100", "400" })
+	public int boardSize;
+
+	private SnakeGame game;
+	private ChunkPartition partition;
+	private InterestRouter router;
+	private Direction[] inputs;
+	private long[] chunkHashes;
+	private long seed;
+
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	@State(Scope.Thread)
+	public static class Traffic {
+		public long ticks;
+		public long chunkHashMessages;
+		public long broadcastMessages;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			ticks = 0;
+			chunkHashMessages = 0;
+			broadcastMessages = 0;
+		}
+	}
+
+	@Setup
+	public void setup() {
+		inputs = new Direction[numberOfPlayers];
+		seed = 0;
+		startNewGame();
+	}
+
+	private void startNewGame() {
+		game = new SnakeGame(boardSize, boardSize, numberOfPlayers, seed++);
+		partition = new ChunkPartition(boardSize, boardSize, AreaOfInterest.CHUNK_SIZE);
+		chunkHashes = new long[partition.getNumberOfChunks()];
+		router = new InterestRouter();
+		updateSubscriptions();
+	}
+
+	private void updateSubscriptions() {
+		for (int i = 0; i < numberOfPlayers; i++) {
+			Snake snake = game.getSnake(i);
+			BitSet chunks = snake.isAlive() ? partition.getChunksAround(snake.getHead(), RADIUS_IN_CHUNKS) : new BitSet();
+			router.updateSubscriptions(MATCH_ID, Integer.toString(i), chunks);
+		}
+	}
+
+	@Benchmark
+	public long tickWithChunkTraffic(Traffic traffic) {
+		if (game.isOver()) {
+			startNewGame();
+		}
+		int tick = game.getTick();
+		for (int i = 0; i < inputs.length; i++) {
+			inputs[i] = (tick + i) % 7 == 0 ? Direction.fromCode((tick / 7 + i) % 4) : null;
+		}
+		game.tick(inputs);
+		partition.computeChunkHashes(game, chunkHashes);
+
+		int alive = 0;
+		for (int i = 0; i < numberOfPlayers; i++) {
+			Snake snake = game.getSnake(i);
+			if (!snake.isAlive()) continue;
+
+			alive++;
+			// Every subscriber except the sender itself gets the hash.
+			int subscribers = router.getSubscribers(MATCH_ID, partition.getChunk(snake.getHead())).size();
+			traffic.chunkHashMessages += Math.max(0, subscribers - 1);
+		}
+		traffic.broadcastMessages += (long) alive * (numberOfPlayers - 1);
+		traffic.ticks++;
+		if (game.getTick() % SUBSCRIPTION_UPDATE_INTERVAL == 0) {
+			updateSubscriptions();
+		}
+		return chunkHashes[0];
+	}
+}
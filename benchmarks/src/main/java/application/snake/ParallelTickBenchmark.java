@@ -0,0 +1,100 @@
+package application.snake;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how a tick on a board with thousands of Snakes scales with the number of threads.
+ * A parallelism of 0 runs the serial engine without any pool.
+ * <p>
+ * Before measuring, the setup plays the same Game serially and in parallel and fails if the state hashes ever differ.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelTickBenchmark {
+	private static final int VERIFIED_TICKS = 500;
+
+	@Param({ "0", "1", "2", "4", "8" })
+	public int parallelism;
+
+	@Param({ "1024", "4096" })
+	public int numberOfPlayers;
+
+	@Param({ "1000" })
+	public int boardSize;
+
+	private ForkJoinPool pool;
+	private SnakeGame game;
+	private Direction[] inputs;
+	private long seed;
+
+	@Setup
+	public void setup() {
+		pool = parallelism > 0 ? new ForkJoinPool(parallelism) : null;
+		inputs = new Direction[numberOfPlayers];
+		verifyDeterminism();
+		seed = 0;
+		game = createGame();
+	}
+
+	@TearDown
+	public void tearDown() {
+		if (pool != null) {
+			pool.shutdown();
+		}
+	}
+
+	@Benchmark
+	public SnakeGame tick() {
+		if (game.isOver()) {
+			seed++;
+			game = createGame();
+		}
+		tick(game);
+		return game;
+	}
+
+	private void verifyDeterminism() {
+		SnakeGame serialGame = new SnakeGame(boardSize, boardSize, numberOfPlayers, seed);
+		SnakeGame parallelGame = new SnakeGame(boardSize, boardSize, numberOfPlayers, seed);
+		parallelGame.setTickPool(pool != null ? pool : ForkJoinPool.commonPool());
+		for (int i = 0; i < VERIFIED_TICKS && !serialGame.isOver(); i++) {
+			tick(serialGame);
+			tick(parallelGame);
+			if (serialGame.getStateHash() != parallelGame.getStateHash()) {
+				throw new IllegalStateException("The parallel engine diverged at tick " + serialGame.getTick());
+			}
+		}
+	}
+
+	private SnakeGame createGame() {
+		SnakeGame game = new SnakeGame(boardSize, boardSize, numberOfPlayers, seed);
+		game.setTickPool(pool);
+		return game;
+	}
+
+	private void tick(SnakeGame game) {
+		int tick = game.getTick();
+		for (int i = 0; i < inputs.length; i++) {
+			inputs[i] = (tick + i) % 7 == 0 ? Direction.fromCode((tick / 7 + i) % 4) : null;
+		}
+		game.tick(inputs);
+	}
+}
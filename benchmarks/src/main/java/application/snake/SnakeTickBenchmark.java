@@ -0,0 +1,62 @@
+package application.snake;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a single tick of the {@link SnakeGame} engine. Every Snake turns right every few ticks,
+ * so they run in squares and the Game lasts. Whenever it is over anyway, a new Game with the next seed starts.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnakeTickBenchmark {
+	@Param({ "8", "128" })
+	public int numberOfPlayers;
+
+	@Param({ "200" })
+	public int boardSize;
+
+	private SnakeGame game;
+	private Direction[] inputs;
+	private long seed;
+
+	@Setup
+	public void setup() {
+		inputs = new Direction[numberOfPlayers];
+		seed = 0;
+		game = new SnakeGame(boardSize, boardSize, numberOfPlayers, seed);
+	}
+
+	@Benchmark
+	public SnakeGame tick() {
+		if (game.isOver()) {
+			game = new SnakeGame(boardSize, boardSize, numberOfPlayers, ++seed);
+		}
+		int tick = game.getTick();
+		for (int i = 0; i < inputs.length; i++) {
+			inputs[i] = (tick + i) % 7 == 0 ? Direction.fromCode((tick / 7 + i) % 4) : null;
+		}
+		game.tick(inputs);
+		return game;
+	}
+
+	@Benchmark
+	public long stateHash() {
+		return game.getStateHash();
+	}
+}
@@ -1,3 +1,5 @@
+import application.ApplicationSetting;
+import application.HeadlessRunner;
 import application.NetworkApplication;
 
 /*
@@ -10,6 +12,10 @@ import application.NetworkApplication;
 public class Main {
 	public static void main(String[] args) {
 		NetworkApplication networkApplication = new NetworkApplication();
-		networkApplication.startApplication();
+		if (ApplicationSetting.HEADLESS.getBoolean()) {
+			new HeadlessRunner(networkApplication, System.out).run();
+		} else {
+			networkApplication.startApplication();
+		}
 	}
 }
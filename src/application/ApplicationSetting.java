@@ -0,0 +1,164 @@
+package application;
+
+/**
+ * This Enum contains all the Settings of the application, that can be changed at startup.
+ * <p>
+ * Every Setting is read from the system property with its key, so it can be set with {@code -D<key>=<value>}.
+ */
+public enum ApplicationSetting {
+	/**
+	 * The file a snapshot of all metrics gets written to periodically. Files ending in ".json" are written as JSON,
+	 * all others as plain text. No snapshot gets written, when this Setting is not set.
+	 */
+	METRICS_EXPORT_FILE("snake.metrics.file", null),
+	/**
+	 * The number of seconds between two metrics snapshots.
+	 */
+	METRICS_EXPORT_INTERVAL_SECONDS("snake.metrics.interval", "10"),
+	/**
+	 * The localhost port the metrics get served on in the Prometheus text format.
+	 * The endpoint does not get started, when this Setting is not set.
+	 */
+	METRICS_HTTP_PORT("snake.metrics.port", null),
+	/**
+	 * Whether network buffers that never get released should be reported, together with the place they were acquired.
+	 * This slows down all network I/O, so it should only be enabled for debugging.
+	 */
+	BUFFER_LEAK_DETECTION("snake.buffers.leakDetection", "false"),
+	/**
+	 * The number of bytes the chat history of the session takes up outside the heap, see {@link ChatHistory}.
+	 * The oldest messages get dropped, once it is full.
+	 */
+	CHAT_HISTORY_SIZE("snake.chat.historySize", "1048576"),
+	/**
+	 * The local address all connections are made from and accepted on. When this Setting is not set,
+	 * connections are accepted on every address and a Network Interface gets picked automatically.
+	 */
+	NETWORK_ADDRESS("snake.network.address", null),
+	/**
+	 * The maximum size of a single received message in bytes. A Peer sending a larger one gets disconnected.
+	 */
+	MAX_FRAME_SIZE("snake.network.maxFrameSize", "1048576"),
+	/**
+	 * The number of messages every Peer may send per second over its connection. Messages above that get dropped.
+	 * Every type of message has its own, lower limit as well. No limit applies to all messages, when this Setting is 0.
+	 */
+	RATE_LIMIT("snake.network.rateLimit", "5000"),
+	/**
+	 * How many milliseconds a received chat or Control Message may be held back at most, so the messages that were
+	 * sent earlier but arrived later can be delivered before it. Messages are never held back, when this
+	 * Setting is 0.
+	 */
+	REORDER_WINDOW("snake.network.reorderWindow", "20"),
+	/**
+	 * How many milliseconds the stamp of a received message may be ahead of the local clock. The clock only moves up
+	 * to that bound for stamps further ahead, which get counted in the metrics.
+	 */
+	MAX_CLOCK_DRIFT("snake.network.maxClockDrift", "10000"),
+	/**
+	 * The maximum number of connections that get established at the same time while joining a mesh.
+	 */
+	MESH_JOIN_PARALLELISM("snake.mesh.parallelism", "16"),
+	/**
+	 * The file the ips of all Peers get saved to, so the next start can reconnect to them right away.
+	 * Peers are neither saved nor reconnected to, when this Setting is empty.
+	 */
+	PEER_LIST_FILE("snake.peers.file", "snake-peers.txt"),
+	/**
+	 * How the Peers of a lobby are connected, either "full" or "partial". See {@link application.network.Topology}.
+	 * Every Peer of a lobby has to use the same topology.
+	 */
+	TOPOLOGY("snake.topology", "full"),
+	/**
+	 * The number of Peers every Peer connects to in a partial mesh.
+	 */
+	TOPOLOGY_NEIGHBORS("snake.topology.neighbors", "4"),
+	/**
+	 * The directory every match gets recorded into. No replays are recorded, when this Setting is empty.
+	 */
+	REPLAY_DIRECTORY("snake.replays", "replays"),
+	/**
+	 * The number of milliseconds without any input from a participant, after which a match that waits for its inputs
+	 * removes it. See {@link application.snake.SnakeMatch}.
+	 */
+	FAILURE_TIMEOUT("snake.match.failureTimeout", "2000"),
+	/**
+	 * Whether the application runs without a console, see {@link HeadlessRunner}.
+	 */
+	HEADLESS("snake.headless", "false"),
+	/**
+	 * The ip a headless application connects to at startup. It only waits for others to connect, when this Setting
+	 * is not set.
+	 */
+	HEADLESS_CONNECT("snake.headless.connect", null),
+	/**
+	 * The number of players, including itself, a headless application waits for before it starts a match.
+	 * It starts another one whenever a match is over. It never starts a match, when this Setting is not set.
+	 */
+	HEADLESS_PLAYERS("snake.headless.players", null),
+	/**
+	 * The number of matches a headless application that starts matches keeps running at once, all with the same
+	 * players. At most {@link NetworkApplication#MAX_MATCHES}.
+	 */
+	HEADLESS_MATCHES("snake.headless.matches", "1"),
+	/**
+	 * The number of seconds after which a headless application quits and prints its report.
+	 * It runs until it gets terminated, when this Setting is not set.
+	 */
+	HEADLESS_SECONDS("snake.headless.seconds", null),
+	/**
+	 * What steers the local Snake: "none", "greedy" or "script:" followed by Direction identifiers, like "script:rrdl".
+	 * See {@link application.snake.bot.SnakeBot}.
+	 */
+	BOT("snake.bot", "none");
+
+	private final String key;
+	private final String defaultValue;
+
+	ApplicationSetting(String key, String defaultValue) {
+		this.key = key;
+		this.defaultValue = defaultValue;
+	}
+
+	/**
+	 * Returns the key of the system property this Setting is read from.
+	 * @return the key
+	 */
+	public String getKey() {
+		return key;
+	}
+
+	/**
+	 * Returns the value of this Setting.
+	 * @return the value, or null if it is neither set nor has a default value
+	 */
+	public String get() {
+		return System.getProperty(key, defaultValue);
+	}
+
+	/**
+	 * Returns the value of this Setting as an int.
+	 * @return the value
+	 * @throws IllegalStateException when the value is not a valid int
+	 */
+	public int getInt() {
+		String value = get();
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			throw new IllegalStateException("The Setting %s has to be a number, but was \"%s\"!".formatted(key, value));
+		}
+	}
+
+	/**
+	 * Returns the value of this Setting as a boolean.
+	 * @return true if the value is "true", ignoring case
+	 */
+	public boolean getBoolean() {
+		return Boolean.parseBoolean(get());
+	}
+
+	public boolean isSet() {
+		return get() != null;
+	}
+}
@@ -0,0 +1,187 @@
+package application;
+
+import application.network.buffer.Utf8;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class keeps the newest chat messages of the session in a ring of fixed size outside the heap, so the scrollback
+ * never takes more memory, no matter how long the session runs.
+ * <p>
+ * Every message is a record in a direct buffer of {@link ApplicationSetting#CHAT_HISTORY_SIZE} bytes: its length
+ * (int), its time in milliseconds since the epoch (long), the length of the sender (short), followed by the sender and
+ * the message, both as UTF-8. Records never wrap around the end of the buffer, a record that does not fit anymore gets
+ * written at the start instead. The start offsets of the records are kept in a ring of their own, and writing a record
+ * drops the oldest records it overlaps.
+ * <p>
+ * Searching compares the UTF-8 bytes of the records with the ones of the text, so only the found messages get decoded.
+ */
+public class ChatHistory {
+	private static final int LENGTH_SIZE = Integer.BYTES;
+	private static final int TIME_OFFSET = LENGTH_SIZE;
+	private static final int SENDER_LENGTH_OFFSET = TIME_OFFSET + Long.BYTES;
+	private static final int HEADER_SIZE = SENDER_LENGTH_OFFSET + Short.BYTES;
+	/**
+	 * The smallest record, a message without text from a sender without a name, so there can never be more records.
+	 */
+	private static final int MIN_RECORD_SIZE = HEADER_SIZE;
+	private static final int MAX_SENDER_BYTES = 255;
+	private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+	private final ByteBuffer log;
+	/**
+	 * The start offsets of the records, oldest first, beginning at {@link ChatHistory#firstRecord}.
+	 */
+	private final int[] offsets;
+	private int firstRecord = 0;
+	private int records = 0;
+	private int writePosition = 0;
+
+	/**
+	 * Creates an empty history.
+	 * @param capacity the number of bytes of the buffer, which gets allocated right away
+	 */
+	public ChatHistory(int capacity) {
+		if (capacity < HEADER_SIZE + MAX_SENDER_BYTES) {
+			throw new IllegalArgumentException("The chat history has to be at least %d bytes large!".formatted(HEADER_SIZE + MAX_SENDER_BYTES));
+		}
+		log = ByteBuffer.allocateDirect(capacity);
+		offsets = new int[capacity / MIN_RECORD_SIZE];
+	}
+
+	/**
+	 * Adds a message as the newest one, dropping as many of the oldest ones as needed. A message that is larger than the
+	 * whole history gets cut off.
+	 * @param sender the name of the sender
+	 * @param message the message
+	 */
+	public synchronized void add(String sender, String message) {
+		byte[] senderBytes = truncate(sender.getBytes(StandardCharsets.UTF_8), MAX_SENDER_BYTES);
+		int messageLength = Utf8.getEncodedLength(message);
+		int maxMessageLength = log.capacity() - HEADER_SIZE - senderBytes.length;
+		byte[] truncatedMessage = messageLength > maxMessageLength ? truncate(message.getBytes(StandardCharsets.UTF_8), maxMessageLength) : null;
+		int length = HEADER_SIZE + senderBytes.length + (truncatedMessage == null ? messageLength : truncatedMessage.length);
+
+		if (writePosition + length > log.capacity()) {
+			// The records behind the write position are the oldest ones, and the start gets overwritten next.
+			while (records > 0 && offsets[firstRecord] >= writePosition) {
+				dropOldestRecord();
+			}
+			writePosition = 0;
+		}
+		while (records > 0 && (records == offsets.length
+				|| offsets[firstRecord] >= writePosition && offsets[firstRecord] < writePosition + length)) {
+			dropOldestRecord();
+		}
+
+		log.putInt(writePosition, length);
+		log.putLong(writePosition + TIME_OFFSET, System.currentTimeMillis());
+		log.putShort(writePosition + SENDER_LENGTH_OFFSET, (short) senderBytes.length);
+		log.put(writePosition + HEADER_SIZE, senderBytes);
+		int messagePosition = writePosition + HEADER_SIZE + senderBytes.length;
+		if (truncatedMessage == null) {
+			Utf8.encode(message, log.slice(messagePosition, messageLength));
+		} else {
+			log.put(messagePosition, truncatedMessage);
+		}
+		offsets[(firstRecord + records) % offsets.length] = writePosition;
+		records++;
+		writePosition += length;
+	}
+
+	/**
+	 * Returns the newest messages, each formatted as a line with its time and sender.
+	 * @param count how many messages to return at most
+	 * @return the messages, oldest first
+	 */
+	public synchronized List<String> getNewest(int count) {
+		List<String> lines = new ArrayList<>();
+		for (int i = Math.max(0, records - count); i < records; i++) {
+			lines.add(format(getOffset(i)));
+		}
+		return lines;
+	}
+
+	/**
+	 * Returns the newest messages that contain the passed text, each formatted as a line with its time and sender.
+	 * The text has to match exactly, including its case.
+	 * @param text the text
+	 * @param count how many messages to return at most
+	 * @return the messages, oldest first
+	 */
+	public synchronized List<String> search(String text, int count) {
+		byte[] pattern = text.getBytes(StandardCharsets.UTF_8);
+		List<String> lines = new ArrayList<>();
+		for (int i = records - 1; i >= 0 && lines.size() < count; i--) {
+			int offset = getOffset(i);
+			int messageStart = offset + HEADER_SIZE + log.getShort(offset + SENDER_LENGTH_OFFSET);
+			if (contains(messageStart, offset + log.getInt(offset), pattern)) {
+				lines.add(format(offset));
+			}
+		}
+		Collections.reverse(lines);
+		return lines;
+	}
+
+	public synchronized int size() {
+		return records;
+	}
+
+	private boolean contains(int start, int end, byte[] pattern) {
+		int lastStart = end - pattern.length;
+		for (int i = start; i <= lastStart; i++) {
+			int j = 0;
+			while (j < pattern.length && log.get(i + j) == pattern[j]) {
+				j++;
+			}
+			if (j == pattern.length) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private String format(int offset) {
+		int length = log.getInt(offset);
+		int senderLength = log.getShort(offset + SENDER_LENGTH_OFFSET);
+		int messageStart = offset + HEADER_SIZE + senderLength;
+		LocalTime time = LocalTime.ofInstant(Instant.ofEpochMilli(log.getLong(offset + TIME_OFFSET)), ZoneId.systemDefault());
+		String sender = StandardCharsets.UTF_8.decode(log.slice(offset + HEADER_SIZE, senderLength)).toString();
+		String message = StandardCharsets.UTF_8.decode(log.slice(messageStart, offset + length - messageStart)).toString();
+		return "[%s] %s: %s".formatted(TIME_FORMAT.format(time.truncatedTo(ChronoUnit.SECONDS)), sender, message);
+	}
+
+	private int getOffset(int record) {
+		return offsets[(firstRecord + record) % offsets.length];
+	}
+
+	private void dropOldestRecord() {
+		firstRecord = (firstRecord + 1) % offsets.length;
+		records--;
+	}
+
+	/**
+	 * Cuts UTF-8 bytes off at the end, without splitting a multi-byte sequence.
+	 */
+	private static byte[] truncate(byte[] bytes, int maxLength) {
+		if (bytes.length <= maxLength) {
+			return bytes;
+		}
+		int length = maxLength;
+		while (length > 0 && (bytes[length] & 0xC0) == 0x80) {
+			length--;
+		}
+		byte[] truncated = new byte[length];
+		System.arraycopy(bytes, 0, truncated, 0, length);
+		return truncated;
+	}
+}
@@ -4,6 +4,7 @@ import application.command.Command;
 import application.command.CommandHandler;
 import application.command.control.ControlMessage;
 import application.command.user.UserCommandHandler;
+import application.metrics.events.ConsolePrintEvent;
 import application.network.NetworkPeer;
 
 import java.util.Scanner;
@@ -13,7 +14,8 @@ public class ConsoleHandler {
 	private static final String SENT_MESSAGE_FORMAT = "[Out->%s] ";
 	private static final String SENT_CONTROL_MESSAGE_FORMAT = "[Out->%s][Control] ";
 	private static final String SYSTEM_MESSAGE_PREFIX = "[System] ";
-	private static final String LOCAL_MESSAGE_FORMAT = "You: %s";
+	private static final String LOCAL_SENDER = "You";
+	private static final String LOCAL_MESSAGE_FORMAT = LOCAL_SENDER + ": %s";
 	private static final String FOREIGN_MESSAGE_FORMAT = "%s: %s";
 
 	private final NetworkApplication networkApplication;
@@ -59,14 +61,16 @@ public class ConsoleHandler {
 	}
 
 	/**
-	 * Prints a message received from a certain peer.
+	 * Prints a message received from a certain peer, and adds it to the {@link ChatHistory}.
 	 * @param peer the peer who send the message, or null if the message originates from the local user
 	 * @param message the message
 	 */
 	public void printMessage(NetworkPeer peer, String message) {
 		if (peer == null) {
+			networkApplication.getChatHistory().add(LOCAL_SENDER, message);
 			print(LOCAL_MESSAGE_FORMAT.formatted(message));
 		} else {
+			networkApplication.getChatHistory().add(peer.getName(), message);
 			print(FOREIGN_MESSAGE_FORMAT.formatted(peer.getName(), message));
 		}
 	}
@@ -105,7 +109,18 @@ public class ConsoleHandler {
 		print(prefix + message);
 	}
 
-	private synchronized void print(String message) {
+	private void print(String message) {
+		// The event has to begin before the lock is acquired, so it also shows the time spent waiting for other prints.
+		ConsolePrintEvent event = new ConsolePrintEvent();
+		event.begin();
+		printSynchronized(message);
+		if (event.shouldCommit()) {
+			event.length = message.length();
+			event.commit();
+		}
+	}
+
+	private synchronized void printSynchronized(String message) {
 		clearCurrentLine();
 		System.out.println(message);
 		if (Thread.currentThread() != consoleHandlerThread) {
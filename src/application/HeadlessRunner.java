@@ -0,0 +1,155 @@
+package application;
+
+import application.command.user.StartCommand;
+import application.metrics.MetricsRegistry;
+import application.metrics.PeerMetrics;
+import application.snake.SnakeMatch;
+
+import java.io.PrintStream;
+import java.net.UnknownHostException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class runs a {@link NetworkApplication} without a console, so many Peers can be load tested on one machine.
+ * <p>
+ * The application connects to {@link ApplicationSetting#HEADLESS_CONNECT} at startup, starts matches whenever
+ * {@link ApplicationSetting#HEADLESS_PLAYERS} are in the lobby and fewer than {@link ApplicationSetting#HEADLESS_MATCHES}
+ * are running, and quits after
+ * {@link ApplicationSetting#HEADLESS_SECONDS}. The local Snake gets steered by the {@link ApplicationSetting#BOT}.
+ * <p>
+ * When it quits, it prints a single line report of its tick times, stalls, removed players, bandwidth and throttled
+ * messages. The line starts with {@link HeadlessRunner#REPORT_PREFIX} and consists of {@code key=value} pairs with
+ * integer values, so it can be collected from the output of many processes.
+ * <p>
+ * As soon as a match has ticked for the first time, it prints a line starting with
+ * {@link HeadlessRunner#MATCH_STARTED_PREFIX}, so a harness can time its actions from the moment the match is running.
+ */
+public class HeadlessRunner {
+	public static final String REPORT_PREFIX = "[Report] ";
+	public static final String MATCH_STARTED_PREFIX = "[Match started] ";
+	private static final long CHECK_INTERVAL_MILLIS = 100;
+	/**
+	 * How long the lobby has to be complete and short of matches, before matches get started. This gives the Peers
+	 * the time to connect to each other, and to finish the last match, which might end a few ticks later elsewhere.
+	 */
+	private static final long MATCH_START_DELAY_MILLIS = 1_000;
+	/**
+	 * How long a shutdown waits for the report to be printed.
+	 */
+	private static final long REPORT_TIMEOUT_MILLIS = 2_000;
+
+	private final NetworkApplication app;
+	private final PrintStream reportStream;
+	private final String connectIp;
+	private final int players;
+	private final int matches;
+	private final long runMillis;
+	private final CountDownLatch reportPrinted;
+	private final Set<Integer> startedMatches = new HashSet<>();
+
+	/**
+	 * Creates a runner with the headless Settings.
+	 * @param app the application, which must not have been started yet
+	 * @param reportStream the stream the report gets printed to
+	 */
+	public HeadlessRunner(NetworkApplication app, PrintStream reportStream) {
+		this.app = app;
+		this.reportStream = reportStream;
+		connectIp = ApplicationSetting.HEADLESS_CONNECT.get();
+		players = ApplicationSetting.HEADLESS_PLAYERS.isSet() ? ApplicationSetting.HEADLESS_PLAYERS.getInt() : 0;
+		matches = Math.min(ApplicationSetting.HEADLESS_MATCHES.getInt(), NetworkApplication.MAX_MATCHES);
+		runMillis = ApplicationSetting.HEADLESS_SECONDS.isSet() ? ApplicationSetting.HEADLESS_SECONDS.getInt() * 1000L : -1;
+		reportPrinted = new CountDownLatch(1);
+	}
+
+	/**
+	 * Starts the application and blocks until it has quit, either after the configured time or because it has been
+	 * terminated, and prints the report.
+	 * @return the report
+	 */
+	public String run() {
+		// The shutdown hook of the application quits it, this one keeps the JVM alive until the report is out.
+		Runtime.getRuntime().addShutdownHook(new Thread(this::awaitReport));
+		long start = System.nanoTime();
+		app.startHeadless();
+		if (connectIp != null) {
+			try {
+				app.getNetworkHandler().connectTo(connectIp);
+			} catch (UnknownHostException e) {
+				app.getConsoleHandler().printSystemMessage("The ip to connect to was not in a valid format!");
+			}
+		}
+		long idleSince = System.nanoTime();
+		try {
+			while (app.isRunning() && (runMillis < 0 || System.nanoTime() - start < runMillis * 1_000_000)) {
+				reportStartedMatches();
+				int runningMatches = app.getRunningMatches().size();
+				boolean isIdle = players > 0 && app.getNetworkHandler().getLobbyIps().size() + 1 >= players
+						&& runningMatches < matches;
+				if (!isIdle) {
+					idleSince = System.nanoTime();
+				} else if (System.nanoTime() - idleSince >= MATCH_START_DELAY_MILLIS * 1_000_000) {
+					for (int i = runningMatches; i < matches; i++) {
+						new StartCommand().execute(app, new String[0]);
+					}
+					idleSince = System.nanoTime();
+				}
+				Thread.sleep(CHECK_INTERVAL_MILLIS);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		app.quitApplication();
+		String report = getReport(System.nanoTime() - start);
+		reportStream.println(report);
+		reportPrinted.countDown();
+		return report;
+	}
+
+	private void reportStartedMatches() {
+		for (SnakeMatch match : app.getRunningMatches()) {
+			if (match.getGame().getTick() > 0 && startedMatches.add(match.getMatchId())) {
+				reportStream.println(MATCH_STARTED_PREFIX + "id=%d".formatted(match.getMatchId()));
+			}
+		}
+	}
+
+	private void awaitReport() {
+		try {
+			reportPrinted.await(REPORT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Creates the report. Durations are in microseconds, and the bandwidth is in bytes per second,
+	 * averaged over the whole run.
+	 */
+	private String getReport(long elapsedNanos) {
+		MetricsRegistry metrics = app.getMetrics();
+		long bytesSent = 0;
+		long bytesReceived = 0;
+		long throttled = 0;
+		for (PeerMetrics peer : metrics.getAllPeerMetrics().values()) {
+			bytesSent += peer.getBytesSent();
+			bytesReceived += peer.getBytesReceived();
+			throttled += peer.getThrottledMessages();
+		}
+		long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(elapsedNanos));
+		return REPORT_PREFIX + ("ip=%s seconds=%d ticks=%d stalls=%d desyncs=%d removed=%d tickP50Us=%d tickP99Us=%d "
+				+ "waitP50Us=%d waitP99Us=%d waitMaxUs=%d sentBps=%d receivedBps=%d throttled=%d").formatted(
+				app.getNetworkHandler().getLocalIP(), seconds, metrics.getTicks(), metrics.getStalls(),
+				metrics.getDesyncs(), metrics.getRemovedPlayers(), toMicros(metrics.getTickDuration().getPercentile(50)),
+				toMicros(metrics.getTickDuration().getPercentile(99)), toMicros(metrics.getInputWaitTime().getPercentile(50)),
+				toMicros(metrics.getInputWaitTime().getPercentile(99)), toMicros(metrics.getInputWaitTime().getMax()),
+				bytesSent / seconds, bytesReceived / seconds, throttled);
+	}
+
+	private static long toMicros(long nanos) {
+		return TimeUnit.NANOSECONDS.toMicros(nanos);
+	}
+}
@@ -1,27 +1,167 @@
 package application;
 
+import application.metrics.MetricsExporter;
+import application.metrics.MetricsRegistry;
+import application.metrics.PrometheusEndpoint;
 import application.network.NetworkHandler;
+import application.network.buffer.BufferPool;
+import application.snake.SnakeMatch;
+import application.snake.bot.SnakeBot;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 public class NetworkApplication {
+	/**
+	 * How many matches a peer plays at once at most.
+	 */
+	public static final int MAX_MATCHES = 16;
+	private static final long SCHEDULER_SHUTDOWN_TIMEOUT_MILLIS = 2_000;
+
+	private final MetricsRegistry metrics;
 	private final ConsoleHandler consoleHandler;
+	private final BufferPool bufferPool;
+	private final ChatHistory chatHistory;
 	private final NetworkHandler networkHandler;
+	private final Supplier<SnakeBot> botFactory;
+	/**
+	 * Maps the ids of the running matches the local peer takes part in to the matches.
+	 */
+	private final Map<Integer, SnakeMatch> runningMatches;
+	/**
+	 * Runs the ticks of all matches, see {@link SnakeMatch}.
+	 */
+	private final ScheduledExecutorService matchScheduler;
 
-	private boolean isRunning = false;
+	private volatile boolean isRunning = false;
+	private volatile SnakeMatch snakeMatch = null;
+	private MetricsExporter metricsExporter = null;
+	private PrometheusEndpoint prometheusEndpoint = null;
 
 	public NetworkApplication() {
+		metrics = new MetricsRegistry();
 		consoleHandler = new ConsoleHandler(this);
+		bufferPool = new BufferPool(ApplicationSetting.BUFFER_LEAK_DETECTION.getBoolean(), consoleHandler::printSystemMessage);
+		chatHistory = new ChatHistory(ApplicationSetting.CHAT_HISTORY_SIZE.getInt());
 		networkHandler = new NetworkHandler(this);
+		botFactory = SnakeBot.fromSetting();
+		runningMatches = new ConcurrentHashMap<>();
+		matchScheduler = Executors.newScheduledThreadPool(Runtime.getRuntime().availableProcessors());
 	}
 
 	public void startApplication() {
+		startHeadless();
+		consoleHandler.startConsole();
+	}
+
+	/**
+	 * Starts everything except the console, so the application runs without reading any input.
+	 * Unlike {@link NetworkApplication#startApplication()}, this method returns right away.
+	 */
+	public void startHeadless() {
 		isRunning = true;
+		// Closing the application with a signal, like Ctrl+C, should still leave the other peers in an orderly way.
+		Runtime.getRuntime().addShutdownHook(new Thread(this::quitApplication));
+		if (ApplicationSetting.METRICS_EXPORT_FILE.isSet()) {
+			Path file = Path.of(ApplicationSetting.METRICS_EXPORT_FILE.get());
+			metricsExporter = new MetricsExporter(this, file, ApplicationSetting.METRICS_EXPORT_INTERVAL_SECONDS.getInt());
+			metricsExporter.startExporting();
+		}
+		if (ApplicationSetting.METRICS_HTTP_PORT.isSet()) {
+			startPrometheusEndpoint(ApplicationSetting.METRICS_HTTP_PORT.getInt());
+		}
 		networkHandler.startNetworkHandler();
-		consoleHandler.startConsole();
 	}
 
+	/**
+	 * Closes the application in an orderly way. All running matches get left, all peers get left and every
+	 * Thread of the application has finished when this method returns, except the one running the console.
+	 * <p>
+	 * Calling this method again does nothing.
+	 */
 	public void quitApplication() {
-		isRunning = false;
+		synchronized (this) {
+			if (!isRunning) {
+				return;
+			}
+			isRunning = false;
+		}
+		// No match can be started anymore, so none gets missed.
+		for (SnakeMatch match : runningMatches.values()) {
+			match.leaveMatch();
+		}
+		stopMatchScheduler();
 		networkHandler.closeNetworkHandler();
+		if (prometheusEndpoint != null) {
+			prometheusEndpoint.closeEndpoint();
+		}
+		if (metricsExporter != null) {
+			metricsExporter.stopExporting();
+		}
+	}
+
+	private void startPrometheusEndpoint(int port) {
+		prometheusEndpoint = new PrometheusEndpoint(this, port);
+		try {
+			prometheusEndpoint.startEndpoint();
+		} catch (IOException e) {
+			prometheusEndpoint = null;
+			consoleHandler.printSystemMessage("Could not start the metrics endpoint on port %d: %s".formatted(port, e));
+		}
+	}
+
+	private void stopMatchScheduler() {
+		// Only the failure timeouts of finished matches might still be scheduled.
+		matchScheduler.shutdownNow();
+		try {
+			matchScheduler.awaitTermination(SCHEDULER_SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Starts a new match, unless the local peer does not take part in it, or it has been started already.
+	 * <p>
+	 * Without a Bot, the local peer only plays a single match at a time, so it leaves the current one first.
+	 * With a Bot, it plays all its matches at once, up to {@link NetworkApplication#MAX_MATCHES}.
+	 * The console always steers the match that has been started last.
+	 * @param matchId the id the starting peer has chosen for the match
+	 * @param seed the seed every participant has agreed on
+	 * @param participants the ips of all participants, in the same order on every peer
+	 */
+	public synchronized void startMatch(int matchId, long seed, List<String> participants) {
+		if (!isRunning || runningMatches.containsKey(matchId) || !participants.contains(networkHandler.getLocalIP())) {
+			return;
+		}
+		// The Bot only gets created once it is needed, so no part of the game gets loaded before the first match.
+		SnakeBot bot = botFactory.get();
+		if (bot == null && snakeMatch != null) {
+			snakeMatch.leaveMatch();
+		}
+		if (runningMatches.size() >= MAX_MATCHES) {
+			consoleHandler.printSystemMessage("Did not join a new match, since %d matches are running already.".formatted(MAX_MATCHES));
+			return;
+		}
+		snakeMatch = new SnakeMatch(this, matchId, seed, participants);
+		snakeMatch.setBot(bot);
+		runningMatches.put(matchId, snakeMatch);
+		snakeMatch.startMatch();
+	}
+
+	/**
+	 * Forgets a match that has finished. Gets called by the match itself.
+	 * @param match the match
+	 */
+	public void removeMatch(SnakeMatch match) {
+		runningMatches.remove(match.getMatchId(), match);
 	}
 
 	public boolean isRunning() {
@@ -35,4 +175,41 @@ public class NetworkApplication {
 	public NetworkHandler getNetworkHandler() {
 		return networkHandler;
 	}
+
+	public BufferPool getBufferPool() {
+		return bufferPool;
+	}
+
+	public ChatHistory getChatHistory() {
+		return chatHistory;
+	}
+
+	public MetricsRegistry getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Returns the match that has been started last, which gets steered by the console.
+	 * @return the match, or null if no match has been started yet
+	 */
+	public SnakeMatch getSnakeMatch() {
+		return snakeMatch;
+	}
+
+	/**
+	 * Returns a running match the local peer takes part in.
+	 * @param matchId the id of the match
+	 * @return the match, or null if there is no such match or it has finished
+	 */
+	public SnakeMatch getSnakeMatch(int matchId) {
+		return runningMatches.get(matchId);
+	}
+
+	public List<SnakeMatch> getRunningMatches() {
+		return List.copyOf(runningMatches.values());
+	}
+
+	public ScheduledExecutorService getMatchScheduler() {
+		return matchScheduler;
+	}
 }
@@ -46,6 +46,23 @@ public interface Command {
 	 */
 	int getNumberOfArguments();
 
+	/**
+	 * Returns how many of the last arguments of this Command may be left out.
+	 * @return the number of optional arguments, at most {@link Command#getNumberOfArguments()}
+	 */
+	default int getNumberOfOptionalArguments() {
+		return 0;
+	}
+
+	/**
+	 * Returns whether the last argument of this Command is the whole rest of the input,
+	 * including any {@link StandardStringPatterns#ARGS_SEPARATION_DELIMITER}, instead of a single word.
+	 * @return true when the last argument may contain delimiters
+	 */
+	default boolean hasVerbatimLastArgument() {
+		return false;
+	}
+
 	/**
 	 * Executes this Command on the given arguments.
 	 * @param app the application to execute the command on
@@ -45,17 +45,52 @@ public abstract class CommandHandler {
 			return "\"%s\" is not a valid Command! Use \"/help\" to get a list of all Commands!".formatted(commandIdentifierString);
 		}
 
+		if (command.hasVerbatimLastArgument()) {
+			parts = commandStringWithoutPrefix.split(StandardStringPatterns.ARGS_SEPARATION_DELIMITER.get(), command.getNumberOfArguments() + 1);
+		}
 		String[] args = Arrays.copyOfRange(parts, 1, parts.length);
-		if (args.length != command.getNumberOfArguments()) {
-			String s = "Wrong number of Arguments! Expected %d Arguments but found %d Arguments!";
-			return s.formatted(command.getNumberOfArguments(), args.length);
+		String errorMessage = checkNumberOfArguments(command, args.length);
+		if (errorMessage != null) {
+			return errorMessage;
 		}
 
 		command.execute(networkApplication, args);
 		return null;
 	}
 
-	private Command getCommand(String commandIdentifierAsString) {
+	/**
+	 * Checks whether a Command got as many arguments as it expects, where its optional arguments may be left out.
+	 * @param command the Command
+	 * @param numberOfArguments the number of arguments it got
+	 * @return null, when the number is right, an error message otherwise
+	 */
+	protected static String checkNumberOfArguments(Command command, int numberOfArguments) {
+		int minNumberOfArguments = command.getNumberOfArguments() - command.getNumberOfOptionalArguments();
+		if (numberOfArguments > command.getNumberOfArguments() || numberOfArguments < minNumberOfArguments) {
+			if (minNumberOfArguments < command.getNumberOfArguments()) {
+				String s = "Wrong number of Arguments! Expected %d to %d Arguments but found %d Arguments!";
+				return s.formatted(minNumberOfArguments, command.getNumberOfArguments(), numberOfArguments);
+			}
+			String s = "Wrong number of Arguments! Expected %d Arguments but found %d Arguments!";
+			return s.formatted(command.getNumberOfArguments(), numberOfArguments);
+		}
+		return null;
+	}
+
+	/**
+	 * Returns all the Commands this CommandHandler manages.
+	 * @return the Commands
+	 */
+	protected List<Command> getAllCommands() {
+		return allCommands;
+	}
+
+	/**
+	 * Returns the Command with the passed identifier or name.
+	 * @param commandIdentifierAsString the identifier or name, without the {@link StandardStringPatterns#COMMAND_PREFIX COMMAND_PREFIX}
+	 * @return the Command, or null if there is no such Command
+	 */
+	protected Command getCommand(String commandIdentifierAsString) {
 		for (Command command : allCommands) {
 			if (command.getIdentifier().equals(commandIdentifierAsString)) {
 				return command;
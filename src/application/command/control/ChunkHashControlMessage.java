@@ -0,0 +1,62 @@
+package application.command.control;
+
+import application.NetworkApplication;
+import application.network.Delivery;
+import application.network.MessageType;
+import application.snake.SnakeMatch;
+
+/**
+ * This Control Message delivers the hash a player computed for a single chunk of the board at a certain tick.
+ * It only gets sent to the Peers that subscribed to that chunk.
+ */
+public class ChunkHashControlMessage implements ControlMessage {
+	@Override
+	public String getIdentifier() {
+		return "chunk";
+	}
+
+	@Override
+	public int getNumberOfArguments() {
+		return 5;
+	}
+
+	@Override
+	public boolean isLogged() {
+		return false;
+	}
+
+	@Override
+	public int getRateLimit() {
+		// Every match may send as many hashes as a single one could.
+		return NetworkApplication.MAX_MATCHES * MessageType.DEFAULT_RATE_LIMIT;
+	}
+
+	@Override
+	public Delivery getDelivery() {
+		// A missing hash only skips one comparison, the next one still detects a desync.
+		return Delivery.BEST_EFFORT;
+	}
+
+	/**
+	 * Hashes without a sender can not be checked against the player they claim to be from, so they get ignored.
+	 */
+	@Override
+	public void execute(NetworkApplication app, String[] args) {
+	}
+
+	/**
+	 * @param args args[0] contains the id of the match, args[1] the index of the player, args[2] the tick, args[3] the
+	 * chunk and args[4] the hash in hex
+	 */
+	@Override
+	public void execute(NetworkApplication app, String sender, String[] args) {
+		SnakeMatch match = app.getSnakeMatch(Integer.parseInt(args[0]));
+		int player = Integer.parseInt(args[1]);
+		int tick = Integer.parseInt(args[2]);
+		// A removed player might have simulated a few ticks on its own, before it found out.
+		if (match == null || match.isRemoved(player, tick)) {
+			return;
+		}
+		match.getAreaOfInterest().submitChunkHash(sender, player, tick, Integer.parseInt(args[3]), Long.parseUnsignedLong(args[4], 16));
+	}
+}
@@ -1,14 +1,25 @@
 package application.command.control;
 
 import application.NetworkApplication;
-import application.command.AsyncCommand;
 
+import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
- * This Control Message makes the receiving Peer try to establish a connection to the passed IP.
+ * This Control Message makes the receiving Peer try to establish connections to the passed IPs at once.
+ * <p>
+ * Whenever a Peer gets a new Peer, it sends the IPs of all its other Peers to the new one, and the IP of the new one to
+ * all the others. Both sides of every pair get told about each other that way, so only the one that
+ * {@link application.network.NetworkHandler#shouldConnectTo should connect} does.
+ * <p>
+ * In a {@link application.network.Topology#PARTIAL_MESH}, only the new Peer gets told about the whole lobby,
+ * and connects to some of it.
  */
-public class ConnectToControlMessage implements ControlMessage, AsyncCommand {
+public class ConnectToControlMessage implements ControlMessage {
+	public static final String IP_SEPARATOR = ",";
+
 	@Override
 	public String getIdentifier() {
 		return "con";
@@ -19,19 +30,31 @@ public class ConnectToControlMessage implements ControlMessage, AsyncCommand {
 		return 1;
 	}
 
+	@Override
+	public boolean isRelayed() {
+		// The IPs are meant for the direct neighbors only.
+		return false;
+	}
+
+	@Override
+	public int getRateLimit() {
+		// A Peer announces every Peer that joins through it, and many might join at once.
+		return 200;
+	}
+
 	/**
-	 * @param args args[0] contains the IP to connect to, as a String
+	 * @param args args[0] contains the IPs to connect to, separated by the {@link ConnectToControlMessage#IP_SEPARATOR}
 	 */
 	@Override
-	public void executeAsync(NetworkApplication app, String[] args) {
-		String address = args[0];
-		if (address.equals(app.getNetworkHandler().getLocalIP()) || app.getNetworkHandler().hasConnectionTo(address)) {
-			return;
-		}
-		try {
-			app.getNetworkHandler().connectTo(address);
-		} catch (UnknownHostException e) {
-			throw new IllegalArgumentException("This should never happen! The Connect To Control Message contained an illegal address: " + e.getMessage());
+	public void execute(NetworkApplication app, String[] args) {
+		List<InetAddress> addresses = new ArrayList<>();
+		for (String address : args[0].split(IP_SEPARATOR)) {
+			try {
+				addresses.add(InetAddress.getByName(address));
+			} catch (UnknownHostException e) {
+				throw new IllegalArgumentException("This should never happen! The Connect To Control Message contained an illegal address: " + e.getMessage());
+			}
 		}
+		app.getNetworkHandler().connectToAnnouncedPeers(addresses);
 	}
 }
@@ -1,7 +1,13 @@
 package application.command.control;
 
+import application.NetworkApplication;
 import application.StandardStringPatterns;
 import application.command.Command;
+import application.network.Delivery;
+import application.network.MessageLane;
+import application.network.MessageType;
+
+import java.nio.ByteBuffer;
 
 /**
  * This Interface extends the Command Interface by some useful utilities for Control Messages.
@@ -10,7 +16,7 @@ import application.command.Command;
  * <p>
  * It also defines some of the methods, that the Command interface provides, that are not required for Control Messages.
  */
-public interface ControlMessage extends Command {
+public interface ControlMessage extends Command, MessageType {
 	@Override
 	default String getName() {
 		return null;
@@ -26,19 +32,86 @@ public interface ControlMessage extends Command {
 		return null;
 	}
 
+	/**
+	 * Returns whether this type of Control Message should be shown on the console when it gets sent or received.
+	 * Control Messages that get sent very frequently should return false.
+	 * @return true when this Control Message should be printed
+	 */
+	default boolean isLogged() {
+		return true;
+	}
+
+	/**
+	 * Returns the lane this type of Control Message gets sent and dispatched on.
+	 * Only the messages a running match depends on should use the {@link MessageLane#INPUT INPUT} lane.
+	 * @return the lane
+	 */
+	@Override
+	default MessageLane getLane() {
+		return MessageLane.CONTROL;
+	}
+
+	/**
+	 * Returns how important it is that every single Control Message of this type gets delivered.
+	 * @return the delivery
+	 */
+	@Override
+	default Delivery getDelivery() {
+		return Delivery.RELIABLE;
+	}
+
+	/**
+	 * Executes this Control Message with its arguments still inside the received bytes.
+	 * This is how Control Messages on the {@link MessageLane#INPUT INPUT} lane get executed, right on the receiving
+	 * Thread. The arguments are only valid during this call.
+	 * <p>
+	 * By default, the arguments get decoded into Strings and passed to {@link Command#execute(NetworkApplication, String[])}.
+	 * Control Messages that get received very frequently should override this to avoid that.
+	 * @param app the application to execute the Control Message on
+	 * @param args the arguments, which match {@link Command#getNumberOfArguments()}
+	 */
+	default void execute(NetworkApplication app, ControlMessageArguments args) {
+		execute(app, args.toStrings());
+	}
+
+	/**
+	 * Executes this Control Message as received from a Peer, with arguments that have already been decoded.
+	 * Control Messages that act on behalf of the Peer that sent them have to override this, and use the passed ip
+	 * instead of one taken from their arguments, which any Peer could fake.
+	 * <p>
+	 * By default, the sender gets ignored and {@link Command#execute(NetworkApplication, String[])} gets called.
+	 * @param app the application to execute the Control Message on
+	 * @param sender the ip of the Peer the message came from, which is the origin of a relayed broadcast
+	 * @param args the arguments, which match {@link Command#getNumberOfArguments()}
+	 */
+	default void execute(NetworkApplication app, String sender, String[] args) {
+		execute(app, args);
+	}
+
 	/**
 	 * Returns the Control Message with the passed arguments as a String, ready to be sent through the network.
 	 * @return the full Control Message
 	 */
 	default String getAsString(String... args) {
-		if (args.length != getNumberOfArguments()) {
+		return format(getIdentifierTag(), getNumberOfArguments(), args);
+	}
+
+	/**
+	 * Returns a Control Message with the passed identifier and arguments as a String, see {@link ControlMessage#getAsString}.
+	 * @param identifierTag the identifier of the Control Message, with the {@link StandardStringPatterns#COMMAND_PREFIX}
+	 * @param numberOfArguments the number of arguments the Control Message expects
+	 * @param args the arguments
+	 * @return the full Control Message
+	 */
+	static String format(String identifierTag, int numberOfArguments, String... args) {
+		if (args.length != numberOfArguments) {
 			throw new IllegalArgumentException("The passed number of arguments did not match the expected number of arguments!");
 		}
 
 		StringBuilder builder = new StringBuilder();
 		builder.append(StandardStringPatterns.CONTROL_MESSAGE_PREFIX.get());
 		builder.append(StandardStringPatterns.ARGS_SEPARATION_DELIMITER.get());
-		builder.append(getIdentifierTag());
+		builder.append(identifierTag);
 		for (String s : args) {
 			builder.append(StandardStringPatterns.ARGS_SEPARATION_DELIMITER.get());
 			builder.append(s);
@@ -54,4 +127,22 @@ public interface ControlMessage extends Command {
 	static boolean isControlMessage(String string) {
 		return string.startsWith(StandardStringPatterns.CONTROL_MESSAGE_PREFIX.get());
 	}
+
+	/**
+	 * Returns true when the passed bytes might be a Control Message, just like {@link ControlMessage#isControlMessage(String)}.
+	 * @param message the message between position and limit, encoded as UTF-8
+	 */
+	static boolean isControlMessage(ByteBuffer message) {
+		// The prefix is ASCII, so every char is a single byte.
+		String prefix = StandardStringPatterns.CONTROL_MESSAGE_PREFIX.get();
+		if (message.remaining() < prefix.length()) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length(); i++) {
+			if (message.get(message.position() + i) != prefix.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
 }
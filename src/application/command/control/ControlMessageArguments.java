@@ -0,0 +1,126 @@
+package application.command.control;
+
+import application.network.buffer.Utf8;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The arguments of a received Control Message, still inside the received bytes.
+ * <p>
+ * Parsing a Control Message only records where its arguments start and end, so nothing gets copied or decoded
+ * unless an argument gets turned into a String. One instance gets reused for every message received on a Thread,
+ * so the arguments are only valid until the next message arrives.
+ */
+public final class ControlMessageArguments {
+	private static final int MAX_ARGUMENTS = 16;
+
+	private final int[] starts;
+	private final int[] ends;
+
+	private ByteBuffer message;
+	private int count;
+
+	public ControlMessageArguments() {
+		starts = new int[MAX_ARGUMENTS];
+		ends = new int[MAX_ARGUMENTS];
+	}
+
+	void reset(ByteBuffer message) {
+		this.message = message;
+		count = 0;
+	}
+
+	/**
+	 * @return false if there are too many arguments
+	 */
+	boolean add(int start, int end) {
+		if (count == MAX_ARGUMENTS) {
+			return false;
+		}
+		starts[count] = start;
+		ends[count] = end;
+		count++;
+		return true;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public int getLength(int index) {
+		return ends[checkIndex(index)] - starts[index];
+	}
+
+	/**
+	 * Returns a single byte of an argument.
+	 * @param index the index of the argument
+	 * @param offset the offset of the byte within the argument
+	 * @return the byte
+	 */
+	public byte getByte(int index, int offset) {
+		if (offset < 0 || offset >= getLength(index)) {
+			throw new IndexOutOfBoundsException("Offset %d is out of bounds for argument %d!".formatted(offset, index));
+		}
+		return message.get(starts[index] + offset);
+	}
+
+	/**
+	 * Parses an argument as a decimal number, without decoding it.
+	 * @param index the index of the argument
+	 * @return the number
+	 * @throws NumberFormatException when the argument is not a decimal number
+	 */
+	public long getLong(int index) {
+		int length = getLength(index);
+		boolean isNegative = length > 1 && getByte(index, 0) == '-';
+		if (length == 0 || length > 19 || length == 1 && isNegative) {
+			throw new NumberFormatException("Argument %d is not a valid number!".formatted(index));
+		}
+		long value = 0;
+		for (int i = isNegative ? 1 : 0; i < length; i++) {
+			byte digit = getByte(index, i);
+			if (digit < '0' || digit > '9') {
+				throw new NumberFormatException("Argument %d is not a valid number!".formatted(index));
+			}
+			value = value * 10 + digit - '0';
+		}
+		return isNegative ? -value : value;
+	}
+
+	/**
+	 * Returns an argument as a view of the received bytes, which is only valid as long as the arguments are.
+	 * @param index the index of the argument
+	 * @return a buffer with the argument between position and limit
+	 */
+	public ByteBuffer getBytes(int index) {
+		return message.duplicate().limit(ends[checkIndex(index)]).position(starts[index]);
+	}
+
+	/**
+	 * Decodes an argument into a String.
+	 * @param index the index of the argument
+	 * @return the argument
+	 */
+	public String getString(int index) {
+		return Utf8.decode(message, starts[checkIndex(index)], ends[index]);
+	}
+
+	/**
+	 * Decodes all arguments into Strings, so they stay valid after the next message has been received.
+	 * @return the arguments
+	 */
+	public String[] toStrings() {
+		String[] strings = new String[count];
+		for (int i = 0; i < count; i++) {
+			strings[i] = getString(i);
+		}
+		return strings;
+	}
+
+	private int checkIndex(int index) {
+		if (index < 0 || index >= count) {
+			throw new IndexOutOfBoundsException("Argument %d is out of bounds for %d arguments!".formatted(index, count));
+		}
+		return index;
+	}
+}
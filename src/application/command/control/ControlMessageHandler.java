@@ -4,19 +4,61 @@ import application.NetworkApplication;
 import application.StandardStringPatterns;
 import application.command.Command;
 import application.command.CommandHandler;
+import application.metrics.events.ControlMessageDispatchEvent;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
 public class ControlMessageHandler extends CommandHandler {
+	/**
+	 * Everything a Control Message starts with, up to its identifier.
+	 */
+	private static final byte[] CONTROL_MESSAGE_HEADER = (StandardStringPatterns.CONTROL_MESSAGE_PREFIX.get()
+			+ StandardStringPatterns.ARGS_SEPARATION_DELIMITER.get() + StandardStringPatterns.COMMAND_PREFIX.get())
+			.getBytes(StandardCharsets.UTF_8);
+	private static final byte ARGS_SEPARATION_DELIMITER = (byte) StandardStringPatterns.ARGS_SEPARATION_DELIMITER.get().charAt(0);
+
+	private final NetworkApplication networkApplication;
+	private final List<ControlMessage> controlMessages;
+	/**
+	 * The identifiers of the {@link ControlMessageHandler#controlMessages} as UTF-8, with the same indices.
+	 */
+	private final List<byte[]> identifiers;
+	/**
+	 * The identifier of the {@link RelayControlMessage} as UTF-8, which is no Control Message of this handler.
+	 */
+	private final byte[] relayIdentifier;
+
 	public ControlMessageHandler(NetworkApplication networkApplication) {
 		super(networkApplication);
+		this.networkApplication = networkApplication;
+		controlMessages = new ArrayList<>();
+		identifiers = new ArrayList<>();
+		for (Command command : getAllCommands()) {
+			if (command instanceof ControlMessage controlMessage) {
+				controlMessages.add(controlMessage);
+				identifiers.add(controlMessage.getIdentifier().getBytes(StandardCharsets.UTF_8));
+			}
+		}
+		relayIdentifier = new RelayControlMessage().getIdentifier().getBytes(StandardCharsets.UTF_8);
 	}
 
 	@Override
 	protected List<Command> getCommands() {
 		List<Command> commands = new ArrayList<>();
 		commands.add(new ConnectToControlMessage());
+		commands.add(new StartMatchControlMessage());
+		commands.add(new InputControlMessage());
+		commands.add(new RemovePlayerControlMessage());
+		commands.add(new StateHashControlMessage());
+		commands.add(new SubscribeControlMessage());
+		commands.add(new ChunkHashControlMessage());
+		commands.add(new PingControlMessage());
+		commands.add(new PongControlMessage());
+		commands.add(new GoodbyeControlMessage());
+		commands.add(new HelloControlMessage());
 		return commands;
 	}
 
@@ -30,6 +72,177 @@ public class ControlMessageHandler extends CommandHandler {
 			throw new IllegalArgumentException("This should never happen! It seems like an invalid Control Message has been received!");
 		}
 		String actualCommandPart = parts[1];
-		return super.parseAndExecuteCommand(actualCommandPart);
+
+		ControlMessageDispatchEvent event = new ControlMessageDispatchEvent();
+		event.begin();
+		String errorMessage = super.parseAndExecuteCommand(actualCommandPart);
+		if (event.shouldCommit()) {
+			event.identifier = actualCommandPart.split(StandardStringPatterns.ARGS_SEPARATION_DELIMITER.get(), 2)[0];
+			event.error = errorMessage;
+			event.commit();
+		}
+		return errorMessage;
+	}
+
+	/**
+	 * Parses a received Control Message straight from its bytes, without decoding it.
+	 * @param message the full Control Message between position and limit, encoded as UTF-8
+	 * @param args gets reset and then receives the positions of the arguments inside the message
+	 * @return an instance of the type of the Control Message, or null if it is not a valid Control Message
+	 */
+	public ControlMessage parseControlMessage(ByteBuffer message, ControlMessageArguments args) {
+		int identifierStart = message.position() + CONTROL_MESSAGE_HEADER.length;
+		if (identifierStart > message.limit() || !matches(message, message.position(), CONTROL_MESSAGE_HEADER)) {
+			return null;
+		}
+		int identifierEnd = indexOfDelimiter(message, identifierStart);
+		ControlMessage messageType = findControlMessage(message, identifierStart, identifierEnd);
+		if (messageType == null) {
+			return null;
+		}
+		int verbatimArgument = messageType.hasVerbatimLastArgument() ? messageType.getNumberOfArguments() - 1 : -1;
+		return parseArguments(message, identifierEnd, verbatimArgument, args) ? messageType : null;
+	}
+
+	/**
+	 * Parses a received {@link RelayControlMessage} straight from its bytes, just like
+	 * {@link ControlMessageHandler#parseControlMessage}. Relays get handled by the NetworkHandler itself,
+	 * so they are not part of the Control Messages of this handler.
+	 * @param message the full message between position and limit, encoded as UTF-8
+	 * @param args gets reset and then receives the positions of the arguments inside the message, if it is a relay
+	 * @return true if the message is a relay with {@link RelayControlMessage#NUMBER_OF_ARGUMENTS} arguments
+	 */
+	public boolean parseRelayMessage(ByteBuffer message, ControlMessageArguments args) {
+		int identifierStart = message.position() + CONTROL_MESSAGE_HEADER.length;
+		if (identifierStart > message.limit() || !matches(message, message.position(), CONTROL_MESSAGE_HEADER)) {
+			return false;
+		}
+		int identifierEnd = indexOfDelimiter(message, identifierStart);
+		if (identifierEnd - identifierStart != relayIdentifier.length || !matches(message, identifierStart, relayIdentifier)) {
+			return false;
+		}
+		return parseArguments(message, identifierEnd, RelayControlMessage.NUMBER_OF_ARGUMENTS - 1, args)
+				&& args.getCount() == RelayControlMessage.NUMBER_OF_ARGUMENTS;
+	}
+
+	/**
+	 * Records the positions of the arguments that follow the identifier of a Control Message.
+	 * @param identifierEnd the index right after the identifier
+	 * @param verbatimArgument the index of the argument that takes the whole rest of the message, or -1
+	 * @return false if there are too many arguments
+	 */
+	private static boolean parseArguments(ByteBuffer message, int identifierEnd, int verbatimArgument, ControlMessageArguments args) {
+		int limit = message.limit();
+		args.reset(message);
+		int argumentStart = identifierEnd + 1;
+		while (argumentStart <= limit) {
+			int argumentEnd = args.getCount() == verbatimArgument ? limit : indexOfDelimiter(message, argumentStart);
+			if (!args.add(argumentStart, argumentEnd)) {
+				return false;
+			}
+			argumentStart = argumentEnd + 1;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the type of a received Control Message, without parsing its arguments.
+	 * @param message the full Control Message between position and limit, encoded as UTF-8
+	 * @return an instance of the type of the Control Message, or null if it is not a valid Control Message
+	 */
+	public ControlMessage getControlMessage(ByteBuffer message) {
+		int identifierStart = message.position() + CONTROL_MESSAGE_HEADER.length;
+		if (identifierStart > message.limit() || !matches(message, message.position(), CONTROL_MESSAGE_HEADER)) {
+			return null;
+		}
+		return findControlMessage(message, identifierStart, indexOfDelimiter(message, identifierStart));
+	}
+
+	private static int indexOfDelimiter(ByteBuffer message, int start) {
+		int limit = message.limit();
+		for (int i = start; i < limit; i++) {
+			if (message.get(i) == ARGS_SEPARATION_DELIMITER) {
+				return i;
+			}
+		}
+		return limit;
+	}
+
+	private static boolean matches(ByteBuffer message, int start, byte[] bytes) {
+		for (int i = 0; i < bytes.length; i++) {
+			if (message.get(start + i) != bytes[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private ControlMessage findControlMessage(ByteBuffer message, int start, int end) {
+		for (int i = 0; i < identifiers.size(); i++) {
+			byte[] identifier = identifiers.get(i);
+			if (identifier.length == end - start && matches(message, start, identifier)) {
+				return controlMessages.get(i);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Executes a Control Message parsed by {@link ControlMessageHandler#parseControlMessage}, with its arguments
+	 * still inside the received bytes.
+	 * @param messageType the type of the Control Message
+	 * @param args the arguments
+	 * @return null, when the Control Message was executed successfully, an error message otherwise
+	 */
+	public String executeControlMessage(ControlMessage messageType, ControlMessageArguments args) {
+		ControlMessageDispatchEvent event = new ControlMessageDispatchEvent();
+		event.begin();
+		String errorMessage = checkNumberOfArguments(messageType, args.getCount());
+		if (errorMessage == null) {
+			messageType.execute(networkApplication, args);
+		}
+		commitDispatchEvent(event, messageType, errorMessage);
+		return errorMessage;
+	}
+
+	/**
+	 * Executes a Control Message parsed by {@link ControlMessageHandler#parseControlMessage}, whose arguments have
+	 * already been decoded.
+	 * @param messageType the type of the Control Message
+	 * @param sender the ip of the Peer the message came from, see {@link ControlMessage#execute(NetworkApplication, String, String[])}
+	 * @param args the arguments
+	 * @return null, when the Control Message was executed successfully, an error message otherwise
+	 */
+	public String executeControlMessage(ControlMessage messageType, String sender, String[] args) {
+		ControlMessageDispatchEvent event = new ControlMessageDispatchEvent();
+		event.begin();
+		String errorMessage = checkNumberOfArguments(messageType, args.length);
+		if (errorMessage == null) {
+			messageType.execute(networkApplication, sender, args);
+		}
+		commitDispatchEvent(event, messageType, errorMessage);
+		return errorMessage;
+	}
+
+	private static void commitDispatchEvent(ControlMessageDispatchEvent event, ControlMessage messageType, String errorMessage) {
+		if (event.shouldCommit()) {
+			event.identifier = messageType.getIdentifier();
+			event.error = errorMessage;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Returns the type of the passed Control Message, without executing it.
+	 * @param controlMessageString the full Control Message as a String
+	 * @return an instance of the type of the Control Message, or null if it is not a valid Control Message
+	 */
+	public ControlMessage getControlMessage(String controlMessageString) {
+		String[] parts = controlMessageString.split(StandardStringPatterns.ARGS_SEPARATION_DELIMITER.get(), 3);
+		if (parts.length < 2 || !parts[1].startsWith(StandardStringPatterns.COMMAND_PREFIX.get())) {
+			return null;
+		}
+		Command command = getCommand(parts[1].substring(StandardStringPatterns.COMMAND_PREFIX.get().length()));
+		return command instanceof ControlMessage controlMessage ? controlMessage : null;
 	}
 }
@@ -0,0 +1,43 @@
+package application.command.control;
+
+import application.NetworkApplication;
+import application.network.NetworkPeer;
+
+/**
+ * This Control Message is the last message a Peer sends before closing the application. The receiving Peer closes
+ * the connection right away, instead of finding out through a failed read later on.
+ */
+public class GoodbyeControlMessage implements ControlMessage {
+	@Override
+	public String getIdentifier() {
+		return "bye";
+	}
+
+	@Override
+	public int getNumberOfArguments() {
+		return 0;
+	}
+
+	/**
+	 * A goodbye without a sender can not be assigned to any Peer, so it gets ignored.
+	 */
+	@Override
+	public void execute(NetworkApplication app, String[] args) {
+	}
+
+	/**
+	 * Only the Peer that sent the message leaves, which is the origin of a goodbye relayed through a partial mesh.
+	 */
+	@Override
+	public void execute(NetworkApplication app, String sender, String[] args) {
+		// Has to leave the lobby first, so it does not get picked to replace itself as a neighbor.
+		boolean wasMember = app.getNetworkHandler().removeLobbyMember(sender);
+		NetworkPeer peer = app.getNetworkHandler().getPeer(sender);
+		if (peer != null) {
+			app.getNetworkHandler().removeNetworkPeer(peer);
+		}
+		if (peer != null || wasMember) {
+			app.getConsoleHandler().printSystemMessage("Peer %s has left the lobby.".formatted(sender));
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package application.command.control;
+
+import application.NetworkApplication;
+
+/**
+ * This Control Message gets broadcast by a Peer that joined a {@link application.network.Topology#PARTIAL_MESH},
+ * so the Peers it is not connected to know it is part of the lobby as well.
+ */
+public class HelloControlMessage implements ControlMessage {
+	@Override
+	public String getIdentifier() {
+		return "hi";
+	}
+
+	@Override
+	public int getNumberOfArguments() {
+		return 1;
+	}
+
+	/**
+	 * @param args args[0] contains the ip of the new Peer
+	 */
+	@Override
+	public void execute(NetworkApplication app, String[] args) {
+		app.getNetworkHandler().addLobbyMember(args[0]);
+	}
+
+	/**
+	 * Only the Peer that broadcast the message joins the lobby, whatever ip it claims.
+	 */
+	@Override
+	public void execute(NetworkApplication app, String sender, String[] args) {
+		app.getNetworkHandler().addLobbyMember(sender);
+	}
+}
@@ -0,0 +1,166 @@
+package application.command.control;
+
+import application.NetworkApplication;
+import application.network.MessageLane;
+import application.snake.InputPacketCodec;
+import application.snake.SnakeMatch;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * This Control Message delivers the recent inputs of a player in a {@link SnakeMatch}.
+ * <p>
+ * The inputs are packed by the {@link InputPacketCodec} and sent as Base64, since messages have to be text.
+ * Every message repeats the inputs that have not been acknowledged by all other players yet, so a lost message does
+ * not stall the match, and carries the acknowledgements of the sending player.
+ * <p>
+ * Received inputs get decoded straight from the received bytes, without turning them into a String first.
+ */
+public class InputControlMessage implements ControlMessage {
+	private static final Base64.Encoder ENCODER = Base64.getEncoder().withoutPadding();
+	private static final Base64.Decoder DECODER = Base64.getDecoder();
+	private static final String BASE64_ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+	/**
+	 * The value of every ASCII char in Base64, or -1 if it is not part of the alphabet.
+	 */
+	private static final byte[] BASE64_VALUES = new byte[128];
+
+	static {
+		Arrays.fill(BASE64_VALUES, (byte) -1);
+		for (int i = 0; i < BASE64_ALPHABET.length(); i++) {
+			BASE64_VALUES[BASE64_ALPHABET.charAt(i)] = (byte) i;
+		}
+	}
+
+	/**
+	 * Every Peer receives messages on the thread of the sending Peer, so each of those threads gets its own buffer.
+	 * It grows with the number of acknowledgements in the packets, see {@link InputControlMessage#getDecodeBuffer}.
+	 */
+	private static final ThreadLocal<ByteBuffer> DECODE_BUFFER =
+			ThreadLocal.withInitial(() -> ByteBuffer.allocate(InputPacketCodec.MAX_PACKET_SIZE));
+
+	@Override
+	public String getIdentifier() {
+		return "in";
+	}
+
+	@Override
+	public int getNumberOfArguments() {
+		return 2;
+	}
+
+	@Override
+	public int getRateLimit() {
+		// The inputs of a match must never be dropped, the limit of all messages of the Peer still applies.
+		return 0;
+	}
+
+	@Override
+	public boolean isLogged() {
+		// Inputs get sent every tick, printing them would flood the console.
+		return false;
+	}
+
+	@Override
+	public MessageLane getLane() {
+		return MessageLane.INPUT;
+	}
+
+	/**
+	 * @param args args[0] contains the id of the match and args[1] the packed inputs, as encoded by
+	 * {@link InputControlMessage#encodePacket}
+	 */
+	@Override
+	public void execute(NetworkApplication app, String[] args) {
+		SnakeMatch match = app.getSnakeMatch(Integer.parseInt(args[0]));
+		if (match == null) {
+			return;
+		}
+		InputPacketCodec.decode(decodePacket(args[1]), match::submitInput, match::submitAck);
+	}
+
+	@Override
+	public void execute(NetworkApplication app, ControlMessageArguments args) {
+		SnakeMatch match = app.getSnakeMatch(Math.toIntExact(args.getLong(0)));
+		if (match == null) {
+			return;
+		}
+		InputPacketCodec.decode(decodePacket(args, 1), match::submitInput, match::submitAck);
+	}
+
+	/**
+	 * Turns a packet written by the {@link InputPacketCodec} into text.
+	 * @param packet the buffer containing the packet between position and limit
+	 * @return the packet as an argument of this Control Message
+	 */
+	public static String encodePacket(ByteBuffer packet) {
+		return StandardCharsets.ISO_8859_1.decode(ENCODER.encode(packet)).toString();
+	}
+
+	/**
+	 * Turns an argument of this Control Message back into a packet that the {@link InputPacketCodec} can decode.
+	 * The returned buffer is reused by the next call on the same thread.
+	 * @param encodedPacket the argument
+	 * @return the packet
+	 */
+	public static ByteBuffer decodePacket(String encodedPacket) {
+		byte[] encoded = encodedPacket.getBytes(StandardCharsets.ISO_8859_1);
+		ByteBuffer buffer = getDecodeBuffer(encoded.length);
+		buffer.clear();
+		buffer.limit(DECODER.decode(encoded, buffer.array()));
+		return buffer;
+	}
+
+	/**
+	 * Turns an argument of this Control Message back into a packet, just like {@link InputControlMessage#decodePacket(String)},
+	 * but straight from the received bytes. The returned buffer is reused by the next call on the same thread.
+	 * @param args the arguments of a received Control Message
+	 * @param index the index of the argument containing the packet
+	 * @return the packet
+	 */
+	public static ByteBuffer decodePacket(ControlMessageArguments args, int index) {
+		int length = args.getLength(index);
+		ByteBuffer buffer = getDecodeBuffer(length);
+		if (length % 4 == 1) {
+			throw new IllegalArgumentException("The input packet is not valid Base64!");
+		}
+		buffer.clear();
+		int bits = 0;
+		int numberOfBits = 0;
+		for (int i = 0; i < length; i++) {
+			byte c = args.getByte(index, i);
+			int value = c >= 0 ? BASE64_VALUES[c] : -1;
+			if (value < 0) {
+				throw new IllegalArgumentException("The input packet is not valid Base64!");
+			}
+			// Only the bits that have not been written yet are kept.
+			bits = (bits << 6 | value) & 0x3FFF;
+			numberOfBits += 6;
+			if (numberOfBits >= 8) {
+				numberOfBits -= 8;
+				buffer.put((byte) (bits >> numberOfBits));
+			}
+		}
+		return buffer.flip();
+	}
+
+	/**
+	 * Returns the buffer of the current thread, replaced by a larger one if it cannot hold the passed packet.
+	 * Since the packets of a match always have the same number of acknowledgements, that only happens once.
+	 * @param encodedLength the length of the packet in Base64
+	 * @return the buffer
+	 */
+	private static ByteBuffer getDecodeBuffer(int encodedLength) {
+		ByteBuffer buffer = DECODE_BUFFER.get();
+		// Every 4 characters of Base64 carry 3 bytes.
+		int length = (int) (encodedLength * 3L / 4);
+		if (length > buffer.capacity()) {
+			buffer = ByteBuffer.allocate(length);
+			DECODE_BUFFER.set(buffer);
+		}
+		return buffer;
+	}
+}
@@ -0,0 +1,56 @@
+package application.command.control;
+
+import application.NetworkApplication;
+import application.network.Delivery;
+import application.network.NetworkPeer;
+
+/**
+ * This Control Message makes the receiving Peer answer with a {@link PongControlMessage}, which contains the
+ * unchanged timestamp, so the sender can measure the round trip time.
+ */
+public class PingControlMessage implements ControlMessage {
+	@Override
+	public String getIdentifier() {
+		return "ping";
+	}
+
+	@Override
+	public int getNumberOfArguments() {
+		return 2;
+	}
+
+	@Override
+	public boolean isLogged() {
+		return false;
+	}
+
+	@Override
+	public Delivery getDelivery() {
+		// Only the newest ping is needed to measure the round trip time.
+		return Delivery.LATEST;
+	}
+
+	@Override
+	public boolean isOrdered() {
+		// The round trip time must not include the time the message was held back.
+		return false;
+	}
+
+	@Override
+	public boolean isRelayed() {
+		// The round trip time only matters for the direct connections.
+		return false;
+	}
+
+	/**
+	 * @param args args[0] contains the ip of the sender and args[1] the timestamp of the sender
+	 */
+	@Override
+	public void execute(NetworkApplication app, String[] args) {
+		NetworkPeer sender = app.getNetworkHandler().getPeer(args[0]);
+		if (sender == null) {
+			return;
+		}
+		app.getNetworkHandler().sendControlMessage(sender, new PongControlMessage(), app.getNetworkHandler().getLocalIP(), args[1]);
+	}
+}
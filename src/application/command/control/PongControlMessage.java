@@ -0,0 +1,45 @@
+package application.command.control;
+
+import application.NetworkApplication;
+import application.network.Delivery;
+
+/**
+ * This Control Message is the answer to a {@link PingControlMessage}. It records the round trip time to the Peer that answered.
+ */
+public class PongControlMessage implements ControlMessage {
+	@Override
+	public String getIdentifier() {
+		return "pong";
+	}
+
+	@Override
+	public int getNumberOfArguments() {
+		return 2;
+	}
+
+	@Override
+	public boolean isLogged() {
+		return false;
+	}
+
+	@Override
+	public Delivery getDelivery() {
+		// Only the newest ping is needed to measure the round trip time.
+		return Delivery.LATEST;
+	}
+
+	@Override
+	public boolean isOrdered() {
+		// The round trip time must not include the time the message was held back.
+		return false;
+	}
+
+	/**
+	 * @param args args[0] contains the ip of the answering Peer and args[1] the timestamp of the original ping
+	 */
+	@Override
+	public void execute(NetworkApplication app, String[] args) {
+		long roundTripNanos = System.nanoTime() - Long.parseLong(args[1]);
+		app.getMetrics().getPeerMetrics(args[0]).recordRoundTrip(roundTripNanos);
+	}
+}
@@ -0,0 +1,66 @@
+package application.command.control;
+
+import application.StandardStringPatterns;
+import application.network.BroadcastRelay;
+import application.network.Delivery;
+import application.network.MessageLane;
+import application.network.MessageType;
+import application.network.Topology;
+
+/**
+ * This Control Message carries a broadcast through a {@link Topology#PARTIAL_MESH}. Every Peer that receives it for
+ * the first time handles the carried message and passes it on to its other neighbors, until its time to live runs out.
+ * <p>
+ * Relayed messages get handled by the {@link application.network.NetworkHandler NetworkHandler} itself, since passing
+ * them on depends on the neighbor they came from. So unlike all other Control Messages, this is no {@link ControlMessage}
+ * that could get executed, and only gets parsed by {@link ControlMessageHandler#parseRelayMessage}.
+ */
+public class RelayControlMessage implements MessageType {
+	public static final int ORIGIN = 0;
+	public static final int MESSAGE_ID = 1;
+	public static final int TIME_TO_LIVE = 2;
+	public static final int MESSAGE = 3;
+	/**
+	 * The number of arguments, the last of which is the carried message, including any delimiters.
+	 */
+	public static final int NUMBER_OF_ARGUMENTS = 4;
+
+	@Override
+	public String getIdentifier() {
+		return "fw";
+	}
+
+	@Override
+	public MessageLane getLane() {
+		// Gets handled right away, the carried message then gets dispatched on its own lane.
+		return MessageLane.INPUT;
+	}
+
+	@Override
+	public Delivery getDelivery() {
+		// Relayed messages actually get sent with the delivery of the carried message, see BroadcastRelay#getRelayedType.
+		return Delivery.RELIABLE;
+	}
+
+	@Override
+	public boolean isRelayed() {
+		return false;
+	}
+
+	@Override
+	public int getRateLimit() {
+		// The carried message counts towards the limit of its type and origin instead.
+		return 0;
+	}
+
+	/**
+	 * Returns the relayed message as a String, ready to be sent through the network.
+	 * @param args args[0] contains the ip of the Peer that broadcast the message, args[1] the id the broadcasting Peer
+	 * gave the message, args[2] the number of hops it may still travel and args[3] the carried message
+	 * @return the full Control Message
+	 * @see BroadcastRelay
+	 */
+	public String getAsString(String... args) {
+		return ControlMessage.format(StandardStringPatterns.COMMAND_PREFIX.get() + getIdentifier(), NUMBER_OF_ARGUMENTS, args);
+	}
+}
@@ -0,0 +1,58 @@
+package application.command.control;
+
+import application.NetworkApplication;
+import application.network.MessageLane;
+import application.snake.InputPacketCodec;
+import application.snake.SnakeMatch;
+
+/**
+ * This Control Message reports that a player should be removed from a {@link SnakeMatch}, because it has
+ * left or stopped responding. Every participant that learns about the removal sends it once, together with all inputs
+ * of the removed player it has, so the others can fill their gaps and agree on the tick the player gets removed at.
+ * <p>
+ * A player that leaves the match on its own reports itself, with its last inputs.
+ */
+public class RemovePlayerControlMessage implements ControlMessage {
+	@Override
+	public String getIdentifier() {
+		return "rm";
+	}
+
+	@Override
+	public int getNumberOfArguments() {
+		return 5;
+	}
+
+	@Override
+	public int getRateLimit() {
+		// A dropped report would stall the match for good, the limit of all messages of the Peer still applies.
+		return 0;
+	}
+
+	@Override
+	public MessageLane getLane() {
+		// Has to stay in order with the inputs of the reporting player.
+		return MessageLane.INPUT;
+	}
+
+	/**
+	 * @param args args[0] contains the id of the match, args[1] the index of the reporting player, args[2] the index of
+	 * the removed player, args[3] the highest tick up to which the reporting player has received all inputs of the
+	 * removed player, and args[4] those inputs, packed like the ones of an {@link InputControlMessage}
+	 */
+	@Override
+	public void execute(NetworkApplication app, String[] args) {
+		SnakeMatch match = app.getSnakeMatch(Integer.parseInt(args[0]));
+		if (match == null) {
+			return;
+		}
+		int player = Integer.parseInt(args[1]);
+		int removedPlayer = Integer.parseInt(args[2]);
+		InputPacketCodec.decode(InputControlMessage.decodePacket(args[4]), (p, tick, direction) -> {
+			if (p == removedPlayer) {
+				match.submitInput(p, tick, direction);
+			}
+		});
+		match.submitRemoval(player, removedPlayer, Integer.parseInt(args[3]));
+	}
+}
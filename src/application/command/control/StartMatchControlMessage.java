@@ -0,0 +1,43 @@
+package application.command.control;
+
+import application.NetworkApplication;
+import application.network.MessageLane;
+
+import java.util.Arrays;
+
+/**
+ * This Control Message makes the receiving Peer start a new match with the passed id, seed and participants, next to
+ * the matches it is playing already, see {@link NetworkApplication#startMatch}.
+ */
+public class StartMatchControlMessage implements ControlMessage {
+	/**
+	 * The delimiter between the ips of the participants.
+	 */
+	public static final String PARTICIPANTS_DELIMITER = ",";
+
+	@Override
+	public String getIdentifier() {
+		return "start";
+	}
+
+	@Override
+	public int getNumberOfArguments() {
+		return 3;
+	}
+
+	@Override
+	public MessageLane getLane() {
+		// Has to stay in order with the inputs, or the first inputs of the match would arrive before the match exists.
+		return MessageLane.INPUT;
+	}
+
+	/**
+	 * @param args args[0] contains the id of the match, args[1] the seed and args[2] the ips of all participants,
+	 * separated by the {@link StartMatchControlMessage#PARTICIPANTS_DELIMITER}
+	 */
+	@Override
+	public void execute(NetworkApplication app, String[] args) {
+		long seed = Long.parseLong(args[1]);
+		app.startMatch(Integer.parseInt(args[0]), seed, Arrays.asList(args[2].split(PARTICIPANTS_DELIMITER)));
+	}
+}
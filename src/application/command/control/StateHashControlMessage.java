@@ -0,0 +1,45 @@
+package application.command.control;
+
+import application.NetworkApplication;
+import application.network.Delivery;
+import application.snake.SnakeMatch;
+
+/**
+ * This Control Message delivers the state hash a player computed for a certain tick of a {@link SnakeMatch},
+ * so every peer can detect when it has desynced from the others.
+ */
+public class StateHashControlMessage implements ControlMessage {
+	@Override
+	public String getIdentifier() {
+		return "hash";
+	}
+
+	@Override
+	public int getNumberOfArguments() {
+		return 4;
+	}
+
+	@Override
+	public boolean isLogged() {
+		return false;
+	}
+
+	@Override
+	public Delivery getDelivery() {
+		// A missing hash only skips one comparison, the next one still detects a desync.
+		return Delivery.BEST_EFFORT;
+	}
+
+	/**
+	 * @param args args[0] contains the id of the match, args[1] the index of the player, args[2] the tick and args[3]
+	 * the state hash in hex
+	 */
+	@Override
+	public void execute(NetworkApplication app, String[] args) {
+		SnakeMatch match = app.getSnakeMatch(Integer.parseInt(args[0]));
+		if (match == null) {
+			return;
+		}
+		match.submitStateHash(Integer.parseInt(args[1]), Integer.parseInt(args[2]), Long.parseUnsignedLong(args[3], 16));
+	}
+}
@@ -0,0 +1,137 @@
+package application.command.control;
+
+import application.NetworkApplication;
+import application.network.Delivery;
+import application.network.MessageType;
+import application.snake.SnakeMatch;
+
+import java.util.BitSet;
+
+/**
+ * This Control Message tells the receiving Peer which chunks of the board of a match the sender is interested in.
+ * Chunk specific messages only get sent to the Peers that subscribed to the chunk.
+ * <p>
+ * The subscriptions always belong to the Peer the message came from, and only get accepted for the running matches
+ * of the receiving Peer, with chunks that exist on their boards. Chunk messages only get sent over direct connections,
+ * so in a {@link application.network.Topology#PARTIAL_MESH} the subscriptions do not get relayed, and only the ones
+ * of neighbors get accepted.
+ */
+public class SubscribeControlMessage implements ControlMessage {
+	private static final String CHUNK_DELIMITER = ",";
+	private static final String NO_CHUNKS = "-";
+
+	private final int matchId;
+
+	public SubscribeControlMessage() {
+		this(0);
+	}
+
+	/**
+	 * Creates the type of the subscriptions of a certain match, which only replace the queued subscriptions of that match.
+	 * @param matchId the id of the match
+	 */
+	public SubscribeControlMessage(int matchId) {
+		this.matchId = matchId;
+	}
+
+	@Override
+	public String getIdentifier() {
+		return "sub";
+	}
+
+	@Override
+	public int getNumberOfArguments() {
+		return 2;
+	}
+
+	@Override
+	public boolean isLogged() {
+		return false;
+	}
+
+	@Override
+	public boolean isRelayed() {
+		// Chunk messages only reach the neighbors, so only they may subscribe.
+		return false;
+	}
+
+	@Override
+	public Delivery getDelivery() {
+		// A newer subscription replaces the older one completely.
+		return Delivery.LATEST;
+	}
+
+	@Override
+	public String getReplacementKey() {
+		return getIdentifier() + " " + matchId;
+	}
+
+	@Override
+	public int getRateLimit() {
+		// Every match may subscribe as often as a single one could.
+		return NetworkApplication.MAX_MATCHES * MessageType.DEFAULT_RATE_LIMIT;
+	}
+
+	/**
+	 * Subscriptions without a sender can not be assigned to any Peer, so they get ignored.
+	 */
+	@Override
+	public void execute(NetworkApplication app, String[] args) {
+	}
+
+	/**
+	 * @param args args[0] contains the id of the match and args[1] the chunks, as encoded by
+	 * {@link SubscribeControlMessage#encodeChunks}
+	 */
+	@Override
+	public void execute(NetworkApplication app, String sender, String[] args) {
+		// A subscription carried by a relay comes from a Peer the chunk messages could not be sent to.
+		if (app.getNetworkHandler().getPeer(sender) == null) {
+			return;
+		}
+		int matchId = Integer.parseInt(args[0]);
+		SnakeMatch match = app.getSnakeMatch(matchId);
+		// Chunk messages only get sent for the running matches, subscriptions to any other one would never be used.
+		if (match == null) {
+			return;
+		}
+		BitSet chunks = decodeChunks(args[1], match.getAreaOfInterest().getNumberOfChunks());
+		app.getNetworkHandler().getInterestRouter().updateSubscriptions(matchId, sender, chunks);
+	}
+
+	public static String encodeChunks(BitSet chunks) {
+		if (chunks.isEmpty()) {
+			return NO_CHUNKS;
+		}
+		StringBuilder sb = new StringBuilder();
+		for (int chunk = chunks.nextSetBit(0); chunk >= 0; chunk = chunks.nextSetBit(chunk + 1)) {
+			if (!sb.isEmpty()) {
+				sb.append(CHUNK_DELIMITER);
+			}
+			sb.append(chunk);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Decodes the chunks encoded by {@link SubscribeControlMessage#encodeChunks}.
+	 * @param encodedChunks the encoded chunks
+	 * @param numberOfChunks the number of chunks of the board, every chunk has to be below it
+	 * @return the chunks
+	 * @throws IllegalArgumentException when a chunk does not exist on the board
+	 */
+	public static BitSet decodeChunks(String encodedChunks, int numberOfChunks) {
+		BitSet chunks = new BitSet(numberOfChunks);
+		if (encodedChunks.equals(NO_CHUNKS)) {
+			return chunks;
+		}
+		for (String chunk : encodedChunks.split(CHUNK_DELIMITER)) {
+			int index = Integer.parseInt(chunk);
+			if (index < 0 || index >= numberOfChunks) {
+				throw new IllegalArgumentException("Chunk %d does not exist on a board of %d chunks!".formatted(index, numberOfChunks));
+			}
+			chunks.set(index);
+		}
+		return chunks;
+	}
+}
@@ -0,0 +1,48 @@
+package application.command.user;
+
+import application.NetworkApplication;
+import application.command.Command;
+import application.snake.Direction;
+import application.snake.SnakeMatch;
+
+public class DirectionCommand implements Command {
+	@Override
+	public String getIdentifier() {
+		return "d";
+	}
+
+	@Override
+	public String getName() {
+		return "direction";
+	}
+
+	@Override
+	public String[] getArgumentNames() {
+		return new String[] { "u|r|d|l" };
+	}
+
+	@Override
+	public String getDescription() {
+		return "changes the direction of your snake in the current match";
+	}
+
+	@Override
+	public int getNumberOfArguments() {
+		return 1;
+	}
+
+	@Override
+	public void execute(NetworkApplication app, String[] args) {
+		SnakeMatch match = app.getSnakeMatch();
+		if (match == null || !match.isRunning()) {
+			app.getConsoleHandler().printSystemMessage("There is no running match!");
+			return;
+		}
+		Direction direction = Direction.fromIdentifier(args[0]);
+		if (direction == null) {
+			app.getConsoleHandler().printSystemMessage("\"%s\" is not a valid direction!".formatted(args[0]));
+			return;
+		}
+		match.setLocalDirection(direction);
+	}
+}
@@ -38,10 +38,12 @@ public class HelpCommand implements Command {
 		for (Command command : commands) {
 			sb.append(System.lineSeparator());
 			sb.append(command.getIdentifierTag());
-			for (String argument : command.getArgumentNames()) {
-				sb.append(" <");
-				sb.append(argument);
-				sb.append(">");
+			String[] argumentNames = command.getArgumentNames();
+			int firstOptionalArgument = argumentNames.length - command.getNumberOfOptionalArguments();
+			for (int i = 0; i < argumentNames.length; i++) {
+				sb.append(i < firstOptionalArgument ? " <" : " [");
+				sb.append(argumentNames[i]);
+				sb.append(i < firstOptionalArgument ? ">" : "]");
 			}
 			sb.append(" (");
 			sb.append(command.getName());
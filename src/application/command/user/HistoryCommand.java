@@ -0,0 +1,66 @@
+package application.command.user;
+
+import application.ChatHistory;
+import application.NetworkApplication;
+import application.command.Command;
+
+import java.util.List;
+
+public class HistoryCommand implements Command {
+	private static final int DEFAULT_COUNT = 20;
+
+	@Override
+	public String getIdentifier() {
+		return "history";
+	}
+
+	@Override
+	public String getName() {
+		return "chat-history";
+	}
+
+	@Override
+	public String[] getArgumentNames() {
+		return new String[] { "count" };
+	}
+
+	@Override
+	public String getDescription() {
+		return "prints the newest chat messages of this session, %d by default".formatted(DEFAULT_COUNT);
+	}
+
+	@Override
+	public int getNumberOfArguments() {
+		return 1;
+	}
+
+	@Override
+	public int getNumberOfOptionalArguments() {
+		return 1;
+	}
+
+	@Override
+	public void execute(NetworkApplication app, String[] args) {
+		int count = DEFAULT_COUNT;
+		if (args.length > 0) {
+			try {
+				count = Integer.parseInt(args[0]);
+			} catch (NumberFormatException e) {
+				app.getConsoleHandler().printSystemMessage("The count has to be a number!");
+				return;
+			}
+		}
+		if (count <= 0) {
+			app.getConsoleHandler().printSystemMessage("The count has to be positive!");
+			return;
+		}
+		ChatHistory history = app.getChatHistory();
+		List<String> messages = history.getNewest(count);
+		if (messages.isEmpty()) {
+			app.getConsoleHandler().printSystemMessage("No chat messages have been sent yet.");
+			return;
+		}
+		String heading = "The last %d of %d remembered chat messages:".formatted(messages.size(), history.size());
+		app.getConsoleHandler().printSystemMessage(heading + System.lineSeparator() + String.join(System.lineSeparator(), messages));
+	}
+}
@@ -1,7 +1,9 @@
 package application.command.user;
 
 import application.NetworkApplication;
+import application.ApplicationSetting;
 import application.command.Command;
+import application.network.InterfaceQuality;
 
 public class LocalIPCommand implements Command {
 	@Override
@@ -21,7 +23,7 @@ public class LocalIPCommand implements Command {
 
 	@Override
 	public String getDescription() {
-		return "prints the ip address of your local machine";
+		return "prints the ip address of your local machine, and how fast each network interface reaches the known peers";
 	}
 
 	@Override
@@ -32,6 +34,18 @@ public class LocalIPCommand implements Command {
 	@Override
 	public void execute(NetworkApplication app, String[] args) {
 		String ip = app.getNetworkHandler().getLocalIP();
-		app.getConsoleHandler().printSystemMessage("Your local ip is %s.".formatted(ip));
+		InterfaceQuality selected = app.getNetworkHandler().getSelectedInterface();
+		if (selected == null) {
+			app.getConsoleHandler().printSystemMessage("Your local ip is %s, as set by %s.".formatted(ip, ApplicationSetting.NETWORK_ADDRESS.getKey()));
+			return;
+		}
+		StringBuilder message = new StringBuilder("Your local ip is %s on the interface %s.".formatted(ip, selected.name()));
+		for (InterfaceQuality measured : app.getNetworkHandler().getMeasuredInterfaces()) {
+			message.append(System.lineSeparator()).append(measured.equals(selected) ? "* " : "  ").append(measured);
+		}
+		if (!selected.isMeasured()) {
+			message.append(System.lineSeparator()).append("No peers are known yet, so the interfaces have not been measured.");
+		}
+		app.getConsoleHandler().printSystemMessage(message.toString());
 	}
 }
@@ -0,0 +1,118 @@
+package application.command.user;
+
+import application.NetworkApplication;
+import application.command.AsyncCommand;
+import application.snake.SnakeGame;
+import application.snake.SnakeMatch;
+import application.snake.replay.ReplayPlayer;
+import application.snake.replay.ReplayReader;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.file.Path;
+
+public class ReplayCommand implements AsyncCommand {
+	private static final double DEFAULT_SPEED = 1;
+	private static final int DEFAULT_START_TICK = 0;
+
+	@Override
+	public String getIdentifier() {
+		return "replay";
+	}
+
+	@Override
+	public String getName() {
+		return "replay";
+	}
+
+	@Override
+	public String[] getArgumentNames() {
+		return new String[] { "file", "speed", "start-tick" };
+	}
+
+	@Override
+	public String getDescription() {
+		return "plays a recorded match back at the given speed (0 for as fast as possible, 1 by default), starting at the "
+				+ "given tick (0 by default)";
+	}
+
+	@Override
+	public int getNumberOfArguments() {
+		return 3;
+	}
+
+	@Override
+	public int getNumberOfOptionalArguments() {
+		return 2;
+	}
+
+	@Override
+	public void executeAsync(NetworkApplication app, String[] args) {
+		double speed = DEFAULT_SPEED;
+		int startTick = DEFAULT_START_TICK;
+		try {
+			if (args.length > 1) {
+				speed = Double.parseDouble(args[1]);
+			}
+			if (args.length > 2) {
+				startTick = Integer.parseInt(args[2]);
+			}
+		} catch (NumberFormatException e) {
+			app.getConsoleHandler().printSystemMessage("The speed and the start tick have to be numbers!");
+			return;
+		}
+		if (speed < 0 || startTick < 0) {
+			app.getConsoleHandler().printSystemMessage("The speed and the start tick can not be negative!");
+			return;
+		}
+
+		ReplayPlayer player;
+		try {
+			player = new ReplayPlayer(new ReplayReader(Path.of(args[0])));
+			player.seek(startTick);
+			app.getConsoleHandler().printSystemMessage("Replaying %s from tick %d.".formatted(args[0], player.getGame().getTick()));
+			if (!play(app, player, speed)) {
+				return;
+			}
+		} catch (IOException e) {
+			app.getConsoleHandler().printSystemMessage("Could not open the replay: " + e.getMessage());
+			return;
+		} catch (IllegalStateException e) {
+			app.getConsoleHandler().printSystemMessage("Could not play the replay: " + e.getMessage());
+			return;
+		} catch (BufferUnderflowException | IllegalArgumentException e) {
+			app.getConsoleHandler().printSystemMessage("Could not play the replay, the replay log is truncated or corrupted!");
+			return;
+		}
+
+		SnakeGame game = player.getGame();
+		String m = "Replay finished at tick %d with state hash %016x.".formatted(game.getTick(), game.getStateHash());
+		if (player.getHashMismatches() > 0) {
+			m += " %d recorded state hashes did not match, the first one at tick %d!".formatted(player.getHashMismatches(), player.getFirstMismatchTick());
+		}
+		app.getConsoleHandler().printSystemMessage(m);
+	}
+
+	/**
+	 * Steps through the replay until it ends or the application quits.
+	 * @return false when the replay has been interrupted
+	 * @throws IllegalStateException when the replay log is corrupted
+	 * @throws BufferUnderflowException when the replay log ends in the middle of a record
+	 */
+	private static boolean play(NetworkApplication app, ReplayPlayer player, double speed) {
+		long tickDurationNanos = speed == 0 ? 0 : (long) (SnakeMatch.TICK_DURATION_MILLIS * 1_000_000L / speed);
+		long nextTickTime = System.nanoTime();
+		while (app.isRunning() && player.step()) {
+			nextTickTime += tickDurationNanos;
+			long sleepNanos = nextTickTime - System.nanoTime();
+			if (sleepNanos > 0) {
+				try {
+					Thread.sleep(sleepNanos / 1_000_000, (int) (sleepNanos % 1_000_000));
+				} catch (InterruptedException e) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+}
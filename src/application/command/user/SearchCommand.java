@@ -0,0 +1,51 @@
+package application.command.user;
+
+import application.NetworkApplication;
+import application.command.Command;
+
+import java.util.List;
+
+public class SearchCommand implements Command {
+	private static final int MAX_RESULTS = 20;
+
+	@Override
+	public String getIdentifier() {
+		return "search";
+	}
+
+	@Override
+	public String getName() {
+		return "search-chat";
+	}
+
+	@Override
+	public String[] getArgumentNames() {
+		return new String[] { "text" };
+	}
+
+	@Override
+	public String getDescription() {
+		return "prints the newest %d chat messages of this session that contain the text, which is case sensitive".formatted(MAX_RESULTS);
+	}
+
+	@Override
+	public int getNumberOfArguments() {
+		return 1;
+	}
+
+	@Override
+	public boolean hasVerbatimLastArgument() {
+		return true;
+	}
+
+	@Override
+	public void execute(NetworkApplication app, String[] args) {
+		List<String> messages = app.getChatHistory().search(args[0], MAX_RESULTS);
+		if (messages.isEmpty()) {
+			app.getConsoleHandler().printSystemMessage("No chat message contains \"%s\".".formatted(args[0]));
+			return;
+		}
+		String heading = "%d chat messages contain \"%s\":".formatted(messages.size(), args[0]);
+		app.getConsoleHandler().printSystemMessage(heading + System.lineSeparator() + String.join(System.lineSeparator(), messages));
+	}
+}
@@ -0,0 +1,52 @@
+package application.command.user;
+
+import application.NetworkApplication;
+import application.command.Command;
+import application.command.control.StartMatchControlMessage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class StartCommand implements Command {
+	@Override
+	public String getIdentifier() {
+		return "s";
+	}
+
+	@Override
+	public String getName() {
+		return "start";
+	}
+
+	@Override
+	public String[] getArgumentNames() {
+		return new String[0];
+	}
+
+	@Override
+	public String getDescription() {
+		return "starts a new match with all peers of the lobby";
+	}
+
+	@Override
+	public int getNumberOfArguments() {
+		return 0;
+	}
+
+	@Override
+	public void execute(NetworkApplication app, String[] args) {
+		List<String> participants = new ArrayList<>(app.getNetworkHandler().getLobbyIps());
+		participants.add(app.getNetworkHandler().getLocalIP());
+		Collections.sort(participants);
+		int matchId = ThreadLocalRandom.current().nextInt();
+		long seed = ThreadLocalRandom.current().nextLong();
+
+		String participantsString = String.join(StartMatchControlMessage.PARTICIPANTS_DELIMITER, participants);
+		app.getNetworkHandler().sendControlMessage(null, new StartMatchControlMessage(), Integer.toString(matchId),
+				Long.toString(seed), participantsString);
+		app.startMatch(matchId, seed, participants);
+		app.getConsoleHandler().printSystemMessage("Started a new match with %d players.".formatted(participants.size()));
+	}
+}
@@ -0,0 +1,36 @@
+package application.command.user;
+
+import application.NetworkApplication;
+import application.command.Command;
+
+public class StatsCommand implements Command {
+	@Override
+	public String getIdentifier() {
+		return "stats";
+	}
+
+	@Override
+	public String getName() {
+		return "statistics";
+	}
+
+	@Override
+	public String[] getArgumentNames() {
+		return new String[0];
+	}
+
+	@Override
+	public String getDescription() {
+		return "prints throughput and latency metrics of all peers and the current match";
+	}
+
+	@Override
+	public int getNumberOfArguments() {
+		return 0;
+	}
+
+	@Override
+	public void execute(NetworkApplication app, String[] args) {
+		app.getConsoleHandler().printSystemMessage(app.getMetrics().formatAsText());
+	}
+}
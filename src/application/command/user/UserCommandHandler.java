@@ -19,6 +19,12 @@ public class UserCommandHandler extends CommandHandler {
 		commands.add(new QuitCommand());
 		commands.add(new LocalIPCommand());
 		commands.add(new ConnectCommand());
+		commands.add(new StartCommand());
+		commands.add(new DirectionCommand());
+		commands.add(new ReplayCommand());
+		commands.add(new StatsCommand());
+		commands.add(new HistoryCommand());
+		commands.add(new SearchCommand());
 		return commands;
 	}
 }
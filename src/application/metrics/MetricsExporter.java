@@ -0,0 +1,75 @@
+package application.metrics;
+
+import application.ApplicationSetting;
+import application.NetworkApplication;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * This class periodically writes a snapshot of the {@link MetricsRegistry} to the file configured in
+ * {@link ApplicationSetting#METRICS_EXPORT_FILE}.
+ */
+public class MetricsExporter {
+	private final NetworkApplication networkApplication;
+	private final Path file;
+	private final long intervalMillis;
+
+	private Thread thread;
+
+	public MetricsExporter(NetworkApplication networkApplication, Path file, int intervalSeconds) {
+		this.networkApplication = networkApplication;
+		this.file = file;
+		intervalMillis = intervalSeconds * 1000L;
+	}
+
+	public void startExporting() {
+		thread = new Thread(this::exportPeriodically);
+		// Exporting should never keep the application from closing.
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops exporting and writes a last snapshot, so the file contains the final metrics.
+	 */
+	public void stopExporting() {
+		if (thread != null) {
+			thread.interrupt();
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		exportSnapshot();
+	}
+
+	private void exportPeriodically() {
+		while (networkApplication.isRunning()) {
+			try {
+				Thread.sleep(intervalMillis);
+			} catch (InterruptedException e) {
+				return;
+			}
+			exportSnapshot();
+		}
+	}
+
+	/**
+	 * Writes the current snapshot. The file gets replaced atomically, so readers never see a partial snapshot.
+	 */
+	public void exportSnapshot() {
+		MetricsRegistry metrics = networkApplication.getMetrics();
+		String snapshot = file.toString().endsWith(".json") ? metrics.formatAsJson() : metrics.formatAsText();
+		try {
+			Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+			Files.writeString(temporaryFile, snapshot);
+			Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			networkApplication.getConsoleHandler().printSystemMessage("Could not export the metrics: " + e);
+		}
+	}
+}
@@ -0,0 +1,398 @@
+package application.metrics;
+
+import application.network.MessageLane;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * This class holds all metrics of the application.
+ * <p>
+ * All metrics are updated inline on the hot paths, so they are built from {@link LongAdder LongAdders}
+ * and {@link LogHistogram LogHistograms}, which never lock. Reading them is comparatively expensive,
+ * but only happens when a snapshot gets formatted.
+ */
+public class MetricsRegistry {
+	/**
+	 * The key under which the dispatch time of normal chat messages gets recorded.
+	 */
+	public static final String CHAT_MESSAGE_TYPE = "chat";
+
+	private final Map<String, PeerMetrics> peerMetrics;
+	private final Map<String, LogHistogram> dispatchTimes;
+	private final Map<String, LongAdder> throttledMessages;
+	/**
+	 * How long received messages waited for their lane, indexed by the ordinal of the {@link MessageLane}.
+	 */
+	private final LogHistogram[] dispatchQueueTimes;
+	/**
+	 * How long received messages were held back to deliver them in the order of their stamps, indexed by the ordinal
+	 * of the {@link MessageLane}.
+	 */
+	private final LogHistogram[] reorderDelays;
+	private final LogHistogram tickDuration;
+	private final LogHistogram inputWaitTime;
+	private final LongAdder ticks;
+	private final LongAdder stalls;
+	private final LongAdder desyncs;
+	private final LongAdder removedPlayers;
+	private final LongAdder oversizedFrames;
+	private final LongAdder malformedMessages;
+	private final LongAdder lateMessages;
+	private final LongAdder clampedStamps;
+
+	public MetricsRegistry() {
+		peerMetrics = new ConcurrentHashMap<>();
+		dispatchTimes = new ConcurrentHashMap<>();
+		throttledMessages = new ConcurrentHashMap<>();
+		dispatchQueueTimes = new LogHistogram[MessageLane.values().length];
+		for (int i = 0; i < dispatchQueueTimes.length; i++) {
+			dispatchQueueTimes[i] = new LogHistogram();
+		}
+		reorderDelays = new LogHistogram[MessageLane.values().length];
+		for (int i = 0; i < reorderDelays.length; i++) {
+			reorderDelays[i] = new LogHistogram();
+		}
+		tickDuration = new LogHistogram();
+		inputWaitTime = new LogHistogram();
+		ticks = new LongAdder();
+		stalls = new LongAdder();
+		desyncs = new LongAdder();
+		removedPlayers = new LongAdder();
+		oversizedFrames = new LongAdder();
+		malformedMessages = new LongAdder();
+		lateMessages = new LongAdder();
+		clampedStamps = new LongAdder();
+	}
+
+	/**
+	 * Returns the metrics of the Peer with the passed ip, creating them if necessary.
+	 * Callers on hot paths should keep the returned instance instead of looking it up every time.
+	 * @param ip the ip of the Peer
+	 * @return the metrics
+	 */
+	public PeerMetrics getPeerMetrics(String ip) {
+		return peerMetrics.computeIfAbsent(ip, i -> new PeerMetrics());
+	}
+
+	/**
+	 * Records how long handling a received message took.
+	 * @param messageType the identifier of the Control Message, or {@link MetricsRegistry#CHAT_MESSAGE_TYPE}
+	 * @param nanos the duration
+	 */
+	public void recordDispatch(String messageType, long nanos) {
+		LogHistogram histogram = dispatchTimes.get(messageType);
+		if (histogram == null) {
+			histogram = dispatchTimes.computeIfAbsent(messageType, t -> new LogHistogram());
+		}
+		histogram.record(nanos);
+	}
+
+	/**
+	 * Records a received message that got dropped, because its sender exceeded a rate limit.
+	 * @param messageType the identifier of the type of the message
+	 */
+	public void recordThrottledMessage(String messageType) {
+		LongAdder counter = throttledMessages.get(messageType);
+		if (counter == null) {
+			counter = throttledMessages.computeIfAbsent(messageType, t -> new LongAdder());
+		}
+		counter.increment();
+	}
+
+	/**
+	 * Records a Peer that got disconnected, because it sent a message larger than the maximum frame size.
+	 */
+	public void recordOversizedFrame() {
+		oversizedFrames.increment();
+	}
+
+	/**
+	 * Records a received message that got dropped, because it could not be handled, like an input with a broken packet.
+	 */
+	public void recordMalformedMessage() {
+		malformedMessages.increment();
+	}
+
+	/**
+	 * Records how long a received message waited until its lane got to handle it.
+	 * @param lane the lane of the message
+	 * @param nanos the time in the queue
+	 */
+	public void recordDispatchQueueTime(MessageLane lane, long nanos) {
+		dispatchQueueTimes[lane.ordinal()].record(nanos);
+	}
+
+	/**
+	 * Records how long a received message was held back, so it got delivered in the order of its stamp.
+	 * @param lane the lane of the message
+	 * @param nanos the added delay, which is zero if the message could be delivered right away
+	 */
+	public void recordReorderDelay(MessageLane lane, long nanos) {
+		reorderDelays[lane.ordinal()].record(nanos);
+	}
+
+	/**
+	 * Records a received message that arrived after a message with a later stamp had already been delivered,
+	 * so it could not be delivered in order anymore.
+	 */
+	public void recordLateMessage() {
+		lateMessages.increment();
+	}
+
+	/**
+	 * Records a received stamp that was further ahead of the local clock than
+	 * {@link application.ApplicationSetting#MAX_CLOCK_DRIFT}, so the clock only moved up to that bound.
+	 */
+	public void recordClampedStamp() {
+		clampedStamps.increment();
+	}
+
+	/**
+	 * Records a single simulated tick.
+	 * @param durationNanos how long simulating the tick took
+	 * @param inputWaitNanos how long the tick had to wait for the inputs of the other players
+	 */
+	public void recordTick(long durationNanos, long inputWaitNanos) {
+		ticks.increment();
+		tickDuration.record(durationNanos);
+		if (inputWaitNanos > 0) {
+			stalls.increment();
+			inputWaitTime.record(inputWaitNanos);
+		}
+	}
+
+	/**
+	 * Records that the state hash of another player did not match the local state hash.
+	 */
+	public void recordDesync() {
+		desyncs.increment();
+	}
+
+	/**
+	 * Records that a player has been removed from a running match, because it left or stopped responding.
+	 */
+	public void recordRemovedPlayer() {
+		removedPlayers.increment();
+	}
+
+	public LogHistogram getDispatchQueueTime(MessageLane lane) {
+		return dispatchQueueTimes[lane.ordinal()];
+	}
+
+	public LogHistogram getReorderDelay(MessageLane lane) {
+		return reorderDelays[lane.ordinal()];
+	}
+
+	/**
+	 * Returns the number of received messages that arrived too late to be delivered in the order of their stamps.
+	 * @return the number of late messages
+	 */
+	public long getLateMessages() {
+		return lateMessages.sum();
+	}
+
+	/**
+	 * Returns the number of received stamps that were too far ahead of the local clock.
+	 * @return the number of clamped stamps
+	 */
+	public long getClampedStamps() {
+		return clampedStamps.sum();
+	}
+
+	public LogHistogram getTickDuration() {
+		return tickDuration;
+	}
+
+	/**
+	 * Returns the histogram of how long stalled ticks had to wait for their inputs.
+	 * @return the histogram
+	 */
+	public LogHistogram getInputWaitTime() {
+		return inputWaitTime;
+	}
+
+	public long getTicks() {
+		return ticks.sum();
+	}
+
+	/**
+	 * Returns the number of ticks that could not be simulated right away, because inputs were missing.
+	 * @return the number of stalls
+	 */
+	public long getStalls() {
+		return stalls.sum();
+	}
+
+	public long getDesyncs() {
+		return desyncs.sum();
+	}
+
+	public long getRemovedPlayers() {
+		return removedPlayers.sum();
+	}
+
+	/**
+	 * Returns how many received messages got dropped because of a rate limit, by the identifier of their type.
+	 * @return the counts, sorted by type
+	 */
+	public Map<String, Long> getThrottledMessages() {
+		Map<String, Long> counts = new TreeMap<>();
+		throttledMessages.forEach((type, counter) -> counts.put(type, counter.sum()));
+		return counts;
+	}
+
+	public long getOversizedFrames() {
+		return oversizedFrames.sum();
+	}
+
+	/**
+	 * Returns the number of received messages that got dropped, because handling them failed on the receiving Thread.
+	 * @return the number of malformed messages
+	 */
+	public long getMalformedMessages() {
+		return malformedMessages.sum();
+	}
+
+	/**
+	 * Returns the metrics of all Peers, sorted by their ip.
+	 * @return the metrics of every Peer
+	 */
+	public Map<String, PeerMetrics> getAllPeerMetrics() {
+		return new TreeMap<>(peerMetrics);
+	}
+
+	/**
+	 * Returns a human-readable snapshot of all metrics. Durations are printed in microseconds.
+	 * @return the snapshot
+	 */
+	public String formatAsText() {
+		StringBuilder sb = new StringBuilder("Metrics:");
+		String ln = System.lineSeparator();
+		sb.append(ln).append("Ticks: %d, stalls: %d, desyncs: %d, removed players: %d".formatted(getTicks(), getStalls(),
+				getDesyncs(), getRemovedPlayers()));
+		sb.append(ln).append("Peers disconnected for oversized messages: %d".formatted(getOversizedFrames()));
+		sb.append(ln).append("Malformed messages dropped: %d".formatted(getMalformedMessages()));
+		sb.append(ln).append("Messages received too late to be reordered: %d".formatted(getLateMessages()));
+		sb.append(ln).append("Stamps clamped for being too far ahead: %d".formatted(getClampedStamps()));
+		sb.append(ln).append("Tick duration: ").append(formatHistogram(tickDuration));
+		sb.append(ln).append("Input wait: ").append(formatHistogram(inputWaitTime));
+		for (Map.Entry<String, PeerMetrics> entry : getAllPeerMetrics().entrySet()) {
+			PeerMetrics p = entry.getValue();
+			sb.append(ln).append("Peer %s: sent %d messages (%d bytes), received %d messages (%d bytes)".formatted(
+					entry.getKey(), p.getMessagesSent(), p.getBytesSent(), p.getMessagesReceived(), p.getBytesReceived()));
+			sb.append(ln).append("  %s, %d coalesced and %d dropped messages, %d received messages throttled".formatted(
+					p.isLagging() ? "lagging" : "keeping up", p.getCoalescedSends(), p.getDroppedSends(), p.getThrottledMessages()));
+			sb.append(ln).append("  rtt: ").append(formatHistogram(p.getRoundTripTime()));
+			sb.append(ln).append("  send: ").append(formatHistogram(p.getSendTime()));
+			sb.append(ln).append("  decode: ").append(formatHistogram(p.getFrameDecodeTime()));
+			for (MessageLane lane : MessageLane.values()) {
+				sb.append(ln).append("  queue %s: ".formatted(lane.getLabel())).append(formatHistogram(p.getQueueTime(lane)));
+			}
+		}
+		for (Map.Entry<String, LogHistogram> entry : new TreeMap<>(dispatchTimes).entrySet()) {
+			sb.append(ln).append("Dispatch %s: ".formatted(entry.getKey())).append(formatHistogram(entry.getValue()));
+		}
+		for (MessageLane lane : MessageLane.values()) {
+			sb.append(ln).append("Dispatch queue %s: ".formatted(lane.getLabel())).append(formatHistogram(getDispatchQueueTime(lane)));
+		}
+		for (MessageLane lane : MessageLane.values()) {
+			sb.append(ln).append("Reorder delay %s: ".formatted(lane.getLabel())).append(formatHistogram(getReorderDelay(lane)));
+		}
+		for (Map.Entry<String, Long> entry : getThrottledMessages().entrySet()) {
+			sb.append(ln).append("Throttled %s: %d".formatted(entry.getKey(), entry.getValue()));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns a snapshot of all metrics as a JSON object. Durations are in nanoseconds.
+	 * @return the snapshot
+	 */
+	public String formatAsJson() {
+		StringBuilder sb = new StringBuilder("{");
+		sb.append("\"timestamp\":").append(System.currentTimeMillis());
+		sb.append(",\"ticks\":").append(getTicks());
+		sb.append(",\"stalls\":").append(getStalls());
+		sb.append(",\"desyncs\":").append(getDesyncs());
+		sb.append(",\"removedPlayers\":").append(getRemovedPlayers());
+		sb.append(",\"oversizedFrames\":").append(getOversizedFrames());
+		sb.append(",\"malformedMessages\":").append(getMalformedMessages());
+		sb.append(",\"lateMessages\":").append(getLateMessages());
+		sb.append(",\"clampedStamps\":").append(getClampedStamps());
+		sb.append(",\"tickDuration\":");
+		appendHistogramAsJson(sb, tickDuration);
+		sb.append(",\"inputWait\":");
+		appendHistogramAsJson(sb, inputWaitTime);
+
+		sb.append(",\"peers\":{");
+		boolean first = true;
+		for (Map.Entry<String, PeerMetrics> entry : getAllPeerMetrics().entrySet()) {
+			PeerMetrics p = entry.getValue();
+			sb.append(first ? "" : ",").append('"').append(entry.getKey()).append("\":{");
+			sb.append("\"messagesSent\":").append(p.getMessagesSent());
+			sb.append(",\"bytesSent\":").append(p.getBytesSent());
+			sb.append(",\"messagesReceived\":").append(p.getMessagesReceived());
+			sb.append(",\"bytesReceived\":").append(p.getBytesReceived());
+			sb.append(",\"pendingSends\":").append(p.getPendingSends());
+			sb.append(",\"coalescedSends\":").append(p.getCoalescedSends());
+			sb.append(",\"droppedSends\":").append(p.getDroppedSends());
+			sb.append(",\"throttledMessages\":").append(p.getThrottledMessages());
+			sb.append(",\"lagging\":").append(p.isLagging());
+			sb.append(",\"rtt\":");
+			appendHistogramAsJson(sb, p.getRoundTripTime());
+			sb.append(",\"send\":");
+			appendHistogramAsJson(sb, p.getSendTime());
+			sb.append(",\"decode\":");
+			appendHistogramAsJson(sb, p.getFrameDecodeTime());
+			sb.append(",\"queue\":{");
+			appendLanesAsJson(sb, p::getQueueTime);
+			sb.append("}}");
+			first = false;
+		}
+
+		sb.append("},\"dispatch\":{");
+		first = true;
+		for (Map.Entry<String, LogHistogram> entry : new TreeMap<>(dispatchTimes).entrySet()) {
+			sb.append(first ? "" : ",").append('"').append(entry.getKey()).append("\":");
+			appendHistogramAsJson(sb, entry.getValue());
+			first = false;
+		}
+		sb.append("},\"dispatchQueue\":{");
+		appendLanesAsJson(sb, this::getDispatchQueueTime);
+		sb.append("},\"reorderDelay\":{");
+		appendLanesAsJson(sb, this::getReorderDelay);
+		sb.append("},\"throttled\":{");
+		first = true;
+		for (Map.Entry<String, Long> entry : getThrottledMessages().entrySet()) {
+			sb.append(first ? "" : ",").append('"').append(entry.getKey()).append("\":").append(entry.getValue());
+			first = false;
+		}
+		return sb.append("}}").toString();
+	}
+
+	private static void appendLanesAsJson(StringBuilder sb, Function<MessageLane, LogHistogram> histograms) {
+		for (MessageLane lane : MessageLane.values()) {
+			sb.append(lane.ordinal() == 0 ? "" : ",").append('"').append(lane.getLabel()).append("\":");
+			appendHistogramAsJson(sb, histograms.apply(lane));
+		}
+	}
+
+	private static String formatHistogram(LogHistogram h) {
+		return "count=%d mean=%.1fus p50=%.1fus p99=%.1fus max=%.1fus".formatted(h.getCount(), h.getMean() / 1000,
+				h.getPercentile(50) / 1000.0, h.getPercentile(99) / 1000.0, h.getMax() / 1000.0);
+	}
+
+	private static void appendHistogramAsJson(StringBuilder sb, LogHistogram h) {
+		sb.append("{\"count\":").append(h.getCount());
+		sb.append(",\"mean\":").append((long) h.getMean());
+		sb.append(",\"p50\":").append(h.getPercentile(50));
+		sb.append(",\"p90\":").append(h.getPercentile(90));
+		sb.append(",\"p99\":").append(h.getPercentile(99));
+		sb.append(",\"max\":").append(h.getMax());
+		sb.append('}');
+	}
+}
@@ -0,0 +1,206 @@
+package application.metrics;
+
+import application.network.MessageLane;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class contains the metrics of the connection to a single Peer.
+ */
+public class PeerMetrics {
+	private final LongAdder bytesSent;
+	private final LongAdder messagesSent;
+	private final LongAdder bytesReceived;
+	private final LongAdder messagesReceived;
+	private final LongAdder pendingSends;
+	private final LongAdder coalescedSends;
+	private final LongAdder droppedSends;
+	private final LongAdder throttledMessages;
+	private final LogHistogram sendTime;
+	private final LogHistogram frameDecodeTime;
+	private final LogHistogram roundTripTime;
+	/**
+	 * How long messages waited in the send queue, indexed by the ordinal of their {@link MessageLane}.
+	 */
+	private final LogHistogram[] queueTimes;
+
+	private volatile long lastRoundTripNanos;
+	private volatile boolean isLagging;
+
+	PeerMetrics() {
+		bytesSent = new LongAdder();
+		messagesSent = new LongAdder();
+		bytesReceived = new LongAdder();
+		messagesReceived = new LongAdder();
+		pendingSends = new LongAdder();
+		coalescedSends = new LongAdder();
+		droppedSends = new LongAdder();
+		throttledMessages = new LongAdder();
+		sendTime = new LogHistogram();
+		frameDecodeTime = new LogHistogram();
+		roundTripTime = new LogHistogram();
+		queueTimes = new LogHistogram[MessageLane.values().length];
+		for (int i = 0; i < queueTimes.length; i++) {
+			queueTimes[i] = new LogHistogram();
+		}
+		lastRoundTripNanos = -1;
+	}
+
+	/**
+	 * Should be called right before a message gets queued for the Peer.
+	 * Must always be followed by {@link PeerMetrics#recordSentMessage} or {@link PeerMetrics#recordFailedSend()}.
+	 */
+	public void recordSendStarted() {
+		pendingSends.increment();
+	}
+
+	public void recordFailedSend() {
+		pendingSends.decrement();
+	}
+
+	/**
+	 * Records a message that replaced an older queued message of the same type instead of getting queued itself.
+	 */
+	public void recordCoalescedSend() {
+		pendingSends.decrement();
+		coalescedSends.increment();
+	}
+
+	/**
+	 * Records a message that got dropped, because the Peer could not keep up.
+	 */
+	public void recordDroppedSend() {
+		pendingSends.decrement();
+		droppedSends.increment();
+	}
+
+	/**
+	 * Records a received message that got dropped, because the Peer exceeded its rate limit.
+	 */
+	public void recordThrottledMessage() {
+		throttledMessages.increment();
+	}
+
+	public void recordLagging(boolean isLagging) {
+		this.isLagging = isLagging;
+	}
+
+	/**
+	 * Records how long a message waited in the send queue before it got written.
+	 * @param lane the lane of the message
+	 * @param nanos the time in the queue
+	 */
+	public void recordQueueTime(MessageLane lane, long nanos) {
+		queueTimes[lane.ordinal()].record(nanos);
+	}
+
+	/**
+	 * Records a message that has been written to the Peer.
+	 * @param bytes the size of the message in bytes
+	 * @param nanos how long writing the message took
+	 */
+	public void recordSentMessage(int bytes, long nanos) {
+		pendingSends.decrement();
+		bytesSent.add(bytes);
+		messagesSent.increment();
+		sendTime.record(nanos);
+	}
+
+	/**
+	 * Records a chunk of data that has been read from the Peer.
+	 * @param bytes the size of the chunk in bytes
+	 */
+	public void recordReceivedData(int bytes) {
+		bytesReceived.add(bytes);
+	}
+
+	/**
+	 * Records a message that has been extracted from the received data.
+	 * @param decodeNanos how long extracting the message took
+	 */
+	public void recordReceivedMessage(long decodeNanos) {
+		messagesReceived.increment();
+		frameDecodeTime.record(decodeNanos);
+	}
+
+	/**
+	 * Records the round trip time measured by a ping.
+	 * @param nanos the round trip time
+	 */
+	public void recordRoundTrip(long nanos) {
+		lastRoundTripNanos = nanos;
+		roundTripTime.record(nanos);
+	}
+
+	public long getBytesSent() {
+		return bytesSent.sum();
+	}
+
+	public long getMessagesSent() {
+		return messagesSent.sum();
+	}
+
+	public long getBytesReceived() {
+		return bytesReceived.sum();
+	}
+
+	public long getMessagesReceived() {
+		return messagesReceived.sum();
+	}
+
+	/**
+	 * Returns the number of messages that are queued for the Peer or currently being written to it.
+	 * @return the number of pending sends
+	 */
+	public long getPendingSends() {
+		return pendingSends.sum();
+	}
+
+	public long getCoalescedSends() {
+		return coalescedSends.sum();
+	}
+
+	public long getDroppedSends() {
+		return droppedSends.sum();
+	}
+
+	/**
+	 * Returns the number of messages received from this Peer, that got dropped because of its rate limit.
+	 * @return the number of messages
+	 */
+	public long getThrottledMessages() {
+		return throttledMessages.sum();
+	}
+
+	/**
+	 * Returns whether the Peer is currently lagging behind the messages sent to it.
+	 * @return true while the Peer is lagging
+	 */
+	public boolean isLagging() {
+		return isLagging;
+	}
+
+	/**
+	 * Returns the most recently measured round trip time.
+	 * @return the round trip time in nanoseconds, or -1 if none has been measured yet
+	 */
+	public long getLastRoundTripNanos() {
+		return lastRoundTripNanos;
+	}
+
+	public LogHistogram getRoundTripTime() {
+		return roundTripTime;
+	}
+
+	public LogHistogram getSendTime() {
+		return sendTime;
+	}
+
+	public LogHistogram getFrameDecodeTime() {
+		return frameDecodeTime;
+	}
+
+	public LogHistogram getQueueTime(MessageLane lane) {
+		return queueTimes[lane.ordinal()];
+	}
+}
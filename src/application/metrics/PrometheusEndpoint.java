@@ -0,0 +1,237 @@
+package application.metrics;
+
+import application.NetworkApplication;
+import application.network.MessageLane;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * This class serves the {@link MetricsRegistry} in the Prometheus text format on {@code http://localhost:<port>/metrics}.
+ * <p>
+ * Nothing happens between two scrapes, the metrics only get read while a scrape is being answered.
+ * The response is rendered directly into a reused byte buffer, so a scrape allocates very little.
+ */
+public class PrometheusEndpoint {
+	private static final String PATH = "/metrics";
+	private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+	private static final double[] QUANTILES = { 50, 90, 99 };
+	private static final String[] QUANTILE_LABELS = { "0.5", "0.9", "0.99" };
+	private static final int INITIAL_BUFFER_SIZE = 8192;
+	private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+	private final NetworkApplication networkApplication;
+	private final int port;
+
+	private HttpServer server;
+	private byte[] buffer;
+	private int length;
+
+	public PrometheusEndpoint(NetworkApplication networkApplication, int port) {
+		this.networkApplication = networkApplication;
+		this.port = port;
+		buffer = new byte[INITIAL_BUFFER_SIZE];
+	}
+
+	/**
+	 * Starts serving the metrics. The endpoint only binds to the loopback address, so it can not be reached from the network.
+	 * @throws IOException when the port is not available
+	 */
+	public void startEndpoint() throws IOException {
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.createContext(PATH, this::handleScrape);
+		server.start();
+	}
+
+	public void closeEndpoint() {
+		if (server != null) {
+			server.stop(0);
+		}
+	}
+
+	private synchronized void handleScrape(HttpExchange exchange) throws IOException {
+		length = 0;
+		renderMetrics();
+		exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+		exchange.sendResponseHeaders(200, length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(buffer, 0, length);
+		}
+	}
+
+	private void renderMetrics() {
+		MetricsRegistry metrics = networkApplication.getMetrics();
+		Map<String, PeerMetrics> peers = metrics.getAllPeerMetrics();
+
+		appendType("snake_peers", "gauge");
+		append("snake_peers ").append(networkApplication.getNetworkHandler().getNumberOfPeers()).append('\n');
+
+		appendType("snake_peer_rtt_seconds", "summary");
+		for (Map.Entry<String, PeerMetrics> entry : peers.entrySet()) {
+			appendSummary("snake_peer_rtt_seconds", entry.getKey(), null, entry.getValue().getRoundTripTime());
+		}
+		appendType("snake_peer_queue_seconds", "summary");
+		for (Map.Entry<String, PeerMetrics> entry : peers.entrySet()) {
+			for (MessageLane lane : MessageLane.values()) {
+				appendSummary("snake_peer_queue_seconds", entry.getKey(), lane, entry.getValue().getQueueTime(lane));
+			}
+		}
+		appendPeerCounter(peers, "snake_peer_sent_bytes_total", PeerMetrics::getBytesSent);
+		appendPeerCounter(peers, "snake_peer_received_bytes_total", PeerMetrics::getBytesReceived);
+		appendPeerCounter(peers, "snake_peer_sent_messages_total", PeerMetrics::getMessagesSent);
+		appendPeerCounter(peers, "snake_peer_received_messages_total", PeerMetrics::getMessagesReceived);
+
+		appendPeerCounter(peers, "snake_peer_coalesced_messages_total", PeerMetrics::getCoalescedSends);
+		appendPeerCounter(peers, "snake_peer_dropped_messages_total", PeerMetrics::getDroppedSends);
+		appendPeerCounter(peers, "snake_peer_throttled_messages_total", PeerMetrics::getThrottledMessages);
+		appendPeerGauge(peers, "snake_peer_pending_sends", PeerMetrics::getPendingSends);
+		appendPeerGauge(peers, "snake_peer_lagging", p -> p.isLagging() ? 1 : 0);
+
+		appendType("snake_tick_duration_seconds", "summary");
+		appendSummary("snake_tick_duration_seconds", null, null, metrics.getTickDuration());
+		appendType("snake_ticks_total", "counter");
+		append("snake_ticks_total ").append(metrics.getTicks()).append('\n');
+		appendType("snake_tick_stalls_total", "counter");
+		append("snake_tick_stalls_total ").append(metrics.getStalls()).append('\n');
+		appendType("snake_desyncs_total", "counter");
+		append("snake_desyncs_total ").append(metrics.getDesyncs()).append('\n');
+		appendType("snake_removed_players_total", "counter");
+		append("snake_removed_players_total ").append(metrics.getRemovedPlayers()).append('\n');
+		appendType("snake_oversized_frames_total", "counter");
+		append("snake_oversized_frames_total ").append(metrics.getOversizedFrames()).append('\n');
+		appendType("snake_malformed_messages_total", "counter");
+		append("snake_malformed_messages_total ").append(metrics.getMalformedMessages()).append('\n');
+		appendType("snake_throttled_messages_total", "counter");
+		for (Map.Entry<String, Long> entry : metrics.getThrottledMessages().entrySet()) {
+			append("snake_throttled_messages_total{type=\"").append(entry.getKey()).append("\"} ").append(entry.getValue()).append('\n');
+		}
+
+		appendType("snake_dispatch_queue_seconds", "summary");
+		for (MessageLane lane : MessageLane.values()) {
+			appendSummary("snake_dispatch_queue_seconds", null, lane, metrics.getDispatchQueueTime(lane));
+		}
+		appendType("snake_reorder_delay_seconds", "summary");
+		for (MessageLane lane : MessageLane.values()) {
+			appendSummary("snake_reorder_delay_seconds", null, lane, metrics.getReorderDelay(lane));
+		}
+		appendType("snake_late_messages_total", "counter");
+		append("snake_late_messages_total ").append(metrics.getLateMessages()).append('\n');
+		appendType("snake_clamped_stamps_total", "counter");
+		append("snake_clamped_stamps_total ").append(metrics.getClampedStamps()).append('\n');
+	}
+
+	private void appendPeerCounter(Map<String, PeerMetrics> peers, String name, ToLongFunction<PeerMetrics> value) {
+		appendPeerValues(peers, name, "counter", value);
+	}
+
+	private void appendPeerGauge(Map<String, PeerMetrics> peers, String name, ToLongFunction<PeerMetrics> value) {
+		appendPeerValues(peers, name, "gauge", value);
+	}
+
+	private void appendPeerValues(Map<String, PeerMetrics> peers, String name, String type, ToLongFunction<PeerMetrics> value) {
+		appendType(name, type);
+		for (Map.Entry<String, PeerMetrics> entry : peers.entrySet()) {
+			append(name).append("{peer=\"").append(entry.getKey()).append("\"} ");
+			append(value.applyAsLong(entry.getValue())).append('\n');
+		}
+	}
+
+	/**
+	 * Appends a histogram of durations in nanoseconds as a summary in seconds.
+	 * @param peer the value of the peer label, or null if the summary has no such label
+	 * @param lane the value of the lane label, or null if the summary has no such label
+	 */
+	private void appendSummary(String name, String peer, MessageLane lane, LogHistogram histogram) {
+		for (int i = 0; i < QUANTILES.length; i++) {
+			append(name).append('{');
+			appendLabels(peer, lane);
+			if (peer != null || lane != null) {
+				append(',');
+			}
+			append("quantile=\"").append(QUANTILE_LABELS[i]).append("\"} ");
+			appendSeconds(histogram.getPercentile(QUANTILES[i])).append('\n');
+		}
+		append(name).append("_sum");
+		appendLabelSet(peer, lane).append(' ');
+		appendSeconds(histogram.getSum()).append('\n');
+		append(name).append("_count");
+		appendLabelSet(peer, lane).append(' ');
+		append(histogram.getCount()).append('\n');
+	}
+
+	private PrometheusEndpoint appendLabelSet(String peer, MessageLane lane) {
+		if (peer != null || lane != null) {
+			append('{');
+			appendLabels(peer, lane);
+			append('}');
+		}
+		return this;
+	}
+
+	private void appendLabels(String peer, MessageLane lane) {
+		if (peer != null) {
+			append("peer=\"").append(peer).append('"');
+		}
+		if (lane != null) {
+			append(peer != null ? ",lane=\"" : "lane=\"").append(lane.getLabel()).append('"');
+		}
+	}
+
+	private void appendType(String name, String type) {
+		append("# TYPE ").append(name).append(' ').append(type).append('\n');
+	}
+
+	private PrometheusEndpoint append(String s) {
+		ensureCapacity(s.length());
+		for (int i = 0; i < s.length(); i++) {
+			buffer[length++] = (byte) s.charAt(i);
+		}
+		return this;
+	}
+
+	private PrometheusEndpoint append(char c) {
+		ensureCapacity(1);
+		buffer[length++] = (byte) c;
+		return this;
+	}
+
+	private PrometheusEndpoint append(long value) {
+		if (value < 0) {
+			append('-');
+			value = -value;
+		}
+		int digits = 1;
+		for (long v = value / 10; v > 0; v /= 10) {
+			digits++;
+		}
+		ensureCapacity(digits);
+		for (int i = digits - 1; i >= 0; i--) {
+			buffer[length + i] = (byte) ('0' + value % 10);
+			value /= 10;
+		}
+		length += digits;
+		return this;
+	}
+
+	private PrometheusEndpoint appendSeconds(long nanos) {
+		append(nanos / NANOS_PER_SECOND).append('.');
+		long fraction = nanos % NANOS_PER_SECOND;
+		for (long unit = NANOS_PER_SECOND / 10; unit > 0; unit /= 10) {
+			append((char) ('0' + fraction / unit % 10));
+		}
+		return this;
+	}
+
+	private void ensureCapacity(int additionalBytes) {
+		if (length + additionalBytes > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + additionalBytes));
+		}
+	}
+}
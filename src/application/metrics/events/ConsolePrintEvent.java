@@ -0,0 +1,18 @@
+package application.metrics.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * This Flight Recorder Event spans a print to the console, including the time spent waiting for other prints to finish.
+ */
+@Name("snake.ConsolePrint")
+@Label("Console Print")
+@Category({ "Snake", "Console" })
+@Description("A line has been printed to the console.")
+public class ConsolePrintEvent extends jdk.jfr.Event {
+	@Label("Length")
+	public int length;
+}
@@ -0,0 +1,24 @@
+package application.metrics.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * This Flight Recorder Event spans the parsing and execution of a received Control Message.
+ */
+@Name("snake.ControlMessageDispatch")
+@Label("Control Message Dispatch")
+@Category({ "Snake", "Network" })
+@Description("A received Control Message has been parsed and executed.")
+@StackTrace(false)
+public class ControlMessageDispatchEvent extends jdk.jfr.Event {
+	@Label("Identifier")
+	public String identifier;
+
+	@Label("Error")
+	@Description("The error message, if the Control Message could not be executed")
+	public String error;
+}
@@ -0,0 +1,26 @@
+package application.metrics.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * This Flight Recorder Event spans the extraction of a single message from the data received from a Peer.
+ */
+@Name("snake.MessageReceived")
+@Label("Message Received")
+@Category({ "Snake", "Network" })
+@Description("A full message has been received from a Peer. The duration is the time it took to find the end of the frame.")
+@StackTrace(false)
+public class MessageReceivedEvent extends jdk.jfr.Event {
+	@Label("Peer")
+	public String peer;
+
+	@Label("Length")
+	@Description("The length of the message in bytes, before any decoding")
+	@DataAmount
+	public int length;
+}
@@ -0,0 +1,28 @@
+package application.metrics.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * This Flight Recorder Event spans the blocking write of a single message to a Peer.
+ */
+@Name("snake.MessageSent")
+@Label("Message Sent")
+@Category({ "Snake", "Network" })
+@Description("A message has been written to a Peer. The duration is the time the write blocked.")
+@StackTrace(false)
+public class MessageSentEvent extends jdk.jfr.Event {
+	@Label("Peer")
+	public String peer;
+
+	@Label("Lane")
+	public String lane;
+
+	@Label("Size")
+	@DataAmount
+	public int bytes;
+}
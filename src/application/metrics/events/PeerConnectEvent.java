@@ -0,0 +1,25 @@
+package application.metrics.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * This Flight Recorder Event spans the establishing of a connection to a Peer.
+ */
+@Name("snake.PeerConnect")
+@Label("Peer Connect")
+@Category({ "Snake", "Network" })
+@Description("A connection to a Peer has been established, or has failed to be established.")
+public class PeerConnectEvent extends jdk.jfr.Event {
+	@Label("Peer")
+	public String peer;
+
+	@Label("Incoming")
+	@Description("Whether the Peer has connected to us, instead of us connecting to the Peer")
+	public boolean incoming;
+
+	@Label("Successful")
+	public boolean successful;
+}
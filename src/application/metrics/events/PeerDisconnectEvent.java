@@ -0,0 +1,18 @@
+package application.metrics.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * This Flight Recorder Event marks the moment a Peer has been removed.
+ */
+@Name("snake.PeerDisconnect")
+@Label("Peer Disconnect")
+@Category({ "Snake", "Network" })
+@Description("A Peer has been removed from the connected Peers.")
+public class PeerDisconnectEvent extends jdk.jfr.Event {
+	@Label("Peer")
+	public String peer;
+}
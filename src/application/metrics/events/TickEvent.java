@@ -0,0 +1,31 @@
+package application.metrics.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * This Flight Recorder Event spans a whole iteration of the tick loop of a match, from sending the local input
+ * to the end of the simulation, but without the sleep until the next tick.
+ */
+@Name("snake.Tick")
+@Label("Tick")
+@Category({ "Snake", "Game" })
+@Description("A single tick of the current match, including the time it had to wait for the inputs of other players.")
+@StackTrace(false)
+public class TickEvent extends jdk.jfr.Event {
+	@Label("Tick")
+	public int tick;
+
+	@Label("Input Wait")
+	@Description("How long the tick had to wait for the inputs of other players")
+	@Timespan(Timespan.NANOSECONDS)
+	public long inputWait;
+
+	@Label("Stall Reason")
+	@Description("Why the tick had to wait, or null if it did not have to")
+	public String stallReason;
+}
@@ -0,0 +1,217 @@
+package application.network;
+
+import application.ApplicationSetting;
+import application.command.control.ControlMessageArguments;
+import application.command.control.RelayControlMessage;
+import application.network.buffer.BufferPool;
+import application.network.buffer.PooledBuffer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class keeps track of everything needed to relay broadcasts through a {@link Topology#PARTIAL_MESH}:
+ * the messages that have already been seen, and all Peers of the lobby, including those only reachable through others.
+ * <p>
+ * Every broadcast gets wrapped into a {@link RelayControlMessage} with the ip of its origin, an id and a time to live.
+ * A broadcast usually arrives over several paths, so only the first copy gets handled and passed on. The ids of every
+ * origin increase, so instead of every id, only the highest one and which of the {@link BroadcastRelay#DUPLICATE_WINDOW}
+ * ids below it have been seen get remembered. Older copies get treated as duplicates.
+ * <p>
+ * Since the origin of a broadcast is only claimed by whoever wrapped it, the seen messages only get remembered for the
+ * members of the lobby, and the lobby can not grow beyond {@link BroadcastRelay#MAX_MEMBERS}. That way a neighbor
+ * making up origins can not grow the state of this class without bound.
+ */
+public class BroadcastRelay {
+	/**
+	 * The number of hops a broadcast may travel, which is more than the diameter of a random mesh of thousands of Peers.
+	 */
+	public static final int TIME_TO_LIVE = 8;
+	/**
+	 * The most Peers a lobby can have, which is far more than a partial mesh is meant for.
+	 */
+	public static final int MAX_MEMBERS = 4096;
+	private static final int DUPLICATE_WINDOW = Long.SIZE;
+
+	private final RelayControlMessage relayMessage;
+	private final int neighbors;
+	private final AtomicLong nextMessageId;
+	private final Map<String, SeenMessages> seenMessages;
+	private final Set<String> members;
+	/**
+	 * The types relayed messages get sent with, by the ordinal of their lane and delivery.
+	 */
+	private final MessageType[][] relayedTypes;
+
+	public BroadcastRelay() {
+		relayMessage = new RelayControlMessage();
+		neighbors = ApplicationSetting.TOPOLOGY_NEIGHBORS.getInt();
+		// The ids start at the current time in microseconds, so a restarted Peer continues above the ids of its
+		// last session, which the others might still remember.
+		nextMessageId = new AtomicLong(TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis()));
+		seenMessages = new ConcurrentHashMap<>();
+		members = ConcurrentHashMap.newKeySet();
+		relayedTypes = new MessageType[MessageLane.values().length][Delivery.values().length];
+		for (MessageLane lane : MessageLane.values()) {
+			for (Delivery delivery : Delivery.values()) {
+				relayedTypes[lane.ordinal()][delivery.ordinal()] = new RelayedType(lane, delivery);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of neighbors every Peer of a partial mesh connects to.
+	 * @return the number of neighbors
+	 */
+	public int getNeighbors() {
+		return neighbors;
+	}
+
+	/**
+	 * Wraps a new broadcast of the local Peer into a {@link RelayControlMessage}.
+	 * The carried message starts with the stamp as well, so every Peer orders it by the stamp of the origin.
+	 * @param bufferPool the pool to take the buffer from
+	 * @param stamp the stamp of the message
+	 * @param localIP the ip of the local Peer
+	 * @param message the message to broadcast
+	 * @return the buffer with the encoded message between position and limit, which has to be released by the caller
+	 */
+	PooledBuffer wrap(BufferPool bufferPool, long stamp, String localIP, String message) {
+		String id = Long.toString(nextMessageId.getAndIncrement());
+		String stampedMessage = HybridLogicalClock.format(stamp) + message;
+		return NetworkPeer.encodeMessage(bufferPool, stamp, relayMessage.getAsString(localIP, id, Integer.toString(TIME_TO_LIVE), stampedMessage));
+	}
+
+	/**
+	 * Wraps a received {@link RelayControlMessage} again, with one hop less to travel.
+	 * The carried message gets copied without decoding it, together with the stamp of its origin.
+	 * @param bufferPool the pool to take the buffer from
+	 * @param stamp the stamp of the relayed message
+	 * @param args the arguments of the received message
+	 * @return the buffer with the encoded message between position and limit, which has to be released by the caller
+	 */
+	PooledBuffer rewrap(BufferPool bufferPool, long stamp, ControlMessageArguments args) {
+		String header = relayMessage.getAsString(args.getString(RelayControlMessage.ORIGIN),
+				Long.toString(args.getLong(RelayControlMessage.MESSAGE_ID)),
+				Long.toString(args.getLong(RelayControlMessage.TIME_TO_LIVE) - 1), "");
+		// With an empty message, the header ends with the delimiter the carried message gets appended to.
+		return NetworkPeer.encodeMessage(bufferPool, stamp, header, args.getBytes(RelayControlMessage.MESSAGE));
+	}
+
+	/**
+	 * Records that a broadcast has been received.
+	 * @param origin the ip of the Peer that broadcast the message, which has to be a member of the lobby
+	 * @param id the id of the message
+	 * @return true if the message has been received for the first time, false if it is a duplicate
+	 */
+	boolean markSeen(String origin, long id) {
+		return seenMessages.computeIfAbsent(origin, o -> new SeenMessages()).mark(id);
+	}
+
+	/**
+	 * Returns the type a relayed message gets sent with. It uses the lane of the carried message, so relaying keeps
+	 * the order and priority of all broadcasts, but never replaces another message, since that might be from
+	 * another origin.
+	 * @param type the type of the carried message
+	 * @return the type of the relayed message
+	 */
+	MessageType getRelayedType(MessageType type) {
+		Delivery delivery = type.getDelivery() == Delivery.LATEST ? Delivery.RELIABLE : type.getDelivery();
+		return relayedTypes[type.getLane().ordinal()][delivery.ordinal()];
+	}
+
+	/**
+	 * Adds a Peer to the lobby, unless the lobby already has {@link BroadcastRelay#MAX_MEMBERS} members.
+	 * @param ip the ip of the Peer
+	 * @return true if the Peer is part of the lobby now
+	 */
+	boolean addMember(String ip) {
+		// Concurrent calls might exceed the limit by a few members, which is fine, as long as it is bounded.
+		if (members.size() >= MAX_MEMBERS) {
+			return members.contains(ip);
+		}
+		members.add(ip);
+		return true;
+	}
+
+	void addMembers(Collection<String> ips) {
+		for (String ip : ips) {
+			addMember(ip);
+		}
+	}
+
+	boolean isMember(String ip) {
+		return members.contains(ip);
+	}
+
+	/**
+	 * Removes a Peer from the lobby, together with the messages seen from it.
+	 * @param ip the ip of the Peer
+	 * @return true if the Peer has been part of the lobby
+	 */
+	boolean removeMember(String ip) {
+		seenMessages.remove(ip);
+		return members.remove(ip);
+	}
+
+	List<String> getMembers() {
+		return new ArrayList<>(members);
+	}
+
+	/**
+	 * The ids of the messages seen from a single origin.
+	 */
+	private static class SeenMessages {
+		private long highestId = -1;
+		/**
+		 * Bit i is set when the message with the id highestId - i has been seen.
+		 */
+		private long window;
+
+		synchronized boolean mark(long id) {
+			if (highestId < 0 || id > highestId) {
+				long shift = highestId < 0 ? DUPLICATE_WINDOW : id - highestId;
+				window = shift >= DUPLICATE_WINDOW ? 1 : window << shift | 1;
+				highestId = id;
+				return true;
+			}
+			long age = highestId - id;
+			if (age >= DUPLICATE_WINDOW || (window & 1L << age) != 0) {
+				return false;
+			}
+			window |= 1L << age;
+			return true;
+		}
+	}
+
+	private static class RelayedType implements MessageType {
+		private final MessageLane lane;
+		private final Delivery delivery;
+
+		RelayedType(MessageLane lane, Delivery delivery) {
+			this.lane = lane;
+			this.delivery = delivery;
+		}
+
+		@Override
+		public String getIdentifier() {
+			return "fw";
+		}
+
+		@Override
+		public MessageLane getLane() {
+			return lane;
+		}
+
+		@Override
+		public Delivery getDelivery() {
+			return delivery;
+		}
+	}
+}
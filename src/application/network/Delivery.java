@@ -0,0 +1,21 @@
+package application.network;
+
+/**
+ * How important it is that every single message of a type reaches the Peer.
+ * This only makes a difference while the Peer is not able to keep up with the messages sent to it.
+ */
+public enum Delivery {
+	/**
+	 * Every message gets delivered, no matter how far the Peer lags behind. A Peer that lags so far behind that the
+	 * message can not be queued anymore gets disconnected instead, so no message gets lost on a live connection.
+	 */
+	RELIABLE,
+	/**
+	 * Only the newest message of the type matters. A newer message replaces an older one that is still queued.
+	 */
+	LATEST,
+	/**
+	 * Messages may be thinned out while the Peer is lagging, and dropped once its queue is full.
+	 */
+	BEST_EFFORT
+}
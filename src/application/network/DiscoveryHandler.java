@@ -1,34 +1,62 @@
 package application.network;
 
 import application.NetworkApplication;
+import application.network.buffer.PooledBuffer;
 
 import java.io.IOException;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
 
 /**
  * This class can send out UDP discovery broadcasts into the network to find other devices.
  * It also provides a method that needs to be called for it to listen for incoming discoveries.
  */
 public class DiscoveryHandler {
-	private static final String DISCOVERY_MESSAGE = "DISCOVERY_MESSAGE";
+	private static final ByteBuffer DISCOVERY_MESSAGE = ByteBuffer.wrap("DISCOVERY_MESSAGE".getBytes(StandardCharsets.US_ASCII)).asReadOnlyBuffer();
 	private static final int INCOMING_MESSAGE_BUFFER_SIZE = 128;
 	private static final int DISCOVERY_PORT = 7653;
 
 	private final NetworkApplication networkApplication;
 
-	private DatagramSocket socket;
+	private DatagramChannel channel;
+	private Thread thread;
 
 	public DiscoveryHandler(NetworkApplication networkApplication) {
 		this.networkApplication = networkApplication;
 	}
 
 	public void closeDiscoveryHandler() {
-		socket.close();
+		if (channel == null) {
+			return;
+		}
+		try {
+			channel.close();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
 	}
 
 	public void startListeningForDiscoveries() {
-		new Thread(this::listenForDiscoveriesNoExceptions).start();
+		thread = new Thread(this::listenForDiscoveriesNoExceptions);
+		thread.start();
+	}
+
+	/**
+	 * Closes this Discovery Handler and waits for the listening Thread to finish.
+	 */
+	public void stopListeningForDiscoveries() {
+		closeDiscoveryHandler();
+		if (thread == null) {
+			return;
+		}
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
 	}
 
 	/**
@@ -42,30 +70,38 @@ public class DiscoveryHandler {
 				throw new RuntimeException(e);
 			}
 		} finally {
-			socket.close();
+			closeDiscoveryHandler();
 		}
 	}
 
 	/**
+	 * Every datagram gets received into the same pooled buffer, which is only turned into text to print it.
+	 * <p>
 	 * This method does not return until {@link DiscoveryHandler#closeDiscoveryHandler()} is called,
 	 * in which case an IO Exception will be thrown!
 	 * @throws IOException when an underlying system threw an exception, or when
 	 * {@link DiscoveryHandler#closeDiscoveryHandler()} has been called.
 	 */
 	private void listenForDiscoveries() throws IOException {
-		socket = new DatagramSocket(DISCOVERY_PORT);
-		while (networkApplication.isRunning()) {
-			byte[] incomingMessage = new byte[INCOMING_MESSAGE_BUFFER_SIZE];
-			DatagramPacket incomingPacket = new DatagramPacket(incomingMessage, incomingMessage.length);
-
-			socket.receive(incomingPacket);
-			String message = new String(incomingMessage);
+		InetAddress localAddress = networkApplication.getNetworkHandler().getBindAddress();
+		channel = DatagramChannel.open().bind(new InetSocketAddress(localAddress, DISCOVERY_PORT));
+		PooledBuffer incomingMessage = networkApplication.getBufferPool().acquire(INCOMING_MESSAGE_BUFFER_SIZE);
+		try {
+			ByteBuffer buffer = incomingMessage.getBuffer();
+			while (networkApplication.isRunning()) {
+				buffer.clear().limit(INCOMING_MESSAGE_BUFFER_SIZE);
+				InetSocketAddress sender = (InetSocketAddress) channel.receive(buffer);
+				buffer.flip();
 
-			networkApplication.getConsoleHandler().printControlMessage(null, message);
+				networkApplication.getConsoleHandler().printControlMessage(null, StandardCharsets.UTF_8.decode(buffer.duplicate()).toString());
 
-			if (message.equals(DISCOVERY_MESSAGE)) {
-				networkApplication.getNetworkHandler().connectTo(incomingPacket.getAddress());
+				// Only compares the received bytes, so the unused rest of the buffer does not matter.
+				if (buffer.equals(DISCOVERY_MESSAGE) && networkApplication.getNetworkHandler().shouldAnswerDiscovery()) {
+					networkApplication.getNetworkHandler().connectTo(sender.getAddress());
+				}
 			}
+		} finally {
+			incomingMessage.release();
 		}
 	}
 }
@@ -0,0 +1,114 @@
+package application.network;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A hybrid logical clock, which stamps every sent message, so all Peers can order the received messages the same way.
+ * <p>
+ * A stamp packs the wall clock time in milliseconds into its upper 48 bits, and a counter into its lower 16 bits.
+ * Every stamp of a Peer is larger than all stamps it has sent or received before, so a message is always ordered after
+ * every message its sender knew about, while the stamps stay close to the wall clock time. Stamps of different Peers
+ * can be equal, so ties have to be broken by the origin.
+ * <p>
+ * Received stamps too far ahead of the local wall clock get clamped, so a Peer with a wrong clock, or one sending made
+ * up stamps, can not push the clock of everyone far into the future.
+ * <p>
+ * On the wire, a stamp is written as {@link HybridLogicalClock#STAMP_LENGTH} hexadecimal digits in front of the message.
+ */
+final class HybridLogicalClock {
+	static final int STAMP_LENGTH = Long.BYTES * 2;
+	private static final int COUNTER_BITS = 16;
+	private static final byte[] DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+	private final AtomicLong lastStamp;
+	private final long maxDrift;
+
+	/**
+	 * Creates a clock.
+	 * @param maxDriftMillis how many milliseconds a received stamp may be ahead of the local wall clock
+	 */
+	HybridLogicalClock(long maxDriftMillis) {
+		lastStamp = new AtomicLong();
+		maxDrift = maxDriftMillis << COUNTER_BITS;
+	}
+
+	/**
+	 * Returns a new stamp for a message that gets sent.
+	 * @return the stamp, which is larger than every stamp returned or received before
+	 */
+	long tick() {
+		long wallClockStamp = System.currentTimeMillis() << COUNTER_BITS;
+		return lastStamp.updateAndGet(last -> Math.max(last + 1, wallClockStamp));
+	}
+
+	/**
+	 * Moves the clock past the stamp of a received message, so every stamp sent afterward orders after it.
+	 * A stamp more than the maximum drift ahead of the local wall clock only moves the clock up to that bound.
+	 * @param stamp the stamp of the received message
+	 * @return false if the stamp was too far ahead and got clamped
+	 */
+	boolean receive(long stamp) {
+		long wallClockStamp = System.currentTimeMillis() << COUNTER_BITS;
+		long acceptedStamp = Math.min(stamp, wallClockStamp + maxDrift);
+		lastStamp.updateAndGet(last -> Math.max(Math.max(last, acceptedStamp) + 1, wallClockStamp));
+		return acceptedStamp == stamp;
+	}
+
+	/**
+	 * Returns the wall clock time of a stamp.
+	 * @param stamp the stamp
+	 * @return the time in milliseconds since the epoch
+	 */
+	static long getMillis(long stamp) {
+		return stamp >>> COUNTER_BITS;
+	}
+
+	/**
+	 * Writes a stamp at the position of the buffer and advances it.
+	 * @param stamp the stamp
+	 * @param buffer the buffer, which has to have at least {@link HybridLogicalClock#STAMP_LENGTH} bytes remaining
+	 */
+	static void write(long stamp, ByteBuffer buffer) {
+		for (int shift = Long.SIZE - 4; shift >= 0; shift -= 4) {
+			buffer.put(DIGITS[(int) (stamp >>> shift) & 0xF]);
+		}
+	}
+
+	/**
+	 * Returns a stamp as it gets written.
+	 * @param stamp the stamp
+	 * @return the hexadecimal digits
+	 */
+	static String format(long stamp) {
+		byte[] digits = new byte[STAMP_LENGTH];
+		write(stamp, ByteBuffer.wrap(digits));
+		return new String(digits, StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * Reads a stamp at the position of the buffer and advances it past the stamp.
+	 * @param buffer the buffer
+	 * @return the stamp, or -1 if the buffer does not start with a valid stamp, in which case it stays unchanged
+	 */
+	static long read(ByteBuffer buffer) {
+		if (buffer.remaining() < STAMP_LENGTH) {
+			return -1;
+		}
+		long stamp = 0;
+		int position = buffer.position();
+		for (int i = 0; i < STAMP_LENGTH; i++) {
+			int digit = Character.digit(buffer.get(position + i), 16);
+			if (digit < 0) {
+				return -1;
+			}
+			stamp = stamp << 4 | digit;
+		}
+		if (stamp < 0) {
+			return -1;
+		}
+		buffer.position(position + STAMP_LENGTH);
+		return stamp;
+	}
+}
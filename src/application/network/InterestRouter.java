@@ -0,0 +1,110 @@
+package application.network;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class keeps track of which chunks of the board every Peer is interested in, so chunk specific messages
+ * only need to be sent to the Peers that subscribed to the chunk. Every match has subscriptions of its own.
+ * <p>
+ * Subscriptions change rarely, while subscribers get looked up for every chunk message, so the subscribers
+ * of every chunk are indexed as well.
+ */
+public class InterestRouter {
+	/**
+	 * Maps the ip of every Peer to the ids of the matches it has subscribed to chunks of, and those to the chunks.
+	 */
+	private final Map<String, Map<Integer, BitSet>> subscriptions;
+	/**
+	 * Maps every chunk of every match, see {@link InterestRouter#getChunkKey}, to the ips of the Peers that subscribed to it.
+	 */
+	private final Map<Long, Set<String>> subscribersByChunk;
+
+	public InterestRouter() {
+		subscriptions = new HashMap<>();
+		subscribersByChunk = new HashMap<>();
+	}
+
+	/**
+	 * Replaces the subscriptions of a Peer in a certain match.
+	 * @param matchId the id of the match
+	 * @param ip the ip of the Peer
+	 * @param chunks all the chunks the Peer is interested in
+	 */
+	public synchronized void updateSubscriptions(int matchId, String ip, BitSet chunks) {
+		removeSubscriptions(matchId, ip);
+		subscriptions.computeIfAbsent(ip, i -> new HashMap<>()).put(matchId, (BitSet) chunks.clone());
+		for (int chunk = chunks.nextSetBit(0); chunk >= 0; chunk = chunks.nextSetBit(chunk + 1)) {
+			subscribersByChunk.computeIfAbsent(getChunkKey(matchId, chunk), c -> new HashSet<>()).add(ip);
+		}
+	}
+
+	/**
+	 * Removes the subscriptions of a Peer in all matches.
+	 * @param ip the ip of the Peer
+	 */
+	public synchronized void removeSubscriptions(String ip) {
+		Map<Integer, BitSet> matches = subscriptions.get(ip);
+		if (matches == null) {
+			return;
+		}
+		for (int matchId : List.copyOf(matches.keySet())) {
+			removeSubscriptions(matchId, ip);
+		}
+	}
+
+	/**
+	 * Removes the subscriptions of all matches except the passed ones. Subscriptions for a match can still arrive
+	 * after it has finished locally, so this should be called whenever a match finishes.
+	 * @param matchIds the ids of the matches to keep
+	 */
+	public synchronized void retainMatches(Collection<Integer> matchIds) {
+		for (String ip : List.copyOf(subscriptions.keySet())) {
+			for (int matchId : List.copyOf(subscriptions.get(ip).keySet())) {
+				if (!matchIds.contains(matchId)) {
+					removeSubscriptions(matchId, ip);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the ips of all Peers that subscribed to the passed chunk.
+	 * @param matchId the id of the match
+	 * @param chunk the chunk
+	 * @return the ips of the subscribers
+	 */
+	public synchronized List<String> getSubscribers(int matchId, int chunk) {
+		Set<String> subscribers = subscribersByChunk.get(getChunkKey(matchId, chunk));
+		return subscribers == null ? Collections.emptyList() : List.copyOf(subscribers);
+	}
+
+	private void removeSubscriptions(int matchId, String ip) {
+		Map<Integer, BitSet> matches = subscriptions.get(ip);
+		BitSet chunks = matches == null ? null : matches.remove(matchId);
+		if (chunks == null) {
+			return;
+		}
+		if (matches.isEmpty()) {
+			subscriptions.remove(ip);
+		}
+		for (int chunk = chunks.nextSetBit(0); chunk >= 0; chunk = chunks.nextSetBit(chunk + 1)) {
+			long key = getChunkKey(matchId, chunk);
+			Set<String> subscribers = subscribersByChunk.get(key);
+			subscribers.remove(ip);
+			if (subscribers.isEmpty()) {
+				subscribersByChunk.remove(key);
+			}
+		}
+	}
+
+	private static long getChunkKey(int matchId, int chunk) {
+		return (long) matchId << 32 | chunk;
+	}
+}
@@ -0,0 +1,50 @@
+package application.network;
+
+import java.net.InterfaceAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The quality of the path to the known Peers over one local Network Interface, as measured by the
+ * {@link LocalInterfaceProber}.
+ * @param name the name of the Network Interface
+ * @param address the IPv4 address of the Network Interface
+ * @param probes how many probes have been sent, which is zero if no Peers have been known to measure against
+ * @param answers how many of the probes have been answered in time
+ * @param meanRoundTripNanos the mean round trip time of the answered probes, or zero if none has been answered
+ */
+public record InterfaceQuality(String name, InterfaceAddress address, int probes, int answers, long meanRoundTripNanos) {
+	public boolean isMeasured() {
+		return probes > 0;
+	}
+
+	public int getLossPercent() {
+		return probes == 0 ? 0 : (probes - answers) * 100 / probes;
+	}
+
+	/**
+	 * Returns whether this path is clearly better than the passed one, which is the case if it loses fewer probes, or
+	 * as many, but has a round trip time that is shorter by more than the passed margin.
+	 * @param other the other path
+	 * @param marginPercent by how many percent the round trip time has to be shorter
+	 * @return true if this path is better
+	 */
+	boolean isBetterThan(InterfaceQuality other, int marginPercent) {
+		if (getLossPercent() != other.getLossPercent()) {
+			return getLossPercent() < other.getLossPercent();
+		}
+		return answers > 0 && meanRoundTripNanos * 100 < other.meanRoundTripNanos * (100 - marginPercent);
+	}
+
+	@Override
+	public String toString() {
+		String ip = address.getAddress().getHostAddress();
+		if (!isMeasured()) {
+			return "%s on %s, not measured".formatted(ip, name);
+		}
+		if (answers == 0) {
+			return "%s on %s, no answer to %d probes".formatted(ip, name, probes);
+		}
+		double roundTripMillis = meanRoundTripNanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+		return "%s on %s, %.1f ms round trip, %d%% loss".formatted(ip, name, roundTripMillis, getLossPercent());
+	}
+}
@@ -0,0 +1,177 @@
+package application.network;
+
+import application.ApplicationSetting;
+import application.NetworkApplication;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This class handles the received messages of a single {@link MessageLane} on its own Thread.
+ * That way a slow chat message can not hold up the input that follows it on the same connection.
+ * <p>
+ * The messages get delivered in the order of the stamps of their {@link HybridLogicalClock}, with ties broken by the ip
+ * of their origin, so every Peer delivers the messages of all Peers in the same order, no matter which path they took.
+ * To that end, a received message waits in a reorder buffer until the wall clock time of its stamp is
+ * {@link ApplicationSetting#REORDER_WINDOW} in the past, but never longer than that window after it arrived, and the
+ * buffer only ever delivers the message with the earliest stamp. A message that arrives after a message with a later
+ * stamp has already been delivered gets delivered right away and counted as late.
+ * <p>
+ * Messages whose type is not {@link MessageType#isOrdered() ordered} skip the reorder buffer and get delivered in the
+ * order they arrived, before any ordered message.
+ */
+class LaneDispatcher {
+	private static final Comparator<PendingMessage> STAMP_ORDER = Comparator.comparingLong(PendingMessage::stamp)
+			.thenComparing(PendingMessage::origin)
+			.thenComparingLong(PendingMessage::sequence);
+
+	private final NetworkApplication networkApplication;
+	private final MessageLane lane;
+	private final long reorderWindowMillis;
+	private final ReentrantLock lock;
+	private final Condition messagesChanged;
+	private final PriorityQueue<PendingMessage> orderedMessages;
+	private final Queue<PendingMessage> unorderedMessages;
+
+	private Thread thread;
+	/**
+	 * Counts the received messages, so messages with the same stamp from the same origin keep the order they arrived in.
+	 */
+	private long nextSequence = 0;
+	/**
+	 * The stamp of the last delivered ordered message.
+	 */
+	private long lastDeliveredStamp = 0;
+
+	LaneDispatcher(NetworkApplication networkApplication, MessageLane lane) {
+		this.networkApplication = networkApplication;
+		this.lane = lane;
+		reorderWindowMillis = ApplicationSetting.REORDER_WINDOW.getInt();
+		lock = new ReentrantLock();
+		messagesChanged = lock.newCondition();
+		orderedMessages = new PriorityQueue<>(STAMP_ORDER);
+		unorderedMessages = new ArrayDeque<>();
+	}
+
+	void startDispatching() {
+		thread = new Thread(this::dispatchMessages, "lane-" + lane.getLabel());
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops dispatching, which discards all messages that have not been handled yet, and waits for the Thread to finish.
+	 */
+	void stopDispatching() {
+		if (thread == null) {
+			return;
+		}
+		thread.interrupt();
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Queues the handling of a received message.
+	 * @param stamp the stamp the origin sent the message with
+	 * @param origin the ip of the Peer that sent the message first, which breaks ties between equal stamps
+	 * @param isOrdered whether the message has to wait in the reorder buffer, see {@link MessageType#isOrdered()}
+	 * @param handler handles the message
+	 */
+	void dispatch(long stamp, String origin, boolean isOrdered, Runnable handler) {
+		long arrivalNanos = System.nanoTime();
+		long waitMillis = 0;
+		if (isOrdered) {
+			long stampAgeMillis = System.currentTimeMillis() - HybridLogicalClock.getMillis(stamp);
+			// The wall clocks of the Peers differ a bit, so the wait is bounded on both ends.
+			waitMillis = Math.clamp(reorderWindowMillis - stampAgeMillis, 0, reorderWindowMillis);
+		}
+		lock.lock();
+		try {
+			PendingMessage message = new PendingMessage(stamp, origin, nextSequence++, arrivalNanos,
+					arrivalNanos + TimeUnit.MILLISECONDS.toNanos(waitMillis), handler);
+			if (!isOrdered) {
+				unorderedMessages.add(message);
+			} else {
+				if (stamp < lastDeliveredStamp) {
+					networkApplication.getMetrics().recordLateMessage();
+				}
+				orderedMessages.add(message);
+			}
+			messagesChanged.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * This method does not return until the application has been closed!
+	 */
+	private void dispatchMessages() {
+		while (networkApplication.isRunning()) {
+			PendingMessage message;
+			try {
+				message = takeNextMessage();
+			} catch (InterruptedException e) {
+				return;
+			}
+			networkApplication.getMetrics().recordDispatchQueueTime(lane, System.nanoTime() - message.arrivalNanos());
+			try {
+				message.handler().run();
+			} catch (RuntimeException e) {
+				// Only the message is lost, the lane has to keep going for everyone else.
+				networkApplication.getConsoleHandler().printSystemMessage(e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Waits until a message may be delivered and removes it from the buffer: the first unordered message, or else the
+	 * ordered message with the earliest stamp, once its wait is over.
+	 * <p>
+	 * The recorded reorder delay only counts the time the Thread was idle while the message was waiting, since the time
+	 * it spent behind messages that were still being handled would have passed without the reorder buffer as well.
+	 */
+	private PendingMessage takeNextMessage() throws InterruptedException {
+		long idleSince = System.nanoTime();
+		lock.lockInterruptibly();
+		try {
+			while (true) {
+				if (!unorderedMessages.isEmpty()) {
+					return unorderedMessages.remove();
+				}
+				PendingMessage first = orderedMessages.peek();
+				if (first == null) {
+					messagesChanged.await();
+					continue;
+				}
+				long now = System.nanoTime();
+				if (now - first.releaseNanos() < 0) {
+					messagesChanged.awaitNanos(first.releaseNanos() - now);
+					continue;
+				}
+				orderedMessages.remove();
+				lastDeliveredStamp = Math.max(lastDeliveredStamp, first.stamp());
+				networkApplication.getMetrics().recordReorderDelay(lane, now - Math.max(idleSince, first.arrivalNanos()));
+				return first;
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * A received message waiting to be handled.
+	 * @param releaseNanos the time the message may be delivered, if no message with an earlier stamp is waiting
+	 */
+	private record PendingMessage(long stamp, String origin, long sequence, long arrivalNanos, long releaseNanos, Runnable handler) {
+	}
+}
@@ -0,0 +1,301 @@
+package application.network;
+
+import application.network.buffer.PooledBuffer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class queues the outgoing messages of a single Peer per {@link MessageLane} and decides which one gets written next.
+ * <p>
+ * The lanes are served in weighted round-robin: the highest lane with queued messages and credits left goes first and
+ * uses up one credit. Once every lane with queued messages is out of credits, all credits get refilled to the weights.
+ * <p>
+ * The queue also provides the flow control for the Peer. Once the oldest queued message has waited for
+ * {@link LaneScheduler#LAGGING_QUEUE_DELAY_NANOS}, or too many bytes are queued, the Peer counts as lagging until
+ * everything queued has been written. While it is lagging, only every {@link LaneScheduler#LAGGING_UPDATE_DIVISOR}th
+ * {@link Delivery#BEST_EFFORT BEST_EFFORT} message gets queued. Messages of a {@link Delivery#LATEST LATEST} type always
+ * replace an older queued message with the same {@link MessageType#getReplacementKey() key}. And no matter what, at most {@link LaneScheduler#MAX_QUEUED_BYTES}
+ * get queued, except on the {@link MessageLane#INPUT INPUT} lane, whose messages are tiny but can never be skipped.
+ * A {@link Delivery#RELIABLE RELIABLE} message beyond that limit does not get dropped either, instead the Peer has to be
+ * disconnected, since it can not get everything sent to it anymore.
+ * <p>
+ * The scheduler owns the buffers of all queued messages and releases them, whenever a message gets replaced,
+ * dropped or written. Written messages are kept for reuse, so queueing a message does not allocate.
+ */
+class LaneScheduler {
+	private static final MessageLane[] LANES = MessageLane.values();
+	private static final long LAGGING_QUEUE_DELAY_NANOS = 500_000_000L;
+	private static final int LAGGING_QUEUED_BYTES = 64 * 1024;
+	private static final int MAX_QUEUED_BYTES = 1024 * 1024;
+	private static final int LAGGING_UPDATE_DIVISOR = 4;
+
+	/**
+	 * What happened to a message passed to {@link LaneScheduler#enqueue}.
+	 */
+	enum EnqueueResult {
+		QUEUED,
+		/**
+		 * The message replaced an older queued message of the same type.
+		 */
+		COALESCED,
+		/**
+		 * The message got dropped, because the Peer can not keep up.
+		 */
+		DROPPED,
+		/**
+		 * The message is {@link Delivery#RELIABLE RELIABLE}, but the queue is full, so the Peer has to be disconnected.
+		 */
+		OVERFLOWED,
+		CLOSED
+	}
+
+	private final List<ArrayDeque<QueuedMessage>> queues;
+	private final ArrayDeque<QueuedMessage> recycledMessages;
+	private final int[] credits;
+
+	private int queuedBytes;
+	private boolean isLagging;
+	private int bestEffortMessagesWhileLagging;
+	private boolean isClosed;
+	/**
+	 * Whether no more messages get queued, since the Peer is about to be disconnected.
+	 */
+	private boolean isFinishing;
+	private QueuedMessage lastMessage;
+
+	LaneScheduler() {
+		queues = new ArrayList<>();
+		recycledMessages = new ArrayDeque<>();
+		credits = new int[LANES.length];
+		for (MessageLane lane : LANES) {
+			queues.add(new ArrayDeque<>());
+			credits[lane.ordinal()] = lane.getWeight();
+		}
+	}
+
+	/**
+	 * Queues a message, unless the flow control decides otherwise.
+	 * <p>
+	 * Takes over the reference to the buffer of the message in any case, so the caller must not release it.
+	 * @param type the type of the message
+	 * @param buffer the message between position and limit, ready to be written
+	 * @return what happened to the message
+	 */
+	synchronized EnqueueResult enqueue(MessageType type, PooledBuffer buffer) {
+		if (isClosed || isFinishing) {
+			buffer.release();
+			return EnqueueResult.CLOSED;
+		}
+		int length = buffer.getBuffer().remaining();
+		long now = System.nanoTime();
+		updateLagging(now);
+		ArrayDeque<QueuedMessage> queue = queues.get(type.getLane().ordinal());
+
+		if (type.getDelivery() == Delivery.LATEST) {
+			for (QueuedMessage queued : queue) {
+				if (queued.type.getReplacementKey().equals(type.getReplacementKey())) {
+					queuedBytes += length - queued.getLength();
+					queued.buffer.release();
+					queued.buffer = buffer;
+					return EnqueueResult.COALESCED;
+				}
+			}
+		}
+		if (type.getDelivery() == Delivery.BEST_EFFORT && isLagging
+				&& bestEffortMessagesWhileLagging++ % LAGGING_UPDATE_DIVISOR != 0) {
+			buffer.release();
+			return EnqueueResult.DROPPED;
+		}
+		if (type.getLane() != MessageLane.INPUT && queuedBytes + length > MAX_QUEUED_BYTES) {
+			buffer.release();
+			return type.getDelivery() == Delivery.RELIABLE ? EnqueueResult.OVERFLOWED : EnqueueResult.DROPPED;
+		}
+
+		QueuedMessage message = recycledMessages.poll();
+		if (message == null) {
+			message = new QueuedMessage();
+		}
+		message.type = type;
+		message.buffer = buffer;
+		message.enqueueNanos = now;
+		queue.add(message);
+		queuedBytes += length;
+		notifyAll();
+		return EnqueueResult.QUEUED;
+	}
+
+	private void updateLagging(long now) {
+		if (isLagging) {
+			return;
+		}
+		if (queuedBytes > LAGGING_QUEUED_BYTES) {
+			isLagging = true;
+			return;
+		}
+		for (ArrayDeque<QueuedMessage> queue : queues) {
+			QueuedMessage oldest = queue.peek();
+			if (oldest != null && now - oldest.enqueueNanos > LAGGING_QUEUE_DELAY_NANOS) {
+				isLagging = true;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Stops queueing new messages, so the messages queued so far are the last ones that get written,
+	 * followed by the passed message. Once that has been taken, {@link LaneScheduler#takeNextMessage()} returns null.
+	 * <p>
+	 * Takes over the reference to the buffer of the message in any case, so the caller must not release it.
+	 * @param type the type of the last message
+	 * @param buffer the last message between position and limit, ready to be written
+	 */
+	synchronized void finish(MessageType type, PooledBuffer buffer) {
+		if (isClosed || isFinishing) {
+			buffer.release();
+			return;
+		}
+		isFinishing = true;
+		lastMessage = recycledMessages.poll();
+		if (lastMessage == null) {
+			lastMessage = new QueuedMessage();
+		}
+		lastMessage.type = type;
+		lastMessage.buffer = buffer;
+		lastMessage.enqueueNanos = System.nanoTime();
+		notifyAll();
+	}
+
+	/**
+	 * Removes the message that should be written next, if there is any. Finding nothing to write means that the Peer
+	 * has received everything queued so far, so it stops lagging.
+	 * @return the message, or null if no message is queued or the scheduler has been closed
+	 */
+	synchronized QueuedMessage pollNextMessage() {
+		QueuedMessage message = isClosed ? null : pollWeighted();
+		if (message == null && !isClosed && lastMessage != null) {
+			message = lastMessage;
+			lastMessage = null;
+			return message;
+		}
+		if (message == null) {
+			isLagging = false;
+			bestEffortMessagesWhileLagging = 0;
+		} else {
+			queuedBytes -= message.getLength();
+		}
+		return message;
+	}
+
+	/**
+	 * Blocks until a message is queued and removes the one that should be written next.
+	 * @return the message, or null once the scheduler has been closed, or the last message has been taken
+	 */
+	synchronized QueuedMessage takeNextMessage() throws InterruptedException {
+		while (!isClosed) {
+			QueuedMessage message = pollNextMessage();
+			if (message != null) {
+				return message;
+			}
+			if (isFinishing) {
+				return null;
+			}
+			wait();
+		}
+		return null;
+	}
+
+	private QueuedMessage pollWeighted() {
+		// At most two rounds, since after a refill every lane with queued messages has credits again.
+		for (int round = 0; round < 2; round++) {
+			for (MessageLane lane : LANES) {
+				ArrayDeque<QueuedMessage> queue = queues.get(lane.ordinal());
+				if (!queue.isEmpty() && credits[lane.ordinal()] > 0) {
+					credits[lane.ordinal()]--;
+					return queue.poll();
+				}
+			}
+			for (MessageLane lane : LANES) {
+				credits[lane.ordinal()] = lane.getWeight();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns whether the Peer currently can not keep up with the messages sent to it.
+	 * @return true while the Peer is lagging
+	 */
+	synchronized boolean isLagging() {
+		return isLagging;
+	}
+
+	/**
+	 * Releases the buffer of a message that has been written and keeps the message for reuse.
+	 * @param message a message returned by {@link LaneScheduler#pollNextMessage()} or {@link LaneScheduler#takeNextMessage()}
+	 */
+	synchronized void recycleMessage(QueuedMessage message) {
+		message.buffer.release();
+		message.buffer = null;
+		message.type = null;
+		recycledMessages.add(message);
+	}
+
+	/**
+	 * Closes this scheduler and discards all queued messages.
+	 * @return the number of discarded messages
+	 */
+	synchronized int closeScheduler() {
+		isClosed = true;
+		int discarded = 0;
+		for (ArrayDeque<QueuedMessage> queue : queues) {
+			discarded += queue.size();
+			for (QueuedMessage message : queue) {
+				message.buffer.release();
+			}
+			queue.clear();
+		}
+		if (lastMessage != null) {
+			discarded++;
+			lastMessage.buffer.release();
+			lastMessage = null;
+		}
+		recycledMessages.clear();
+		queuedBytes = 0;
+		notifyAll();
+		return discarded;
+	}
+
+	/**
+	 * A message waiting to be written. Its buffer gets replaced when a newer message of a {@link Delivery#LATEST LATEST}
+	 * type arrives, but it keeps its place in the queue.
+	 */
+	static class QueuedMessage {
+		private MessageType type;
+		private PooledBuffer buffer;
+		private long enqueueNanos;
+
+		MessageLane getLane() {
+			return type.getLane();
+		}
+
+		/**
+		 * Returns the buffer with the message between its position and limit. It might be shared with other Peers,
+		 * so it must only be read with absolute methods.
+		 * @return the buffer
+		 */
+		ByteBuffer getBytes() {
+			return buffer.getBuffer();
+		}
+
+		int getLength() {
+			return buffer.getBuffer().remaining();
+		}
+
+		long getEnqueueNanos() {
+			return enqueueNanos;
+		}
+	}
+}
@@ -0,0 +1,305 @@
+package application.network;
+
+import application.NetworkApplication;
+
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InterfaceAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * This class selects the local Network Interface in the background, by measuring the path to the known Peers over
+ * every usable IPv4 Interface, so the ip of the local Peer is known without enumerating the Interfaces when it is
+ * needed first, and the connections to other Peers go over the fastest link.
+ * <p>
+ * The first probe starts right when the application is started. Afterward, the Interfaces get probed again every
+ * {@link LocalInterfaceProber#PROBE_INTERVAL_MILLIS}. A probe sends {@link LocalInterfaceProber#PROBES_PER_TARGET}
+ * echo requests to up to {@link LocalInterfaceProber#MAX_TARGETS} of the connected Peers, or of the Peers of the last
+ * session if none is connected, over every Interface, and selects the one that loses the fewest of them, and then the
+ * one with the shortest round trip time. Without any known Peers, the Interface with the lowest index gets selected.
+ * <p>
+ * The connected Peers know the local Peer by the ip of the selected Interface, so while any Peer is connected, only
+ * the selected Interface gets measured, and another one only gets selected once the selected one goes down.
+ * The user gets told whenever the selected Interface changes.
+ */
+class LocalInterfaceProber {
+	private static final int PROBE_INTERVAL_MILLIS = 5000;
+	private static final int MAX_TARGETS = 4;
+	private static final int PROBES_PER_TARGET = 3;
+	private static final int PROBE_TIMEOUT_MILLIS = 250;
+	/**
+	 * By how many percent the round trip time of another Interface has to be shorter, before it gets selected instead
+	 * of the selected one, so two similar links do not take turns.
+	 */
+	private static final int SWITCH_MARGIN_PERCENT = 20;
+
+	private final NetworkApplication networkApplication;
+	private final PeerListFile peerListFile;
+	private final CountDownLatch firstProbe;
+
+	private Thread thread;
+	private volatile InterfaceQuality selectedInterface = null;
+	private volatile List<InterfaceQuality> measuredInterfaces = List.of();
+	/**
+	 * The reason the last probe has not found a valid Interface, or null if it has.
+	 */
+	private volatile RuntimeException probeFailure = null;
+
+	LocalInterfaceProber(NetworkApplication networkApplication, PeerListFile peerListFile) {
+		this.networkApplication = networkApplication;
+		this.peerListFile = peerListFile;
+		firstProbe = new CountDownLatch(1);
+	}
+
+	void startProbing() {
+		thread = new Thread(this::probePeriodically);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops probing and waits for the probing Thread to finish.
+	 */
+	void stopProbing() {
+		if (thread == null) {
+			return;
+		}
+		thread.interrupt();
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Returns the address of the Interface selected by the last probe. Before the first probe has finished, this method
+	 * waits for it, or probes right away if probing has not been started.
+	 * @return the address
+	 * @throws RuntimeException if the last probe could not find a valid Interface
+	 */
+	InterfaceAddress getInterfaceAddress() {
+		return getSelectedInterface().address();
+	}
+
+	/**
+	 * Returns the Interface selected by the last probe, see {@link LocalInterfaceProber#getInterfaceAddress()}.
+	 * @return the Interface and the quality of its path to the known Peers
+	 */
+	InterfaceQuality getSelectedInterface() {
+		if (thread == null && firstProbe.getCount() > 0) {
+			probe();
+		}
+		try {
+			firstProbe.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for the local Network Interface!");
+		}
+		InterfaceQuality selected = selectedInterface;
+		if (selected == null) {
+			throw probeFailure;
+		}
+		return selected;
+	}
+
+	/**
+	 * Returns every Interface measured by the last probe, in the order of their indices.
+	 * @return the Interfaces, which only contain the selected one while any Peer is connected
+	 */
+	List<InterfaceQuality> getMeasuredInterfaces() {
+		return measuredInterfaces;
+	}
+
+	/**
+	 * This method does not return until {@link LocalInterfaceProber#stopProbing()} is called!
+	 */
+	private void probePeriodically() {
+		while (!Thread.currentThread().isInterrupted()) {
+			probe();
+			try {
+				Thread.sleep(PROBE_INTERVAL_MILLIS);
+			} catch (InterruptedException e) {
+				return;
+			}
+		}
+	}
+
+	private synchronized void probe() {
+		InterfaceQuality previous = selectedInterface;
+		List<InterfaceQuality> candidates;
+		try {
+			candidates = findCandidates();
+			probeFailure = null;
+		} catch (RuntimeException e) {
+			// The last selected Interface stays valid until an Interface is found again.
+			if (previous == null) {
+				probeFailure = e;
+			}
+			firstProbe.countDown();
+			return;
+		}
+		InterfaceQuality current = null;
+		for (InterfaceQuality candidate : candidates) {
+			if (previous != null && candidate.address().getAddress().equals(previous.address().getAddress())) {
+				current = candidate;
+			}
+		}
+		NetworkHandler networkHandler = networkApplication.getNetworkHandler();
+		boolean isConnected = networkHandler != null && !networkHandler.getPeerIps().isEmpty();
+		if (current != null && isConnected) {
+			candidates = List.of(current);
+		}
+		List<InterfaceQuality> measured = measure(candidates, getTargets(isConnected));
+
+		InterfaceQuality selected = measured.getFirst();
+		for (InterfaceQuality candidate : measured) {
+			if (current != null && candidate.address().getAddress().equals(current.address().getAddress())) {
+				selected = candidate;
+			}
+		}
+		for (InterfaceQuality candidate : measured) {
+			if (candidate.isBetterThan(selected, SWITCH_MARGIN_PERCENT)) {
+				selected = candidate;
+			}
+		}
+		measuredInterfaces = measured;
+		selectedInterface = selected;
+		firstProbe.countDown();
+		if (previous != null && !previous.address().getAddress().equals(selected.address().getAddress())) {
+			networkApplication.getConsoleHandler().printSystemMessage("The local Network Interface has changed to %s, your local ip is now %s."
+					.formatted(selected.name(), selected.address().getAddress().getHostAddress()));
+		}
+	}
+
+	/**
+	 * Returns the addresses of the Peers to measure the paths to, which are the connected Peers if there are any,
+	 * and otherwise the Peers of the last session.
+	 */
+	private List<InetAddress> getTargets(boolean isConnected) {
+		List<InetAddress> targets = new ArrayList<>();
+		if (isConnected) {
+			for (String ip : networkApplication.getNetworkHandler().getPeerIps()) {
+				try {
+					targets.add(InetAddress.getByName(ip));
+				} catch (UnknownHostException e) {
+					// The ips of the Peers are always valid.
+				}
+			}
+		} else {
+			targets.addAll(peerListFile.loadPeers());
+		}
+		Collections.shuffle(targets);
+		return targets.subList(0, Math.min(targets.size(), MAX_TARGETS));
+	}
+
+	/**
+	 * Measures the paths to all targets over all candidates at the same time, so a probe takes about as long as
+	 * {@link LocalInterfaceProber#PROBES_PER_TARGET} round trips, or timeouts, no matter how many there are.
+	 * @param candidates the Interfaces, which have not been measured
+	 * @param targets the Peers to measure the paths to
+	 * @return the measured Interfaces, in the same order, or the candidates if there are no targets
+	 */
+	private static List<InterfaceQuality> measure(List<InterfaceQuality> candidates, List<InetAddress> targets) {
+		if (targets.isEmpty()) {
+			return candidates;
+		}
+		int[][] answers = new int[candidates.size()][targets.size()];
+		long[][] roundTripNanos = new long[candidates.size()][targets.size()];
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < candidates.size(); i++) {
+			for (int j = 0; j < targets.size(); j++) {
+				int candidate = i;
+				int target = j;
+				Thread thread = new Thread(() -> probeTarget(candidates.get(candidate).name(), targets.get(target),
+						answers[candidate], roundTripNanos[candidate], target));
+				thread.setDaemon(true);
+				thread.start();
+				threads.add(thread);
+			}
+		}
+		for (Thread thread : threads) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return candidates;
+			}
+		}
+
+		List<InterfaceQuality> measured = new ArrayList<>();
+		for (int i = 0; i < candidates.size(); i++) {
+			int totalAnswers = 0;
+			long totalRoundTripNanos = 0;
+			for (int j = 0; j < targets.size(); j++) {
+				totalAnswers += answers[i][j];
+				totalRoundTripNanos += roundTripNanos[i][j];
+			}
+			InterfaceQuality candidate = candidates.get(i);
+			measured.add(new InterfaceQuality(candidate.name(), candidate.address(), targets.size() * PROBES_PER_TARGET,
+					totalAnswers, totalAnswers == 0 ? 0 : totalRoundTripNanos / totalAnswers));
+		}
+		return measured;
+	}
+
+	/**
+	 * Sends the echo requests to a single target over a single Interface. An echo request is an ICMP echo, if the
+	 * application may send one, or else a TCP connection attempt to the echo port, which gets answered as well.
+	 */
+	private static void probeTarget(String interfaceName, InetAddress target, int[] answers, long[] roundTripNanos, int index) {
+		try {
+			NetworkInterface networkInterface = NetworkInterface.getByName(interfaceName);
+			if (networkInterface == null) {
+				return;
+			}
+			for (int i = 0; i < PROBES_PER_TARGET; i++) {
+				long start = System.nanoTime();
+				if (target.isReachable(networkInterface, 0, PROBE_TIMEOUT_MILLIS)) {
+					answers[index]++;
+					roundTripNanos[index] += System.nanoTime() - start;
+				}
+			}
+		} catch (IOException e) {
+			// The Interface has gone down, so the remaining requests are lost.
+		}
+	}
+
+	/**
+	 * Returns all usable IPv4 Interfaces, which have not been measured yet, in the order of their indices.
+	 */
+	private static List<InterfaceQuality> findCandidates() {
+		List<NetworkInterface> validInterfaces = new ArrayList<>();
+		List<InterfaceQuality> candidates = new ArrayList<>();
+		try {
+			for (NetworkInterface networkInterface : Collections.list(NetworkInterface.getNetworkInterfaces())) {
+				if (networkInterface.isUp() && !networkInterface.isLoopback() && !networkInterface.isVirtual()) {
+					validInterfaces.add(networkInterface);
+				}
+			}
+		} catch (SocketException e) {
+			throw new RuntimeException("Failed while trying to find a valid Network Interface:" + e);
+		}
+		validInterfaces.sort(Comparator.comparingInt(NetworkInterface::getIndex));
+		for (NetworkInterface networkInterface : validInterfaces) {
+			for (InterfaceAddress interfaceAddress : networkInterface.getInterfaceAddresses()) {
+				InetAddress address = interfaceAddress.getAddress();
+				if (address instanceof Inet4Address && !address.isLoopbackAddress()) {
+					candidates.add(new InterfaceQuality(networkInterface.getName(), interfaceAddress, 0, 0, 0));
+					break;
+				}
+			}
+		}
+		if (candidates.isEmpty()) {
+			throw new RuntimeException("Could not find a valid Network Interface!");
+		}
+		return candidates;
+	}
+}
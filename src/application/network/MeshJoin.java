@@ -0,0 +1,95 @@
+package application.network;
+
+import application.NetworkApplication;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The progress of connecting to a batch of Peers, as started by {@link MeshJoinCoordinator#joinMesh}.
+ * <p>
+ * The progress gets reported on the console while the connections are being established, and once more when all of
+ * them have either been established or have failed for good.
+ */
+public class MeshJoin {
+	private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+	private final NetworkApplication networkApplication;
+	private final int numberOfPeers;
+	private final long startNanos;
+
+	private int connected;
+	private int failed;
+	private long lastReportNanos;
+
+	MeshJoin(NetworkApplication networkApplication, int numberOfPeers) {
+		this.networkApplication = networkApplication;
+		this.numberOfPeers = numberOfPeers;
+		startNanos = System.nanoTime();
+		lastReportNanos = startNanos;
+		if (numberOfPeers > 1) {
+			networkApplication.getConsoleHandler().printSystemMessage("Joining the mesh, connecting to %d Peers ...".formatted(numberOfPeers));
+		}
+	}
+
+	/**
+	 * Records that the connection to one of the Peers has either been established or has failed for good.
+	 * @param ip the ip of the Peer
+	 * @param isConnected whether there is a connection to the Peer now
+	 */
+	synchronized void finishPeer(String ip, boolean isConnected) {
+		if (isConnected) {
+			connected++;
+		} else {
+			failed++;
+		}
+		if (numberOfPeers == 1) {
+			String m = isConnected ? "Successfully connected to %s." : "Could not connect to %s. No connection has been established.";
+			networkApplication.getConsoleHandler().printSystemMessage(m.formatted(ip));
+		} else if (isComplete()) {
+			long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+			String m = "Joined the mesh in %d ms, connected to %d of %d Peers.".formatted(millis, connected, numberOfPeers);
+			networkApplication.getConsoleHandler().printSystemMessage(m);
+		} else if (System.nanoTime() - lastReportNanos >= PROGRESS_INTERVAL_NANOS) {
+			lastReportNanos = System.nanoTime();
+			String m = "Joining the mesh, connected to %d of %d Peers so far.".formatted(connected, numberOfPeers);
+			networkApplication.getConsoleHandler().printSystemMessage(m);
+		}
+		if (isComplete()) {
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Waits until every connection has either been established or has failed for good.
+	 * @param timeoutMillis the maximum time to wait
+	 * @return whether the join is complete
+	 * @throws InterruptedException when the calling Thread gets interrupted while waiting
+	 */
+	public synchronized boolean awaitCompletion(long timeoutMillis) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		while (!isComplete()) {
+			long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+			if (remainingMillis <= 0) {
+				return false;
+			}
+			wait(remainingMillis);
+		}
+		return true;
+	}
+
+	public synchronized boolean isComplete() {
+		return connected + failed == numberOfPeers;
+	}
+
+	public int getNumberOfPeers() {
+		return numberOfPeers;
+	}
+
+	public synchronized int getConnected() {
+		return connected;
+	}
+
+	public synchronized int getFailed() {
+		return failed;
+	}
+}
@@ -0,0 +1,129 @@
+package application.network;
+
+import application.NetworkApplication;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class establishes the connections to new Peers, all of a batch at the same time.
+ * <p>
+ * Joining a mesh means connecting to every Peer of it, so waiting for one connection after another would take as
+ * many round trips as there are Peers. Instead, up to a fixed number of connections get established in parallel.
+ * Every attempt gives up after {@link MeshJoinCoordinator#CONNECT_TIMEOUT_MILLIS}, and failed attempts get retried
+ * with an exponentially growing delay, which does not hold up any of the other connections.
+ */
+public class MeshJoinCoordinator {
+	private static final int CONNECT_TIMEOUT_MILLIS = 2000;
+	private static final int MAX_ATTEMPTS = 4;
+	private static final long FIRST_RETRY_DELAY_MILLIS = 250;
+	private static final long IDLE_THREAD_TIMEOUT_MILLIS = 5000;
+
+	private final NetworkApplication networkApplication;
+	private final NewConnectionsHandler newConnectionsHandler;
+	private final ScheduledThreadPoolExecutor connector;
+	/**
+	 * The ips that are currently being connected to, so no Peer gets connected to twice at the same time.
+	 */
+	private final Set<String> pendingIps;
+
+	MeshJoinCoordinator(NetworkApplication networkApplication, NewConnectionsHandler newConnectionsHandler, int parallelism) {
+		this.networkApplication = networkApplication;
+		this.newConnectionsHandler = newConnectionsHandler;
+		connector = new ScheduledThreadPoolExecutor(parallelism, runnable -> {
+			Thread thread = new Thread(runnable, "mesh-join");
+			thread.setDaemon(true);
+			return thread;
+		});
+		// The Threads are only needed while joining.
+		connector.setKeepAliveTime(IDLE_THREAD_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+		connector.allowCoreThreadTimeOut(true);
+		pendingIps = ConcurrentHashMap.newKeySet();
+	}
+
+	/**
+	 * Starts connecting to all passed addresses in the background, except the local one and those that are
+	 * already connected or being connected to.
+	 * @param addresses the addresses of the Peers
+	 * @return the progress of the new connections
+	 */
+	public MeshJoin joinMesh(Collection<InetAddress> addresses) {
+		NetworkHandler networkHandler = networkApplication.getNetworkHandler();
+		String localIP = networkHandler.getLocalIP();
+		List<InetAddress> newAddresses = new ArrayList<>();
+		for (InetAddress address : addresses) {
+			String ip = address.getHostAddress();
+			if (!ip.equals(localIP) && !networkHandler.hasConnectionTo(ip) && pendingIps.add(ip)) {
+				newAddresses.add(address);
+			}
+		}
+		MeshJoin join = new MeshJoin(networkApplication, newAddresses.size());
+		for (InetAddress address : newAddresses) {
+			submit(join, address, 1, 0);
+		}
+		return join;
+	}
+
+	/**
+	 * Returns the number of Peers that are currently being connected to, including those waiting for a retry.
+	 * @return the number of Peers
+	 */
+	int getNumberOfPendingConnections() {
+		return pendingIps.size();
+	}
+
+	/**
+	 * Stops all connection attempts and waits for them to finish.
+	 */
+	void closeCoordinator() {
+		// Interrupting a connecting Thread closes its channel, so no attempt takes long to finish.
+		connector.shutdownNow();
+		try {
+			connector.awaitTermination(CONNECT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void submit(MeshJoin join, InetAddress address, int attempt, long delayMillis) {
+		try {
+			connector.schedule(() -> connect(join, address, attempt), delayMillis, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			// The application is shutting down.
+			finish(join, address, false);
+		}
+	}
+
+	private void connect(MeshJoin join, InetAddress address, int attempt) {
+		NetworkHandler networkHandler = networkApplication.getNetworkHandler();
+		try {
+			// The Peer might have connected to us in the meantime.
+			if (!networkHandler.hasConnectionTo(address.getHostAddress())) {
+				newConnectionsHandler.createConnectionTo(address, CONNECT_TIMEOUT_MILLIS);
+			}
+		} catch (IOException e) {
+			if (attempt < MAX_ATTEMPTS && networkApplication.isRunning()) {
+				long delayMillis = FIRST_RETRY_DELAY_MILLIS << (attempt - 1);
+				// The jitter keeps all Peers that failed to reach the same Peer from retrying in lockstep.
+				delayMillis += ThreadLocalRandom.current().nextLong(delayMillis / 2 + 1);
+				submit(join, address, attempt + 1, delayMillis);
+				return;
+			}
+		}
+		finish(join, address, networkHandler.hasConnectionTo(address.getHostAddress()));
+	}
+
+	private void finish(MeshJoin join, InetAddress address, boolean isConnected) {
+		pendingIps.remove(address.getHostAddress());
+		join.finishPeer(address.getHostAddress(), isConnected);
+	}
+}
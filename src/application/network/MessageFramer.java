@@ -0,0 +1,125 @@
+package application.network;
+
+import application.network.buffer.BufferPool;
+import application.network.buffer.PooledBuffer;
+
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+
+/**
+ * This class turns the stream of data received from a Peer into single messages.
+ * <p>
+ * Since TCP is stream based and not message based we might only receive a partial message or multiple messages at once.
+ * This class ensures, that only actual full messages, so bytes terminated by an END_OF_MESSAGE_INDICATOR,
+ * get extracted. That means even multiple messages in a single packet, as well as one message spanning multiple packets,
+ * all get handled correctly.
+ * <p>
+ * The data gets received straight into a pooled buffer and the messages are views into that buffer, so nothing gets
+ * copied or allocated per message. When the buffer is full, the incomplete message at its end gets moved to the front,
+ * or if it fills the whole buffer, the buffer gets replaced by a larger one.
+ * <p>
+ * A message may be at most maxFrameSize bytes long, so a Peer that never ends its message can not make the buffer grow
+ * without limit.
+ */
+class MessageFramer {
+	private static final int INITIAL_CAPACITY = 4 * 1024;
+
+	private final BufferPool bufferPool;
+	private final byte endOfMessageIndicator;
+	private final int maxFrameSize;
+
+	/**
+	 * Holds the received data between 0 and its position. Its limit always stays at its capacity.
+	 */
+	private PooledBuffer received;
+	/**
+	 * The view on the received data that gets returned for every message.
+	 */
+	private ByteBuffer message;
+	private int messageStart;
+	/**
+	 * Everything before this index has already been searched for the END_OF_MESSAGE_INDICATOR.
+	 */
+	private int scanPosition;
+
+	/**
+	 * @param maxFrameSize the maximum length of a message in bytes, without the END_OF_MESSAGE_INDICATOR
+	 */
+	MessageFramer(BufferPool bufferPool, byte endOfMessageIndicator, int maxFrameSize) {
+		this.bufferPool = bufferPool;
+		this.endOfMessageIndicator = endOfMessageIndicator;
+		this.maxFrameSize = maxFrameSize;
+		received = bufferPool.acquire(INITIAL_CAPACITY);
+		message = received.getBuffer().duplicate();
+	}
+
+	/**
+	 * Returns the buffer newly received data has to be written into, starting at its position.
+	 * It always has space left, and the data written into it is picked up by {@link MessageFramer#nextMessage()}.
+	 * <p>
+	 * This invalidates the last message returned by {@link MessageFramer#nextMessage()}.
+	 * @return the buffer
+	 */
+	ByteBuffer getWritableBuffer() {
+		ByteBuffer buffer = received.getBuffer();
+		if (buffer.hasRemaining()) {
+			return buffer;
+		}
+		if (messageStart > 0) {
+			buffer.limit(buffer.position()).position(messageStart);
+			buffer.compact();
+			scanPosition -= messageStart;
+			messageStart = 0;
+			return buffer;
+		}
+		PooledBuffer larger = bufferPool.acquire(buffer.capacity() * 2);
+		larger.getBuffer().put(buffer.flip());
+		received.release();
+		received = larger;
+		message = larger.getBuffer().duplicate();
+		return larger.getBuffer();
+	}
+
+	/**
+	 * Removes the next full message.
+	 * @return a view on the message between its position and limit, without the END_OF_MESSAGE_INDICATOR,
+	 * or null if no full message has been received yet. The view is only valid until the next call to this framer.
+	 * @throws ProtocolException when the next message is longer than the maxFrameSize, even if it has not been
+	 * received completely yet. This framer must not be used anymore afterwards, except to close it.
+	 */
+	ByteBuffer nextMessage() throws ProtocolException {
+		ByteBuffer buffer = received.getBuffer();
+		int end = buffer.position();
+		for (int i = scanPosition; i < end; i++) {
+			if (buffer.get(i) == endOfMessageIndicator) {
+				checkFrameSize(i - messageStart);
+				message.limit(i).position(messageStart);
+				messageStart = i + 1;
+				scanPosition = messageStart;
+				return message;
+			}
+		}
+		scanPosition = end;
+		checkFrameSize(end - messageStart);
+		if (messageStart == end) {
+			// Everything has been consumed, so the next data can start at the front again without copying anything.
+			buffer.clear();
+			messageStart = 0;
+			scanPosition = 0;
+		}
+		return null;
+	}
+
+	private void checkFrameSize(int length) throws ProtocolException {
+		if (length > maxFrameSize) {
+			throw new ProtocolException("The message is longer than %d bytes!".formatted(maxFrameSize));
+		}
+	}
+
+	/**
+	 * Gives the buffer back to the pool. This framer must not be used anymore afterwards.
+	 */
+	void closeFramer() {
+		received.release();
+	}
+}
@@ -0,0 +1,36 @@
+package application.network;
+
+/**
+ * The logical lanes that share the connection to a Peer, from the highest to the lowest priority.
+ * <p>
+ * Every lane has a weight, which is the number of messages it may send in a row while lower lanes are waiting,
+ * so a burst of chat messages can never delay an input, but can not be starved by the other lanes either.
+ */
+public enum MessageLane {
+	/**
+	 * The traffic the current match can not advance without.
+	 */
+	INPUT(8),
+	CONTROL(3),
+	CHAT(1);
+
+	private final int weight;
+	private final String label;
+
+	MessageLane(int weight) {
+		this.weight = weight;
+		label = name().toLowerCase();
+	}
+
+	public int getWeight() {
+		return weight;
+	}
+
+	/**
+	 * Returns the name of this lane as it appears in the metrics.
+	 * @return the lower case name
+	 */
+	public String getLabel() {
+		return label;
+	}
+}
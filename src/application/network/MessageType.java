@@ -0,0 +1,77 @@
+package application.network;
+
+/**
+ * This Interface describes how messages of a certain type travel over the connection to a Peer.
+ */
+public interface MessageType {
+	/**
+	 * The number of messages of a type every Peer may send per second, unless the type says otherwise.
+	 */
+	int DEFAULT_RATE_LIMIT = 20;
+
+	/**
+	 * The type of normal chat messages.
+	 */
+	MessageType CHAT = new MessageType() {
+		@Override
+		public String getIdentifier() {
+			return "chat";
+		}
+
+		@Override
+		public MessageLane getLane() {
+			return MessageLane.CHAT;
+		}
+
+		@Override
+		public Delivery getDelivery() {
+			return Delivery.RELIABLE;
+		}
+	};
+
+	/**
+	 * Returns the identifier of this type. Messages of the same type have to return the same identifier.
+	 * @return the identifier
+	 */
+	String getIdentifier();
+
+	MessageLane getLane();
+
+	Delivery getDelivery();
+
+	/**
+	 * Returns which queued message a newer message of a {@link Delivery#LATEST LATEST} type replaces: the one with
+	 * the same key. By default, every message replaces the queued one of its type.
+	 * @return the key
+	 */
+	default String getReplacementKey() {
+		return getIdentifier();
+	}
+
+	/**
+	 * Returns whether broadcasts of this type have to reach every Peer of the lobby. In a {@link Topology#PARTIAL_MESH}
+	 * they then get relayed by the neighbors, otherwise they only reach the neighbors.
+	 * @return true when broadcasts of this type should get relayed
+	 */
+	default boolean isRelayed() {
+		return true;
+	}
+
+	/**
+	 * Returns whether received messages of this type get delivered in the order of their stamps, see
+	 * {@link LaneDispatcher}. Messages that are not ordered get delivered as soon as they arrive.
+	 * @return true when messages of this type may be held back to order them
+	 */
+	default boolean isOrdered() {
+		return true;
+	}
+
+	/**
+	 * Returns how many messages of this type a single Peer may send per second. Received messages above that get
+	 * dropped, see {@link RateLimiter}.
+	 * @return the number of messages per second, or 0 if only the limit of all messages of the Peer applies
+	 */
+	default int getRateLimit() {
+		return DEFAULT_RATE_LIMIT;
+	}
+}
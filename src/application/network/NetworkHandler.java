@@ -1,112 +1,386 @@
 package application.network;
 
+import application.ApplicationSetting;
 import application.NetworkApplication;
-import application.command.CommandHandler;
 import application.command.control.ConnectToControlMessage;
 import application.command.control.ControlMessage;
+import application.command.control.ControlMessageArguments;
 import application.command.control.ControlMessageHandler;
+import application.command.control.GoodbyeControlMessage;
+import application.command.control.HelloControlMessage;
+import application.command.control.RelayControlMessage;
+import application.metrics.MetricsRegistry;
+import application.metrics.PeerMetrics;
+import application.metrics.events.PeerDisconnectEvent;
+import application.network.buffer.PooledBuffer;
+import application.network.buffer.Utf8;
+import application.snake.SnakeMatch;
 
-import java.net.Inet4Address;
 import java.net.InetAddress;
-import java.net.InterfaceAddress;
-import java.net.NetworkInterface;
-import java.net.SocketException;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class NetworkHandler {
+	/**
+	 * How long leaving waits for the peers to receive everything still queued and close their connections.
+	 */
+	private static final long SHUTDOWN_TIMEOUT_NANOS = 2_000_000_000L;
+	/**
+	 * The type throttled messages get recorded with, when the limit of all messages of a Peer has been exceeded.
+	 */
+	private static final String ALL_MESSAGES_TYPE = "all";
+	/**
+	 * The type of received Control Messages that could not be parsed. They are limited like every other type.
+	 */
+	private static final String INVALID_MESSAGE_TYPE = "invalid";
+	/**
+	 * Every Peer receives messages on its own Thread, so each of those Threads parses into its own arguments.
+	 */
+	private static final ThreadLocal<ControlMessageArguments> RECEIVED_ARGUMENTS = ThreadLocal.withInitial(ControlMessageArguments::new);
+
 	private final NetworkApplication networkApplication;
-	private final CommandHandler controlMessageHandler;
+	private final ControlMessageHandler controlMessageHandler;
 	private final DiscoveryHandler discoveryHandler;
 	private final NewConnectionsHandler newConnectionsHandler;
+	private final MeshJoinCoordinator meshJoinCoordinator;
+	private final PeerListFile peerListFile;
+	private final PingHandler pingHandler;
+	private final InterestRouter interestRouter;
+	private final Topology topology;
+	/**
+	 * Relays the broadcasts and keeps track of the whole lobby, which is only used in a {@link Topology#PARTIAL_MESH}.
+	 */
+	private final BroadcastRelay broadcastRelay;
+	private final RateLimiter rateLimiter;
+	/**
+	 * Stamps every sent message, so all Peers can deliver the messages in the same order.
+	 */
+	private final HybridLogicalClock clock;
+	/**
+	 * Handles the received messages of every lane except {@link MessageLane#INPUT}, which gets handled right away.
+	 */
+	private final Map<MessageLane, LaneDispatcher> laneDispatchers;
 	private final Set<NetworkPeer> peers;
-
-	private InterfaceAddress localNetworkInterfaceAddress = null;
+	/**
+	 * The local address set by {@link ApplicationSetting#NETWORK_ADDRESS}, or null if it is not set.
+	 */
+	private final InetAddress bindAddress;
+	/**
+	 * Finds the local address in the background, which is only used if no {@link NetworkHandler#bindAddress} is set.
+	 */
+	private final LocalInterfaceProber localInterfaceProber;
 
 	public NetworkHandler(NetworkApplication networkApplication) {
 		this.networkApplication = networkApplication;
 		controlMessageHandler = new ControlMessageHandler(networkApplication);
 		discoveryHandler = new DiscoveryHandler(networkApplication);
 		newConnectionsHandler = new NewConnectionsHandler(networkApplication);
-		peers = new HashSet<>();
+		meshJoinCoordinator = new MeshJoinCoordinator(networkApplication, newConnectionsHandler,
+				ApplicationSetting.MESH_JOIN_PARALLELISM.getInt());
+		peerListFile = new PeerListFile(networkApplication);
+		pingHandler = new PingHandler(networkApplication);
+		interestRouter = new InterestRouter();
+		topology = Topology.fromSetting();
+		broadcastRelay = new BroadcastRelay();
+		rateLimiter = new RateLimiter();
+		clock = new HybridLogicalClock(ApplicationSetting.MAX_CLOCK_DRIFT.getInt());
+		laneDispatchers = new EnumMap<>(MessageLane.class);
+		laneDispatchers.put(MessageLane.CONTROL, new LaneDispatcher(networkApplication, MessageLane.CONTROL));
+		laneDispatchers.put(MessageLane.CHAT, new LaneDispatcher(networkApplication, MessageLane.CHAT));
+		peers = ConcurrentHashMap.newKeySet();
+		bindAddress = readBindAddress();
+		localInterfaceProber = new LocalInterfaceProber(networkApplication, peerListFile);
 	}
 
+	private static InetAddress readBindAddress() {
+		if (!ApplicationSetting.NETWORK_ADDRESS.isSet()) {
+			return null;
+		}
+		try {
+			return InetAddress.getByName(ApplicationSetting.NETWORK_ADDRESS.get());
+		} catch (UnknownHostException e) {
+			throw new IllegalStateException("The network address \"%s\" is not valid!".formatted(ApplicationSetting.NETWORK_ADDRESS.get()));
+		}
+	}
+
+	/**
+	 * Starts every Thread of the Network Handler. The listeners bind on their own Threads, so neither of them waits for
+	 * the other or for the local Network Interface to be found.
+	 */
 	public void startNetworkHandler() {
+		if (bindAddress == null) {
+			localInterfaceProber.startProbing();
+		}
+		for (LaneDispatcher laneDispatcher : laneDispatchers.values()) {
+			laneDispatcher.startDispatching();
+		}
 		discoveryHandler.startListeningForDiscoveries();
 		newConnectionsHandler.startListeningForIncomingConnections();
+		pingHandler.startPinging();
+
+		List<InetAddress> savedPeers = peerListFile.loadPeers();
+		if (!savedPeers.isEmpty()) {
+			networkApplication.getConsoleHandler().printSystemMessage("Reconnecting to the Peers of the last session.");
+			joinMesh(savedPeers);
+		}
 	}
 
+	/**
+	 * Leaves all peers in an orderly way and waits for every Thread of the Network Handler to finish.
+	 * <p>
+	 * Every peer still gets everything queued for it, followed by a {@link GoodbyeControlMessage}, so it can close the
+	 * connection right away. The connections that have not been closed by the peers after
+	 * {@link NetworkHandler#SHUTDOWN_TIMEOUT_NANOS} get closed anyway.
+	 */
 	public void closeNetworkHandler() {
-		discoveryHandler.closeDiscoveryHandler();
-		newConnectionsHandler.closeNewConnectionsHandler();
-		for (NetworkPeer peer : peers) {
-			peer.disconnectPeer();
+		peerListFile.savePeers(getPeerIps());
+		discoveryHandler.stopListeningForDiscoveries();
+		newConnectionsHandler.stopListeningForIncomingConnections();
+		meshJoinCoordinator.closeCoordinator();
+		pingHandler.stopPinging();
+		localInterfaceProber.stopProbing();
+
+		List<NetworkPeer> leftPeers = new ArrayList<>(peers);
+		if (!leftPeers.isEmpty()) {
+			GoodbyeControlMessage goodbye = new GoodbyeControlMessage();
+			// In a partial mesh, the Peers that are not connected get told through the neighbors.
+			MessageType goodbyeType = isRelayedBroadcast(goodbye) ? broadcastRelay.getRelayedType(goodbye) : goodbye;
+			PooledBuffer encodedGoodbye = encodeBroadcast(goodbye.getAsString(), goodbye);
+			for (NetworkPeer peer : leftPeers) {
+				peer.leave(encodedGoodbye.retain(), goodbyeType);
+			}
+			encodedGoodbye.release();
+		}
+		long deadlineNanos = System.nanoTime() + SHUTDOWN_TIMEOUT_NANOS;
+		for (NetworkPeer peer : leftPeers) {
+			peer.awaitDisconnect(deadlineNanos);
+			removeNetworkPeer(peer);
 		}
+		for (LaneDispatcher laneDispatcher : laneDispatchers.values()) {
+			laneDispatcher.stopDispatching();
+		}
+	}
+
+	HybridLogicalClock getClock() {
+		return clock;
 	}
 
 	public String getLocalIP() {
-		InterfaceAddress interfaceAddress = getLocalInterfaceAddress();
-		return interfaceAddress.getAddress().getHostAddress();
+		if (bindAddress != null) {
+			return bindAddress.getHostAddress();
+		}
+		return localInterfaceProber.getInterfaceAddress().getAddress().getHostAddress();
 	}
 
-	private InterfaceAddress getLocalInterfaceAddress() {
-		if (localNetworkInterfaceAddress == null) {
-			initializeLocalInterfaceAddress();
+	/**
+	 * Returns the local address all connections have to be accepted on.
+	 * @return the address, or null if any address can be used
+	 */
+	InetAddress getBindAddress() {
+		return bindAddress;
+	}
+
+	/**
+	 * Returns the local address all connections have to be made from, which is the address of the selected Network
+	 * Interface unless {@link ApplicationSetting#NETWORK_ADDRESS} is set, so the connections go over the best link.
+	 * @return the address
+	 */
+	InetAddress getSourceAddress() {
+		if (bindAddress != null) {
+			return bindAddress;
 		}
-		return localNetworkInterfaceAddress;
+		return localInterfaceProber.getInterfaceAddress().getAddress();
 	}
 
 	/**
-	 * Sets the local Network Interface Address to a valid Interface. Preferable tries to find a wi-fi Interface.
+	 * Returns the selected local Network Interface and the quality of its path to the known Peers.
+	 * @return the Interface, or null if the local address is set by {@link ApplicationSetting#NETWORK_ADDRESS}
 	 */
-	private void initializeLocalInterfaceAddress() {
-		Map<NetworkInterface, InterfaceAddress> validAddresses = new HashMap<>();
-		try {
-			List<NetworkInterface> interfaces = Collections.list(NetworkInterface.getNetworkInterfaces());
-			for (NetworkInterface networkInterface : interfaces) {
-				if (!networkInterface.isUp() || networkInterface.isLoopback() || networkInterface.isVirtual()) continue;
-
-				List<InterfaceAddress> addresses = networkInterface.getInterfaceAddresses();
-				for (InterfaceAddress interfaceAddress : addresses) {
-					InetAddress address = interfaceAddress.getAddress();
-					if (address instanceof Inet4Address && !address.isLoopbackAddress()) {
-						validAddresses.put(networkInterface, interfaceAddress);
-					}
-				}
+	public InterfaceQuality getSelectedInterface() {
+		return bindAddress == null ? localInterfaceProber.getSelectedInterface() : null;
+	}
+
+	/**
+	 * Returns every usable local Network Interface measured by the last probe, see {@link NetworkHandler#getSelectedInterface()}.
+	 * @return the Interfaces, which are empty if the local address is set by {@link ApplicationSetting#NETWORK_ADDRESS}
+	 */
+	public List<InterfaceQuality> getMeasuredInterfaces() {
+		return bindAddress == null ? localInterfaceProber.getMeasuredInterfaces() : List.of();
+	}
+
+	/**
+	 * Adds a new peer to our known peers. In a full mesh, it gets told about all other known peers, and they get told
+	 * about it, so they can connect to each other as well. In a partial mesh, it gets told about the whole lobby,
+	 * so it can pick its other neighbors from it.
+	 * <p>
+	 * When two peers connect to each other at the same time, both end up with two connections. Both of them then keep
+	 * the connection opened by the peer that {@link NetworkHandler#shouldConnectTo should have connected}, so they
+	 * always agree on which one to close.
+	 * @param peer the new peer, which has not been initialized yet
+	 * @return whether the peer has been added, otherwise it has been disconnected again
+	 */
+	public synchronized boolean addNewNetworkPeer(NetworkPeer peer) {
+		NetworkPeer existingPeer = getPeer(peer.getIp());
+		if (existingPeer != null) {
+			boolean isPreferred = peer.isOutgoing() == shouldConnectTo(peer.getIp());
+			if (!isPreferred) {
+				peer.disconnectPeer();
+				return false;
 			}
-		} catch (SocketException e) {
-			throw new RuntimeException("Failed while trying to find a valid Network Interface:" + e);
+			peers.remove(existingPeer);
+			existingPeer.disconnectPeer();
 		}
-		if (validAddresses.isEmpty()) {
-			throw new RuntimeException("Could not find a valid Network Interface!");
+		if (topology == Topology.PARTIAL_MESH) {
+			addPartialMeshPeer(peer);
+		} else {
+			List<String> otherIps = getPeerIps();
+			if (!otherIps.isEmpty()) {
+				ConnectToControlMessage connectTo = new ConnectToControlMessage();
+				sendControlMessage(null, connectTo, peer.getIp());
+				peers.add(peer);
+				sendControlMessage(peer, connectTo, String.join(ConnectToControlMessage.IP_SEPARATOR, otherIps));
+			} else {
+				peers.add(peer);
+			}
 		}
-		for (NetworkInterface networkInterface : validAddresses.keySet()) {
-			String name = networkInterface.getName().toLowerCase();
-			String desc = networkInterface.getDisplayName().toLowerCase();
-			if (name.contains("wireless") || name.contains("wi-fi") || desc.contains("wireless") || desc.contains("wi-fi")) {
-				localNetworkInterfaceAddress = validAddresses.get(networkInterface);
-				return;
+		peer.initializePeer();
+		peerListFile.savePeers(getPeerIps());
+		return true;
+	}
+
+	/**
+	 * Adds a new neighbor in a partial mesh. Joining the first neighbor means joining a lobby, which the Peers that
+	 * are not connected get told about.
+	 */
+	private void addPartialMeshPeer(NetworkPeer peer) {
+		boolean isFirstPeer = peers.isEmpty();
+		List<String> otherMembers = broadcastRelay.getMembers();
+		otherMembers.remove(peer.getIp());
+		broadcastRelay.addMember(peer.getIp());
+		peers.add(peer);
+		if (!otherMembers.isEmpty()) {
+			sendControlMessage(peer, new ConnectToControlMessage(), String.join(ConnectToControlMessage.IP_SEPARATOR, otherMembers));
+		}
+		if (isFirstPeer) {
+			sendControlMessage(null, new HelloControlMessage(), getLocalIP());
+		}
+	}
+
+	/**
+	 * Connects to the peers another peer told us about with a {@link ConnectToControlMessage}.
+	 * <p>
+	 * In a full mesh, these are all the ones this peer {@link NetworkHandler#shouldConnectTo should connect to}.
+	 * In a partial mesh, they are all part of the lobby, and random ones of them get connected to,
+	 * until this peer has enough neighbors.
+	 * @param addresses the addresses of the peers
+	 */
+	public void connectToAnnouncedPeers(List<InetAddress> addresses) {
+		List<String> ips = new ArrayList<>();
+		for (InetAddress address : addresses) {
+			ips.add(address.getHostAddress());
+		}
+		if (topology == Topology.PARTIAL_MESH) {
+			ips.remove(getLocalIP());
+			broadcastRelay.addMembers(ips);
+			ips = pickNewNeighbors(ips);
+		} else {
+			ips.removeIf(ip -> !shouldConnectTo(ip));
+		}
+		List<InetAddress> selectedAddresses = new ArrayList<>();
+		for (InetAddress address : addresses) {
+			if (ips.contains(address.getHostAddress())) {
+				selectedAddresses.add(address);
 			}
 		}
-		localNetworkInterfaceAddress = validAddresses.values().toArray(new InterfaceAddress[0])[0];
+		joinMesh(selectedAddresses);
 	}
 
 	/**
-	 * Adds a new peer to our known peers and also tells every other peer, to also connect to this new peer.
-	 * @param peer the new peer
+	 * Picks random peers out of the passed ones to connect to, as many as are missing for a partial mesh.
+	 * The connections that are still being established count as well.
+	 * @param candidates the ips of the peers to pick from
+	 * @return the ips of the picked peers
 	 */
-	public void addNewNetworkPeer(NetworkPeer peer) {
-		if (hasConnectionTo(peer.getIp())) {
-			throw new IllegalStateException("Can not add an already added Peer!");
+	private List<String> pickNewNeighbors(Collection<String> candidates) {
+		int missing = broadcastRelay.getNeighbors() - peers.size() - meshJoinCoordinator.getNumberOfPendingConnections();
+		List<String> ips = new ArrayList<>();
+		for (String ip : candidates) {
+			if (!ip.equals(getLocalIP()) && !hasConnectionTo(ip)) {
+				ips.add(ip);
+			}
 		}
-		sendControlMessage(null, new ConnectToControlMessage(), peer.getIp());
-		peers.add(peer);
-		peer.initializePeer();
+		Collections.shuffle(ips);
+		return ips.subList(0, Math.max(0, Math.min(missing, ips.size())));
+	}
+
+	/**
+	 * Returns whether this peer should connect to a device that sent a discovery broadcast.
+	 * <p>
+	 * In a partial mesh, every member of a large lobby only answers with the probability that makes about
+	 * {@link BroadcastRelay#getNeighbors()} of them connect to the new device, instead of all of them.
+	 * @return true if this peer should connect
+	 */
+	boolean shouldAnswerDiscovery() {
+		if (topology == Topology.FULL_MESH) {
+			return true;
+		}
+		int lobbySize = getLobbyIps().size();
+		return lobbySize < broadcastRelay.getNeighbors()
+				|| ThreadLocalRandom.current().nextInt(lobbySize) < broadcastRelay.getNeighbors();
+	}
+
+	/**
+	 * Returns the ips of all other peers of the lobby. In a full mesh, these are the connected peers.
+	 * In a partial mesh, these also include the peers that are only reachable through others.
+	 * @return the ips
+	 */
+	public List<String> getLobbyIps() {
+		if (topology == Topology.FULL_MESH) {
+			return getPeerIps();
+		}
+		Set<String> ips = new LinkedHashSet<>(getPeerIps());
+		ips.addAll(broadcastRelay.getMembers());
+		return new ArrayList<>(ips);
+	}
+
+	/**
+	 * Adds a peer that is part of the lobby, but might not be connected, as told by a {@link HelloControlMessage}.
+	 * @param ip the ip of the peer
+	 */
+	public void addLobbyMember(String ip) {
+		if (topology == Topology.PARTIAL_MESH && !ip.equals(getLocalIP())) {
+			broadcastRelay.addMember(ip);
+		}
+	}
+
+	/**
+	 * Removes a peer from the lobby, after it has left.
+	 * @param ip the ip of the peer
+	 * @return true if the peer has been part of the lobby
+	 */
+	public boolean removeLobbyMember(String ip) {
+		rateLimiter.removePeer(ip);
+		return broadcastRelay.removeMember(ip);
+	}
+
+	/**
+	 * Returns whether this peer should connect to the passed peer, when both of them have been told about each other.
+	 * Only the one with the lower ip connects, so they do not end up with two connections.
+	 * @param ip the ip of the other peer
+	 * @return true if this peer has the lower ip
+	 */
+	public boolean shouldConnectTo(String ip) {
+		return getLocalIP().compareTo(ip) < 0;
 	}
 
 	/**
@@ -114,8 +388,82 @@ public class NetworkHandler {
 	 * @param peer the peer to be removed
 	 */
 	public void removeNetworkPeer(NetworkPeer peer) {
-		peers.remove(peer);
 		peer.disconnectPeer();
+		if (!peers.remove(peer)) {
+			// It has already been removed, or replaced by another connection to the same peer.
+			return;
+		}
+		interestRouter.removeSubscriptions(peer.getIp());
+		rateLimiter.removePeer(peer.getIp());
+		if (topology == Topology.PARTIAL_MESH) {
+			// Without a goodbye, the peer can not be told apart from one that crashed.
+			broadcastRelay.removeMember(peer.getIp());
+			replaceLostNeighbor();
+		}
+		if (topology == Topology.FULL_MESH) {
+			// In a partial mesh, the inputs of the peer might still arrive through other neighbors.
+			for (SnakeMatch match : networkApplication.getRunningMatches()) {
+				match.removeDisconnectedParticipant(peer.getIp());
+			}
+		}
+
+		PeerDisconnectEvent event = new PeerDisconnectEvent();
+		if (event.shouldCommit()) {
+			event.peer = peer.getIp();
+			event.commit();
+		}
+	}
+
+	/**
+	 * Connects to random other members of the lobby, when a partial mesh has lost one of its neighbors.
+	 */
+	private void replaceLostNeighbor() {
+		if (!networkApplication.isRunning()) {
+			return;
+		}
+		List<InetAddress> addresses = new ArrayList<>();
+		for (String ip : pickNewNeighbors(broadcastRelay.getMembers())) {
+			try {
+				addresses.add(InetAddress.getByName(ip));
+			} catch (UnknownHostException e) {
+				broadcastRelay.removeMember(ip);
+			}
+		}
+		joinMesh(addresses);
+	}
+
+	public Topology getTopology() {
+		return topology;
+	}
+
+	Set<NetworkPeer> getPeers() {
+		return peers;
+	}
+
+	/**
+	 * Returns the connected peer with the passed ip.
+	 * @param ip the ip
+	 * @return the peer, or null if there is no connection to this ip
+	 */
+	public NetworkPeer getPeer(String ip) {
+		for (NetworkPeer peer : peers) {
+			if (peer.getIp().equals(ip)) {
+				return peer;
+			}
+		}
+		return null;
+	}
+
+	public int getNumberOfPeers() {
+		return peers.size();
+	}
+
+	public List<String> getPeerIps() {
+		List<String> ips = new ArrayList<>();
+		for (NetworkPeer peer : peers) {
+			ips.add(peer.getIp());
+		}
+		return ips;
 	}
 
 	public boolean hasConnectionTo(String address) {
@@ -128,9 +476,10 @@ public class NetworkHandler {
 	}
 
 	/**
-	 * Tries to establish a new connection to the passed address, if no connection to this address exists yet.
+	 * Starts establishing a new connection to the passed address in the background,
+	 * if no connection to this address exists yet.
 	 * <p>
-	 * This method can take quite a while to return! Consider calling it asynchronously!
+	 * This method has to resolve the address first, which might take a while.
 	 * @param address the address to connect to
 	 */
 	public void connectTo(String address) throws UnknownHostException {
@@ -138,26 +487,35 @@ public class NetworkHandler {
 	}
 
 	/**
-	 * Tries to establish a new connection to the passed address, if no connection to this address exists yet.
-	 * <p>
-	 * This method can take quite a while to return! Consider calling it asynchronously!
+	 * Starts establishing a new connection to the passed address in the background,
+	 * if no connection to this address exists yet.
 	 * @param address the address to connect to
 	 */
 	public void connectTo(InetAddress address) {
 		if (hasConnectionTo(address.getHostAddress())) {
 			networkApplication.getConsoleHandler().printSystemMessage("You are already connected with this Peer!");
 		} else {
-			newConnectionsHandler.createConnectionTo(address);
+			networkApplication.getConsoleHandler().printSystemMessage("Trying to establish a connection with %s ...".formatted(address.getHostAddress()));
+			meshJoinCoordinator.joinMesh(List.of(address));
 		}
 	}
 
+	/**
+	 * Starts establishing connections to all passed addresses at the same time, in the background.
+	 * @param addresses the addresses to connect to, the local one and those already connected to get skipped
+	 * @return the progress of the new connections
+	 */
+	public MeshJoin joinMesh(Collection<InetAddress> addresses) {
+		return meshJoinCoordinator.joinMesh(addresses);
+	}
+
 	/**
 	 * Sends a certain Message to a specific peer, or all connected peers.
 	 * @param peer the peer to send to, or null when broadcasting
 	 * @param message the message
 	 */
 	public void sendMessage(NetworkPeer peer, String message) {
-		sendAnyMessage(peer, message, false);
+		sendAnyMessage(peer, message, MessageType.CHAT, true);
 	}
 
 	/**
@@ -168,42 +526,266 @@ public class NetworkHandler {
 	 */
 	public void sendControlMessage(NetworkPeer peer, ControlMessage messageType, String... args) {
 		String message = messageType.getAsString(args);
-		sendAnyMessage(peer, message, true);
+		sendAnyMessage(peer, message, messageType, messageType.isLogged());
+	}
+
+	/**
+	 * Sends a certain Control Message only to the peers that subscribed to the passed chunk of the board.
+	 * <p>
+	 * The message does not get relayed, since only neighbors may subscribe, see
+	 * {@link application.command.control.SubscribeControlMessage}.
+	 * @param matchId the id of the match the chunk belongs to
+	 * @param chunk the chunk the Control Message is about
+	 * @param messageType an instance of the type of Control Message that should get send
+	 * @param args the arguments of the Control Message
+	 */
+	public void sendControlMessageToChunk(int matchId, int chunk, ControlMessage messageType, String... args) {
+		String message = messageType.getAsString(args);
+		PooledBuffer encodedMessage = NetworkPeer.encodeMessage(networkApplication.getBufferPool(), clock.tick(), message);
+		try {
+			for (String ip : interestRouter.getSubscribers(matchId, chunk)) {
+				NetworkPeer peer = getPeer(ip);
+				if (peer != null) {
+					peer.sendMessage(encodedMessage.retain(), messageType);
+					if (messageType.isLogged()) {
+						networkApplication.getConsoleHandler().printSentMessage(peer, message, true);
+					}
+				}
+			}
+		} finally {
+			encodedMessage.release();
+		}
+	}
+
+	public InterestRouter getInterestRouter() {
+		return interestRouter;
 	}
 
 	/**
 	 * Sends a certain Message to a specific peer, or all connected peers.
 	 * <p>
-	 * Also makes sure the Console Handler gets notified.
+	 * Also makes sure the Console Handler gets notified, unless the Message should not be logged.
+	 * The Message gets encoded only once, all peers share the same buffer. In a partial mesh, broadcasts get wrapped
+	 * so the neighbors relay them.
 	 * @param peer the peer to send to, or null when broadcasting
 	 * @param message the message
-	 * @param isControl whether the Message is a Control Message
+	 * @param type the type of the Message, which decides its lane and delivery
+	 * @param isLogged whether the Console Handler should be notified
 	 */
-	private void sendAnyMessage(NetworkPeer peer, String message, boolean isControl) {
+	private void sendAnyMessage(NetworkPeer peer, String message, MessageType type, boolean isLogged) {
 		if (peer != null) {
-			peer.sendMessage(message);
+			peer.sendMessage(NetworkPeer.encodeMessage(networkApplication.getBufferPool(), clock.tick(), message), type);
 		} else {
-			for (NetworkPeer p : peers) {
-				p.sendMessage(message);
+			PooledBuffer encodedMessage = encodeBroadcast(message, type);
+			MessageType sentType = isRelayedBroadcast(type) ? broadcastRelay.getRelayedType(type) : type;
+			try {
+				for (NetworkPeer p : peers) {
+					p.sendMessage(encodedMessage.retain(), sentType);
+				}
+			} finally {
+				encodedMessage.release();
 			}
 		}
-		networkApplication.getConsoleHandler().printSentMessage(peer, message, isControl);
+		if (isLogged) {
+			networkApplication.getConsoleHandler().printSentMessage(peer, message, type != MessageType.CHAT);
+		}
+	}
+
+	private boolean isRelayedBroadcast(MessageType type) {
+		return topology == Topology.PARTIAL_MESH && type.isRelayed();
+	}
+
+	/**
+	 * Encodes a message that gets sent to all neighbors, wrapped for relaying if it has to reach the whole lobby.
+	 * @return the buffer with the encoded message between position and limit, which has to be released by the caller
+	 */
+	private PooledBuffer encodeBroadcast(String message, MessageType type) {
+		if (isRelayedBroadcast(type)) {
+			return broadcastRelay.wrap(networkApplication.getBufferPool(), clock.tick(), getLocalIP(), message);
+		}
+		return NetworkPeer.encodeMessage(networkApplication.getBufferPool(), clock.tick(), message);
+	}
+
+	/**
+	 * Handles a broadcast relayed through a partial mesh, and passes it on to all other neighbors,
+	 * unless it has been received before or may not travel any further.
+	 * <p>
+	 * Only broadcasts of the members of the lobby get handled, or a {@link HelloControlMessage} of a new member,
+	 * which makes it a member right away. All others get dropped, since their origin might be made up. This includes
+	 * the late copies of the goodbye of a member that has already been removed.
+	 * @param peer the neighbor the message came from
+	 * @param args the arguments of the {@link RelayControlMessage}, which are only valid during this call
+	 */
+	private void relayMessage(NetworkPeer peer, ControlMessageArguments args) {
+		String origin = args.getString(RelayControlMessage.ORIGIN);
+		if (topology != Topology.PARTIAL_MESH || origin.equals(getLocalIP())) {
+			return;
+		}
+		ByteBuffer message = args.getBytes(RelayControlMessage.MESSAGE);
+		// The carried message starts with the stamp of the origin, which decides its order and gets relayed unchanged.
+		long stamp = HybridLogicalClock.read(message);
+		if (stamp < 0) {
+			return;
+		}
+		MessageType type = ControlMessage.isControlMessage(message) ? controlMessageHandler.getControlMessage(message) : MessageType.CHAT;
+		boolean isKnownOrigin = broadcastRelay.isMember(origin)
+				|| type instanceof HelloControlMessage && broadcastRelay.addMember(origin);
+		if (!isKnownOrigin || !broadcastRelay.markSeen(origin, args.getLong(RelayControlMessage.MESSAGE_ID))) {
+			return;
+		}
+		receiveStamp(stamp);
+		// A flooding origin gets throttled by every Peer, so its broadcasts do not travel any further either.
+		if (type != null && isThrottled(origin, type.getIdentifier(), type.getRateLimit())) {
+			return;
+		}
+		if (args.getLong(RelayControlMessage.TIME_TO_LIVE) > 1) {
+			if (type != null) {
+				PooledBuffer forwardedMessage = broadcastRelay.rewrap(networkApplication.getBufferPool(), clock.tick(), args);
+				try {
+					for (NetworkPeer p : peers) {
+						if (p != peer && !p.getIp().equals(origin)) {
+							p.sendMessage(forwardedMessage.retain(), broadcastRelay.getRelayedType(type));
+						}
+					}
+				} finally {
+					forwardedMessage.release();
+				}
+			}
+		}
+		// Parsing the carried message reuses the arguments, so they must not be used after this.
+		handleMessage(peer, stamp, origin, message, false);
 	}
 
 	/**
 	 * This Method handles incoming Messages. It should get called, whenever a new Message has been received.
+	 * <p>
+	 * Messages on the {@link MessageLane#INPUT INPUT} lane get handled right away on the calling Thread,
+	 * all others get passed to the dispatcher of their lane.
+	 * <p>
+	 * The message only stays valid during this call. Control Messages get parsed straight from its bytes, and only the
+	 * ones handled later get their arguments copied out as Strings. Chat messages get decoded exactly once, for display.
+	 * <p>
+	 * Before anything gets decoded or dispatched, the message has to pass the {@link RateLimiter} of the peer,
+	 * otherwise it gets dropped.
 	 * @param peer the peer the message came from
-	 * @param message the message
+	 * @param stamp the stamp of the {@link HybridLogicalClock} of the peer the message was sent with
+	 * @param message the message between position and limit, encoded as UTF-8, without its stamp
 	 */
-	public void handleReceivedMessage(NetworkPeer peer, String message) {
-		if (ControlMessage.isControlMessage(message)) {
-			networkApplication.getConsoleHandler().printControlMessage(peer, message);
-			String errorMessage = controlMessageHandler.parseAndExecuteCommand(message);
-			if (errorMessage != null) {
-				throw new RuntimeException("Invalid Control Message Received: " + errorMessage);
+	public void handleReceivedMessage(NetworkPeer peer, long stamp, ByteBuffer message) {
+		if (!rateLimiter.tryAcquireMessage(peer.getIp())) {
+			recordThrottledMessage(peer.getIp(), ALL_MESSAGES_TYPE);
+			return;
+		}
+		receiveStamp(stamp);
+		handleMessage(peer, stamp, peer.getIp(), message, true);
+	}
+
+	/**
+	 * Moves the clock past a received stamp, and records the stamp if it was too far ahead.
+	 */
+	private void receiveStamp(long stamp) {
+		if (!clock.receive(stamp)) {
+			networkApplication.getMetrics().recordClampedStamp();
+		}
+	}
+
+	/**
+	 * Handles a received message, or a broadcast carried by a {@link RelayControlMessage}.
+	 * @param stamp the stamp the origin sent the message with
+	 * @param origin the ip of the Peer that sent the message first
+	 * @param isRateLimited whether the message still has to pass the rate limit of its type, which relayed messages
+	 *                      already did for their origin
+	 */
+	private void handleMessage(NetworkPeer peer, long stamp, String origin, ByteBuffer message, boolean isRateLimited) {
+		if (!ControlMessage.isControlMessage(message)) {
+			if (isRateLimited && isThrottled(peer.getIp(), MessageType.CHAT.getIdentifier(), MessageType.CHAT.getRateLimit())) {
+				return;
 			}
+			String chatMessage = Utf8.decode(message);
+			laneDispatchers.get(MessageLane.CHAT).dispatch(stamp, origin, MessageType.CHAT.isOrdered(),
+					() -> dispatchChatMessage(peer, chatMessage));
+			return;
+		}
+		ControlMessageArguments args = RECEIVED_ARGUMENTS.get();
+		// Only messages received from a neighbor get relayed, a relay carried by another one is invalid.
+		if (isRateLimited && controlMessageHandler.parseRelayMessage(message, args)) {
+			relayMessage(peer, args);
+			return;
+		}
+		ControlMessage messageType = controlMessageHandler.parseControlMessage(message, args);
+		if (messageType == null) {
+			if (isRateLimited && isThrottled(peer.getIp(), INVALID_MESSAGE_TYPE, MessageType.DEFAULT_RATE_LIMIT)) {
+				return;
+			}
+			String invalidMessage = Utf8.decode(message);
+			laneDispatchers.get(MessageLane.CONTROL).dispatch(stamp, origin, false, () -> {
+				networkApplication.getConsoleHandler().printControlMessage(peer, invalidMessage);
+				throw new RuntimeException("Invalid Control Message Received: " + invalidMessage);
+			});
+			return;
+		}
+		if (isRateLimited && isThrottled(peer.getIp(), messageType.getIdentifier(), messageType.getRateLimit())) {
+			return;
+		}
+		String loggedMessage = messageType.isLogged() ? Utf8.decode(message) : null;
+		LaneDispatcher laneDispatcher = laneDispatchers.get(messageType.getLane());
+		if (laneDispatcher == null) {
+			long start = System.nanoTime();
+			printReceivedControlMessage(peer, loggedMessage);
+			String errorMessage = controlMessageHandler.executeControlMessage(messageType, args);
+			finishControlMessage(messageType, errorMessage, start);
 		} else {
-			networkApplication.getConsoleHandler().printMessage(peer, message);
+			String[] decodedArgs = args.toStrings();
+			laneDispatcher.dispatch(stamp, origin, messageType.isOrdered(), () -> {
+				long start = System.nanoTime();
+				printReceivedControlMessage(peer, loggedMessage);
+				String errorMessage = controlMessageHandler.executeControlMessage(messageType, origin, decodedArgs);
+				finishControlMessage(messageType, errorMessage, start);
+			});
+		}
+	}
+
+	/**
+	 * Takes a token from the rate limit of the message type of a Peer, and records the message if there was none left.
+	 * @param ip the ip of the Peer that sent the message
+	 * @param type the identifier of the type of the message
+	 * @param rateLimit the rate limit of the type, see {@link MessageType#getRateLimit()}
+	 * @return true if the message has to be dropped
+	 */
+	private boolean isThrottled(String ip, String type, int rateLimit) {
+		if (rateLimiter.tryAcquire(ip, type, rateLimit)) {
+			return false;
 		}
+		recordThrottledMessage(ip, type);
+		return true;
+	}
+
+	private void recordThrottledMessage(String ip, String messageType) {
+		PeerMetrics peerMetrics = networkApplication.getMetrics().getPeerMetrics(ip);
+		if (peerMetrics.getThrottledMessages() == 0) {
+			networkApplication.getConsoleHandler().printSystemMessage(
+					"Peer %s sends too many messages, some of them get dropped.".formatted(ip));
+		}
+		peerMetrics.recordThrottledMessage();
+		networkApplication.getMetrics().recordThrottledMessage(messageType);
+	}
+
+	private void printReceivedControlMessage(NetworkPeer peer, String loggedMessage) {
+		if (loggedMessage != null) {
+			networkApplication.getConsoleHandler().printControlMessage(peer, loggedMessage);
+		}
+	}
+
+	private void finishControlMessage(ControlMessage messageType, String errorMessage, long start) {
+		if (errorMessage != null) {
+			throw new RuntimeException("Invalid Control Message Received: " + errorMessage);
+		}
+		networkApplication.getMetrics().recordDispatch(messageType.getIdentifier(), System.nanoTime() - start);
+	}
+
+	private void dispatchChatMessage(NetworkPeer peer, String message) {
+		long start = System.nanoTime();
+		networkApplication.getConsoleHandler().printMessage(peer, message);
+		networkApplication.getMetrics().recordDispatch(MetricsRegistry.CHAT_MESSAGE_TYPE, System.nanoTime() - start);
 	}
 }
@@ -1,26 +1,52 @@
 package application.network;
 
+import application.ApplicationSetting;
 import application.NetworkApplication;
+import application.metrics.PeerMetrics;
+import application.metrics.events.MessageReceivedEvent;
+import application.metrics.events.MessageSentEvent;
+import application.network.buffer.BufferPool;
+import application.network.buffer.PooledBuffer;
+import application.network.buffer.Utf8;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.InetAddress;
-import java.net.Socket;
-import java.util.ArrayList;
-import java.util.List;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class represents a remote user and handles the actual connection to him.
  * It also handles the sending and receiving of Messages.
+ * <p>
+ * All data gets sent from and received into buffers of the {@link BufferPool} of the Network Application.
  */
 public class NetworkPeer {
-	private static final String END_OF_MESSAGE_INDICATOR = "\n";
+	private static final byte END_OF_MESSAGE_INDICATOR = '\n';
+	private static final int SEND_BUFFER_SIZE = 64 * 1024;
 
 	private final NetworkApplication networkApplication;
-	private final Socket socket;
+	private final SocketChannel channel;
+	private final BufferPool bufferPool;
+	private final String ip;
+	/**
+	 * Whether the local application opened this connection, or accepted it.
+	 */
+	private final boolean isOutgoing;
+	private final PeerMetrics metrics;
+	private final LaneScheduler scheduler;
 
-	private boolean isAlive;
+	private volatile boolean isAlive;
+	/**
+	 * Whether the local application is leaving, so the other Peer closing the connection is expected.
+	 */
+	private volatile boolean isLeaving;
+	private Thread receivingThread;
+	private Thread sendingThread;
+	private volatile boolean isLagging;
 
 	/**
 	 * Creates a new Peer by trying to establish a connection to the passed address.
@@ -30,27 +56,84 @@ public class NetworkPeer {
 	 * @throws IOException when no connection could be established
 	 */
 	public NetworkPeer(NetworkApplication networkApplication, InetAddress address, int port) throws IOException {
-		this.networkApplication = networkApplication;
-		socket = new Socket(address, port);
-		isAlive = true;
+		this(networkApplication, openChannel(new InetSocketAddress(address, port), null, 0), true);
+	}
+
+	/**
+	 * Creates a new Peer by trying to establish a connection to the passed address within the passed time.
+	 * @param networkApplication the Network Application this peer belongs to
+	 * @param address the address to connect to
+	 * @param localAddress the local address to connect from, or null to let the system pick one
+	 * @param timeoutMillis how long to wait for the connection, or 0 to wait as long as the system does
+	 * @throws IOException when no connection could be established in time
+	 */
+	public NetworkPeer(NetworkApplication networkApplication, InetSocketAddress address, InetAddress localAddress, int timeoutMillis)
+			throws IOException {
+		this(networkApplication, openChannel(address, localAddress, timeoutMillis), true);
 	}
 
 	/**
-	 * Creates a new Peer associated with the passed socket.
+	 * Creates a new Peer associated with the passed channel.
 	 * @param networkApplication the Network Application this peer belongs to
-	 * @param socket the socket to the other peer
+	 * @param channel the connected channel to the other peer, in blocking mode
 	 */
-	public NetworkPeer(NetworkApplication networkApplication, Socket socket) {
+	public NetworkPeer(NetworkApplication networkApplication, SocketChannel channel) {
+		this(networkApplication, channel, false);
+	}
+
+	private NetworkPeer(NetworkApplication networkApplication, SocketChannel channel, boolean isOutgoing) {
 		this.networkApplication = networkApplication;
-		this.socket = socket;
+		this.channel = channel;
+		this.isOutgoing = isOutgoing;
+		bufferPool = networkApplication.getBufferPool();
+		ip = channel.socket().getInetAddress().getHostAddress();
+		metrics = networkApplication.getMetrics().getPeerMetrics(getIp());
+		scheduler = new LaneScheduler();
 		isAlive = true;
+		limitSendBuffer();
+	}
+
+	private static SocketChannel openChannel(InetSocketAddress address, InetAddress localAddress, int timeoutMillis) throws IOException {
+		SocketChannel channel = SocketChannel.open();
+		try {
+			if (localAddress != null) {
+				channel.bind(new InetSocketAddress(localAddress, 0));
+			}
+			channel.socket().connect(address, timeoutMillis);
+			return channel;
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Keeps the kernel from buffering much more than a few messages. Everything beyond that waits in the
+	 * {@link LaneScheduler}, where inputs can still overtake it and where a lagging Peer gets noticed.
+	 */
+	private void limitSendBuffer() {
+		try {
+			channel.setOption(StandardSocketOptions.SO_SNDBUF, SEND_BUFFER_SIZE);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
 	}
 
 	/**
 	 * Activates this Peer, so it can send and receive messages.
 	 */
 	public void initializePeer() {
-		new Thread(new MessageReceiver()).start();
+		receivingThread = new Thread(new MessageReceiver());
+		receivingThread.start();
+		startSending();
+	}
+
+	/**
+	 * Starts writing the queued messages to this Peer, without receiving anything.
+	 */
+	void startSending() {
+		sendingThread = new Thread(this::sendQueuedMessages);
+		sendingThread.start();
 	}
 
 	/**
@@ -58,24 +141,237 @@ public class NetworkPeer {
 	 */
 	public void disconnectPeer() {
 		isAlive = false;
+		int discarded = scheduler.closeScheduler();
+		for (int i = 0; i < discarded; i++) {
+			metrics.recordFailedSend();
+		}
 		try {
-			socket.close();
+			channel.close();
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
 	}
 
-	public void sendMessage(String message) {
-		if (message.contains(END_OF_MESSAGE_INDICATOR)) {
+	/**
+	 * Starts leaving this Peer in an orderly way: everything queued so far still gets written, followed by the passed
+	 * message, which should tell the Peer to close the connection. Nothing else can be sent to this Peer anymore.
+	 * <p>
+	 * This method does not block, {@link NetworkPeer#awaitDisconnect} waits for the Peer to close the connection.
+	 * @param lastMessage the last message, which this Peer takes over one reference to
+	 * @param type the type of the last message
+	 */
+	void leave(PooledBuffer lastMessage, MessageType type) {
+		isLeaving = true;
+		scheduler.finish(type, lastMessage);
+	}
+
+	/**
+	 * Waits until everything has been written to this Peer after {@link NetworkPeer#leave}, and this Peer has closed
+	 * the connection. The connection gets closed at the deadline at the latest, and all Threads of this Peer have
+	 * finished when this method returns.
+	 * @param deadlineNanos the {@link System#nanoTime()} to stop waiting at
+	 */
+	void awaitDisconnect(long deadlineNanos) {
+		try {
+			joinUntil(sendingThread, deadlineNanos);
+			joinUntil(receivingThread, deadlineNanos);
+			disconnectPeer();
+			// Both Threads notice the closed channel right away.
+			joinUntil(sendingThread, Long.MAX_VALUE);
+			joinUntil(receivingThread, Long.MAX_VALUE);
+		} catch (InterruptedException e) {
+			disconnectPeer();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void joinUntil(Thread thread, long deadlineNanos) throws InterruptedException {
+		if (thread == null) {
+			return;
+		}
+		if (deadlineNanos == Long.MAX_VALUE) {
+			thread.join();
+			return;
+		}
+		long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+		if (remainingMillis > 0) {
+			thread.join(remainingMillis);
+		}
+	}
+
+	/**
+	 * Queues a message for this Peer. The message gets written as soon as the lanes with a higher priority allow it.
+	 * <p>
+	 * If this Peer can not keep up, the message might replace an older one of its type, or get dropped,
+	 * depending on the {@link Delivery} of its type. If even a {@link Delivery#RELIABLE RELIABLE} message can not be
+	 * queued anymore, this Peer gets disconnected. This method never blocks on the connection.
+	 * @param message the message
+	 * @param type the type of the message
+	 */
+	public void sendMessage(String message, MessageType type) {
+		long stamp = networkApplication.getNetworkHandler().getClock().tick();
+		sendMessage(encodeMessage(bufferPool, stamp, message), type);
+	}
+
+	/**
+	 * Queues an already encoded message for this Peer, just like {@link NetworkPeer#sendMessage(String, MessageType)}.
+	 * <p>
+	 * This Peer takes over one reference to the buffer, so a caller that keeps using it has to retain it first.
+	 * @param message the message between position and limit, as encoded by {@link NetworkPeer#encodeMessage}
+	 * @param type the type of the message
+	 */
+	void sendMessage(PooledBuffer message, MessageType type) {
+		metrics.recordSendStarted();
+		switch (scheduler.enqueue(type, message)) {
+			case COALESCED -> metrics.recordCoalescedSend();
+			case DROPPED -> metrics.recordDroppedSend();
+			case OVERFLOWED -> {
+				metrics.recordFailedSend();
+				disconnectOverflowedPeer();
+			}
+			case CLOSED -> metrics.recordFailedSend();
+			case QUEUED -> {
+			}
+		}
+		updateLagging();
+	}
+
+	/**
+	 * Disconnects this Peer, because a message that has to be delivered could not be queued for it anymore.
+	 */
+	private void disconnectOverflowedPeer() {
+		if (!isAlive || isLeaving) {
+			return;
+		}
+		networkApplication.getNetworkHandler().removeNetworkPeer(this);
+		networkApplication.getConsoleHandler().printSystemMessage(
+				"Peer %s has been disconnected, because it could not keep up with the messages sent to it.".formatted(getIp()));
+	}
+
+	/**
+	 * Writes a message as UTF-8 into a pooled buffer, preceded by the stamp of the {@link HybridLogicalClock} and
+	 * followed by the END_OF_MESSAGE_INDICATOR. The same buffer can be sent to any number of Peers.
+	 * @param bufferPool the pool to take the buffer from
+	 * @param stamp the stamp of the message
+	 * @param message the message
+	 * @return the buffer with the encoded message between position and limit, which has to be released by the caller
+	 */
+	static PooledBuffer encodeMessage(BufferPool bufferPool, long stamp, String message) {
+		if (message.indexOf(END_OF_MESSAGE_INDICATOR) >= 0) {
+			throw new IllegalArgumentException("Messages can not contain the END_OF_MESSAGE_INDICATOR!");
+		}
+		PooledBuffer buffer = bufferPool.acquire(HybridLogicalClock.STAMP_LENGTH + Utf8.getEncodedLength(message) + 1);
+		ByteBuffer bytes = buffer.getBuffer();
+		HybridLogicalClock.write(stamp, bytes);
+		Utf8.encode(message, bytes);
+		bytes.put(END_OF_MESSAGE_INDICATOR);
+		bytes.flip();
+		return buffer;
+	}
+
+	/**
+	 * Writes a message into a pooled buffer, just like {@link NetworkPeer#encodeMessage(BufferPool, long, String)},
+	 * but with the end of it already encoded as UTF-8.
+	 * @param bufferPool the pool to take the buffer from
+	 * @param stamp the stamp of the message
+	 * @param start the start of the message
+	 * @param end the rest of the message between position and limit, which stays unchanged
+	 * @return the buffer with the encoded message between position and limit, which has to be released by the caller
+	 */
+	static PooledBuffer encodeMessage(BufferPool bufferPool, long stamp, String start, ByteBuffer end) {
+		if (start.indexOf(END_OF_MESSAGE_INDICATOR) >= 0) {
 			throw new IllegalArgumentException("Messages can not contain the END_OF_MESSAGE_INDICATOR!");
 		}
-		String fullMessage = message + END_OF_MESSAGE_INDICATOR;
+		PooledBuffer buffer = bufferPool.acquire(HybridLogicalClock.STAMP_LENGTH + Utf8.getEncodedLength(start) + end.remaining() + 1);
+		ByteBuffer bytes = buffer.getBuffer();
+		HybridLogicalClock.write(stamp, bytes);
+		Utf8.encode(start, bytes);
+		bytes.put(end.duplicate());
+		bytes.put(END_OF_MESSAGE_INDICATOR);
+		bytes.flip();
+		return buffer;
+	}
+
+	/**
+	 * Notices when this Peer starts or stops lagging behind and lets the user know.
+	 */
+	private void updateLagging() {
+		boolean isLaggingNow = scheduler.isLagging();
+		if (isLaggingNow == isLagging || !changeLagging(isLaggingNow)) {
+			return;
+		}
+		metrics.recordLagging(isLaggingNow);
+		String m = isLaggingNow ? "Peer %s is lagging behind, it only gets the most important messages until it catches up."
+				: "Peer %s has caught up again.";
+		networkApplication.getConsoleHandler().printSystemMessage(m.formatted(getIp()));
+	}
+
+	/**
+	 * Makes sure only one Thread reports a change of the lagging state.
+	 * @return whether the state has been changed by this call
+	 */
+	private synchronized boolean changeLagging(boolean isLaggingNow) {
+		if (isLagging == isLaggingNow) {
+			return false;
+		}
+		isLagging = isLaggingNow;
+		return true;
+	}
+
+	/**
+	 * Writes the queued messages in the order the {@link LaneScheduler} picks them.
+	 * <p>
+	 * Since the buffer of a message might be shared with other Peers, every message gets written straight from a
+	 * duplicate of it, which leaves the shared position and limit untouched.
+	 * <p>
+	 * This method does not return until {@link NetworkPeer#disconnectPeer()} is called, or writing fails!
+	 */
+	private void sendQueuedMessages() {
 		try {
-			OutputStream out = socket.getOutputStream();
-			out.write(fullMessage.getBytes());
-			out.flush();
+			while (true) {
+				LaneScheduler.QueuedMessage message = scheduler.pollNextMessage();
+				if (message == null) {
+					// Everything has been written, so this is when a lagging Peer has caught up.
+					updateLagging();
+					message = scheduler.takeNextMessage();
+					if (message == null) {
+						return;
+					}
+				}
+				updateLagging();
+				try {
+					writeMessage(message);
+				} finally {
+					scheduler.recycleMessage(message);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 		} catch (IOException e) {
-			throw new RuntimeException(e);
+			metrics.recordFailedSend();
+			if (isAlive) {
+				// The receiving Thread notices the broken connection as well, but might be blocked for a while.
+				networkApplication.getNetworkHandler().removeNetworkPeer(this);
+			}
+		}
+	}
+
+	private void writeMessage(LaneScheduler.QueuedMessage message) throws IOException {
+		ByteBuffer bytes = message.getBytes().duplicate();
+		int length = bytes.remaining();
+		MessageSentEvent event = new MessageSentEvent();
+		event.begin();
+		long start = System.nanoTime();
+		metrics.recordQueueTime(message.getLane(), start - message.getEnqueueNanos());
+		while (bytes.hasRemaining()) {
+			channel.write(bytes);
+		}
+		metrics.recordSentMessage(length, System.nanoTime() - start);
+		if (event.shouldCommit()) {
+			event.peer = getIp();
+			event.lane = message.getLane().getLabel();
+			event.bytes = length;
+			event.commit();
 		}
 	}
 
@@ -84,16 +380,26 @@ public class NetworkPeer {
 		return "lol";
 	}
 
+	/**
+	 * Returns whether this Peer currently can not keep up with the messages sent to it.
+	 * @return true while this Peer is lagging
+	 */
+	public boolean isLagging() {
+		return isLagging;
+	}
+
 	public String getIp() {
-		return socket.getInetAddress().getHostAddress();
+		return ip;
+	}
+
+	boolean isOutgoing() {
+		return isOutgoing;
 	}
 
 	/**
 	 * This inner class contains all the Methods for receiving messages and forwarding them to the NetworkHandler.
 	 * <p>
-	 * This class ensures, that only actual full messages, so byte arrays terminated by an END_OF_MESSAGE_INDICATOR,
-	 * get forwarded. That means even multiple messages in a single packet, as well as one message spanning multiple packets,
-	 * all get handled correctly.
+	 * The splitting of the received data into full messages is done by a {@link MessageFramer}.
 	 */
 	private class MessageReceiver implements Runnable {
 		@Override
@@ -107,8 +413,15 @@ public class NetworkPeer {
 		private void receiveMessages() {
 			try {
 				receiveMessagesWithExceptions();
+			} catch (ProtocolException e) {
+				if (isAlive && !isLeaving) {
+					networkApplication.getMetrics().recordOversizedFrame();
+					networkApplication.getNetworkHandler().removeNetworkPeer(NetworkPeer.this);
+					networkApplication.getConsoleHandler().printSystemMessage(
+							"Peer %s has been disconnected, because it sent an invalid message: %s".formatted(getName(), e.getMessage()));
+				}
 			} catch (IOException e) {
-				if (isAlive) {
+				if (isAlive && !isLeaving) {
 					networkApplication.getNetworkHandler().removeNetworkPeer(NetworkPeer.this);
 					throw new RuntimeException("Peer %s seems to have crashed: ".formatted(getName()) + e);
 				}
@@ -117,71 +430,69 @@ public class NetworkPeer {
 
 		/**
 		 * Receives Messages and forwards them to the NetworkHandler via
-		 * {@link NetworkHandler#handleReceivedMessage}.
+		 * {@link NetworkHandler#handleReceivedMessage}. A message that can not be handled gets dropped and counted,
+		 * the following messages still get received.
 		 * <p>
 		 * This method does not return until {@link NetworkPeer#disconnectPeer()} is called,
 		 * in which case an IO Exception will be thrown!
+		 * @throws ProtocolException when the Peer sent a message larger than {@link ApplicationSetting#MAX_FRAME_SIZE},
+		 * or one without a stamp of its {@link HybridLogicalClock}
 		 * @throws IOException when an underlying system threw an exception, or when
 		 * {@link NetworkPeer#disconnectPeer()} has been called.
 		 */
 		private void receiveMessagesWithExceptions() throws IOException {
-			InputStream in = socket.getInputStream();
-			// Since TCP is stream based and not message based we might only receive a partial message or multiple messages at once.
-			List<byte[]> fullMessage = new ArrayList<>();
-			while (isAlive) {
-				boolean hasFullMessage = containsFullMessage(fullMessage);
-				while (!hasFullMessage) {
-					fullMessage.add(receiveDataWithBlock(in));
-					hasFullMessage = containsFullMessage(fullMessage);
+			MessageFramer framer = new MessageFramer(bufferPool, END_OF_MESSAGE_INDICATOR, ApplicationSetting.MAX_FRAME_SIZE.getInt());
+			try {
+				while (isAlive) {
+					MessageReceivedEvent event = new MessageReceivedEvent();
+					event.begin();
+					long frameStart = System.nanoTime();
+					ByteBuffer message = framer.nextMessage();
+					while (message == null) {
+						receiveDataWithBlock(framer.getWritableBuffer());
+						event.begin();
+						frameStart = System.nanoTime();
+						message = framer.nextMessage();
+					}
+					metrics.recordReceivedMessage(System.nanoTime() - frameStart);
+					if (event.shouldCommit()) {
+						event.peer = getIp();
+						event.length = message.remaining();
+						event.commit();
+					}
+					long stamp = HybridLogicalClock.read(message);
+					if (stamp < 0) {
+						throw new ProtocolException("The message does not start with a clock stamp.");
+					}
+					try {
+						networkApplication.getNetworkHandler().handleReceivedMessage(NetworkPeer.this, stamp, message);
+					} catch (RuntimeException e) {
+						// Only the message is lost, the Peer has to keep receiving, or the match would stall on it.
+						networkApplication.getMetrics().recordMalformedMessage();
+						networkApplication.getConsoleHandler().printSystemMessage(
+								"Dropped a message of Peer %s: %s".formatted(getIp(), e.getMessage()));
+					}
 				}
-				forwardFullMessageAndExtractRemainder(fullMessage);
+			} finally {
+				framer.closeFramer();
 			}
 		}
 
-		private byte[] receiveDataWithBlock(InputStream in) throws IOException {
-			// Tries to only read one Byte first, so we block until data arrives. Once that happens we can inquire how much data has arrived.
-			int first = in.read();
+		/**
+		 * Blocks until data arrives and reads as much of it as fits into the passed buffer.
+		 * @param buffer the buffer to read into, starting at its position
+		 */
+		private void receiveDataWithBlock(ByteBuffer buffer) throws IOException {
+			int read = channel.read(buffer);
 
-			if (first == -1) {
-				networkApplication.getNetworkHandler().removeNetworkPeer(NetworkPeer.this);
-				networkApplication.getConsoleHandler().printSystemMessage("Peer %s has disconnected.".formatted(getName()));
+			if (read == -1) {
+				if (!isLeaving) {
+					networkApplication.getNetworkHandler().removeNetworkPeer(NetworkPeer.this);
+					networkApplication.getConsoleHandler().printSystemMessage("Peer %s has disconnected.".formatted(getName()));
+				}
 				throw new IOException("Peer disconnected.");
 			}
-			byte firstByte = (byte) first;
-
-			int numberOfBytesToRead = in.available();
-			byte[] data = new byte[numberOfBytesToRead + 1];
-			data[0] = firstByte;
-			in.readNBytes(data, 1, numberOfBytesToRead);
-			return data;
-		}
-
-		private void forwardFullMessageAndExtractRemainder(List<byte[]> fullMessage) {
-			String last = new String(fullMessage.getLast());
-			String[] split = last.split(END_OF_MESSAGE_INDICATOR, 2);
-
-			fullMessage.set(fullMessage.size() - 1, split[0].getBytes());
-			String message = extractMessage(fullMessage);
-			networkApplication.getNetworkHandler().handleReceivedMessage(NetworkPeer.this, message);
-
-			fullMessage.clear();
-			if (split.length == 2) {
-				// Already contained the beginning of the next message.
-				fullMessage.add(split[1].getBytes());
-			}
-		}
-
-		private boolean containsFullMessage(List<byte[]> message) {
-			// Only checks the last part, since the other parts have been checked previously.
-			return !message.isEmpty() && new String(message.getLast()).contains(END_OF_MESSAGE_INDICATOR);
-		}
-
-		private String extractMessage(List<byte[]> message) {
-			StringBuilder sb = new StringBuilder();
-			for (byte[] array : message) {
-				sb.append(new String(array));
-			}
-			return sb.toString();
+			metrics.recordReceivedData(read);
 		}
 	}
 }
@@ -1,52 +1,78 @@
 package application.network;
 
 import application.NetworkApplication;
+import application.metrics.events.PeerConnectEvent;
 
 import java.io.IOException;
 import java.net.InetAddress;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 
 public class NewConnectionsHandler {
 	private static final int PORT = 7654;
 
 	private final NetworkApplication networkApplication;
 
-	private ServerSocket localServerSocket;
+	private ServerSocketChannel localServerChannel;
+	private Thread thread;
 
 	public NewConnectionsHandler(NetworkApplication networkApplication) {
 		this.networkApplication = networkApplication;
 	}
 
 	/**
-	 * This method can take quite a while to return! Consider calling it asynchronously!
+	 * Establishes a connection to the passed address and adds it as a new Peer.
+	 * <p>
+	 * This method blocks until the connection has been established, or the timeout has passed.
+	 * @param address the address to connect to
+	 * @param timeoutMillis how long to wait for the connection
+	 * @throws IOException when no connection could be established in time
 	 */
-	public void createConnectionTo(InetAddress address) {
-		String message = "Trying to establish a connection with %s ...".formatted(address.getHostAddress());
-		networkApplication.getConsoleHandler().printSystemMessage(message);
-
+	void createConnectionTo(InetAddress address, int timeoutMillis) throws IOException {
 		NetworkPeer networkPeer;
+		PeerConnectEvent event = new PeerConnectEvent();
+		event.begin();
+		event.peer = address.getHostAddress();
 		try {
-			networkPeer = new NetworkPeer(networkApplication, address, PORT);
-		} catch (IOException e) {
-			String m = "Something went wrong when trying to connect to %s. No connection has been established.".formatted(address.getHostAddress());
-			networkApplication.getConsoleHandler().printSystemMessage(m);
-			return;
+			InetAddress localAddress = networkApplication.getNetworkHandler().getSourceAddress();
+			networkPeer = new NetworkPeer(networkApplication, new InetSocketAddress(address, PORT), localAddress, timeoutMillis);
+			event.successful = true;
+		} finally {
+			event.commit();
 		}
-		networkApplication.getConsoleHandler().printSystemMessage("Successfully connected to %s.".formatted(networkPeer.getIp()));
 		networkApplication.getNetworkHandler().addNewNetworkPeer(networkPeer);
 	}
 
 	public void closeNewConnectionsHandler() {
+		if (localServerChannel == null) {
+			return;
+		}
 		try {
-			localServerSocket.close();
+			localServerChannel.close();
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
 	}
 
 	public void startListeningForIncomingConnections() {
-		new Thread(this::listenForIncomingConnections).start();
+		thread = new Thread(this::listenForIncomingConnections);
+		thread.start();
+	}
+
+	/**
+	 * Closes this New Connections Handler and waits for the listening Thread to finish.
+	 */
+	public void stopListeningForIncomingConnections() {
+		closeNewConnectionsHandler();
+		if (thread == null) {
+			return;
+		}
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
 	}
 
 	/**
@@ -71,15 +97,23 @@ public class NewConnectionsHandler {
 	 * {@link NewConnectionsHandler#closeNewConnectionsHandler()} has been called.
 	 */
 	private void listenForIncomingConnectionsWithExceptions() throws IOException {
-		localServerSocket = new ServerSocket(PORT);
+		InetAddress localAddress = networkApplication.getNetworkHandler().getBindAddress();
+		localServerChannel = ServerSocketChannel.open().bind(new InetSocketAddress(localAddress, PORT));
 		while (networkApplication.isRunning()) {
-			Socket newPeerSocket = localServerSocket.accept();
-			NetworkPeer newPeer = new NetworkPeer(networkApplication, newPeerSocket);
-			if (!networkApplication.getNetworkHandler().hasConnectionTo(newPeer.getIp())) {
+			SocketChannel newPeerChannel = localServerChannel.accept();
+			NetworkPeer newPeer = new NetworkPeer(networkApplication, newPeerChannel);
+			boolean isNewPeer = !networkApplication.getNetworkHandler().hasConnectionTo(newPeer.getIp());
+			boolean isAdded = networkApplication.getNetworkHandler().addNewNetworkPeer(newPeer);
+
+			PeerConnectEvent event = new PeerConnectEvent();
+			if (event.shouldCommit()) {
+				event.peer = newPeer.getIp();
+				event.incoming = true;
+				event.successful = isAdded;
+				event.commit();
+			}
+			if (isAdded && isNewPeer) {
 				networkApplication.getConsoleHandler().printSystemMessage("New Peer at %s has joined the lobby.".formatted(newPeer.getIp()));
-				networkApplication.getNetworkHandler().addNewNetworkPeer(newPeer);
-			} else {
-				newPeer.disconnectPeer();
 			}
 		}
 	}
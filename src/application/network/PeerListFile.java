@@ -0,0 +1,82 @@
+package application.network;
+
+import application.ApplicationSetting;
+import application.NetworkApplication;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * This class remembers the Peers of the last session in the file configured in {@link ApplicationSetting#PEER_LIST_FILE},
+ * with one ip per line, so the next start can reconnect to all of them right away instead of waiting for a discovery.
+ */
+class PeerListFile {
+	private final NetworkApplication networkApplication;
+	/**
+	 * The file, or null if the Peers should not be remembered.
+	 */
+	private final Path file;
+
+	PeerListFile(NetworkApplication networkApplication) {
+		this.networkApplication = networkApplication;
+		String fileName = ApplicationSetting.PEER_LIST_FILE.get();
+		file = fileName == null || fileName.isBlank() ? null : Path.of(fileName);
+	}
+
+	/**
+	 * Reads the Peers of the last session. Lines that are not a valid ip get skipped.
+	 * @return the addresses of the Peers, which is empty if there is no file yet
+	 */
+	List<InetAddress> loadPeers() {
+		List<InetAddress> addresses = new ArrayList<>();
+		if (file == null) {
+			return addresses;
+		}
+		List<String> lines;
+		try {
+			lines = Files.readAllLines(file);
+		} catch (NoSuchFileException e) {
+			// This is the first start.
+			return addresses;
+		} catch (IOException e) {
+			networkApplication.getConsoleHandler().printSystemMessage("Could not read the saved Peers: " + e);
+			return addresses;
+		}
+		for (String line : lines) {
+			if (line.isBlank()) {
+				continue;
+			}
+			try {
+				addresses.add(InetAddress.getByName(line.strip()));
+			} catch (UnknownHostException e) {
+				networkApplication.getConsoleHandler().printSystemMessage("Skipped the invalid saved Peer \"%s\".".formatted(line));
+			}
+		}
+		return addresses;
+	}
+
+	/**
+	 * Replaces the saved Peers. The file gets replaced atomically, so a crash while saving never loses the last list.
+	 * @param ips the ips of the Peers
+	 */
+	synchronized void savePeers(Collection<String> ips) {
+		if (file == null) {
+			return;
+		}
+		try {
+			Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+			Files.write(temporaryFile, ips);
+			Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			networkApplication.getConsoleHandler().printSystemMessage("Could not save the Peers: " + e);
+		}
+	}
+}
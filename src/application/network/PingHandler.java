@@ -0,0 +1,56 @@
+package application.network;
+
+import application.NetworkApplication;
+import application.command.control.PingControlMessage;
+
+/**
+ * This class periodically pings all connected Peers, so the round trip time to every Peer is always known.
+ * The answers get handled by the {@link application.command.control.PongControlMessage PongControlMessage}.
+ */
+public class PingHandler {
+	private static final int PING_INTERVAL_MILLIS = 1000;
+
+	private final NetworkApplication networkApplication;
+
+	private Thread thread;
+
+	public PingHandler(NetworkApplication networkApplication) {
+		this.networkApplication = networkApplication;
+	}
+
+	public void startPinging() {
+		thread = new Thread(this::pingPeriodically);
+		thread.start();
+	}
+
+	/**
+	 * Stops pinging and waits for the pinging Thread to finish.
+	 */
+	public void stopPinging() {
+		if (thread == null) {
+			return;
+		}
+		thread.interrupt();
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * This method does not return until the application has been closed!
+	 */
+	private void pingPeriodically() {
+		PingControlMessage ping = new PingControlMessage();
+		while (networkApplication.isRunning()) {
+			try {
+				Thread.sleep(PING_INTERVAL_MILLIS);
+			} catch (InterruptedException e) {
+				return;
+			}
+			String localIP = networkApplication.getNetworkHandler().getLocalIP();
+			networkApplication.getNetworkHandler().sendControlMessage(null, ping, localIP, Long.toString(System.nanoTime()));
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package application.network;
+
+import application.ApplicationSetting;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class limits how many messages every Peer may send, so a single misbehaving Peer can not flood the others.
+ * <p>
+ * Every Peer gets a token bucket for all messages it sends over its connection, which allows
+ * {@link ApplicationSetting#RATE_LIMIT} messages per second, and one for every {@link MessageType}, which usually allows
+ * {@link MessageType#getRateLimit()} messages per second. Every bucket holds the tokens of one second, so short bursts
+ * are fine. Broadcasts relayed in a {@link Topology#PARTIAL_MESH} count towards the buckets of the type of their origin,
+ * not of the neighbor that relayed them.
+ */
+public class RateLimiter {
+	private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+	private final int messagesPerSecond;
+	private final Map<String, PeerBuckets> buckets;
+
+	public RateLimiter() {
+		messagesPerSecond = ApplicationSetting.RATE_LIMIT.getInt();
+		buckets = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Takes a token for a message received over the connection to a Peer.
+	 * @param ip the ip of the Peer
+	 * @return true if the message may be handled, false if it has to be dropped
+	 */
+	boolean tryAcquireMessage(String ip) {
+		if (messagesPerSecond <= 0) {
+			return true;
+		}
+		return getBuckets(ip).total.tryTake();
+	}
+
+	/**
+	 * Takes a token for a message of a certain type sent by a Peer.
+	 * @param ip the ip of the Peer that sent the message, which is the origin for relayed broadcasts
+	 * @param type the identifier of the type of the message
+	 * @param rateLimit the number of messages of the type the Peer may send per second, or 0 for no limit
+	 * @return true if the message may be handled, false if it has to be dropped
+	 */
+	boolean tryAcquire(String ip, String type, int rateLimit) {
+		if (rateLimit <= 0) {
+			return true;
+		}
+		return getBuckets(ip).byType.computeIfAbsent(type, t -> new TokenBucket(rateLimit)).tryTake();
+	}
+
+	/**
+	 * Forgets the buckets of a Peer that has left.
+	 * @param ip the ip of the Peer
+	 */
+	void removePeer(String ip) {
+		buckets.remove(ip);
+	}
+
+	private PeerBuckets getBuckets(String ip) {
+		PeerBuckets peerBuckets = buckets.get(ip);
+		if (peerBuckets == null) {
+			peerBuckets = buckets.computeIfAbsent(ip, i -> new PeerBuckets(messagesPerSecond));
+		}
+		return peerBuckets;
+	}
+
+	private static class PeerBuckets {
+		private final TokenBucket total;
+		private final Map<String, TokenBucket> byType;
+
+		PeerBuckets(int messagesPerSecond) {
+			total = new TokenBucket(Math.max(1, messagesPerSecond));
+			byType = new ConcurrentHashMap<>();
+		}
+	}
+
+	/**
+	 * A bucket that holds up to one second of tokens and refills continuously.
+	 */
+	private static class TokenBucket {
+		private final int tokensPerSecond;
+		/**
+		 * The tokens in the bucket, scaled by {@link RateLimiter#NANOS_PER_SECOND}, so refilling needs no division.
+		 */
+		private long scaledTokens;
+		private long lastRefillNanos;
+
+		TokenBucket(int tokensPerSecond) {
+			this.tokensPerSecond = tokensPerSecond;
+			scaledTokens = tokensPerSecond * NANOS_PER_SECOND;
+			lastRefillNanos = System.nanoTime();
+		}
+
+		synchronized boolean tryTake() {
+			long now = System.nanoTime();
+			long capacity = tokensPerSecond * NANOS_PER_SECOND;
+			// Capping the elapsed time keeps the multiplication from overflowing after a long pause.
+			long elapsedNanos = Math.min(now - lastRefillNanos, NANOS_PER_SECOND);
+			scaledTokens = Math.min(capacity, scaledTokens + elapsedNanos * tokensPerSecond);
+			lastRefillNanos = now;
+			if (scaledTokens < NANOS_PER_SECOND) {
+				return false;
+			}
+			scaledTokens -= NANOS_PER_SECOND;
+			return true;
+		}
+	}
+}
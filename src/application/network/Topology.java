@@ -0,0 +1,41 @@
+package application.network;
+
+import application.ApplicationSetting;
+
+/**
+ * How the Peers of a lobby are connected to each other.
+ */
+public enum Topology {
+	/**
+	 * Every Peer is connected to every other Peer, so every message reaches its receivers directly.
+	 * This needs a connection per pair of Peers, and every broadcast gets uploaded once per Peer.
+	 */
+	FULL_MESH("full"),
+	/**
+	 * Every Peer connects to a few random Peers of the lobby, its neighbors. Broadcasts get relayed by the neighbors
+	 * until they reached everyone, so every Peer only uploads every broadcast once per neighbor.
+	 * A lobby with no more Peers than {@link ApplicationSetting#TOPOLOGY_NEIGHBORS} plus one is a full mesh anyway.
+	 */
+	PARTIAL_MESH("partial");
+
+	private final String name;
+
+	Topology(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Returns the topology selected by {@link ApplicationSetting#TOPOLOGY}.
+	 * @return the topology
+	 * @throws IllegalStateException when the Setting does not name a topology
+	 */
+	public static Topology fromSetting() {
+		String value = ApplicationSetting.TOPOLOGY.get();
+		for (Topology topology : values()) {
+			if (topology.name.equalsIgnoreCase(value)) {
+				return topology;
+			}
+		}
+		throw new IllegalStateException("The topology has to be \"full\" or \"partial\", but was \"%s\"!".formatted(value));
+	}
+}
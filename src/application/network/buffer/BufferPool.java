@@ -0,0 +1,229 @@
+package application.network.buffer;
+
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * This class hands out the direct ByteBuffers used for all network I/O and takes them back once they have been
+ * released, so steady-state networking does not allocate.
+ * <p>
+ * Buffers come in a few size classes, every request gets a buffer of the smallest class it fits in. Requests larger
+ * than the largest class get a heap buffer of their own, which is left to the garbage collector after its release.
+ * Allocating direct memory is much slower, and only pays off when the buffer gets reused.
+ * <p>
+ * Every Thread keeps a small cache of free buffers per size class, which it uses without any synchronization.
+ * Only when its cache runs empty or full, half a cache worth of buffers gets moved from or to the shared free list
+ * of the size class. That is what happens between a Thread that only acquires buffers, like the one running the match,
+ * and a Thread that only releases them, like the one writing to a Peer.
+ * <p>
+ * With leak detection enabled, every acquired buffer remembers where it has been acquired. If it becomes unreachable
+ * without having been released, that place gets reported. This is too slow for normal use, so it is meant for debugging.
+ */
+public final class BufferPool {
+	private static final int[] SIZE_CLASSES = { 256, 1024, 4 * 1024, 16 * 1024, 64 * 1024 };
+	private static final int THREAD_CACHE_CAPACITY = 32;
+	private static final int MAX_SHARED_BUFFERS_PER_CLASS = 1024;
+
+	private final boolean isLeakDetectionEnabled;
+	private final Consumer<String> leakReporter;
+	private final Cleaner cleaner;
+	private final List<ArrayDeque<PooledBuffer>> sharedBuffers;
+	private final ThreadLocal<ThreadCache> threadCaches;
+	private final LongAdder allocatedBuffers;
+	private final LongAdder acquiredBuffers;
+	private final LongAdder releasedBuffers;
+	private final LongAdder leakedBuffers;
+
+	/**
+	 * @param isLeakDetectionEnabled whether buffers that never get released should be reported
+	 * @param leakReporter receives the reports about leaked buffers
+	 */
+	public BufferPool(boolean isLeakDetectionEnabled, Consumer<String> leakReporter) {
+		this.isLeakDetectionEnabled = isLeakDetectionEnabled;
+		this.leakReporter = leakReporter;
+		cleaner = isLeakDetectionEnabled ? Cleaner.create() : null;
+		sharedBuffers = new ArrayList<>();
+		for (int i = 0; i < SIZE_CLASSES.length; i++) {
+			sharedBuffers.add(new ArrayDeque<>());
+		}
+		threadCaches = ThreadLocal.withInitial(ThreadCache::new);
+		allocatedBuffers = new LongAdder();
+		acquiredBuffers = new LongAdder();
+		releasedBuffers = new LongAdder();
+		leakedBuffers = new LongAdder();
+	}
+
+	/**
+	 * Hands out a cleared buffer with a reference count of one. It has to be released exactly once by its owner,
+	 * plus once more for every {@link PooledBuffer#retain()}.
+	 * @param minimumCapacity the number of bytes the buffer has to hold at least
+	 * @return the buffer
+	 */
+	public PooledBuffer acquire(int minimumCapacity) {
+		int sizeClass = getSizeClass(minimumCapacity);
+		PooledBuffer buffer = null;
+		if (sizeClass >= 0) {
+			buffer = threadCaches.get().poll(sizeClass);
+		}
+		if (buffer == null) {
+			ByteBuffer bytes = sizeClass >= 0 ? ByteBuffer.allocateDirect(SIZE_CLASSES[sizeClass]) : ByteBuffer.allocate(minimumCapacity);
+			buffer = new PooledBuffer(this, bytes, sizeClass);
+			allocatedBuffers.increment();
+		}
+		buffer.activate(isLeakDetectionEnabled ? trackLeaks(buffer) : null);
+		acquiredBuffers.increment();
+		return buffer;
+	}
+
+	/**
+	 * Takes back a buffer whose reference count has dropped to zero.
+	 * @param buffer the buffer
+	 */
+	void recycle(PooledBuffer buffer) {
+		releasedBuffers.increment();
+		if (buffer.getSizeClass() >= 0) {
+			threadCaches.get().offer(buffer);
+		}
+	}
+
+	private static int getSizeClass(int capacity) {
+		for (int i = 0; i < SIZE_CLASSES.length; i++) {
+			if (capacity <= SIZE_CLASSES[i]) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private LeakTracker trackLeaks(PooledBuffer buffer) {
+		LeakTracker tracker = new LeakTracker(this, new Throwable("The buffer has been acquired here"));
+		tracker.cleanable = cleaner.register(buffer, tracker);
+		return tracker;
+	}
+
+	private void reportLeak(Throwable acquisition) {
+		leakedBuffers.increment();
+		StringBuilder sb = new StringBuilder("A network buffer has been garbage collected without having been released!");
+		for (StackTraceElement element : acquisition.getStackTrace()) {
+			if (!element.getClassName().equals(BufferPool.class.getName())) {
+				sb.append("\n\tat ").append(element);
+			}
+		}
+		leakReporter.accept(sb.toString());
+	}
+
+	/**
+	 * Returns how many buffers this pool had to allocate so far. In steady state, this number stops growing.
+	 * @return the number of allocated buffers
+	 */
+	public long getAllocatedBuffers() {
+		return allocatedBuffers.sum();
+	}
+
+	/**
+	 * Returns how many buffers are currently acquired and not released yet.
+	 * @return the number of buffers in use
+	 */
+	public long getBuffersInUse() {
+		return acquiredBuffers.sum() - releasedBuffers.sum() - leakedBuffers.sum();
+	}
+
+	/**
+	 * Returns how many leaked buffers have been reported. Always 0 without leak detection.
+	 * @return the number of leaked buffers
+	 */
+	public long getLeakedBuffers() {
+		return leakedBuffers.sum();
+	}
+
+	/**
+	 * The free buffers of a single Thread. Only ever used by its own Thread, so it needs no synchronization.
+	 */
+	private class ThreadCache {
+		private final PooledBuffer[][] buffers;
+		private final int[] sizes;
+
+		private ThreadCache() {
+			buffers = new PooledBuffer[SIZE_CLASSES.length][THREAD_CACHE_CAPACITY];
+			sizes = new int[SIZE_CLASSES.length];
+		}
+
+		private PooledBuffer poll(int sizeClass) {
+			if (sizes[sizeClass] == 0) {
+				takeFromShared(sizeClass);
+				if (sizes[sizeClass] == 0) {
+					return null;
+				}
+			}
+			PooledBuffer[] cache = buffers[sizeClass];
+			PooledBuffer buffer = cache[--sizes[sizeClass]];
+			cache[sizes[sizeClass]] = null;
+			return buffer;
+		}
+
+		private void offer(PooledBuffer buffer) {
+			int sizeClass = buffer.getSizeClass();
+			if (sizes[sizeClass] == THREAD_CACHE_CAPACITY) {
+				moveToShared(sizeClass);
+			}
+			buffers[sizeClass][sizes[sizeClass]++] = buffer;
+		}
+
+		private void takeFromShared(int sizeClass) {
+			ArrayDeque<PooledBuffer> shared = sharedBuffers.get(sizeClass);
+			synchronized (shared) {
+				while (sizes[sizeClass] < THREAD_CACHE_CAPACITY / 2 && !shared.isEmpty()) {
+					buffers[sizeClass][sizes[sizeClass]++] = shared.poll();
+				}
+			}
+		}
+
+		private void moveToShared(int sizeClass) {
+			ArrayDeque<PooledBuffer> shared = sharedBuffers.get(sizeClass);
+			PooledBuffer[] cache = buffers[sizeClass];
+			synchronized (shared) {
+				while (sizes[sizeClass] > THREAD_CACHE_CAPACITY / 2) {
+					PooledBuffer buffer = cache[--sizes[sizeClass]];
+					cache[sizes[sizeClass]] = null;
+					// Beyond this, the buffers are left to the garbage collector, so a burst does not pin its memory forever.
+					if (shared.size() < MAX_SHARED_BUFFERS_PER_CLASS) {
+						shared.add(buffer);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Remembers where a buffer has been acquired. Runs when the buffer became unreachable, or when it gets released.
+	 * It must not reference the buffer itself, otherwise the buffer would never become unreachable.
+	 */
+	static final class LeakTracker implements Runnable {
+		private final BufferPool pool;
+		private final Throwable acquisition;
+		private Cleaner.Cleanable cleanable;
+		private volatile boolean isReleased;
+
+		private LeakTracker(BufferPool pool, Throwable acquisition) {
+			this.pool = pool;
+			this.acquisition = acquisition;
+		}
+
+		void markReleased() {
+			isReleased = true;
+			cleanable.clean();
+		}
+
+		@Override
+		public void run() {
+			if (!isReleased) {
+				pool.reportLeak(acquisition);
+			}
+		}
+	}
+}
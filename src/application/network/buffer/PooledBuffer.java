@@ -0,0 +1,80 @@
+package application.network.buffer;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A ByteBuffer handed out by a {@link BufferPool}. It is direct, unless it is too large to be pooled.
+ * <p>
+ * The buffer is reference counted, so the same bytes can be shared, for example by all Peers a message gets broadcast to.
+ * Everyone who keeps the buffer after passing it on has to {@link PooledBuffer#retain()} it first, and everyone who is
+ * done with it has to {@link PooledBuffer#release()} it. Once the count drops to zero the buffer goes back to the pool,
+ * so it must not be touched anymore afterwards.
+ */
+public final class PooledBuffer {
+	private final BufferPool pool;
+	private final ByteBuffer buffer;
+	private final int sizeClass;
+	private final AtomicInteger referenceCount;
+
+	private BufferPool.LeakTracker leakTracker;
+
+	PooledBuffer(BufferPool pool, ByteBuffer buffer, int sizeClass) {
+		this.pool = pool;
+		this.buffer = buffer;
+		this.sizeClass = sizeClass;
+		referenceCount = new AtomicInteger();
+	}
+
+	void activate(BufferPool.LeakTracker leakTracker) {
+		this.leakTracker = leakTracker;
+		buffer.clear();
+		referenceCount.set(1);
+	}
+
+	int getSizeClass() {
+		return sizeClass;
+	}
+
+	/**
+	 * Returns the actual buffer. Its position and limit belong to whoever owns the buffer, shared owners should only
+	 * read it with absolute methods or through a duplicate.
+	 * @return the buffer
+	 */
+	public ByteBuffer getBuffer() {
+		return buffer;
+	}
+
+	/**
+	 * Adds another reference to this buffer, which has to be released separately.
+	 * @return this buffer
+	 * @throws IllegalStateException when this buffer has already been released completely
+	 */
+	public PooledBuffer retain() {
+		if (referenceCount.getAndIncrement() <= 0) {
+			referenceCount.decrementAndGet();
+			throw new IllegalStateException("Can not retain a buffer that has already been released!");
+		}
+		return this;
+	}
+
+	/**
+	 * Removes a reference from this buffer and gives it back to its pool once no reference is left.
+	 * @throws IllegalStateException when this buffer has already been released completely
+	 */
+	public void release() {
+		int remaining = referenceCount.decrementAndGet();
+		if (remaining > 0) {
+			return;
+		}
+		if (remaining < 0) {
+			referenceCount.incrementAndGet();
+			throw new IllegalStateException("Can not release a buffer that has already been released!");
+		}
+		if (leakTracker != null) {
+			leakTracker.markReleased();
+			leakTracker = null;
+		}
+		pool.recycle(this);
+	}
+}
@@ -0,0 +1,114 @@
+package application.network.buffer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class writes text as UTF-8 straight into ByteBuffers, without the intermediate byte arrays of
+ * {@link String#getBytes}. Just like {@link String#getBytes}, it writes a '?' for every lone surrogate.
+ * <p>
+ * It also decodes UTF-8 from ByteBuffers. Messages are only ever split at the END_OF_MESSAGE_INDICATOR, which never
+ * occurs inside a multi-byte sequence, so a complete message can always be decoded on its own.
+ */
+public final class Utf8 {
+	private static final byte REPLACEMENT = '?';
+	private static final int MAX_BYTES_PER_CHAR = 4;
+	private static final int STAGING_BUFFER_SIZE = 4 * 1024;
+	private static final ThreadLocal<byte[]> STAGING_BUFFER = ThreadLocal.withInitial(() -> new byte[STAGING_BUFFER_SIZE]);
+
+	private Utf8() {
+	}
+
+	/**
+	 * Returns how many bytes the passed text takes up as UTF-8.
+	 * @param text the text
+	 * @return the number of bytes {@link Utf8#encode} writes for the text
+	 */
+	public static int getEncodedLength(CharSequence text) {
+		int length = text.length();
+		int bytes = length;
+		for (int i = 0; i < length; i++) {
+			char c = text.charAt(i);
+			if (c < 0x80) {
+				continue;
+			}
+			if (c < 0x800) {
+				bytes += 1;
+			} else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+				// Two chars become four bytes.
+				bytes += 2;
+				i++;
+			} else if (Character.isSurrogate(c)) {
+				// Stays a single replacement byte.
+			} else {
+				bytes += 2;
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * Writes the passed text as UTF-8 at the position of the buffer and advances it.
+	 * <p>
+	 * The bytes get written into an array of the calling Thread first and copied into the buffer in bulk,
+	 * since single puts into a direct buffer cost several times as much as array stores.
+	 * @param text the text
+	 * @param buffer the buffer, which has to have at least {@link Utf8#getEncodedLength} bytes remaining
+	 */
+	public static void encode(CharSequence text, ByteBuffer buffer) {
+		byte[] staging = STAGING_BUFFER.get();
+		int length = text.length();
+		int staged = 0;
+		for (int i = 0; i < length; i++) {
+			if (staged > STAGING_BUFFER_SIZE - MAX_BYTES_PER_CHAR) {
+				buffer.put(staging, 0, staged);
+				staged = 0;
+			}
+			char c = text.charAt(i);
+			if (c < 0x80) {
+				staging[staged++] = (byte) c;
+			} else if (c < 0x800) {
+				staging[staged++] = (byte) (0xC0 | c >> 6);
+				staging[staged++] = (byte) (0x80 | c & 0x3F);
+			} else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+				int codePoint = Character.toCodePoint(c, text.charAt(++i));
+				staging[staged++] = (byte) (0xF0 | codePoint >> 18);
+				staging[staged++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+				staging[staged++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+				staging[staged++] = (byte) (0x80 | codePoint & 0x3F);
+			} else if (Character.isSurrogate(c)) {
+				staging[staged++] = REPLACEMENT;
+			} else {
+				staging[staged++] = (byte) (0xE0 | c >> 12);
+				staging[staged++] = (byte) (0x80 | c >> 6 & 0x3F);
+				staging[staged++] = (byte) (0x80 | c & 0x3F);
+			}
+		}
+		buffer.put(staging, 0, staged);
+	}
+
+	/**
+	 * Decodes the bytes between position and limit of the passed buffer, without changing its position.
+	 * Malformed input gets replaced by U+FFFD.
+	 * @param buffer the buffer
+	 * @return the text
+	 */
+	public static String decode(ByteBuffer buffer) {
+		return decode(buffer, buffer.position(), buffer.limit());
+	}
+
+	/**
+	 * Decodes the bytes of the passed buffer between the passed indices, without changing its position.
+	 * Malformed input gets replaced by U+FFFD.
+	 * @param buffer the buffer
+	 * @param start the index of the first byte
+	 * @param end the index after the last byte
+	 * @return the text
+	 */
+	public static String decode(ByteBuffer buffer, int start, int end) {
+		byte[] bytes = new byte[end - start];
+		buffer.get(start, bytes);
+		// The String constructor has a fast path for ASCII, which all Control Messages are.
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,167 @@
+package application.snake;
+
+import application.NetworkApplication;
+import application.command.control.ChunkHashControlMessage;
+import application.command.control.SubscribeControlMessage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * This class handles the chunk based verification traffic of a {@link SnakeMatch}.
+ * <p>
+ * Every participant subscribes to the chunks around its own Snake. After every tick, each participant sends the hash
+ * of the chunk its head is in only to the participants that subscribed to that chunk. That way everybody verifies its
+ * own surroundings every tick, while the traffic of every peer only grows with the number of Snakes nearby.
+ * The whole board is still verified by the low rate state hashes of the {@link SnakeMatch}.
+ * <p>
+ * In a {@link application.network.Topology#PARTIAL_MESH}, the chunk hashes only get exchanged with the neighbors, the
+ * Snakes of all other participants are only verified by the state hashes.
+ * <p>
+ * The inputs themselves still have to reach everyone, since every peer simulates the whole board.
+ */
+public class AreaOfInterest {
+	public static final int CHUNK_SIZE = 10;
+	private static final int RADIUS_IN_CHUNKS = 1;
+	private static final int SUBSCRIPTION_UPDATE_INTERVAL = 5;
+	private static final int HISTORY_TICKS = 16;
+
+	private final NetworkApplication networkApplication;
+	private final int matchId;
+	private final List<String> participants;
+	private final int localPlayer;
+	private final ChunkPartition partition;
+	/**
+	 * Contains the chunk hashes of the last {@link AreaOfInterest#HISTORY_TICKS} ticks, indexed by the tick modulo the history size.
+	 */
+	private final long[][] chunkHashHistory;
+	private final int[] historyTicks;
+	private final List<ChunkHash> earlyChunkHashes;
+
+	private BitSet subscribedChunks;
+	private int latestTick;
+	private boolean hasDesynced;
+
+	public AreaOfInterest(NetworkApplication networkApplication, int matchId, List<String> participants, int localPlayer, SnakeGame game) {
+		this.networkApplication = networkApplication;
+		this.matchId = matchId;
+		this.participants = participants;
+		this.localPlayer = localPlayer;
+		partition = new ChunkPartition(game.getWidth(), game.getHeight(), CHUNK_SIZE);
+		chunkHashHistory = new long[HISTORY_TICKS][partition.getNumberOfChunks()];
+		historyTicks = new int[HISTORY_TICKS];
+		Arrays.fill(historyTicks, -1);
+		earlyChunkHashes = new ArrayList<>();
+		subscribedChunks = new BitSet();
+		latestTick = -1;
+	}
+
+	/**
+	 * Should be called by the tick loop after every tick.
+	 * @param game the Game, which has just been advanced
+	 */
+	public void afterTick(SnakeGame game) {
+		int tick = game.getTick();
+		int slot = tick % HISTORY_TICKS;
+		synchronized (this) {
+			partition.computeChunkHashes(game, chunkHashHistory[slot]);
+			historyTicks[slot] = tick;
+			latestTick = tick;
+			checkEarlyChunkHashes(tick);
+		}
+
+		Snake snake = game.getSnake(localPlayer);
+		if (!snake.isAlive()) {
+			return;
+		}
+		int headChunk = partition.getChunk(snake.getHead());
+		String hash = Long.toHexString(chunkHashHistory[slot][headChunk]);
+		networkApplication.getNetworkHandler().sendControlMessageToChunk(matchId, headChunk, new ChunkHashControlMessage(),
+				Integer.toString(matchId), Integer.toString(localPlayer), Integer.toString(tick), Integer.toString(headChunk), hash);
+		if (tick % SUBSCRIPTION_UPDATE_INTERVAL == 0) {
+			updateSubscriptions(game);
+		}
+	}
+
+	/**
+	 * Subscribes to the chunks around the local Snake, if they have changed since the last subscription.
+	 * @param game the Game
+	 */
+	public void updateSubscriptions(SnakeGame game) {
+		BitSet chunks = partition.getChunksAround(game.getSnake(localPlayer).getHead(), RADIUS_IN_CHUNKS);
+		if (chunks.equals(subscribedChunks)) {
+			return;
+		}
+		subscribedChunks = chunks;
+		networkApplication.getNetworkHandler().sendControlMessage(null, new SubscribeControlMessage(matchId),
+				Integer.toString(matchId), SubscribeControlMessage.encodeChunks(chunks));
+	}
+
+	/**
+	 * Returns the number of chunks the board of the match is split into.
+	 * @return the number of chunks
+	 */
+	public int getNumberOfChunks() {
+		return partition.getNumberOfChunks();
+	}
+
+	/**
+	 * Compares the hash another player computed for a chunk with the local one.
+	 * Should be called whenever a chunk hash arrives from the network.
+	 * <p>
+	 * Hashes only get accepted from the Peer of the player, for chunks of the board, and for ticks that are at most
+	 * {@link AreaOfInterest#HISTORY_TICKS} ahead of the latest local tick, so a Peer can not fill the buffer of early
+	 * hashes with ticks that are far off.
+	 * @param sender the ip of the Peer the hash came from
+	 * @param player the index of the player
+	 * @param tick the tick the hash belongs to
+	 * @param chunk the chunk
+	 * @param hash the hash of the player
+	 */
+	public synchronized void submitChunkHash(String sender, int player, int tick, int chunk, long hash) {
+		if (player < 0 || player >= participants.size() || player == localPlayer || !participants.get(player).equals(sender)) {
+			return;
+		}
+		if (tick < 0 || chunk < 0 || chunk >= partition.getNumberOfChunks()) {
+			return;
+		}
+		int slot = tick % HISTORY_TICKS;
+		if (historyTicks[slot] == tick) {
+			compareChunkHashes(player, tick, chunk, chunkHashHistory[slot][chunk], hash);
+		} else if (tick > latestTick && tick - latestTick <= HISTORY_TICKS) {
+			earlyChunkHashes.add(new ChunkHash(player, tick, chunk, hash));
+		}
+	}
+
+	private void checkEarlyChunkHashes(int tick) {
+		Iterator<ChunkHash> iterator = earlyChunkHashes.iterator();
+		while (iterator.hasNext()) {
+			ChunkHash chunkHash = iterator.next();
+			if (chunkHash.tick() == tick) {
+				long localHash = chunkHashHistory[tick % HISTORY_TICKS][chunkHash.chunk()];
+				compareChunkHashes(chunkHash.player(), tick, chunkHash.chunk(), localHash, chunkHash.hash());
+			}
+			if (chunkHash.tick() <= tick) {
+				iterator.remove();
+			}
+		}
+	}
+
+	private void compareChunkHashes(int player, int tick, int chunk, long localHash, long remoteHash) {
+		if (localHash == remoteHash) {
+			return;
+		}
+		networkApplication.getMetrics().recordDesync();
+		if (!hasDesynced) {
+			hasDesynced = true;
+			String m = "Your game has desynced from %s in chunk %d at tick %d! Check the replay log of this match.";
+			networkApplication.getConsoleHandler().printSystemMessage(m.formatted(participants.get(player), chunk, tick));
+		}
+	}
+
+	private record ChunkHash(int player, int tick, int chunk, long hash) {
+	}
+}
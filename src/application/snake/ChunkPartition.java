@@ -0,0 +1,91 @@
+package application.snake;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * This class splits the board of a {@link SnakeGame} into square chunks, so peers only need to care about
+ * the chunks around their own Snake.
+ */
+public class ChunkPartition {
+	private final int width;
+	private final int chunkSize;
+	private final int chunksPerRow;
+	private final int chunksPerColumn;
+
+	/**
+	 * @param width the width of the board
+	 * @param height the height of the board
+	 * @param chunkSize the width and height of a single chunk
+	 */
+	public ChunkPartition(int width, int height, int chunkSize) {
+		this.width = width;
+		this.chunkSize = chunkSize;
+		chunksPerRow = (width + chunkSize - 1) / chunkSize;
+		chunksPerColumn = (height + chunkSize - 1) / chunkSize;
+	}
+
+	public int getNumberOfChunks() {
+		return chunksPerRow * chunksPerColumn;
+	}
+
+	/**
+	 * Returns the chunk the passed cell lies in.
+	 * @param cell the cell index
+	 * @return the chunk index
+	 */
+	public int getChunk(int cell) {
+		int x = cell % width;
+		int y = cell / width;
+		return (y / chunkSize) * chunksPerRow + x / chunkSize;
+	}
+
+	/**
+	 * Returns all chunks whose distance to the chunk of the passed cell is at most the passed radius, measured in chunks.
+	 * @param cell the cell in the center of the area of interest
+	 * @param radius the radius in chunks
+	 * @return the chunks
+	 */
+	public BitSet getChunksAround(int cell, int radius) {
+		int chunk = getChunk(cell);
+		int chunkX = chunk % chunksPerRow;
+		int chunkY = chunk / chunksPerRow;
+		BitSet chunks = new BitSet(getNumberOfChunks());
+		for (int y = Math.max(0, chunkY - radius); y <= Math.min(chunksPerColumn - 1, chunkY + radius); y++) {
+			for (int x = Math.max(0, chunkX - radius); x <= Math.min(chunksPerRow - 1, chunkX + radius); x++) {
+				chunks.set(y * chunksPerRow + x);
+			}
+		}
+		return chunks;
+	}
+
+	/**
+	 * Computes a hash of the contents of every chunk. Since the parts of every chunk are combined by addition,
+	 * the hashes do not depend on the order in which the Snakes are visited.
+	 * @param game the Game
+	 * @param hashes the array the hashes get written into, of size {@link ChunkPartition#getNumberOfChunks()}
+	 */
+	public void computeChunkHashes(SnakeGame game, long[] hashes) {
+		Arrays.fill(hashes, 0);
+		for (int player = 0; player < game.getNumberOfPlayers(); player++) {
+			Snake snake = game.getSnake(player);
+			if (!snake.isAlive()) continue;
+
+			for (int i = 0; i < snake.getLength(); i++) {
+				int cell = snake.getCell(i);
+				hashes[getChunk(cell)] += mix(((long) player << 32) | cell);
+			}
+		}
+		if (game.getFoodCell() != -1) {
+			hashes[getChunk(game.getFoodCell())] += mix(-1L ^ game.getFoodCell());
+		}
+	}
+
+	private static long mix(long value) {
+		// The finalizer of SplitMix64, so neighbouring cells do not produce similar hashes.
+		long z = value;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -0,0 +1,76 @@
+package application.snake;
+
+/**
+ * This Enum contains the four Directions a Snake can move in.
+ * <p>
+ * The ordinal of every Direction doubles as its compact code, so a Direction always fits into two bits.
+ */
+public enum Direction {
+	UP("u", 0, -1),
+	RIGHT("r", 1, 0),
+	DOWN("d", 0, 1),
+	LEFT("l", -1, 0);
+
+	private static final Direction[] VALUES = values();
+
+	private final String identifier;
+	private final int deltaX;
+	private final int deltaY;
+
+	Direction(String identifier, int deltaX, int deltaY) {
+		this.identifier = identifier;
+		this.deltaX = deltaX;
+		this.deltaY = deltaY;
+	}
+
+	/**
+	 * Returns the short identifier of this Direction, that gets used when sending it through the network.
+	 * @return the identifier
+	 */
+	public String getIdentifier() {
+		return identifier;
+	}
+
+	public int getDeltaX() {
+		return deltaX;
+	}
+
+	public int getDeltaY() {
+		return deltaY;
+	}
+
+	/**
+	 * Returns the compact code of this Direction, which is always between 0 and 3.
+	 * @return the code
+	 */
+	public int getCode() {
+		return ordinal();
+	}
+
+	public boolean isOpposite(Direction other) {
+		return deltaX == -other.deltaX && deltaY == -other.deltaY;
+	}
+
+	/**
+	 * Returns the Direction with the passed code.
+	 * @param code the code, as returned by {@link Direction#getCode()}
+	 * @return the Direction
+	 */
+	public static Direction fromCode(int code) {
+		return VALUES[code];
+	}
+
+	/**
+	 * Returns the Direction with the passed identifier.
+	 * @param identifier the identifier, as returned by {@link Direction#getIdentifier()}
+	 * @return the Direction, or null if no Direction has this identifier
+	 */
+	public static Direction fromIdentifier(String identifier) {
+		for (Direction direction : VALUES) {
+			if (direction.identifier.equals(identifier)) {
+				return direction;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,80 @@
+package application.snake;
+
+import java.util.Arrays;
+
+/**
+ * The empty cells of a board, kept in a dense array, so a uniformly random one can be picked in constant time,
+ * no matter how full the board is.
+ * <p>
+ * The position of every cell within the dense array is stored as well, which makes adding and removing a cell
+ * constant time too: a removed cell gets replaced by the last one. Because of that, the order of the cells depends
+ * on the order of all previous changes. That order is the same on every peer, but it has to be part of every
+ * snapshot of the Game, see {@link SnakeGame#writeState}.
+ */
+final class FreeCellIndex {
+	private static final int NOT_FREE = -1;
+
+	private final int[] freeCells;
+	/**
+	 * The position of every cell within {@link FreeCellIndex#freeCells}, or {@link FreeCellIndex#NOT_FREE}.
+	 */
+	private final int[] positions;
+	private int size;
+
+	/**
+	 * Creates an index of a board without any empty cells.
+	 * @param numberOfCells the number of cells of the board
+	 */
+	FreeCellIndex(int numberOfCells) {
+		freeCells = new int[numberOfCells];
+		positions = new int[numberOfCells];
+		Arrays.fill(positions, NOT_FREE);
+	}
+
+	/**
+	 * Adds a cell that has become empty. Adding a cell that is already part of the index does nothing.
+	 * @param cell the cell
+	 */
+	void add(int cell) {
+		if (positions[cell] != NOT_FREE) {
+			return;
+		}
+		positions[cell] = size;
+		freeCells[size++] = cell;
+	}
+
+	/**
+	 * Removes a cell that is no longer empty. Removing a cell that is not part of the index does nothing.
+	 * @param cell the cell
+	 */
+	void remove(int cell) {
+		int position = positions[cell];
+		if (position == NOT_FREE) {
+			return;
+		}
+		int lastCell = freeCells[--size];
+		freeCells[position] = lastCell;
+		positions[lastCell] = position;
+		positions[cell] = NOT_FREE;
+	}
+
+	boolean contains(int cell) {
+		return positions[cell] != NOT_FREE;
+	}
+
+	/**
+	 * Returns the empty cell at the passed position of the index.
+	 * @param position the position, between zero and {@link FreeCellIndex#size()}
+	 * @return the cell
+	 */
+	int get(int position) {
+		if (position >= size) {
+			throw new IndexOutOfBoundsException("Position %d is out of bounds for %d free cells!".formatted(position, size));
+		}
+		return freeCells[position];
+	}
+
+	int size() {
+		return size;
+	}
+}
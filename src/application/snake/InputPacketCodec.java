@@ -0,0 +1,263 @@
+package application.snake;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * This class packs a sequence of inputs of one player, for consecutive ticks, into as few bytes as possible.
+ * <p>
+ * A packet starts with the player, the first tick and the number of ticks, each as a varint.
+ * After that the Directions follow as a stream of runs, each made of the 2 bit code of the Direction
+ * and the length of the run in Elias gamma code. Players rarely turn, so most packets consist of a single run,
+ * and a run of a single tick only needs 3 bits.
+ * <p>
+ * Encoding and decoding work on buffers passed in by the caller, so they can be reused for every packet.
+ */
+public final class InputPacketCodec {
+	/**
+	 * The maximum number of ticks a single packet may contain.
+	 */
+	public static final int MAX_TICKS_PER_PACKET = 64;
+	/**
+	 * The number of bytes a buffer needs to hold any packet without acknowledgements: three varints plus the worst
+	 * case of a turn every tick. See {@link InputPacketCodec#getMaxPacketSize} for packets with acknowledgements.
+	 */
+	public static final int MAX_PACKET_SIZE = 3 * 5 + (MAX_TICKS_PER_PACKET * 3 + 7) / 8;
+	private static final int MAX_VARINT_SIZE = 5;
+
+	private static final int DIRECTION_BITS = 2;
+
+	private InputPacketCodec() {
+	}
+
+	/**
+	 * Receives the inputs of a decoded packet.
+	 */
+	@FunctionalInterface
+	public interface InputConsumer {
+		void accept(int player, int tick, Direction direction);
+	}
+
+	/**
+	 * Receives the acknowledgements of a decoded packet.
+	 */
+	@FunctionalInterface
+	public interface AckConsumer {
+		/**
+		 * @param player the index of the player that sent the packet
+		 * @param ackedPlayer the index of the player whose inputs are acknowledged
+		 * @param tick the highest tick up to which all inputs of the acknowledged player have been received
+		 */
+		void accept(int player, int ackedPlayer, int tick);
+	}
+
+	/**
+	 * Returns the number of bytes a buffer needs to hold any packet with the passed number of acknowledgements.
+	 * @param numberOfAcks the number of acknowledgements
+	 * @return the size in bytes
+	 */
+	public static int getMaxPacketSize(int numberOfAcks) {
+		return MAX_PACKET_SIZE + MAX_VARINT_SIZE + numberOfAcks * MAX_VARINT_SIZE;
+	}
+
+	/**
+	 * Writes a packet into the passed buffer, starting at its current position.
+	 * @param buffer the buffer, which needs at least {@link InputPacketCodec#MAX_PACKET_SIZE} bytes remaining
+	 * @param player the index of the player
+	 * @param firstTick the tick of the first input
+	 * @param directions the inputs, the one at index i belongs to firstTick + i
+	 * @param count the number of inputs to write
+	 */
+	public static void encode(ByteBuffer buffer, int player, int firstTick, Direction[] directions, int count) {
+		encode(buffer, player, firstTick, directions, count, null, 0);
+	}
+
+	/**
+	 * Writes a packet with acknowledgements into the passed buffer, starting at its current position.
+	 * @param buffer the buffer, which needs at least {@link InputPacketCodec#getMaxPacketSize} bytes remaining
+	 * @param player the index of the player
+	 * @param firstTick the tick of the first input
+	 * @param directions the inputs, the one at index i belongs to firstTick + i
+	 * @param count the number of inputs to write
+	 * @param acks the acknowledgements, the one at index i belongs to player i
+	 * @param numberOfAcks the number of acknowledgements to write
+	 */
+	public static void encode(ByteBuffer buffer, int player, int firstTick, Direction[] directions, int count,
+			int[] acks, int numberOfAcks) {
+		if (count < 0 || count > MAX_TICKS_PER_PACKET) {
+			throw new IllegalArgumentException("A packet can contain at most %d ticks!".formatted(MAX_TICKS_PER_PACKET));
+		}
+		putVarInt(buffer, player);
+		putVarInt(buffer, firstTick);
+		putVarInt(buffer, count);
+
+		BitWriter writer = new BitWriter(buffer);
+		int runStart = 0;
+		for (int i = 1; i <= count; i++) {
+			if (i == count || directions[i] != directions[runStart]) {
+				writer.write(directions[runStart].getCode(), DIRECTION_BITS);
+				writer.writeGamma(i - runStart);
+				runStart = i;
+			}
+		}
+		writer.flush();
+
+		if (numberOfAcks > 0) {
+			putVarInt(buffer, numberOfAcks);
+			for (int i = 0; i < numberOfAcks; i++) {
+				int difference = acks[i] - firstTick;
+				putVarInt(buffer, difference << 1 ^ difference >> 31);
+			}
+		}
+	}
+
+	/**
+	 * Reads a packet from the passed buffer, starting at its current position, and passes every input to the consumer.
+	 * @param buffer the buffer
+	 * @param consumer the consumer of the inputs
+	 * @throws IllegalArgumentException when the buffer does not contain a valid packet
+	 */
+	public static void decode(ByteBuffer buffer, InputConsumer consumer) {
+		decode(buffer, consumer, null);
+	}
+
+	/**
+	 * Reads a packet from the passed buffer, starting at its current position, and passes every input and every
+	 * acknowledgement to the consumers. The inputs are passed before the acknowledgements.
+	 * @param buffer the buffer
+	 * @param consumer the consumer of the inputs
+	 * @param ackConsumer the consumer of the acknowledgements, or null to skip them
+	 * @throws IllegalArgumentException when the buffer does not contain a valid packet
+	 */
+	public static void decode(ByteBuffer buffer, InputConsumer consumer, AckConsumer ackConsumer) {
+		try {
+			decodePacket(buffer, consumer, ackConsumer);
+		} catch (BufferUnderflowException e) {
+			throw new IllegalArgumentException("The packet is truncated!");
+		}
+	}
+
+	private static void decodePacket(ByteBuffer buffer, InputConsumer consumer, AckConsumer ackConsumer) {
+		int player = getVarInt(buffer);
+		int firstTick = getVarInt(buffer);
+		int tick = firstTick;
+		int count = getVarInt(buffer);
+		if (count > MAX_TICKS_PER_PACKET) {
+			throw new IllegalArgumentException("The packet contains too many ticks!");
+		}
+
+		BitReader reader = new BitReader(buffer);
+		int lastTick = tick + count;
+		while (tick < lastTick) {
+			Direction direction = Direction.fromCode(reader.read(DIRECTION_BITS));
+			int runLength = reader.readGamma();
+			if (runLength > lastTick - tick) {
+				throw new IllegalArgumentException("The packet contains more inputs than announced!");
+			}
+			for (int i = 0; i < runLength; i++) {
+				consumer.accept(player, tick++, direction);
+			}
+		}
+
+		if (ackConsumer == null || !buffer.hasRemaining()) {
+			return;
+		}
+		int numberOfAcks = getVarInt(buffer);
+		for (int i = 0; i < numberOfAcks; i++) {
+			int difference = getVarInt(buffer);
+			ackConsumer.accept(player, i, firstTick + (difference >>> 1 ^ -(difference & 1)));
+		}
+	}
+
+	private static void putVarInt(ByteBuffer buffer, int value) {
+		while ((value & ~0x7F) != 0) {
+			buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+
+	private static int getVarInt(ByteBuffer buffer) {
+		int value = 0;
+		for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+			byte b = buffer.get();
+			value |= (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("The packet contains a malformed varint!");
+	}
+
+	/**
+	 * Collects bits, most significant first, and writes them to the buffer byte by byte.
+	 */
+	private static class BitWriter {
+		private final ByteBuffer buffer;
+		private int bits;
+		private int numberOfBits;
+
+		private BitWriter(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		private void write(int value, int length) {
+			for (int i = length - 1; i >= 0; i--) {
+				bits = bits << 1 | (value >>> i & 1);
+				if (++numberOfBits == Byte.SIZE) {
+					buffer.put((byte) bits);
+					bits = 0;
+					numberOfBits = 0;
+				}
+			}
+		}
+
+		/**
+		 * Writes a positive number as floor(log2(value)) zeros followed by the value itself in binary.
+		 */
+		private void writeGamma(int value) {
+			int length = Integer.SIZE - Integer.numberOfLeadingZeros(value);
+			write(0, length - 1);
+			write(value, length);
+		}
+
+		private void flush() {
+			if (numberOfBits > 0) {
+				buffer.put((byte) (bits << (Byte.SIZE - numberOfBits)));
+			}
+		}
+	}
+
+	private static class BitReader {
+		private final ByteBuffer buffer;
+		private int bits;
+		private int numberOfBits;
+
+		private BitReader(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		private int read(int length) {
+			int value = 0;
+			for (int i = 0; i < length; i++) {
+				if (numberOfBits == 0) {
+					bits = buffer.get() & 0xFF;
+					numberOfBits = Byte.SIZE;
+				}
+				numberOfBits--;
+				value = value << 1 | (bits >>> numberOfBits & 1);
+			}
+			return value;
+		}
+
+		private int readGamma() {
+			int zeros = 0;
+			while (read(1) == 0) {
+				if (++zeros >= Integer.SIZE - 1) {
+					throw new IllegalArgumentException("The packet contains a malformed run length!");
+				}
+			}
+			return (1 << zeros) | read(zeros);
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package application.snake;
+
+import java.util.Arrays;
+
+/**
+ * The inputs of a fixed number of players for a window of consecutive ticks, stored as the codes of their Directions
+ * in a single byte array that gets reused as the window moves on.
+ * <p>
+ * The window starts at the oldest tick that has not been trimmed yet and spans the capacity of the buffer.
+ * Inputs for ticks outside of the window get rejected, so the memory used never depends on the length of the match.
+ */
+final class InputRingBuffer {
+	private static final byte NO_INPUT = -1;
+
+	private final int players;
+	private final int capacity;
+	/**
+	 * The code of the input of player p for tick t at index (t % capacity) * players + p, or {@link InputRingBuffer#NO_INPUT}.
+	 */
+	private final byte[] codes;
+	private int firstTick;
+
+	/**
+	 * Creates an empty buffer whose window starts at tick zero.
+	 * @param players the number of players
+	 * @param capacity the number of ticks the buffer can hold
+	 */
+	InputRingBuffer(int players, int capacity) {
+		this.players = players;
+		this.capacity = capacity;
+		codes = new byte[players * capacity];
+		Arrays.fill(codes, NO_INPUT);
+	}
+
+	/**
+	 * Stores the input of a player, unless its tick is outside the window.
+	 * @param player the index of the player
+	 * @param tick the tick
+	 * @param direction the input
+	 * @return true if the input has been stored
+	 */
+	boolean put(int player, int tick, Direction direction) {
+		if (!isInWindow(tick)) {
+			return false;
+		}
+		codes[getIndex(player, tick)] = (byte) direction.getCode();
+		return true;
+	}
+
+	/**
+	 * Returns the input of a player.
+	 * @param player the index of the player
+	 * @param tick the tick
+	 * @return the input, or null if it has not been stored or its tick is outside the window
+	 */
+	Direction get(int player, int tick) {
+		if (!isInWindow(tick)) {
+			return null;
+		}
+		byte code = codes[getIndex(player, tick)];
+		return code == NO_INPUT ? null : Direction.fromCode(code);
+	}
+
+	/**
+	 * Returns whether the inputs of all players for the passed tick have been stored.
+	 * @param tick the tick
+	 * @return true if no input is missing
+	 */
+	boolean isComplete(int tick) {
+		if (!isInWindow(tick)) {
+			return false;
+		}
+		int start = getIndex(0, tick);
+		for (int i = start; i < start + players; i++) {
+			if (codes[i] == NO_INPUT) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Discards the inputs of all ticks before the passed one and moves the start of the window to it.
+	 * Trimming to a tick before the start of the window does nothing.
+	 * @param tick the new first tick of the window
+	 */
+	void trim(int tick) {
+		int ticksToClear = Math.min(tick - firstTick, capacity);
+		for (int i = 0; i < ticksToClear; i++) {
+			int start = getIndex(0, firstTick + i);
+			Arrays.fill(codes, start, start + players, NO_INPUT);
+		}
+		firstTick = Math.max(firstTick, tick);
+	}
+
+	int getFirstTick() {
+		return firstTick;
+	}
+
+	int getCapacity() {
+		return capacity;
+	}
+
+	private boolean isInWindow(int tick) {
+		return tick >= firstTick && tick - firstTick < capacity;
+	}
+
+	private int getIndex(int player, int tick) {
+		return tick % capacity * players + player;
+	}
+}
@@ -0,0 +1,110 @@
+package application.snake;
+
+/**
+ * This class represents the Snake of a single player.
+ * <p>
+ * The body is stored as a ring buffer of cell indices, going from the tail to the head,
+ * so both moving the head forward and clearing the tail are constant time operations.
+ */
+public class Snake {
+	private static final int INITIAL_CAPACITY = 16;
+
+	private int[] body;
+	private int tailIndex;
+	private int length;
+	private Direction direction;
+	private int pendingGrowth;
+	private boolean isAlive;
+
+	Snake(Direction direction, int pendingGrowth, boolean isAlive) {
+		body = new int[INITIAL_CAPACITY];
+		tailIndex = 0;
+		length = 0;
+		this.direction = direction;
+		this.pendingGrowth = pendingGrowth;
+		this.isAlive = isAlive;
+	}
+
+	public int getHead() {
+		return body[(tailIndex + length - 1) % body.length];
+	}
+
+	/**
+	 * Returns the cell of the i-th part of this Snake, counting from the tail.
+	 * @param i the index of the part, 0 being the tail
+	 * @return the cell index
+	 */
+	public int getCell(int i) {
+		return body[(tailIndex + i) % body.length];
+	}
+
+	public int getLength() {
+		return length;
+	}
+
+	public Direction getDirection() {
+		return direction;
+	}
+
+	public int getPendingGrowth() {
+		return pendingGrowth;
+	}
+
+	public boolean isAlive() {
+		return isAlive;
+	}
+
+	/**
+	 * Changes the Direction of this Snake, unless the new Direction would make it turn back into itself.
+	 * @param newDirection the new Direction
+	 */
+	void steer(Direction newDirection) {
+		if (!newDirection.isOpposite(direction)) {
+			direction = newDirection;
+		}
+	}
+
+	void addHead(int cell) {
+		if (length == body.length) {
+			int[] newBody = new int[body.length * 2];
+			for (int i = 0; i < length; i++) {
+				newBody[i] = getCell(i);
+			}
+			body = newBody;
+			tailIndex = 0;
+		}
+		body[(tailIndex + length) % body.length] = cell;
+		length++;
+	}
+
+	/**
+	 * Removes the tail of this Snake.
+	 * @return the cell the tail occupied
+	 */
+	int removeTail() {
+		int cell = body[tailIndex];
+		tailIndex = (tailIndex + 1) % body.length;
+		length--;
+		return cell;
+	}
+
+	/**
+	 * Uses up one tick of pending growth, if there is any.
+	 * @return true when the Snake grows this tick, so its tail has to stay where it is
+	 */
+	boolean consumeGrowth() {
+		if (pendingGrowth == 0) {
+			return false;
+		}
+		pendingGrowth--;
+		return true;
+	}
+
+	void grow(int amount) {
+		pendingGrowth += amount;
+	}
+
+	void kill() {
+		isAlive = false;
+	}
+}
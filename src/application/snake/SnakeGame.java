@@ -1,4 +1,483 @@
 package application.snake;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class contains the deterministic Snake engine.
+ * <p>
+ * Given the same seed and the same inputs, every peer computes exactly the same sequence of states.
+ * That is what allows the peers to only exchange their inputs instead of the whole board.
+ * Because of that, this class must never depend on anything but its own state, so no clocks, no
+ * {@link java.util.Random} and no iteration over hash based collections.
+ * <p>
+ * The board is stored as a flat array of cells, in which every cell is either empty, contains the food,
+ * or contains a part of the Snake of a certain player. The empty cells are indexed as well, so spawning food
+ * takes constant time even on a nearly full board, see {@link FreeCellIndex}.
+ * <p>
+ * On boards with many Snakes, the per-Snake parts of a tick can run on a {@link ForkJoinPool}, see
+ * {@link SnakeGame#setTickPool}. Those parts only ever write to the Snake itself and to arrays indexed by player,
+ * everything that touches shared cells runs serially in player order, so the result is exactly the same either way.
+ */
 public class SnakeGame {
+	private static final int EMPTY_CELL = 0;
+	private static final int FOOD_CELL = -1;
+	private static final int NO_CELL = -1;
+	private static final int INITIAL_GROWTH = 2;
+	private static final int GROWTH_PER_FOOD = 1;
+	/**
+	 * Below this number of players, splitting a tick into tasks costs more than it saves.
+	 */
+	private static final int PARALLEL_PLAYER_THRESHOLD = 512;
+	private static final int SNAKES_PER_TASK = 256;
+
+	private final int width;
+	private final int height;
+	/**
+	 * Contains {@link SnakeGame#EMPTY_CELL}, {@link SnakeGame#FOOD_CELL} or the index of the owning player plus one.
+	 */
+	private final int[] cells;
+	private final FreeCellIndex freeCells;
+	private final Snake[] snakes;
+	private final int[] newHeads;
+	private final int[] removedTails;
+	private final int[] headClaims;
+	private final boolean[] survivors;
+
+	private ForkJoinPool tickPool;
+
+	private long randomState;
+	private int foodCell;
+	private int tick;
+
+	/**
+	 * Creates a new Game and places all Snakes as well as the first food on the board.
+	 * @param width the width of the board
+	 * @param height the height of the board
+	 * @param numberOfPlayers the number of players, and therefore Snakes
+	 * @param seed the seed every peer has agreed on
+	 */
+	public SnakeGame(int width, int height, int numberOfPlayers, long seed) {
+		this(width, height, numberOfPlayers);
+		randomState = seed;
+		for (int cell = 0; cell < cells.length; cell++) {
+			freeCells.add(cell);
+		}
+		for (int i = 0; i < numberOfPlayers; i++) {
+			int cell = findRandomEmptyCell();
+			if (cell == NO_CELL) {
+				throw new IllegalArgumentException("The board is too small for %d players!".formatted(numberOfPlayers));
+			}
+			Direction direction = cell % width < width / 2 ? Direction.RIGHT : Direction.LEFT;
+			snakes[i] = new Snake(direction, INITIAL_GROWTH, true);
+			snakes[i].addHead(cell);
+			setCell(cell, i + 1);
+		}
+		spawnFood();
+	}
+
+	private SnakeGame(int width, int height, int numberOfPlayers) {
+		if (width <= 0 || height <= 0 || numberOfPlayers <= 0) {
+			throw new IllegalArgumentException("The board size and the number of players have to be positive!");
+		}
+		this.width = width;
+		this.height = height;
+		cells = new int[width * height];
+		freeCells = new FreeCellIndex(cells.length);
+		snakes = new Snake[numberOfPlayers];
+		newHeads = new int[numberOfPlayers];
+		Arrays.fill(newHeads, NO_CELL);
+		removedTails = new int[numberOfPlayers];
+		Arrays.fill(removedTails, NO_CELL);
+		headClaims = new int[width * height];
+		survivors = new boolean[numberOfPlayers];
+	}
+
+	/**
+	 * Lets large Games propose the moves of their Snakes in parallel on the passed pool.
+	 * This does not change the outcome of any tick, only how fast it gets computed.
+	 * @param tickPool the pool, or null to always compute ticks on the calling thread
+	 */
+	public void setTickPool(ForkJoinPool tickPool) {
+		this.tickPool = tickPool;
+	}
+
+	/**
+	 * Advances the Game by exactly one tick.
+	 * <p>
+	 * First every Snake turns and all tails move forward. Then every Snake whose new head would leave the board,
+	 * hit a body, or hit the new head of another Snake dies. Finally, the surviving Snakes move their heads
+	 * and might eat the food.
+	 * @param inputs the Direction of every player for this tick, or null for players that keep their Direction
+	 */
+	public void tick(Direction[] inputs) {
+		if (inputs.length != snakes.length) {
+			throw new IllegalArgumentException("The number of inputs did not match the number of players!");
+		}
+		boolean isParallel = tickPool != null && snakes.length >= PARALLEL_PLAYER_THRESHOLD;
+
+		if (isParallel) {
+			tickPool.invoke(new SnakeRangeTask((from, to) -> proposeMoves(inputs, from, to), 0, snakes.length));
+		} else {
+			proposeMoves(inputs, 0, snakes.length);
+		}
+
+		for (int i = 0; i < snakes.length; i++) {
+			if (removedTails[i] != NO_CELL) {
+				setCell(removedTails[i], EMPTY_CELL);
+				removedTails[i] = NO_CELL;
+			}
+		}
+
+		for (int i = 0; i < snakes.length; i++) {
+			if (!snakes[i].isAlive() || newHeads[i] == NO_CELL) continue;
+
+			int owner = headClaims[newHeads[i]];
+			if (owner == 0) {
+				headClaims[newHeads[i]] = i + 1;
+			} else {
+				// Head to head collision. Both Snakes die, which gets detected below since both claims are marked.
+				headClaims[newHeads[i]] = -1;
+			}
+		}
+
+		// All survivors have to be determined before any Snake gets removed, so the order of the players does not matter.
+		if (isParallel) {
+			tickPool.invoke(new SnakeRangeTask(this::findSurvivors, 0, snakes.length));
+		} else {
+			findSurvivors(0, snakes.length);
+		}
+
+		boolean foodEaten = false;
+		for (int i = 0; i < snakes.length; i++) {
+			Snake snake = snakes[i];
+			if (!snake.isAlive()) continue;
+
+			if (!survivors[i]) {
+				killSnake(i);
+				continue;
+			}
+			int head = newHeads[i];
+			if (head == foodCell) {
+				foodEaten = true;
+				snake.grow(GROWTH_PER_FOOD);
+			}
+			snake.addHead(head);
+			setCell(head, i + 1);
+		}
+
+		for (int i = 0; i < snakes.length; i++) {
+			if (newHeads[i] != NO_CELL) {
+				headClaims[newHeads[i]] = 0;
+			}
+			newHeads[i] = NO_CELL;
+		}
+
+		if (foodEaten || foodCell == NO_CELL) {
+			spawnFood();
+		}
+		tick++;
+	}
+
+	/**
+	 * Turns the Snakes of the passed players and computes where their heads move.
+	 * The tails only get removed from the Snakes here, the cells are cleared later in player order.
+	 */
+	private void proposeMoves(Direction[] inputs, int from, int to) {
+		for (int i = from; i < to; i++) {
+			Snake snake = snakes[i];
+			if (!snake.isAlive()) continue;
+
+			if (inputs[i] != null) {
+				snake.steer(inputs[i]);
+			}
+			newHeads[i] = getNeighbourCell(snake.getHead(), snake.getDirection());
+			if (!snake.consumeGrowth()) {
+				removedTails[i] = snake.removeTail();
+			}
+		}
+	}
+
+	private void findSurvivors(int from, int to) {
+		for (int i = from; i < to; i++) {
+			int head = newHeads[i];
+			survivors[i] = snakes[i].isAlive() && head != NO_CELL && headClaims[head] == i + 1
+					&& (cells[head] == EMPTY_CELL || cells[head] == FOOD_CELL);
+		}
+	}
+
+	private void killSnake(int player) {
+		Snake snake = snakes[player];
+		snake.kill();
+		for (int i = 0; i < snake.getLength(); i++) {
+			int cell = snake.getCell(i);
+			// The new head of another Snake might already occupy the cell of our old tail.
+			if (cells[cell] == player + 1) {
+				setCell(cell, EMPTY_CELL);
+			}
+		}
+	}
+
+	/**
+	 * Removes a player that has left the match, by killing its Snake right away. Every peer has to remove the player
+	 * before the same tick, so this is part of the inputs of that tick, just like the Directions.
+	 * @param player the index of the player
+	 */
+	public void removePlayer(int player) {
+		if (snakes[player].isAlive()) {
+			killSnake(player);
+		}
+	}
+
+	private int getNeighbourCell(int cell, Direction direction) {
+		int x = cell % width + direction.getDeltaX();
+		int y = cell / width + direction.getDeltaY();
+		if (x < 0 || y < 0 || x >= width || y >= height) {
+			return NO_CELL;
+		}
+		return y * width + x;
+	}
+
+	/**
+	 * Changes the content of a cell and keeps the {@link SnakeGame#freeCells} up to date.
+	 * Every change of a cell has to go through this method.
+	 */
+	private void setCell(int cell, int content) {
+		cells[cell] = content;
+		if (content == EMPTY_CELL) {
+			freeCells.add(cell);
+		} else {
+			freeCells.remove(cell);
+		}
+	}
+
+	private void spawnFood() {
+		foodCell = findRandomEmptyCell();
+		if (foodCell != NO_CELL) {
+			setCell(foodCell, FOOD_CELL);
+		}
+	}
+
+	/**
+	 * Picks a uniformly random empty cell out of the {@link SnakeGame#freeCells}, using exactly one random number.
+	 * @return the cell, or {@link SnakeGame#NO_CELL} if the board is full
+	 */
+	private int findRandomEmptyCell() {
+		if (freeCells.size() == 0) {
+			return NO_CELL;
+		}
+		return freeCells.get(nextRandomInt(freeCells.size()));
+	}
+
+	/**
+	 * A SplitMix64 generator. Unlike {@link java.util.Random} its whole state is a single long,
+	 * which makes it trivial to hash and to store in a snapshot.
+	 */
+	private int nextRandomInt(int bound) {
+		randomState += 0x9E3779B97F4A7C15L;
+		long z = randomState;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		z = z ^ (z >>> 31);
+		return (int) Long.remainderUnsigned(z, bound);
+	}
+
+	/**
+	 * Returns true when at most one Snake is left alive, or, in a single player Game, when the Snake has died.
+	 * @return whether this Game is over
+	 */
+	public boolean isOver() {
+		int alive = 0;
+		for (Snake snake : snakes) {
+			if (snake.isAlive()) {
+				alive++;
+			}
+		}
+		return alive <= (snakes.length > 1 ? 1 : 0);
+	}
+
+	/**
+	 * Computes a hash of the whole state of this Game. Two peers with the same hash at the same tick are in sync.
+	 * @return the hash
+	 */
+	public long getStateHash() {
+		// FNV-1a over all the values that make up the state.
+		long hash = 0xCBF29CE484222325L;
+		hash = hashValue(hash, tick);
+		hash = hashValue(hash, randomState);
+		hash = hashValue(hash, foodCell);
+		for (Snake snake : snakes) {
+			hash = hashValue(hash, snake.isAlive() ? 1 : 0);
+			hash = hashValue(hash, snake.getDirection().getCode());
+			hash = hashValue(hash, snake.getPendingGrowth());
+			hash = hashValue(hash, snake.getLength());
+			for (int i = 0; i < snake.getLength(); i++) {
+				hash = hashValue(hash, snake.getCell(i));
+			}
+		}
+		return hash;
+	}
+
+	private static long hashValue(long hash, long value) {
+		for (int i = 0; i < Long.BYTES; i++) {
+			hash ^= (value >>> (i * 8)) & 0xFF;
+			hash *= 0x100000001B3L;
+		}
+		return hash;
+	}
+
+	/**
+	 * Returns the number of bytes {@link SnakeGame#writeState} needs for the current state.
+	 * @return the size in bytes
+	 */
+	public int getStateSize() {
+		int size = 5 * Integer.BYTES + Long.BYTES;
+		for (Snake snake : snakes) {
+			size += 2 + 2 * Integer.BYTES + snake.getLength() * Integer.BYTES;
+		}
+		return size + Integer.BYTES + freeCells.size() * Integer.BYTES;
+	}
+
+	/**
+	 * Writes the whole state of this Game into the passed buffer, so it can later be restored with
+	 * {@link SnakeGame#readState}.
+	 * <p>
+	 * That includes the order of the empty cells, since it decides where the next food spawns.
+	 * @param buffer the buffer, which needs at least {@link SnakeGame#getStateSize()} bytes remaining
+	 */
+	public void writeState(ByteBuffer buffer) {
+		buffer.putInt(width);
+		buffer.putInt(height);
+		buffer.putInt(snakes.length);
+		buffer.putInt(tick);
+		buffer.putLong(randomState);
+		buffer.putInt(foodCell);
+		for (Snake snake : snakes) {
+			buffer.put((byte) (snake.isAlive() ? 1 : 0));
+			buffer.put((byte) snake.getDirection().getCode());
+			buffer.putInt(snake.getPendingGrowth());
+			buffer.putInt(snake.getLength());
+			for (int i = 0; i < snake.getLength(); i++) {
+				buffer.putInt(snake.getCell(i));
+			}
+		}
+		buffer.putInt(freeCells.size());
+		for (int i = 0; i < freeCells.size(); i++) {
+			buffer.putInt(freeCells.get(i));
+		}
+	}
+
+	/**
+	 * Restores a Game from a state previously written by {@link SnakeGame#writeState}.
+	 * @param buffer the buffer, positioned at the start of the state
+	 * @return the restored Game
+	 */
+	public static SnakeGame readState(ByteBuffer buffer) {
+		int width = buffer.getInt();
+		int height = buffer.getInt();
+		int numberOfPlayers = buffer.getInt();
+		SnakeGame game = new SnakeGame(width, height, numberOfPlayers);
+		game.tick = buffer.getInt();
+		game.randomState = buffer.getLong();
+		game.foodCell = buffer.getInt();
+		if (game.foodCell != NO_CELL) {
+			game.cells[game.foodCell] = FOOD_CELL;
+		}
+		for (int i = 0; i < numberOfPlayers; i++) {
+			boolean isAlive = buffer.get() == 1;
+			Direction direction = Direction.fromCode(buffer.get());
+			int pendingGrowth = buffer.getInt();
+			int length = buffer.getInt();
+			Snake snake = new Snake(direction, pendingGrowth, isAlive);
+			for (int j = 0; j < length; j++) {
+				int cell = buffer.getInt();
+				snake.addHead(cell);
+				if (isAlive) {
+					game.cells[cell] = i + 1;
+				}
+			}
+			game.snakes[i] = snake;
+		}
+		int numberOfFreeCells = buffer.getInt();
+		for (int i = 0; i < numberOfFreeCells; i++) {
+			int cell = buffer.getInt();
+			if (game.cells[cell] != EMPTY_CELL) {
+				throw new IllegalArgumentException("The state is corrupted, cell %d is not empty!".formatted(cell));
+			}
+			game.freeCells.add(cell);
+		}
+		return game;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getNumberOfPlayers() {
+		return snakes.length;
+	}
+
+	public Snake getSnake(int player) {
+		return snakes[player];
+	}
+
+	/**
+	 * Returns true if a Snake could move onto the passed cell, because it is empty or has the food on it.
+	 * @param cell the cell index
+	 * @return whether the cell is free
+	 */
+	public boolean isFree(int cell) {
+		return cells[cell] == EMPTY_CELL || cells[cell] == FOOD_CELL;
+	}
+
+	/**
+	 * Returns the cell the food is on.
+	 * @return the cell index, or -1 if the board is full and there is no food
+	 */
+	public int getFoodCell() {
+		return foodCell;
+	}
+
+	/**
+	 * Returns the number of ticks this Game has already advanced.
+	 * @return the current tick
+	 */
+	public int getTick() {
+		return tick;
+	}
+
+	private interface SnakeRange {
+		void run(int from, int to);
+	}
+
+	/**
+	 * Splits a range of players in halves until every part has at most {@link SnakeGame#SNAKES_PER_TASK} Snakes.
+	 */
+	private static class SnakeRangeTask extends RecursiveAction {
+		private final SnakeRange range;
+		private final int from;
+		private final int to;
+
+		private SnakeRangeTask(SnakeRange range, int from, int to) {
+			this.range = range;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= SNAKES_PER_TASK) {
+				range.run(from, to);
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new SnakeRangeTask(range, from, middle), new SnakeRangeTask(range, middle, to));
+		}
+	}
 }
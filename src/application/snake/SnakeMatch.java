@@ -0,0 +1,757 @@
+package application.snake;
+
+import application.NetworkApplication;
+import application.command.control.InputControlMessage;
+import application.command.control.RemovePlayerControlMessage;
+import application.command.control.StateHashControlMessage;
+import application.ApplicationSetting;
+import application.metrics.events.TickEvent;
+import application.snake.bot.SnakeBot;
+import application.snake.replay.ReplayRecorder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class runs a single match of Snake in lockstep with all other participants.
+ * <p>
+ * Every tick, each participant sends the Direction it wants to use {@link SnakeMatch#INPUT_DELAY_TICKS} ticks
+ * in the future to everyone else. A tick is only simulated once the inputs of all participants for it have arrived,
+ * so every peer feeds exactly the same inputs into its deterministic {@link SnakeGame}.
+ * To detect if that ever fails, the participants also exchange their state hashes every
+ * {@link SnakeMatch#STATE_HASH_INTERVAL} ticks.
+ * <p>
+ * Every input message also acknowledges, for every player, the highest tick up to which all of its inputs have arrived.
+ * The local inputs get repeated in every message until all other participants have acknowledged them, so a lost
+ * message gets covered by the next ones. The inputs of every player are kept until all participants have acknowledged
+ * them. Lockstep keeps every participant within a few ticks of the others, so they fit into a ring buffer of
+ * {@link InputPacketCodec#MAX_TICKS_PER_PACKET} ticks, no matter how long the match lasts.
+ * <p>
+ * A participant that leaves, loses its connection in a full mesh, or sends no inputs for
+ * {@link ApplicationSetting#FAILURE_TIMEOUT} while the match waits for them, gets removed. Every participant that
+ * learns about it reports it once with a {@link RemovePlayerControlMessage}, which carries all inputs of the removed
+ * player it has, and stops before the first tick it is missing an input of that player for. Once the reports of all
+ * other participants have arrived, everyone has the same inputs and removes the player right after the highest
+ * reported tick. So after a crash, the match stalls for the failure timeout plus a single round trip at most.
+ * Reports can only disagree when another participant fails before its report reached everyone, which the state
+ * hashes reveal.
+ * <p>
+ * A peer can play several matches at once over the same connections, all messages of a match carry its id. The ticks
+ * of all matches run on the {@link NetworkApplication#getMatchScheduler() scheduler} of the application, one step at a
+ * time: a tick that is missing inputs ends its step instead of blocking a thread, and gets resumed once they arrive.
+ * <p>
+ * Every match is recorded into a replay log in the {@link ApplicationSetting#REPLAY_DIRECTORY}.
+ * <p>
+ * The local Snake can be steered by a {@link SnakeBot} instead of the console, see {@link SnakeMatch#setBot}.
+ */
+public class SnakeMatch {
+	public static final int TICK_DURATION_MILLIS = 100;
+	public static final int BOARD_WIDTH = 40;
+	public static final int BOARD_HEIGHT = 30;
+	private static final int INPUT_DELAY_TICKS = 3;
+	private static final int INPUT_HISTORY_TICKS = InputPacketCodec.MAX_TICKS_PER_PACKET;
+	private static final int STATE_HASH_INTERVAL = 10;
+	private static final int KEYFRAME_INTERVAL = 100;
+	private static final int STATE_HASH_HISTORY_TICKS = 50 * STATE_HASH_INTERVAL;
+	private static final int NOT_REMOVED = Integer.MAX_VALUE;
+	private static final int NO_REPORT = -1;
+
+	private final NetworkApplication networkApplication;
+	private final ScheduledExecutorService scheduler;
+	private final int matchId;
+	private final List<String> participants;
+	private final int localPlayer;
+	private final long seed;
+	private final long failureTimeoutNanos;
+	private final SnakeGame game;
+	private final AreaOfInterest areaOfInterest;
+	/**
+	 * The inputs of all players, from the oldest tick that has not been acknowledged by every participant yet.
+	 */
+	private final InputRingBuffer inputHistory;
+	/**
+	 * The highest tick up to which player q has received all inputs of player p, at index [q][p].
+	 * The row of the local player is kept up to date by {@link SnakeMatch#submitInput}, all others get acknowledged.
+	 */
+	private final int[][] acknowledgedTicks;
+	/**
+	 * When the last input of every player has arrived, in nanoseconds.
+	 */
+	private final long[] lastInputNanos;
+	/**
+	 * The tick every player gets removed at, or {@link SnakeMatch#NOT_REMOVED}.
+	 */
+	private final int[] removalTicks;
+	/**
+	 * The highest tick up to which player q has received the inputs of player p, when it reported the removal of p,
+	 * at index [p][q], or {@link SnakeMatch#NO_REPORT}.
+	 */
+	private final int[][] removalReports;
+	/**
+	 * Maps recent ticks to the local state hash at that tick.
+	 */
+	private final Map<Integer, Long> localStateHashes;
+	/**
+	 * Maps ticks, that have not been simulated locally yet, to the state hashes other players sent for them.
+	 */
+	private final Map<Integer, Map<Integer, Long>> earlyStateHashes;
+	private final Direction[] packetInputs;
+	private final int[] packetAcks;
+	private final ByteBuffer inputPacket;
+	private final Direction[] plannedInputs;
+
+	private volatile boolean isRunning;
+	private volatile Direction localDirection;
+	private volatile SnakeBot bot;
+	private int currentTick;
+	private long lastInputWaitNanos;
+	private String lastStallReason;
+	private boolean hasDesynced;
+	private ReplayRecorder recorder;
+	private long nextTickTime;
+	private TickEvent tickEvent;
+	private boolean isInputSent;
+	private boolean isWaiting;
+	private long waitStart;
+	/**
+	 * Whether the next step of the tick loop has been scheduled or is running, see {@link SnakeMatch#wakeUp()}.
+	 */
+	private boolean isStepScheduled;
+	private ScheduledFuture<?> timeoutCheck;
+	private boolean isStarted;
+	private boolean isFinished;
+	private volatile Thread stepThread;
+
+	/**
+	 * Creates a new match. Every participant has to create its match with exactly the same arguments.
+	 * @param networkApplication the Network Application this match belongs to
+	 * @param matchId the id of the match
+	 * @param seed the seed of the match
+	 * @param participants the ips of all participants, in the same order on every peer
+	 */
+	public SnakeMatch(NetworkApplication networkApplication, int matchId, long seed, List<String> participants) {
+		this.networkApplication = networkApplication;
+		this.matchId = matchId;
+		scheduler = networkApplication.getMatchScheduler();
+		this.participants = List.copyOf(participants);
+		this.seed = seed;
+		localPlayer = this.participants.indexOf(networkApplication.getNetworkHandler().getLocalIP());
+		if (localPlayer == -1) {
+			throw new IllegalArgumentException("The local peer is not a participant of this match!");
+		}
+		failureTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(ApplicationSetting.FAILURE_TIMEOUT.getInt());
+		int numberOfPlayers = this.participants.size();
+		game = new SnakeGame(BOARD_WIDTH, BOARD_HEIGHT, numberOfPlayers, seed);
+		game.setTickPool(ForkJoinPool.commonPool());
+		inputHistory = new InputRingBuffer(numberOfPlayers, INPUT_HISTORY_TICKS);
+		acknowledgedTicks = new int[numberOfPlayers][numberOfPlayers];
+		lastInputNanos = new long[numberOfPlayers];
+		removalTicks = new int[numberOfPlayers];
+		Arrays.fill(removalTicks, NOT_REMOVED);
+		removalReports = new int[numberOfPlayers][numberOfPlayers];
+		for (int[] reports : removalReports) {
+			Arrays.fill(reports, NO_REPORT);
+		}
+		localStateHashes = new HashMap<>();
+		earlyStateHashes = new HashMap<>();
+		packetInputs = new Direction[INPUT_HISTORY_TICKS];
+		packetAcks = new int[numberOfPlayers];
+		inputPacket = ByteBuffer.allocate(InputPacketCodec.getMaxPacketSize(numberOfPlayers));
+		plannedInputs = new Direction[INPUT_DELAY_TICKS];
+		localDirection = game.getSnake(localPlayer).getDirection();
+		areaOfInterest = new AreaOfInterest(networkApplication, matchId, this.participants, localPlayer, game);
+	}
+
+	public void startMatch() {
+		isRunning = true;
+		// Nobody can have sent inputs for the first ticks, so everyone starts with the initial Directions.
+		synchronized (this) {
+			for (int player = 0; player < participants.size(); player++) {
+				for (int tick = 0; tick < INPUT_DELAY_TICKS; tick++) {
+					inputHistory.put(player, tick, game.getSnake(player).getDirection());
+				}
+				for (int[] acknowledged : acknowledgedTicks) {
+					acknowledged[player] = INPUT_DELAY_TICKS - 1;
+				}
+			}
+			Arrays.fill(lastInputNanos, System.nanoTime());
+		}
+		String replayDirectory = ApplicationSetting.REPLAY_DIRECTORY.get();
+		if (!replayDirectory.isEmpty()) {
+			try {
+				Files.createDirectories(Path.of(replayDirectory));
+				Path file = Path.of(replayDirectory, "match-%d-%08x.replay".formatted(System.currentTimeMillis(), matchId));
+				recorder = new ReplayRecorder(file, game, seed);
+			} catch (IOException e) {
+				networkApplication.getConsoleHandler().printSystemMessage("Could not create a replay log, this match will not be recorded: " + e);
+			}
+		}
+		areaOfInterest.updateSubscriptions(game);
+		synchronized (this) {
+			isStarted = true;
+			nextTickTime = System.nanoTime();
+			wakeUp();
+		}
+	}
+
+	/**
+	 * Stops this match and waits until the last tick has been finished, unless it gets called by the match itself.
+	 */
+	public void stopMatch() {
+		isRunning = false;
+		synchronized (this) {
+			if (!isStarted || stepThread == Thread.currentThread()) {
+				return;
+			}
+			wakeUp();
+			try {
+				while (!isFinished) {
+					wait();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Stops this match like {@link SnakeMatch#stopMatch()}, and tells the other participants to remove the local
+	 * player right after its last sent input, so they can go on without waiting for the failure timeout.
+	 */
+	public void leaveMatch() {
+		boolean wasRunning = isRunning && !game.isOver();
+		stopMatch();
+		if (wasRunning) {
+			synchronized (this) {
+				reportRemoval(localPlayer);
+			}
+		}
+	}
+
+	/**
+	 * Changes the Direction the local Snake will use from now on.
+	 * @param direction the new Direction
+	 */
+	public void setLocalDirection(Direction direction) {
+		localDirection = direction;
+	}
+
+	/**
+	 * Lets a Bot choose the Direction of the local Snake before every tick, instead of using the last Direction
+	 * passed to {@link SnakeMatch#setLocalDirection}.
+	 * @param bot the Bot, or null to stop using one
+	 */
+	public void setBot(SnakeBot bot) {
+		this.bot = bot;
+	}
+
+	/**
+	 * Stores the input of a player for a certain tick. Should be called whenever an input arrives from the network.
+	 * @param player the index of the player
+	 * @param tick the tick the input is meant for
+	 * @param direction the Direction of the player
+	 */
+	public synchronized void submitInput(int player, int tick, Direction direction) {
+		// Inputs beyond the history get dropped, the player repeats them until they have been acknowledged.
+		if (!isParticipant(player) || tick >= removalTicks[player] || !inputHistory.put(player, tick, direction)) {
+			return;
+		}
+		lastInputNanos[player] = System.nanoTime();
+		int[] receivedTicks = acknowledgedTicks[localPlayer];
+		int contiguousTick = receivedTicks[player];
+		while (inputHistory.get(player, contiguousTick + 1) != null) {
+			contiguousTick++;
+		}
+		receivedTicks[player] = contiguousTick;
+		wakeUp();
+	}
+
+	/**
+	 * Stores that another player has received the inputs of a player up to a certain tick. Should be called whenever
+	 * an acknowledgement arrives from the network.
+	 * @param player the index of the player that sent the acknowledgement
+	 * @param ackedPlayer the index of the player whose inputs have been acknowledged
+	 * @param tick the highest tick up to which all inputs have been received
+	 */
+	public synchronized void submitAck(int player, int ackedPlayer, int tick) {
+		if (player == localPlayer || !isParticipant(player) || !isParticipant(ackedPlayer)) {
+			return;
+		}
+		acknowledgedTicks[player][ackedPlayer] = Math.max(acknowledgedTicks[player][ackedPlayer], tick);
+	}
+
+	/**
+	 * Stores that a player has reported the removal of another one, see {@link RemovePlayerControlMessage}.
+	 * The local player reports the removal as well, if it has not done so yet. Should be called whenever a report
+	 * arrives from the network, after the inputs it carries have been submitted.
+	 * @param player the index of the reporting player
+	 * @param removedPlayer the index of the removed player
+	 * @param tick the highest tick up to which the reporting player has received all inputs of the removed player
+	 */
+	public synchronized void submitRemoval(int player, int removedPlayer, int tick) {
+		if (!isRunning || !isParticipant(player) || !isParticipant(removedPlayer) || removalTicks[removedPlayer] != NOT_REMOVED) {
+			return;
+		}
+		if (removedPlayer == localPlayer) {
+			networkApplication.getConsoleHandler().printSystemMessage(
+					"You have been removed from the match, because the others stopped receiving your inputs.");
+			isRunning = false;
+			wakeUp();
+			return;
+		}
+		removalReports[removedPlayer][player] = Math.max(removalReports[removedPlayer][player], tick);
+		if (removalReports[removedPlayer][localPlayer] == NO_REPORT) {
+			String reason = player == removedPlayer ? "has left" : "is being removed from";
+			networkApplication.getConsoleHandler().printSystemMessage("Player %s %s the match.".formatted(participants.get(removedPlayer), reason));
+			reportRemoval(removedPlayer);
+		}
+		decideRemovals();
+	}
+
+	/**
+	 * Removes a participant the local peer has lost its connection to. Should only be called when all inputs of the
+	 * participant arrive over that connection, which is the case in a full mesh.
+	 * @param ip the ip of the participant
+	 */
+	public synchronized void removeDisconnectedParticipant(String ip) {
+		int player = participants.indexOf(ip);
+		if (!isRunning || player == -1 || player == localPlayer || removalReports[player][localPlayer] != NO_REPORT) {
+			return;
+		}
+		networkApplication.getConsoleHandler().printSystemMessage("Player %s has lost its connection and is being removed from the match.".formatted(ip));
+		reportRemoval(player);
+		decideRemovals();
+	}
+
+	/**
+	 * Returns whether a player has been removed from the match at or before the passed tick.
+	 * @param player the index of the player
+	 * @param tick the tick
+	 * @return true if the player is no longer part of the match at that tick
+	 */
+	public synchronized boolean isRemoved(int player, int tick) {
+		return isParticipant(player) && removalTicks[player] <= tick;
+	}
+
+	/**
+	 * Compares the state hash of another player with the local one. Should be called whenever a state hash
+	 * arrives from the network.
+	 * @param player the index of the player
+	 * @param tick the tick the hash belongs to
+	 * @param hash the state hash of the player
+	 */
+	public synchronized void submitStateHash(int player, int tick, long hash) {
+		Long localHash = localStateHashes.get(tick);
+		if (localHash != null) {
+			compareStateHashes(player, tick, localHash, hash);
+		} else if (tick >= currentTick) {
+			earlyStateHashes.computeIfAbsent(tick, t -> new HashMap<>()).put(player, hash);
+		}
+	}
+
+	/**
+	 * Runs the tick loop until the current tick is missing inputs, or has been simulated and the next one is due later.
+	 * Only a single step of a match is scheduled at a time, so they never run concurrently.
+	 */
+	private void runStep() {
+		stepThread = Thread.currentThread();
+		try {
+			int tick = game.getTick();
+			if (isRunning && !game.isOver() && !isInputSent) {
+				tickEvent = new TickEvent();
+				tickEvent.begin();
+				sendLocalInput(tick + INPUT_DELAY_TICKS);
+				isInputSent = true;
+			}
+			Direction[] inputs = null;
+			synchronized (this) {
+				if (isRunning && !game.isOver()) {
+					inputs = pollInputs(tick);
+					if (inputs == null) {
+						stepThread = null;
+						return;
+					}
+				}
+			}
+			if (inputs == null) {
+				finishMatch();
+				return;
+			}
+			runTick(tick, inputs);
+			nextTickTime += TICK_DURATION_MILLIS * 1_000_000L;
+			isInputSent = false;
+			stepThread = null;
+			scheduler.schedule(this::runStep, nextTickTime - System.nanoTime(), TimeUnit.NANOSECONDS);
+		} catch (RuntimeException e) {
+			// Nobody would notice it otherwise, since the scheduler keeps the exceptions of its tasks.
+			Thread thread = Thread.currentThread();
+			thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+			finishMatch();
+		}
+	}
+
+	private void runTick(int tick, Direction[] inputs) {
+		long tickStart = System.nanoTime();
+		removePlayers(tick);
+		game.tick(inputs);
+		recordTick(tick, inputs);
+		areaOfInterest.afterTick(game);
+		if (game.getTick() % STATE_HASH_INTERVAL == 0) {
+			shareStateHash();
+		}
+		networkApplication.getMetrics().recordTick(System.nanoTime() - tickStart, lastInputWaitNanos);
+		if (tickEvent.shouldCommit()) {
+			tickEvent.tick = tick;
+			tickEvent.inputWait = lastInputWaitNanos;
+			tickEvent.stallReason = lastStallReason;
+			tickEvent.commit();
+		}
+	}
+
+	/**
+	 * Schedules the next step of the tick loop, unless it has been scheduled already or the match has finished.
+	 * Gets called whenever something happens that a waiting tick might need.
+	 */
+	private synchronized void wakeUp() {
+		if (isStarted && !isFinished && !isStepScheduled) {
+			isStepScheduled = true;
+			scheduler.execute(this::runStep);
+		}
+	}
+
+	/**
+	 * Sends the local input for the passed tick, together with the inputs of the previous ticks that have not been
+	 * acknowledged by all other players yet, and the acknowledgements of the local player.
+	 * The first {@link SnakeMatch#INPUT_DELAY_TICKS} ticks are never sent, since everyone knows them already.
+	 */
+	private void sendLocalInput(int tick) {
+		SnakeBot currentBot = bot;
+		if (currentBot != null) {
+			synchronized (this) {
+				for (int i = 0; i < INPUT_DELAY_TICKS; i++) {
+					int plannedTick = tick - INPUT_DELAY_TICKS + i;
+					// The first ticks use the initial Directions, which have never been sent.
+					plannedInputs[i] = plannedTick < INPUT_DELAY_TICKS ? null : inputHistory.get(localPlayer, plannedTick);
+				}
+			}
+			localDirection = currentBot.chooseDirection(game, localPlayer, plannedInputs);
+		}
+		Direction direction = localDirection;
+		synchronized (this) {
+			// Lockstep keeps the acknowledgements within a few ticks, the oldest inputs only get dropped if a
+			// participant stopped sending altogether, which stalls the match until it gets removed anyway.
+			inputHistory.trim(tick - INPUT_HISTORY_TICKS + 1);
+			submitInput(localPlayer, tick, direction);
+			int firstTick = Math.max(inputHistory.getFirstTick(), Math.min(tick, getFirstUnacknowledgedTick(localPlayer)));
+			int count = tick - firstTick + 1;
+			for (int i = 0; i < count; i++) {
+				packetInputs[i] = inputHistory.get(localPlayer, firstTick + i);
+			}
+			System.arraycopy(acknowledgedTicks[localPlayer], 0, packetAcks, 0, packetAcks.length);
+			inputPacket.clear();
+			InputPacketCodec.encode(inputPacket, localPlayer, firstTick, packetInputs, count, packetAcks, packetAcks.length);
+			inputPacket.flip();
+		}
+		networkApplication.getNetworkHandler().sendControlMessage(null, new InputControlMessage(),
+				Integer.toString(matchId), InputControlMessage.encodePacket(inputPacket));
+	}
+
+	/**
+	 * Returns the oldest tick for which the inputs of a player have not been acknowledged by every other participant,
+	 * ignoring the participants that are being removed.
+	 */
+	private int getFirstUnacknowledgedTick(int player) {
+		int firstTick = Integer.MAX_VALUE;
+		for (int other = 0; other < participants.size(); other++) {
+			if (other != player && isActive(other)) {
+				firstTick = Math.min(firstTick, acknowledgedTicks[other][player] + 1);
+			}
+		}
+		return firstTick;
+	}
+
+	/**
+	 * Sends the report of the removal of a player, unless the local player has already reported it, and stores it
+	 * as the report of the local player.
+	 */
+	private void reportRemoval(int player) {
+		if (removalReports[player][localPlayer] != NO_REPORT) {
+			return;
+		}
+		int lastTick = acknowledgedTicks[localPlayer][player];
+		removalReports[player][localPlayer] = lastTick;
+		// Everyone might be missing some of the inputs that have not been acknowledged by all participants yet.
+		int firstTick = inputHistory.getFirstTick();
+		int count = Math.max(0, lastTick - firstTick + 1);
+		Direction[] inputs = new Direction[count];
+		for (int i = 0; i < count; i++) {
+			inputs[i] = inputHistory.get(player, firstTick + i);
+		}
+		ByteBuffer packet = ByteBuffer.allocate(InputPacketCodec.MAX_PACKET_SIZE);
+		InputPacketCodec.encode(packet, player, firstTick, inputs, count);
+		networkApplication.getNetworkHandler().sendControlMessage(null, new RemovePlayerControlMessage(),
+				Integer.toString(matchId), Integer.toString(localPlayer), Integer.toString(player), Integer.toString(lastTick),
+				InputControlMessage.encodePacket(packet.flip()));
+	}
+
+	/**
+	 * Decides the tick every reported player gets removed at, once all active participants have reported it.
+	 * That tick directly follows the highest reported tick, and everyone has all inputs before it,
+	 * since every report carries them.
+	 */
+	private void decideRemovals() {
+		for (int player = 0; player < participants.size(); player++) {
+			if (removalTicks[player] != NOT_REMOVED || removalReports[player][localPlayer] == NO_REPORT) {
+				continue;
+			}
+			int[] reports = removalReports[player];
+			boolean isComplete = true;
+			int lastTick = NO_REPORT;
+			for (int other = 0; other < participants.size(); other++) {
+				if (other == player) {
+					// The report of a leaving player only carries its last inputs, since not everyone might receive it.
+					continue;
+				}
+				if (reports[other] == NO_REPORT && isActive(other)) {
+					isComplete = false;
+				}
+				lastTick = Math.max(lastTick, reports[other]);
+			}
+			if (!isComplete) {
+				continue;
+			}
+			removalTicks[player] = lastTick + 1;
+			networkApplication.getMetrics().recordRemovedPlayer();
+			networkApplication.getConsoleHandler().printSystemMessage("Player %s has been removed from the match at tick %d."
+					.formatted(participants.get(player), removalTicks[player]));
+			wakeUp();
+		}
+	}
+
+	/**
+	 * Kills the Snakes of the players removed at the passed tick, right before it gets simulated.
+	 */
+	private synchronized void removePlayers(int tick) {
+		for (int player = 0; player < participants.size(); player++) {
+			if (removalTicks[player] == tick) {
+				game.removePlayer(player);
+				if (recorder != null) {
+					recorder.recordRemoval(tick, player);
+				}
+			}
+		}
+	}
+
+	private boolean isParticipant(int player) {
+		return player >= 0 && player < participants.size();
+	}
+
+	/**
+	 * Returns whether a player is neither removed nor reported by the local player, so it should still send
+	 * inputs, acknowledgements and reports.
+	 */
+	private boolean isActive(int player) {
+		return removalTicks[player] == NOT_REMOVED && removalReports[player][localPlayer] == NO_REPORT;
+	}
+
+	private void shareStateHash() {
+		int tick = game.getTick();
+		long hash = game.getStateHash();
+		networkApplication.getNetworkHandler().sendControlMessage(null, new StateHashControlMessage(),
+				Integer.toString(matchId), Integer.toString(localPlayer), Integer.toString(tick), Long.toHexString(hash));
+		synchronized (this) {
+			localStateHashes.put(tick, hash);
+			localStateHashes.remove(tick - STATE_HASH_HISTORY_TICKS);
+			Map<Integer, Long> remoteHashes = earlyStateHashes.remove(tick);
+			if (remoteHashes != null) {
+				remoteHashes.forEach((player, remoteHash) -> compareStateHashes(player, tick, hash, remoteHash));
+			}
+		}
+	}
+
+	private void compareStateHashes(int player, int tick, long localHash, long remoteHash) {
+		// A removed player might have simulated a few ticks on its own, before it found out.
+		if (localHash == remoteHash || isRemoved(player, tick)) {
+			return;
+		}
+		networkApplication.getMetrics().recordDesync();
+		if (!hasDesynced) {
+			hasDesynced = true;
+			String m = "Your game has desynced from %s at tick %d! Check the replay log of this match.";
+			networkApplication.getConsoleHandler().printSystemMessage(m.formatted(participants.get(player), tick));
+		}
+	}
+
+	/**
+	 * Returns the inputs of all players for the passed tick, once they have all arrived, and removes the players whose
+	 * inputs have been missing for longer than the failure timeout. Until then, the step ends, and the tick gets resumed
+	 * by {@link SnakeMatch#wakeUp()} when an input arrives or the next missing player might time out.
+	 * How long the tick waited and why gets stored in {@link SnakeMatch#lastInputWaitNanos} and {@link SnakeMatch#lastStallReason}.
+	 * @param tick the tick
+	 * @return the inputs, or null if some are still missing
+	 */
+	private Direction[] pollInputs(int tick) {
+		if (!hasAllInputs(tick)) {
+			if (!isWaiting) {
+				isWaiting = true;
+				waitStart = System.nanoTime();
+				lastStallReason = "Waiting for the inputs of " + getMissingPlayers(tick);
+			}
+			long timeoutNanos = removeUnresponsivePlayers(tick);
+			if (!hasAllInputs(tick)) {
+				if (timeoutCheck != null) {
+					timeoutCheck.cancel(false);
+				}
+				timeoutCheck = scheduler.schedule(this::wakeUp, timeoutNanos, TimeUnit.NANOSECONDS);
+				isStepScheduled = false;
+				return null;
+			}
+		}
+		if (isWaiting) {
+			isWaiting = false;
+			lastInputWaitNanos = System.nanoTime() - waitStart;
+		} else {
+			lastInputWaitNanos = 0;
+			lastStallReason = null;
+		}
+		currentTick = tick + 1;
+		Direction[] inputs = new Direction[participants.size()];
+		for (int player = 0; player < inputs.length; player++) {
+			inputs[player] = tick < removalTicks[player] ? inputHistory.get(player, tick) : null;
+		}
+		trimInputHistory();
+		return inputs;
+	}
+
+	/**
+	 * Reports the removal of every player whose input for the passed tick is missing, and who has not sent any input
+	 * for the failure timeout.
+	 * @return the time until the next missing player would time out, in nanoseconds
+	 */
+	private long removeUnresponsivePlayers(int tick) {
+		long now = System.nanoTime();
+		long timeoutNanos = failureTimeoutNanos;
+		for (int player = 0; player < participants.size(); player++) {
+			if (!isActive(player) || inputHistory.get(player, tick) != null) {
+				continue;
+			}
+			long silentNanos = now - lastInputNanos[player];
+			if (silentNanos >= failureTimeoutNanos) {
+				networkApplication.getConsoleHandler().printSystemMessage("Player %s has not sent any inputs for %d ms and is being removed from the match."
+						.formatted(participants.get(player), TimeUnit.NANOSECONDS.toMillis(silentNanos)));
+				reportRemoval(player);
+				decideRemovals();
+			} else {
+				timeoutNanos = Math.min(timeoutNanos, failureTimeoutNanos - silentNanos);
+			}
+		}
+		return timeoutNanos;
+	}
+
+	/**
+	 * Returns whether the passed tick can be simulated. A player whose removal has been reported but not decided yet
+	 * holds back every tick after the one it has been reported at, since it might still take part in them.
+	 */
+	private boolean hasAllInputs(int tick) {
+		for (int player = 0; player < participants.size(); player++) {
+			if (tick >= removalTicks[player]) {
+				continue;
+			}
+			int reportedTick = removalReports[player][localPlayer];
+			if ((reportedTick != NO_REPORT && tick > reportedTick) || inputHistory.get(player, tick) == null) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Drops the inputs that have been simulated and acknowledged by all participants that are not being removed.
+	 */
+	private void trimInputHistory() {
+		int firstTick = currentTick;
+		for (int player = 0; player < participants.size(); player++) {
+			if (removalTicks[player] == NOT_REMOVED) {
+				firstTick = Math.min(firstTick, getFirstUnacknowledgedTick(player));
+			}
+		}
+		inputHistory.trim(firstTick);
+	}
+
+	private List<String> getMissingPlayers(int tick) {
+		List<String> missingPlayers = new ArrayList<>();
+		for (int i = 0; i < participants.size(); i++) {
+			if (tick < removalTicks[i] && inputHistory.get(i, tick) == null) {
+				missingPlayers.add(participants.get(i));
+			}
+		}
+		return missingPlayers;
+	}
+
+	private void recordTick(int tick, Direction[] inputs) {
+		if (recorder == null) {
+			return;
+		}
+		recorder.recordTick(tick, inputs);
+		if (game.getTick() % KEYFRAME_INTERVAL == 0) {
+			recorder.recordKeyframe(game);
+		} else if (game.getTick() % STATE_HASH_INTERVAL == 0) {
+			recorder.recordStateHash(game);
+		}
+	}
+
+	private void finishMatch() {
+		isRunning = false;
+		if (recorder != null) {
+			recorder.recordStateHash(game);
+			recorder.closeRecorder();
+		}
+		if (game.isOver()) {
+			String message = "The match is over after %d ticks.".formatted(game.getTick());
+			for (int i = 0; i < participants.size(); i++) {
+				if (game.getSnake(i).isAlive()) {
+					message += " %s has won!".formatted(i == localPlayer ? "You" : participants.get(i));
+				}
+			}
+			networkApplication.getConsoleHandler().printSystemMessage(message);
+		}
+		networkApplication.removeMatch(this);
+		networkApplication.getNetworkHandler().getInterestRouter().retainMatches(
+				networkApplication.getRunningMatches().stream().map(SnakeMatch::getMatchId).toList());
+		synchronized (this) {
+			if (timeoutCheck != null) {
+				timeoutCheck.cancel(false);
+			}
+			isFinished = true;
+			stepThread = null;
+			notifyAll();
+		}
+	}
+
+	public int getMatchId() {
+		return matchId;
+	}
+
+	public boolean isRunning() {
+		return isRunning;
+	}
+
+	public AreaOfInterest getAreaOfInterest() {
+		return areaOfInterest;
+	}
+
+	public SnakeGame getGame() {
+		return game;
+	}
+}
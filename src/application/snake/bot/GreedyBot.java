@@ -0,0 +1,165 @@
+package application.snake.bot;
+
+import application.snake.Direction;
+import application.snake.Snake;
+import application.snake.SnakeGame;
+
+import java.util.Arrays;
+
+/**
+ * This Bot heads for the food on the shortest free path, but never moves into an area that is too small to hold it.
+ * <p>
+ * Every tick it first moves its head along the planned inputs, since those will be used before its decision.
+ * Then it rates every Direction by whether it is safe and by the distance to the food from there. A move is safe, if
+ * the free area behind it, found with a flood fill, is at least as large as the Snake, and no other head could reach
+ * the cell before it. All bodies are treated as if they would not move, so the Bot is cautious around the tails.
+ */
+public class GreedyBot implements SnakeBot {
+	private static final int NO_CELL = -1;
+	private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+	private int width;
+	private int height;
+	private boolean[] isBlocked;
+	private int[] foodDistances;
+	private int[] visited;
+	private int visitMark;
+	private int[] queue;
+
+	@Override
+	public Direction chooseDirection(SnakeGame game, int player, Direction[] plannedInputs) {
+		Snake snake = game.getSnake(player);
+		if (!snake.isAlive()) {
+			return snake.getDirection();
+		}
+		prepare(game);
+
+		int head = snake.getHead();
+		Direction direction = snake.getDirection();
+		for (Direction planned : plannedInputs) {
+			if (planned != null && !planned.isOpposite(direction)) {
+				direction = planned;
+			}
+			head = getNeighbourCell(head, direction);
+			if (head == NO_CELL) {
+				// The Snake is going to leave the board, nothing can save it anymore.
+				return direction;
+			}
+			isBlocked[head] = true;
+		}
+		computeFoodDistances(game.getFoodCell());
+
+		// Until the chosen move happens, every other head can move as many cells as the planned inputs, plus one.
+		int contestRadius = plannedInputs.length + 1;
+		Direction best = null;
+		boolean bestIsSafe = false;
+		int bestDistance = UNREACHABLE;
+		int bestArea = 0;
+		// Starting with the current Direction keeps it on ties.
+		for (int i = 0; i < 4; i++) {
+			Direction candidate = Direction.fromCode((direction.getCode() + i) % 4);
+			int next = getNeighbourCell(head, candidate);
+			if (candidate.isOpposite(direction) || next == NO_CELL || isBlocked[next]) continue;
+
+			int area = countFreeCells(next, snake.getLength());
+			boolean isSafe = area >= snake.getLength() && !isContested(game, player, next, contestRadius);
+			int distance = foodDistances[next];
+			if (best == null || (isSafe && !bestIsSafe)
+					|| (isSafe == bestIsSafe && (distance < bestDistance || (distance == bestDistance && area > bestArea)))) {
+				best = candidate;
+				bestIsSafe = isSafe;
+				bestDistance = distance;
+				bestArea = area;
+			}
+		}
+		return best != null ? best : direction;
+	}
+
+	private void prepare(SnakeGame game) {
+		int cells = game.getWidth() * game.getHeight();
+		if (isBlocked == null || isBlocked.length != cells) {
+			isBlocked = new boolean[cells];
+			foodDistances = new int[cells];
+			visited = new int[cells];
+			visitMark = 0;
+			queue = new int[cells];
+		}
+		width = game.getWidth();
+		height = game.getHeight();
+		for (int cell = 0; cell < cells; cell++) {
+			isBlocked[cell] = !game.isFree(cell);
+		}
+	}
+
+	/**
+	 * Stores the length of the shortest free path from every cell to the food in {@link GreedyBot#foodDistances}.
+	 */
+	private void computeFoodDistances(int foodCell) {
+		Arrays.fill(foodDistances, UNREACHABLE);
+		if (foodCell == NO_CELL || isBlocked[foodCell]) {
+			return;
+		}
+		int head = 0;
+		int tail = 0;
+		foodDistances[foodCell] = 0;
+		queue[tail++] = foodCell;
+		while (head < tail) {
+			int cell = queue[head++];
+			for (Direction direction : Direction.values()) {
+				int neighbour = getNeighbourCell(cell, direction);
+				if (neighbour != NO_CELL && !isBlocked[neighbour] && foodDistances[neighbour] == UNREACHABLE) {
+					foodDistances[neighbour] = foodDistances[cell] + 1;
+					queue[tail++] = neighbour;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Counts the free cells reachable from the passed one, including itself.
+	 * @param limit the count at which to stop, since only whether the area is large enough matters
+	 * @return the number of cells, at most the limit
+	 */
+	private int countFreeCells(int start, int limit) {
+		visitMark++;
+		int head = 0;
+		int tail = 0;
+		visited[start] = visitMark;
+		queue[tail++] = start;
+		while (head < tail && tail < limit) {
+			int cell = queue[head++];
+			for (Direction direction : Direction.values()) {
+				int neighbour = getNeighbourCell(cell, direction);
+				if (neighbour != NO_CELL && !isBlocked[neighbour] && visited[neighbour] != visitMark) {
+					visited[neighbour] = visitMark;
+					queue[tail++] = neighbour;
+				}
+			}
+		}
+		return Math.min(tail, limit);
+	}
+
+	/**
+	 * Returns true if the head of another Snake is so close to the passed cell that it might get there first.
+	 */
+	private boolean isContested(SnakeGame game, int player, int cell, int radius) {
+		for (int i = 0; i < game.getNumberOfPlayers(); i++) {
+			Snake other = game.getSnake(i);
+			if (i == player || !other.isAlive()) continue;
+			int otherHead = other.getHead();
+			if (Math.abs(otherHead % width - cell % width) + Math.abs(otherHead / width - cell / width) <= radius) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private int getNeighbourCell(int cell, Direction direction) {
+		int x = cell % width + direction.getDeltaX();
+		int y = cell / width + direction.getDeltaY();
+		if (x < 0 || y < 0 || x >= width || y >= height) {
+			return NO_CELL;
+		}
+		return y * width + x;
+	}
+}
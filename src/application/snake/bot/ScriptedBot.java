@@ -0,0 +1,49 @@
+package application.snake.bot;
+
+import application.snake.Direction;
+import application.snake.SnakeGame;
+
+/**
+ * This Bot plays a fixed sequence of Directions, one per tick, and starts over at its end.
+ * The sequence is written with the identifiers of the Directions, for example "rrddllu".
+ */
+public class ScriptedBot implements SnakeBot {
+	static final String PREFIX = "script:";
+
+	private final Direction[] script;
+	private int nextInput;
+
+	public ScriptedBot(Direction[] script) {
+		if (script.length == 0) {
+			throw new IllegalArgumentException("The script has to contain at least one Direction!");
+		}
+		this.script = script.clone();
+	}
+
+	/**
+	 * Creates a Bot from a sequence of Direction identifiers.
+	 * @param script the identifiers, one character per Direction
+	 * @return the Bot
+	 * @throws IllegalStateException when the script contains something else than Direction identifiers
+	 */
+	static ScriptedBot parse(String script) {
+		Direction[] directions = new Direction[script.length()];
+		for (int i = 0; i < directions.length; i++) {
+			directions[i] = Direction.fromIdentifier(script.substring(i, i + 1));
+			if (directions[i] == null) {
+				throw new IllegalStateException("The bot script \"%s\" contains an unknown Direction!".formatted(script));
+			}
+		}
+		if (directions.length == 0) {
+			throw new IllegalStateException("The bot script must not be empty!");
+		}
+		return new ScriptedBot(directions);
+	}
+
+	@Override
+	public Direction chooseDirection(SnakeGame game, int player, Direction[] plannedInputs) {
+		Direction direction = script[nextInput];
+		nextInput = (nextInput + 1) % script.length;
+		return direction;
+	}
+}
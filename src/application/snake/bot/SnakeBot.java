@@ -0,0 +1,51 @@
+package application.snake.bot;
+
+import application.ApplicationSetting;
+import application.snake.Direction;
+import application.snake.SnakeGame;
+
+import java.util.function.Supplier;
+
+/**
+ * A Snake Bot steers the local Snake of a headless Peer in place of a player.
+ * <p>
+ * It gets asked for a Direction once per tick, right before the local input gets sent. Like every input, that
+ * Direction only gets used {@code plannedInputs.length} ticks in the future, the inputs for the ticks in between have
+ * already been sent.
+ */
+public interface SnakeBot {
+	/**
+	 * Chooses the Direction of the local Snake for the tick after all planned inputs.
+	 * It gets called by the tick loop of the match, so the Game does not change while this method runs.
+	 * @param game the Game, at its current tick
+	 * @param player the index of the local player
+	 * @param plannedInputs the inputs already sent for the current tick and the following ones, oldest first,
+	 *                      null for ticks that keep the Direction
+	 * @return the Direction
+	 */
+	Direction chooseDirection(SnakeGame game, int player, Direction[] plannedInputs);
+
+	/**
+	 * Returns a factory for the Bot selected by {@link ApplicationSetting#BOT}, since every match needs a Bot of its
+	 * own. The Setting gets read right away.
+	 * @return the factory, which returns null if no Bot has been selected
+	 * @throws IllegalStateException when the Setting does not name a Bot
+	 */
+	static Supplier<SnakeBot> fromSetting() {
+		String value = ApplicationSetting.BOT.get();
+		if (value.equals("none")) {
+			return () -> null;
+		}
+		if (value.equals("greedy")) {
+			return GreedyBot::new;
+		}
+		if (value.startsWith(ScriptedBot.PREFIX)) {
+			String script = value.substring(ScriptedBot.PREFIX.length());
+			// Parsing it once up front reports an invalid script at startup instead of at the first match.
+			ScriptedBot.parse(script);
+			return () -> ScriptedBot.parse(script);
+		}
+		throw new IllegalStateException("The bot has to be \"none\", \"greedy\" or \"%s<directions>\", but was \"%s\"!"
+				.formatted(ScriptedBot.PREFIX, value));
+	}
+}
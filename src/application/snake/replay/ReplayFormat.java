@@ -0,0 +1,37 @@
+package application.snake.replay;
+
+/**
+ * This class contains the constants describing the binary layout of a replay log.
+ * <p>
+ * A replay log starts with a header, followed by an append-only sequence of records. Every record starts
+ * with a single type byte. A type byte of zero marks the end of the log, which is also what the unused,
+ * zero-filled rest of a memory-mapped file looks like.
+ * <ul>
+ *     <li>Header: magic (int), version (int), width (int), height (int), number of players (int), seed (long)</li>
+ *     <li>{@link ReplayFormat#TICK_RECORD}: tick (int), one input byte per player</li>
+ *     <li>{@link ReplayFormat#STATE_HASH_RECORD}: tick (int), state hash (long)</li>
+ *     <li>{@link ReplayFormat#KEYFRAME_RECORD}: tick (int), state size (int), the state written by
+ *     {@link application.snake.SnakeGame#writeState SnakeGame.writeState}</li>
+ *     <li>{@link ReplayFormat#REMOVAL_RECORD}: tick (int), player (int), written before the tick record of the tick
+ *     the player has been removed at, see {@link application.snake.SnakeGame#removePlayer SnakeGame.removePlayer}</li>
+ * </ul>
+ */
+final class ReplayFormat {
+	static final int MAGIC = 0x534E4B52; // "SNKR"
+	static final int VERSION = 3;
+	static final int HEADER_SIZE = 5 * Integer.BYTES + Long.BYTES;
+
+	static final byte END_OF_LOG = 0;
+	static final byte TICK_RECORD = 1;
+	static final byte STATE_HASH_RECORD = 2;
+	static final byte KEYFRAME_RECORD = 3;
+	static final byte REMOVAL_RECORD = 4;
+
+	/**
+	 * The input byte of a player who did not change their Direction.
+	 */
+	static final byte NO_INPUT = -1;
+
+	private ReplayFormat() {
+	}
+}
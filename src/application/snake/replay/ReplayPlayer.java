@@ -0,0 +1,119 @@
+package application.snake.replay;
+
+import application.snake.Direction;
+import application.snake.SnakeGame;
+
+import java.nio.ByteBuffer;
+
+/**
+ * This class plays a replay log back through the {@link SnakeGame} engine.
+ * <p>
+ * Since the engine is deterministic, only the recorded inputs are needed to reproduce the match.
+ * The recorded state hashes get compared along the way, so a replay also reveals where a match has desynced.
+ */
+public class ReplayPlayer {
+	private final ReplayReader reader;
+	private final Direction[] inputs;
+
+	private ByteBuffer records;
+	private SnakeGame game;
+	private int hashMismatches;
+	private int firstMismatchTick;
+
+	public ReplayPlayer(ReplayReader reader) {
+		this.reader = reader;
+		inputs = new Direction[reader.getNumberOfPlayers()];
+		seek(0);
+	}
+
+	/**
+	 * Moves the replay to the passed tick, by restoring the closest keyframe before it
+	 * and simulating the remaining ticks from there.
+	 * @param tick the tick to move to
+	 */
+	public void seek(int tick) {
+		records = reader.getRecords();
+		records.position(reader.getKeyframePositionBefore(tick));
+		if (records.get() != ReplayFormat.KEYFRAME_RECORD) {
+			throw new IllegalStateException("This should never happen! The keyframe index of the replay log is broken.");
+		}
+		records.getInt();
+		int stateSize = records.getInt();
+		game = SnakeGame.readState(records.slice(records.position(), stateSize));
+		records.position(records.position() + stateSize);
+
+		hashMismatches = 0;
+		firstMismatchTick = -1;
+		while (game.getTick() < tick && step()) {
+			// Simulate the remaining ticks.
+		}
+	}
+
+	/**
+	 * Advances the replay by one tick.
+	 * @return true when a tick has been played, false when the end of the replay log has been reached
+	 */
+	public boolean step() {
+		while (records.hasRemaining()) {
+			byte type = records.get();
+			if (type == ReplayFormat.END_OF_LOG) break;
+
+			int tick = records.getInt();
+			switch (type) {
+				case ReplayFormat.TICK_RECORD -> {
+					if (tick != game.getTick()) {
+						throw new IllegalStateException("The replay log is corrupted, expected tick %d but found %d!".formatted(game.getTick(), tick));
+					}
+					for (int i = 0; i < inputs.length; i++) {
+						byte input = records.get();
+						inputs[i] = input == ReplayFormat.NO_INPUT ? null : Direction.fromCode(input);
+					}
+					game.tick(inputs);
+					return true;
+				}
+				case ReplayFormat.REMOVAL_RECORD -> {
+					int player = records.getInt();
+					if (tick == game.getTick()) {
+						game.removePlayer(player);
+					}
+				}
+				case ReplayFormat.STATE_HASH_RECORD -> {
+					long hash = records.getLong();
+					if (tick == game.getTick() && hash != game.getStateHash()) {
+						if (hashMismatches == 0) {
+							firstMismatchTick = tick;
+						}
+						hashMismatches++;
+					}
+				}
+				default -> reader.skipRecordBody(records, type);
+			}
+		}
+		records.position(records.limit());
+		return false;
+	}
+
+	/**
+	 * Returns the Game in the state of the current tick of the replay.
+	 * @return the Game
+	 */
+	public SnakeGame getGame() {
+		return game;
+	}
+
+	/**
+	 * Returns how many recorded state hashes did not match the replayed state since the last seek.
+	 * @return the number of mismatches
+	 */
+	public int getHashMismatches() {
+		return hashMismatches;
+	}
+
+	/**
+	 * Returns the tick of the first recorded state hash that did not match the replayed state.
+	 * @return the tick, or -1 if there was no mismatch
+	 */
+	public int getFirstMismatchTick() {
+		return firstMismatchTick;
+	}
+}
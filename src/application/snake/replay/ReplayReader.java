@@ -0,0 +1,119 @@
+package application.snake.replay;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * This class memory-maps a replay log written by a {@link ReplayRecorder} and indexes all of its keyframes.
+ */
+public class ReplayReader {
+	private final MappedByteBuffer buffer;
+	private final int width;
+	private final int height;
+	private final int numberOfPlayers;
+	private final long seed;
+	/**
+	 * Maps the tick of every keyframe to the position of its record.
+	 */
+	private final NavigableMap<Integer, Integer> keyframePositions;
+
+	/**
+	 * Opens the passed replay log.
+	 * @param file the replay log
+	 * @throws IOException when the file could not be read or is not a valid replay log
+	 */
+	public ReplayReader(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		if (buffer.limit() < ReplayFormat.HEADER_SIZE || buffer.getInt() != ReplayFormat.MAGIC) {
+			throw new IOException("The file is not a replay log!");
+		}
+		int version = buffer.getInt();
+		if (version != ReplayFormat.VERSION) {
+			throw new IOException("Unsupported replay log version %d!".formatted(version));
+		}
+		width = buffer.getInt();
+		height = buffer.getInt();
+		numberOfPlayers = buffer.getInt();
+		seed = buffer.getLong();
+
+		keyframePositions = new TreeMap<>();
+		ByteBuffer records = getRecords();
+		while (records.hasRemaining()) {
+			int position = records.position();
+			byte type = records.get();
+			if (type == ReplayFormat.END_OF_LOG) break;
+
+			int tick = records.getInt();
+			if (type == ReplayFormat.KEYFRAME_RECORD) {
+				keyframePositions.put(tick, position);
+			}
+			skipRecordBody(records, type);
+		}
+		if (keyframePositions.isEmpty()) {
+			throw new IOException("The replay log does not contain any keyframes!");
+		}
+	}
+
+	/**
+	 * Skips the rest of a record, whose type and tick have already been read.
+	 * @param records the buffer positioned directly after the tick of the record
+	 * @param type the type of the record
+	 */
+	void skipRecordBody(ByteBuffer records, byte type) {
+		int size = switch (type) {
+			case ReplayFormat.TICK_RECORD -> numberOfPlayers;
+			case ReplayFormat.STATE_HASH_RECORD -> Long.BYTES;
+			case ReplayFormat.KEYFRAME_RECORD -> records.getInt();
+			case ReplayFormat.REMOVAL_RECORD -> Integer.BYTES;
+			default -> throw new IllegalStateException("The replay log is corrupted, unknown record type %d!".formatted(type));
+		};
+		records.position(records.position() + size);
+	}
+
+	/**
+	 * Returns a new view of all records, positioned at the first record.
+	 * @return the records
+	 */
+	ByteBuffer getRecords() {
+		return buffer.duplicate().position(ReplayFormat.HEADER_SIZE);
+	}
+
+	/**
+	 * Returns the position of the last keyframe at or before the passed tick.
+	 * @param tick the tick
+	 * @return the position of the keyframe record
+	 */
+	int getKeyframePositionBefore(int tick) {
+		Map.Entry<Integer, Integer> entry = keyframePositions.floorEntry(tick);
+		return entry == null ? keyframePositions.firstEntry().getValue() : entry.getValue();
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getNumberOfPlayers() {
+		return numberOfPlayers;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public int getNumberOfKeyframes() {
+		return keyframePositions.size();
+	}
+}
@@ -0,0 +1,127 @@
+package application.snake.replay;
+
+import application.snake.Direction;
+import application.snake.SnakeGame;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class records a match into an append-only replay log, as described in {@link ReplayFormat}.
+ * <p>
+ * The log is written through memory-mapped regions of the file, so recording a tick is just a copy into memory
+ * and the tick loop never has to wait for the disk. The operating system writes the pages back in the background.
+ * Whenever a region is full, the next region of the file gets mapped.
+ */
+public class ReplayRecorder {
+	private static final int REGION_SIZE = 1 << 20;
+
+	private final FileChannel channel;
+	private final int numberOfPlayers;
+
+	private MappedByteBuffer region;
+	private long regionStart;
+
+	/**
+	 * Creates a new replay log at the passed path and records the initial state of the Game as the first keyframe.
+	 * @param file the file to write to, which gets overwritten if it already exists
+	 * @param game the Game that is about to be recorded
+	 * @param seed the seed the Game has been created with
+	 * @throws IOException when the file could not be created
+	 */
+	public ReplayRecorder(Path file, SnakeGame game, long seed) throws IOException {
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		numberOfPlayers = game.getNumberOfPlayers();
+		regionStart = 0;
+		region = channel.map(FileChannel.MapMode.READ_WRITE, 0, REGION_SIZE);
+
+		region.putInt(ReplayFormat.MAGIC);
+		region.putInt(ReplayFormat.VERSION);
+		region.putInt(game.getWidth());
+		region.putInt(game.getHeight());
+		region.putInt(numberOfPlayers);
+		region.putLong(seed);
+		recordKeyframe(game);
+	}
+
+	/**
+	 * Records the inputs every player used for a certain tick.
+	 * @param tick the tick the inputs belong to
+	 * @param inputs the inputs, null entries meaning the player kept their Direction
+	 */
+	public void recordTick(int tick, Direction[] inputs) {
+		ensureCapacity(1 + Integer.BYTES + numberOfPlayers);
+		region.put(ReplayFormat.TICK_RECORD);
+		region.putInt(tick);
+		for (Direction input : inputs) {
+			region.put(input == null ? ReplayFormat.NO_INPUT : (byte) input.getCode());
+		}
+	}
+
+	/**
+	 * Records that a player has been removed from the match before a certain tick.
+	 * @param tick the tick the player has been removed at
+	 * @param player the index of the player
+	 */
+	public void recordRemoval(int tick, int player) {
+		ensureCapacity(1 + 2 * Integer.BYTES);
+		region.put(ReplayFormat.REMOVAL_RECORD);
+		region.putInt(tick);
+		region.putInt(player);
+	}
+
+	/**
+	 * Records the state hash of the Game, so a replay can detect when it diverges from the recorded match.
+	 * @param game the Game
+	 */
+	public void recordStateHash(SnakeGame game) {
+		ensureCapacity(1 + Integer.BYTES + Long.BYTES);
+		region.put(ReplayFormat.STATE_HASH_RECORD);
+		region.putInt(game.getTick());
+		region.putLong(game.getStateHash());
+	}
+
+	/**
+	 * Records the whole state of the Game, so a replay can seek to this tick without simulating everything before it.
+	 * @param game the Game
+	 */
+	public void recordKeyframe(SnakeGame game) {
+		int stateSize = game.getStateSize();
+		ensureCapacity(1 + 2 * Integer.BYTES + stateSize);
+		region.put(ReplayFormat.KEYFRAME_RECORD);
+		region.putInt(game.getTick());
+		region.putInt(stateSize);
+		game.writeState(region);
+	}
+
+	/**
+	 * Stops recording and releases the file.
+	 * <p>
+	 * The file is not truncated, since a mapped file can not be truncated on every platform.
+	 * The zero-filled rest of the last region reads as {@link ReplayFormat#END_OF_LOG} instead.
+	 */
+	public void closeRecorder() {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private void ensureCapacity(int recordSize) {
+		// One byte more than the record itself, so there is always room left for the end of the log.
+		if (region.remaining() > recordSize) {
+			return;
+		}
+		regionStart += region.position();
+		try {
+			region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, Math.max(REGION_SIZE, recordSize + 1));
+		} catch (IOException e) {
+			throw new RuntimeException("Could not extend the replay log: " + e);
+		}
+	}
+}